@@ -9,6 +9,7 @@ import java.util.Properties;
 import edu.oregonstate.dataset.TopicGeneration;
 import edu.oregonstate.experiment.ExperimentConstructor;
 import edu.oregonstate.features.FeatureFactory;
+import edu.oregonstate.io.ModelCheckpoint;
 import edu.oregonstate.io.ResultOutput;
 import edu.oregonstate.util.EecbConstants;
 import edu.oregonstate.util.EecbConstructor;
@@ -60,8 +61,14 @@ public class ClassifierFactory extends ExperimentConstructor {
 		// output 
 		double[] averageWeight = returnPara.generateWeightForTesting();
 		String outputFile = experimentFolder + "/model/model" + phaseIndex;
-		String outputString = ResultOutput.printStructredModel(averageWeight, FeatureFactory.getFeatureTemplate());
+		List<String> featureTemplate = FeatureFactory.getFeatureTemplate();
+		String outputString = ResultOutput.printStructredModel(averageWeight, featureTemplate);
 		ResultOutput.writeTextFile(outputFile, outputString);
+		if (averageWeight.length > featureTemplate.size()) {
+			ResultOutput.writeTextFile(outputFile + "-hashed", ResultOutput.printHashedModel(averageWeight, featureTemplate.size()));
+		}
+		// the binary model is read back instead of parsing the text model
+		ModelCheckpoint.writeModel(outputFile + ".bin", averageWeight);
 	}
 	
 	/**
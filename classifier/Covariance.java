@@ -0,0 +1,150 @@
+package edu.oregonstate.classifier;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.util.EecbConstants;
+
+/**
+ * covariance of the weight used by AROW, all operations work in place on preallocated arrays
+ * <p>
+ * AROW only needs Sigma x, x^T Sigma x and the rank-1 update Sigma = Sigma - beta (Sigma x)(Sigma x)^T, so the
+ * covariance can be stored in different ways: the full d x d matrix, only its diagonal for large feature spaces,
+ * or the diagonal plus the latest rank-1 updates.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public abstract class Covariance {
+
+	/** the representation tags of the binary form */
+	protected static final byte FULL = 1;
+	protected static final byte DIAGONAL = 2;
+	protected static final byte LOWRANK = 3;
+
+	/** the dimension of the covariance */
+	protected final int dimension;
+
+	protected Covariance(int dimension) {
+		this.dimension = dimension;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	/**
+	 * create the identity covariance in the configured representation
+	 *
+	 * @param dimension
+	 * @return
+	 */
+	public static Covariance createIdentity(int dimension) {
+		String type = "full";
+		int rank = 10;
+		if (ExperimentConstructor.experimentProps != null) {
+			type = ExperimentConstructor.experimentProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_AROW_COVARIANCE, type);
+			rank = Integer.parseInt(ExperimentConstructor.experimentProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_AROW_RANK, "" + rank));
+		}
+
+		if (type.equals("diagonal")) {
+			return new DiagonalCovariance(dimension);
+		} else if (type.equals("lowrank")) {
+			return new LowRankCovariance(dimension, rank);
+		} else if (type.equals("full")) {
+			return new FullCovariance(dimension);
+		}
+
+		throw new IllegalArgumentException("unknown AROW covariance : " + type);
+	}
+
+	/**
+	 * result = Sigma x
+	 *
+	 * @param x
+	 * @param result preallocated, of the same dimension
+	 */
+	public abstract void multiply(double[] x, double[] result);
+
+	/**
+	 * Sigma = Sigma - beta u u^T
+	 *
+	 * @param u usually Sigma x
+	 * @param beta
+	 */
+	public abstract void rankOneUpdate(double[] u, double beta);
+
+	/** a deep copy */
+	public abstract Covariance copy();
+
+	/**
+	 * overwrite the target, which has the same representation and dimension, with this covariance
+	 *
+	 * @param target
+	 */
+	public abstract void copyTo(Covariance target);
+
+	/** the dense d x d matrix, for the callers of Parameter.getVariance */
+	public abstract double[][] toMatrix();
+
+	/**
+	 * write the representation tag, the dimension and the stored values
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public abstract void write(DataOutput out) throws IOException;
+
+	/**
+	 * read a covariance written by write, in the representation it was written in
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static Covariance read(DataInput in) throws IOException {
+		byte type = in.readByte();
+		int dimension = in.readInt();
+		switch (type) {
+		case FULL:
+			return FullCovariance.read(in, dimension);
+		case DIAGONAL:
+			return DiagonalCovariance.read(in, dimension);
+		case LOWRANK:
+			return LowRankCovariance.read(in, dimension);
+		default:
+			throw new IOException("unknown covariance representation : " + type);
+		}
+	}
+
+	protected static void writeArray(DataOutput out, double[] values) throws IOException {
+		for (double value : values) {
+			out.writeDouble(value);
+		}
+	}
+
+	protected static void readArray(DataInput in, double[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readDouble();
+		}
+	}
+
+	/**
+	 * x^T Sigma x, with buffer as the storage of Sigma x
+	 *
+	 * @param x
+	 * @param buffer preallocated, filled with Sigma x
+	 * @return
+	 */
+	public double quadraticForm(double[] x, double[] buffer) {
+		multiply(x, buffer);
+		double sum = 0.0;
+		for (int i = 0; i < dimension; i++) {
+			sum += x[i] * buffer[i];
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,107 @@
+package edu.oregonstate.classifier;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import edu.oregonstate.cluster.SparseVector;
+
+/**
+ * diagonal covariance for large feature spaces, O(d) per operation. The rank-1 update only keeps its diagonal,
+ * as the diagonal version of AROW does.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class DiagonalCovariance extends Covariance {
+
+	private final double[] diagonal;
+
+	/** the identity matrix */
+	public DiagonalCovariance(int dimension) {
+		super(dimension);
+		diagonal = new double[dimension];
+		for (int i = 0; i < dimension; i++) {
+			diagonal[i] = 1.0;
+		}
+	}
+
+	private DiagonalCovariance(double[] diagonal) {
+		super(diagonal.length);
+		this.diagonal = diagonal;
+	}
+
+	public void multiply(double[] x, double[] result) {
+		for (int i = 0; i < dimension; i++) {
+			result[i] = diagonal[i] * x[i];
+		}
+	}
+
+	public void rankOneUpdate(double[] u, double beta) {
+		for (int i = 0; i < dimension; i++) {
+			diagonal[i] -= beta * u[i] * u[i];
+		}
+	}
+
+	public double get(int index) {
+		return diagonal[index];
+	}
+
+	/**
+	 * x^T Sigma x on the support of the sparse x
+	 *
+	 * @param x
+	 * @return
+	 */
+	public double quadraticForm(SparseVector x) {
+		double sum = 0.0;
+		for (int p = 0; p < x.size(); p++) {
+			double value = x.getValue(p);
+			sum += diagonal[x.getIndex(p)] * value * value;
+		}
+		return sum;
+	}
+
+	/**
+	 * the diagonal of Sigma = Sigma - beta (Sigma x)(Sigma x)^T on the support of the sparse x
+	 *
+	 * @param x
+	 * @param beta
+	 */
+	public void rankOneUpdate(SparseVector x, double beta) {
+		for (int p = 0; p < x.size(); p++) {
+			int index = x.getIndex(p);
+			double u = diagonal[index] * x.getValue(p);
+			diagonal[index] -= beta * u * u;
+		}
+	}
+
+	public Covariance copy() {
+		return new DiagonalCovariance(diagonal.clone());
+	}
+
+	public void copyTo(Covariance target) {
+		System.arraycopy(diagonal, 0, ((DiagonalCovariance) target).diagonal, 0, dimension);
+	}
+
+	public double[][] toMatrix() {
+		double[][] matrix = new double[dimension][dimension];
+		for (int i = 0; i < dimension; i++) {
+			matrix[i][i] = diagonal[i];
+		}
+		return matrix;
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(DIAGONAL);
+		out.writeInt(dimension);
+		writeArray(out, diagonal);
+	}
+
+	static DiagonalCovariance read(DataInput in, int dimension) throws IOException {
+		double[] diagonal = new double[dimension];
+		readArray(in, diagonal);
+		return new DiagonalCovariance(diagonal);
+	}
+
+}
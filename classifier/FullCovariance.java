@@ -0,0 +1,88 @@
+package edu.oregonstate.classifier;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * the full d x d covariance matrix, O(d^2) per operation
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class FullCovariance extends Covariance {
+
+	private final double[][] matrix;
+
+	/** the identity matrix */
+	public FullCovariance(int dimension) {
+		super(dimension);
+		matrix = new double[dimension][dimension];
+		for (int i = 0; i < dimension; i++) {
+			matrix[i][i] = 1.0;
+		}
+	}
+
+	/** wrap the matrix without copying it */
+	public FullCovariance(double[][] matrix) {
+		super(matrix.length);
+		this.matrix = matrix;
+	}
+
+	public void multiply(double[] x, double[] result) {
+		for (int row = 0; row < dimension; row++) {
+			double[] rowVector = matrix[row];
+			double sum = 0.0;
+			for (int column = 0; column < dimension; column++) {
+				sum += rowVector[column] * x[column];
+			}
+			result[row] = sum;
+		}
+	}
+
+	public void rankOneUpdate(double[] u, double beta) {
+		for (int row = 0; row < dimension; row++) {
+			double scale = beta * u[row];
+			if (scale == 0.0) continue;
+			double[] rowVector = matrix[row];
+			for (int column = 0; column < dimension; column++) {
+				rowVector[column] -= scale * u[column];
+			}
+		}
+	}
+
+	public Covariance copy() {
+		FullCovariance copy = new FullCovariance(new double[dimension][dimension]);
+		copyTo(copy);
+		return copy;
+	}
+
+	public void copyTo(Covariance target) {
+		double[][] targetMatrix = ((FullCovariance) target).matrix;
+		for (int row = 0; row < dimension; row++) {
+			System.arraycopy(matrix[row], 0, targetMatrix[row], 0, dimension);
+		}
+	}
+
+	/** the backing matrix itself */
+	public double[][] toMatrix() {
+		return matrix;
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(FULL);
+		out.writeInt(dimension);
+		for (double[] row : matrix) {
+			writeArray(out, row);
+		}
+	}
+
+	static FullCovariance read(DataInput in, int dimension) throws IOException {
+		double[][] matrix = new double[dimension][dimension];
+		for (double[] row : matrix) {
+			readArray(in, row);
+		}
+		return new FullCovariance(matrix);
+	}
+
+}
@@ -19,4 +19,7 @@ public interface IClassifier {
 	/* use zero vector to train the model */
 	public Parameter train(List<String> path, int modelIndex);
 	
+	/* continue training the model from the parameter, for example of the previous Dagger round */
+	public Parameter train(List<String> path, Parameter para, int modelIndex);
+	
 }
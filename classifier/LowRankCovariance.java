@@ -0,0 +1,137 @@
+package edu.oregonstate.classifier;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Sigma = D - sum_k c_k v_k v_k^T, a diagonal plus the latest rank-1 updates, O(rd) per operation
+ * <p>
+ * The latest rank updates are kept exactly in a ring buffer. When the buffer is full, the oldest update is folded
+ * into the diagonal, that is, only its diagonal is kept, as the diagonal representation does for every update.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class LowRankCovariance extends Covariance {
+
+	private final double[] diagonal;
+
+	/** the rank-1 terms v_k and their coefficients c_k */
+	private final double[][] vectors;
+	private final double[] coefficients;
+
+	/** the number of terms and the position of the oldest term */
+	private int size;
+	private int oldest;
+
+	/** the identity matrix */
+	public LowRankCovariance(int dimension, int rank) {
+		super(dimension);
+		diagonal = new double[dimension];
+		for (int i = 0; i < dimension; i++) {
+			diagonal[i] = 1.0;
+		}
+		vectors = new double[Math.max(1, rank)][dimension];
+		coefficients = new double[vectors.length];
+		size = 0;
+		oldest = 0;
+	}
+
+	public void multiply(double[] x, double[] result) {
+		for (int i = 0; i < dimension; i++) {
+			result[i] = diagonal[i] * x[i];
+		}
+		for (int k = 0; k < size; k++) {
+			double[] vector = vectors[(oldest + k) % vectors.length];
+			double projection = 0.0;
+			for (int i = 0; i < dimension; i++) {
+				projection += vector[i] * x[i];
+			}
+			double scale = coefficients[(oldest + k) % vectors.length] * projection;
+			if (scale == 0.0) continue;
+			for (int i = 0; i < dimension; i++) {
+				result[i] -= scale * vector[i];
+			}
+		}
+	}
+
+	public void rankOneUpdate(double[] u, double beta) {
+		if (size == vectors.length) {
+			// fold the oldest term into the diagonal and reuse its storage
+			double[] vector = vectors[oldest];
+			double coefficient = coefficients[oldest];
+			for (int i = 0; i < dimension; i++) {
+				diagonal[i] -= coefficient * vector[i] * vector[i];
+			}
+			oldest = (oldest + 1) % vectors.length;
+			size -= 1;
+		}
+
+		int position = (oldest + size) % vectors.length;
+		System.arraycopy(u, 0, vectors[position], 0, dimension);
+		coefficients[position] = beta;
+		size += 1;
+	}
+
+	public Covariance copy() {
+		LowRankCovariance copy = new LowRankCovariance(dimension, vectors.length);
+		copyTo(copy);
+		return copy;
+	}
+
+	public void copyTo(Covariance target) {
+		LowRankCovariance covariance = (LowRankCovariance) target;
+		System.arraycopy(diagonal, 0, covariance.diagonal, 0, dimension);
+		for (int k = 0; k < vectors.length; k++) {
+			System.arraycopy(vectors[k], 0, covariance.vectors[k], 0, dimension);
+		}
+		System.arraycopy(coefficients, 0, covariance.coefficients, 0, coefficients.length);
+		covariance.size = size;
+		covariance.oldest = oldest;
+	}
+
+	public double[][] toMatrix() {
+		double[][] matrix = new double[dimension][dimension];
+		for (int i = 0; i < dimension; i++) {
+			matrix[i][i] = diagonal[i];
+		}
+		for (int k = 0; k < size; k++) {
+			double[] vector = vectors[(oldest + k) % vectors.length];
+			double coefficient = coefficients[(oldest + k) % vectors.length];
+			for (int row = 0; row < dimension; row++) {
+				for (int column = 0; column < dimension; column++) {
+					matrix[row][column] -= coefficient * vector[row] * vector[column];
+				}
+			}
+		}
+		return matrix;
+	}
+
+	/** only the terms in use are written, from the oldest */
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(LOWRANK);
+		out.writeInt(dimension);
+		out.writeInt(vectors.length);
+		out.writeInt(size);
+		writeArray(out, diagonal);
+		for (int k = 0; k < size; k++) {
+			out.writeDouble(coefficients[(oldest + k) % vectors.length]);
+			writeArray(out, vectors[(oldest + k) % vectors.length]);
+		}
+	}
+
+	static LowRankCovariance read(DataInput in, int dimension) throws IOException {
+		LowRankCovariance covariance = new LowRankCovariance(dimension, in.readInt());
+		int size = in.readInt();
+		readArray(in, covariance.diagonal);
+		for (int k = 0; k < size; k++) {
+			covariance.coefficients[k] = in.readDouble();
+			readArray(in, covariance.vectors[k]);
+		}
+		covariance.size = size;
+		covariance.oldest = 0;
+		return covariance;
+	}
+
+}
@@ -24,11 +24,14 @@ public class Parameter {
 	/* number of instance */
 	private int mNumberofInstance;
 
-	/* variance, used in the AROW algorithm */
-	private double[][] mVariance;
+	/* variance, used in the AROW algorithm, created as the identity on the first use if null */
+	private Covariance mCovariance;
+
+	/* whether the covariance may be referenced by other objects, in which case it is copied before the update */
+	private boolean mCovarianceShared;
 
 	public Parameter(double[] weights) {
-		this(weights, DoubleOperation.generateIdentityMatrix(weights.length), new double[weights.length]);
+		this(weights, (Covariance) null, new double[weights.length], 0, 0);
 	}
 
 	public Parameter(double[] weights, double[][] variance, double[] totalWeights) {
@@ -36,11 +39,21 @@ public class Parameter {
 	}
 
 	public Parameter(double[] weights, double[][] variance, double[] totalWeights, int noOfViolations, int numberOfInstances) {
+		this(weights, variance == null ? null : new FullCovariance(variance), totalWeights, noOfViolations, numberOfInstances);
+		// the caller still holds the matrix
+		mCovarianceShared = true;
+	}
+
+	/**
+	 * the parameter owns the covariance, which is updated in place by AROW
+	 */
+	public Parameter(double[] weights, Covariance covariance, double[] totalWeights, int noOfViolations, int numberOfInstances) {
 		mWeight = weights;
 		mTotalWeight = totalWeights;
 		mNoOfViolation = noOfViolations;
 		mNumberofInstance = numberOfInstances;
-		mVariance = variance;
+		mCovariance = covariance;
+		mCovarianceShared = false;
 	}
 
 	public double[] getWeight() {
@@ -59,12 +72,51 @@ public class Parameter {
 		return mNumberofInstance;
 	}
 
+	/**
+	 * the variance as a dense matrix, it must not be modified
+	 * 
+	 * @return
+	 */
 	public double[][] getVariance() {
-		return mVariance;
+		return mCovariance == null ? null : mCovariance.toMatrix();
+	}
+
+	/** whether the covariance has been created */
+	public boolean hasCovariance() {
+		return mCovariance != null;
+	}
+
+	/**
+	 * the covariance for reading, it must not be modified
+	 * 
+	 * @return
+	 */
+	public Covariance getCovariance() {
+		if (mCovariance == null) {
+			mCovariance = Covariance.createIdentity(mWeight.length);
+		}
+		return mCovariance;
+	}
+
+	/**
+	 * the covariance which can be updated in place, copied first if it is shared with another object
+	 * 
+	 * @return
+	 */
+	public Covariance getMutableCovariance() {
+		if (mCovariance == null) {
+			mCovariance = Covariance.createIdentity(mWeight.length);
+		} else if (mCovarianceShared) {
+			mCovariance = mCovariance.copy();
+		}
+		mCovarianceShared = false;
+		return mCovariance;
 	}
 
 	/**
 	 * make a deep copy of the current object
+	 * <p>
+	 * The covariance is copied on write: both objects share it until one of them asks for the mutable covariance
 	 * 
 	 * @return
 	 */
@@ -72,19 +124,37 @@ public class Parameter {
 		int length = mWeight.length;
 		double[] copyWeight = new double[length];
 		double[] copyTotalWeight = new double[length];
-		double[][] copyVariance = new double[length][length];
 		System.arraycopy(mWeight, 0, copyWeight, 0, length);
 		System.arraycopy(mTotalWeight, 0, copyTotalWeight, 0, length);
 
-		// copy of variance by each row
-		for (int index = 0; index < length; index++) {
-			System.arraycopy(mVariance[index], 0, copyVariance[index], 0, length);
+		Parameter copyPara = new Parameter(copyWeight, mCovariance, copyTotalWeight, mNoOfViolation, mNumberofInstance);
+		if (mCovariance != null) {
+			mCovarianceShared = true;
+			copyPara.mCovarianceShared = true;
 		}
-
-		Parameter copyPara = new Parameter(copyWeight, copyVariance, copyTotalWeight, mNoOfViolation, mNumberofInstance);
 		return copyPara;
 	}
 
+	/**
+	 * a parameter with the new weights which keeps the covariance of this parameter
+	 * <p>
+	 * The covariance is not copied or created, both objects share it as in makeCopy
+	 * 
+	 * @param weights
+	 * @param totalWeights
+	 * @param noOfViolations
+	 * @param numberOfInstances
+	 * @return
+	 */
+	public Parameter withWeights(double[] weights, double[] totalWeights, int noOfViolations, int numberOfInstances) {
+		Parameter para = new Parameter(weights, mCovariance, totalWeights, noOfViolations, numberOfInstances);
+		if (mCovariance != null) {
+			mCovarianceShared = true;
+			para.mCovarianceShared = true;
+		}
+		return para;
+	}
+
 	/**
 	 * generate weight for testing, average weight or latest weight
 	 * 
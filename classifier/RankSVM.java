@@ -0,0 +1,292 @@
+package edu.oregonstate.classifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.features.FeatureFactory;
+import edu.oregonstate.general.VectorKernel;
+import edu.oregonstate.io.LargetFileReading;
+import edu.oregonstate.io.ResultOutput;
+import edu.oregonstate.search.State;
+import edu.oregonstate.util.EecbConstants;
+import edu.stanford.nlp.dcoref.CorefCluster;
+
+/**
+ * linear ranking SVM over the search constraints, trained by dual coordinate descent with shrinking
+ * <p>
+ * Each good state g should be ranked above each bad state b of its group, that is w^T (g - b) >= 1 - xi. The dual
+ * of the L1-loss SVM has one variable alpha in [0, C] for every pair, and the primal weight w = sum alpha (g - b) is
+ * maintained, so the gradient of a pair is w^T (g - b) - 1. Only the states of the groups are kept, a pair is three
+ * indices, and its difference vector is never built. The pairs whose alpha stays at a bound are shrunk from the
+ * active set as in liblinear, and the active set is restored before the convergence is accepted.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class RankSVM implements IClassifier {
+
+	/* experiment folder */
+	private final String experimentFolder;
+
+	/* logFile */
+	private final String logFile;
+
+	/** the length of the features */
+	private final int length;
+
+	/** the cost of the hinge loss */
+	private final double mC;
+
+	/** the tolerance of the projected gradient */
+	private final double mEpsilon;
+
+	/** the maximum number of passes over the active pairs */
+	private final int mIterations;
+
+	/** whether incorporate the zero good state */
+	private final boolean incorporateZeroVector;
+
+	/** largest file reader */
+	private final LargetFileReading reader;
+
+	/** the features of the good and bad states of each group */
+	private final List<double[][]> goodFeatures;
+	private final List<double[][]> badFeatures;
+
+	/** the group, good state and bad state of each pair */
+	private int[] pairGroup;
+	private int[] pairGood;
+	private int[] pairBad;
+	private int numberOfPairs;
+
+	private final Random random;
+
+	public RankSVM() {
+		Properties mProps = ExperimentConstructor.experimentProps;
+		experimentFolder = ExperimentConstructor.experimentFolder;
+		logFile = ExperimentConstructor.experimentLogFile;
+		length = FeatureFactory.getFeatureTemplate().size();
+		mC = Double.parseDouble(mProps.getProperty(EecbConstants.CLASSIFIER_RANKSVM_C, "1.0"));
+		mEpsilon = Double.parseDouble(mProps.getProperty(EecbConstants.CLASSIFIER_RANKSVM_EPSILON, "0.1"));
+		mIterations = Integer.parseInt(mProps.getProperty(EecbConstants.CLASSIFIER_RANKSVM_ITERATIONS, "1000"));
+		incorporateZeroVector = Boolean.parseBoolean(mProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_INCORPORATE_ZERO_CASE, "true"));
+		reader = new LargetFileReading();
+		goodFeatures = new ArrayList<double[][]>();
+		badFeatures = new ArrayList<double[][]>();
+		random = new Random(0);
+	}
+
+	/**
+	 * train the model according to one file
+	 */
+	public Parameter train(String path, Parameter para) {
+		List<String> paths = new ArrayList<String>();
+		paths.add(path);
+		return train(paths, 0);
+	}
+
+	/**
+	 * the dual solution is not kept in a parameter, so the model is always learned from zero
+	 */
+	public Parameter train(List<String> paths, Parameter para) {
+		return train(paths, 0);
+	}
+
+	/**
+	 * the dual solution is not kept in a parameter, so the model is always learned from zero
+	 */
+	public Parameter train(List<String> paths, Parameter para, int modelIndex) {
+		return train(paths, modelIndex);
+	}
+
+	/**
+	 * learn the model from the constraints of the paths
+	 */
+	public Parameter train(List<String> paths, int modelIndex) {
+		ResultOutput.writeTextFile(logFile, "\nBegin to learn model : " + modelIndex);
+		ResultOutput.writeTextFile(logFile, "\nRankSVM with C : " + mC + "; epsilon : " + mEpsilon);
+
+		long startTime = System.currentTimeMillis();
+		loadConstraints(paths);
+		long loadingTime = System.currentTimeMillis() - startTime;
+
+		startTime = System.currentTimeMillis();
+		double[] weight = new double[length];
+		int iterations = solve(weight);
+		long solvingTime = System.currentTimeMillis() - startTime;
+
+		// the training pairs still ranked wrongly, counted as the violations of StructuredPerceptron
+		int violations = 0;
+		for (int p = 0; p < numberOfPairs; p++) {
+			if (VectorKernel.dotDifference(weight, goodFeatures.get(pairGroup[p])[pairGood[p]], badFeatures.get(pairGroup[p])[pairBad[p]]) <= 0.0) {
+				violations += 1;
+			}
+		}
+		double accuracy = numberOfPairs == 0 ? 0.0 : 1.0 - (double) violations / numberOfPairs;
+
+		ResultOutput.writeTextFile(logFile, "RankSVM : " + numberOfPairs + " pairs, " + iterations + " passes, training ranking accuracy " + accuracy);
+		ResultOutput.writeTextFile(experimentFolder + "/violation/ranksvm-" + modelIndex + ".csv", loadingTime + "\t" + solvingTime + "\t" + iterations + "\t" +
+				violations + "\t" + numberOfPairs + "\t" + accuracy);
+
+		// the total weight is the weight and there is one violation, so the average weight is the weight itself
+		return new Parameter(weight, (double[][]) null, weight.clone(), 1, numberOfPairs);
+	}
+
+	// keep the features of the groups and index the pairs with different loss scores
+	private void loadConstraints(List<String> paths) {
+		goodFeatures.clear();
+		badFeatures.clear();
+		numberOfPairs = 0;
+		pairGroup = new int[1024];
+		pairGood = new int[1024];
+		pairBad = new int[1024];
+
+		for (String path : paths) {
+			List<List<List<String>>> dataset = reader.readData(path);
+			List<List<String>> goodDataset = dataset.get(0);
+			List<List<String>> badDataset = dataset.get(1);
+
+			for (int index = 0; index < goodDataset.size(); index++) {
+				List<State<CorefCluster>> goodStates = reader.processString(goodDataset.get(index));
+				List<State<CorefCluster>> badStates = reader.processString(badDataset.get(index));
+
+				if (!incorporateZeroVector) {
+					if (reader.isAllZero(goodStates)) continue;
+				}
+
+				int group = goodFeatures.size();
+				double[][] good = new double[goodStates.size()][];
+				double[][] bad = new double[badStates.size()][];
+				for (int i = 0; i < good.length; i++) {
+					good[i] = goodStates.get(i).getNumericalFeatures();
+				}
+				for (int j = 0; j < bad.length; j++) {
+					bad[j] = badStates.get(j).getNumericalFeatures();
+				}
+				goodFeatures.add(good);
+				badFeatures.add(bad);
+
+				// if loss score equal, do not consider this kind of constraint
+				for (int i = 0; i < good.length; i++) {
+					for (int j = 0; j < bad.length; j++) {
+						if (goodStates.get(i).getF1Score() == badStates.get(j).getF1Score()) continue;
+						addPair(group, i, j);
+					}
+				}
+			}
+		}
+	}
+
+	private void addPair(int group, int good, int bad) {
+		if (numberOfPairs == pairGroup.length) {
+			pairGroup = Arrays.copyOf(pairGroup, numberOfPairs * 2);
+			pairGood = Arrays.copyOf(pairGood, numberOfPairs * 2);
+			pairBad = Arrays.copyOf(pairBad, numberOfPairs * 2);
+		}
+		pairGroup[numberOfPairs] = group;
+		pairGood[numberOfPairs] = good;
+		pairBad[numberOfPairs] = bad;
+		numberOfPairs += 1;
+	}
+
+	/**
+	 * dual coordinate descent of the L1-loss SVM, updates the weight in place
+	 *
+	 * @param weight
+	 * @return the number of passes
+	 */
+	private int solve(double[] weight) {
+		double[] alpha = new double[numberOfPairs];
+		double[] diagonal = new double[numberOfPairs];
+		int[] index = new int[numberOfPairs];
+
+		// the pairs whose states have the same features can not be separated, they are left out
+		int activeSize = 0;
+		for (int p = 0; p < numberOfPairs; p++) {
+			double distance = VectorKernel.distance(goodFeatures.get(pairGroup[p])[pairGood[p]], badFeatures.get(pairGroup[p])[pairBad[p]]);
+			diagonal[p] = distance * distance;
+			if (diagonal[p] > 0.0) {
+				index[activeSize++] = p;
+			}
+		}
+		int size = activeSize;
+
+		double maximumOld = Double.POSITIVE_INFINITY;
+		double minimumOld = Double.NEGATIVE_INFINITY;
+		int iteration = 0;
+		while (iteration < mIterations) {
+			double maximumNew = Double.NEGATIVE_INFINITY;
+			double minimumNew = Double.POSITIVE_INFINITY;
+
+			for (int s = 0; s < activeSize; s++) {
+				int t = s + random.nextInt(activeSize - s);
+				int swap = index[s];
+				index[s] = index[t];
+				index[t] = swap;
+			}
+
+			for (int s = 0; s < activeSize; s++) {
+				int p = index[s];
+				double[] g = goodFeatures.get(pairGroup[p])[pairGood[p]];
+				double[] b = badFeatures.get(pairGroup[p])[pairBad[p]];
+				double gradient = VectorKernel.dotDifference(weight, g, b) - 1.0;
+
+				// the projected gradient, and shrink the pairs which will probably stay at the bound
+				double projected = 0.0;
+				if (alpha[p] == 0.0) {
+					if (gradient > maximumOld) {
+						activeSize -= 1;
+						index[s] = index[activeSize];
+						index[activeSize] = p;
+						s -= 1;
+						continue;
+					} else if (gradient < 0.0) {
+						projected = gradient;
+					}
+				} else if (alpha[p] == mC) {
+					if (gradient < minimumOld) {
+						activeSize -= 1;
+						index[s] = index[activeSize];
+						index[activeSize] = p;
+						s -= 1;
+						continue;
+					} else if (gradient > 0.0) {
+						projected = gradient;
+					}
+				} else {
+					projected = gradient;
+				}
+
+				maximumNew = Math.max(maximumNew, projected);
+				minimumNew = Math.min(minimumNew, projected);
+
+				if (Math.abs(projected) > 1.0e-12) {
+					double previous = alpha[p];
+					alpha[p] = Math.min(Math.max(previous - gradient / diagonal[p], 0.0), mC);
+					VectorKernel.scaledAddDifference(alpha[p] - previous, g, b, weight);
+				}
+			}
+
+			iteration += 1;
+
+			if (maximumNew - minimumNew <= mEpsilon) {
+				// converged on the active set, check all pairs once more before stopping
+				if (activeSize == size) break;
+				activeSize = size;
+				maximumOld = Double.POSITIVE_INFINITY;
+				minimumOld = Double.NEGATIVE_INFINITY;
+				continue;
+			}
+
+			maximumOld = maximumNew <= 0.0 ? Double.POSITIVE_INFINITY : maximumNew;
+			minimumOld = minimumNew >= 0.0 ? Double.NEGATIVE_INFINITY : minimumNew;
+		}
+
+		return iteration;
+	}
+
+}
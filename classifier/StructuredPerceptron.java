@@ -1,14 +1,16 @@
 package edu.oregonstate.classifier;
 
-import java.util.ArrayList;
+import java.io.File;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
 import edu.oregonstate.experiment.ExperimentConstructor;
-import edu.oregonstate.features.FeatureFactory;
 import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
+import edu.oregonstate.io.ModelCheckpoint;
 import edu.oregonstate.io.ResultOutput;
+import edu.oregonstate.training.ConstraintSelector;
 import edu.oregonstate.training.ITraining;
 import edu.oregonstate.util.EecbConstants;
 import edu.oregonstate.util.EecbConstructor;
@@ -36,8 +38,14 @@ public class StructuredPerceptron implements IClassifier {
 	/* model index */
 	private int modelIndex;
 	
-	/* the weight used for keeping track of the progress */
-	private List<double[]> weights;
+	/** whether write a checkpoint after each epoch */
+	private final boolean enableCheckpoint;
+	
+	/** the checkpoint to resume from, a path or latest */
+	private final String resumeCheckpoint;
+	
+	/** the number of the latest checkpoints kept for each model, 0 keeps all of them */
+	private final int keepCheckpoints;
 	
 	/** the length of the features */
 	private final int length;
@@ -66,9 +74,11 @@ public class StructuredPerceptron implements IClassifier {
 		modelIndex = 0;
 		String trainingStyle = mProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_METHOD, "OnlineToBatch");
 		trainingModel = EecbConstructor.createTrainingModel(trainingStyle);
-		List<String> featureTemplate = FeatureFactory.getFeatureTemplate();
-		length = featureTemplate.size();
-		weights = new ArrayList<double[]>();
+		// the training method decides the dimension, the Sparse methods also learn the hashed lexicalized features
+		length = trainingModel.dimension();
+		enableCheckpoint = Boolean.parseBoolean(mProps.getProperty(EecbConstants.CLASSIFIER_CHECKPOINT, "true"));
+		resumeCheckpoint = mProps.getProperty(EecbConstants.CLASSIFIER_CHECKPOINT_RESUME, "");
+		keepCheckpoints = Integer.parseInt(mProps.getProperty(EecbConstants.CLASSIFIER_CHECKPOINT_KEEP, "0"));
 		
 		learningRateConstant = Boolean.parseBoolean(mProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_PERCEPTRON_LEARINGRATE_CONSTANT, "false"));
 		enablePrintIterationResult = Boolean.parseBoolean(mProps.getProperty(EecbConstants.CLASSIFIER_ITERATION_RESULT, "false"));
@@ -92,6 +102,23 @@ public class StructuredPerceptron implements IClassifier {
 		return trainedPara;
 	}
 	
+	/**
+	 * continue from the parameter, the weight, total weight and violations are carried on, so the average weight 
+	 * covers all the updates; a parameter of another dimension can not be continued and the model is learned from zero
+	 */
+	public Parameter train(List<String> paths, Parameter para, int index) {
+		if (para.getWeight().length != length) {
+			return train(paths, index);
+		}
+		
+		ResultOutput.writeTextFile(logFile, "\nContinue to learn model : " + index);
+		ResultOutput.writeTextFile(logFile, "\nStructured Perceptron with Iteration : " + mIterations);
+		
+		// model index
+		modelIndex = index;
+		return train(paths, para.makeCopy());
+	}
+	
 	/**
 	 * train the model according to lots of files
 	 */
@@ -103,10 +130,19 @@ public class StructuredPerceptron implements IClassifier {
 		}
 		double[] learningRates = DoubleOperation.createDescendingArray(startingRate, endRate, mIterations);
 		
+		// continue after the epoch of the checkpoint
+		int startEpoch = 0;
+		ModelCheckpoint checkpoint = findCheckpoint();
+		if (checkpoint != null) {
+			ResultOutput.writeTextFile(logFile, "resume the " + modelIndex + "'s model after the iteration " + checkpoint.getEpoch());
+			para = checkpoint.getParameter();
+			startEpoch = checkpoint.getEpoch() + 1;
+		}
+		
 		// do gradient update
-		for (int i = 0; i < mIterations; i++) {
+		for (int i = startEpoch; i < mIterations; i++) {
 			double learningRate = learningRates[i];
-			weights.add(para.getWeight());
+			double[] startWeight = para.getWeight().clone();
 			ResultOutput.writeTextFile(logFile, "the " + modelIndex + "'s model " + i + "iteration");
 			// ResultOutput.printParameter(para, logFile);
 			
@@ -115,18 +151,38 @@ public class StructuredPerceptron implements IClassifier {
 			int beforeViolation = para.getNoOfViolation();
 			
 			// do weight update
+			ConstraintSelector selector = trainingModel.getSelector();
+			selector.resetStatistics();
+			long startTime = System.currentTimeMillis();
 			para = trainingModel.train(paths, para, learningRate);
+			long elapsedTime = System.currentTimeMillis() - startTime;
 			
 			// print number of violated constraint
 			int afterviolation = para.getNoOfViolation();
 			ResultOutput.writeTextFile(experimentFolder + "/violation/violation-" + modelIndex +".csv", (afterviolation - beforeViolation) + "\t" + para.getNumberOfInstance());
 			
+			// print the epoch time and the number of selected constraints out of the constraints with different loss scores
+			ResultOutput.writeTextFile(experimentFolder + "/violation/time-" + modelIndex +".csv", elapsedTime + "\t" + selector.getNumberOfSelected() + "\t" + selector.getNumberOfPairs());
+			
+			// the norm of the weight at the beginning of the iteration, and its difference to the weight of the next iteration
+			ResultOutput.writeTextFile(experimentFolder + "/weightnorm/weight-norm-"+ modelIndex + ".csv", VectorKernel.norm(startWeight) + "");
+			if (i < mIterations - 1) {
+				ResultOutput.writeTextFile(experimentFolder + "/weightdifference/weight-difference-"+ modelIndex + ".csv", VectorKernel.distance(startWeight, para.getWeight()) + "");
+			}
+			
+			if (enableCheckpoint) {
+				new ModelCheckpoint(para, modelIndex, i).write(checkpointPath(i));
+				
+				// drop the checkpoints older than the retention, the new one is complete once write returns
+				for (int epoch = 0; keepCheckpoints > 0 && epoch <= i - keepCheckpoints; epoch++) {
+					File previous = new File(checkpointPath(epoch));
+					if (previous.exists()) {
+						previous.delete();
+					}
+				}
+			}
 		}
 		
-		// calculate the weight difference between the previous iteration and the current iteration
-		DoubleOperation.calcualateWeightDifference(weights, experimentFolder + "/weightdifference/weight-difference-"+ modelIndex + ".csv");
-		DoubleOperation.printWeightNorm(weights, experimentFolder + "/weightnorm/weight-norm-"+ modelIndex + ".csv");
-		
 		return para;
 	}
 	
@@ -137,4 +193,32 @@ public class StructuredPerceptron implements IClassifier {
 		return para;
 	}
 	
+	// the checkpoint of the current model to resume from, null if there is none
+	private ModelCheckpoint findCheckpoint() {
+		if (resumeCheckpoint.isEmpty()) return null;
+		
+		String path = resumeCheckpoint;
+		if (resumeCheckpoint.equals("latest")) {
+			path = null;
+			for (int i = mIterations - 1; i >= 0; i--) {
+				if (new File(checkpointPath(i)).exists()) {
+					path = checkpointPath(i);
+					break;
+				}
+			}
+			if (path == null) return null;
+		}
+		
+		ModelCheckpoint checkpoint = ModelCheckpoint.read(path);
+		if (checkpoint.getModelIndex() != modelIndex || checkpoint.getParameter().getWeight().length != length) {
+			ResultOutput.writeTextFile(logFile, "the checkpoint " + path + " does not belong to the " + modelIndex + "'s model");
+			return null;
+		}
+		return checkpoint;
+	}
+	
+	private String checkpointPath(int epoch) {
+		return experimentFolder + "/checkpoint/model" + modelIndex + "-" + epoch;
+	}
+	
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+package edu.oregonstate.classifier.svm;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import edu.oregonstate.classifier.svm.libsvm.svm;
+import edu.oregonstate.classifier.svm.libsvm.svm_model;
+import edu.oregonstate.classifier.svm.libsvm.svm_node;
+import edu.oregonstate.classifier.svm.libsvm.svm_parameter;
+import edu.oregonstate.classifier.svm.libsvm.svm_print_interface;
+import edu.oregonstate.classifier.svm.libsvm.svm_problem;
+
+/**
+ * train a C-SVC with an RBF kernel on a libsvm data file with 1 to 32 threads computing the kernel rows
+ * <p>
+ * The kernel values of a row do not depend on how the row is split, so every model should have exactly the same
+ * support vectors, coefficients and rho as the single thread model. The training time and speedup of each number
+ * of threads are printed.
+ *
+ * Usage : KernelThreadStudy data_file [gamma] [C] [cache size in MB]
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class KernelThreadStudy {
+
+	private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage : KernelThreadStudy data_file [gamma] [C] [cache size in MB]");
+			System.exit(1);
+		}
+
+		svm_problem problem = readProblem(args[0]);
+		svm_parameter parameter = new svm_parameter();
+		parameter.svm_type = svm_parameter.C_SVC;
+		parameter.kernel_type = svm_parameter.RBF;
+		parameter.gamma = args.length > 1 ? Double.parseDouble(args[1]) : 1.0 / maximumIndex(problem);
+		parameter.C = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+		parameter.cache_size = args.length > 3 ? Double.parseDouble(args[3]) : 100;
+		parameter.eps = 1e-3;
+		parameter.shrinking = 1;
+		parameter.nr_weight = 0;
+		parameter.weight_label = new int[0];
+		parameter.weight = new double[0];
+
+		svm.svm_set_print_string_function(new svm_print_interface() {
+			public void print(String s) {}
+		});
+
+		System.out.println("instances : " + problem.l + ", gamma : " + parameter.gamma + ", C : " + parameter.C + ", cache : " + parameter.cache_size + " MB");
+
+		// the first run only warms up the JIT
+		train(problem, parameter, 1);
+
+		long baselineTime = System.currentTimeMillis();
+		svm_model baseline = train(problem, parameter, 1);
+		baselineTime = System.currentTimeMillis() - baselineTime;
+		System.out.println("threads\ttime (ms)\tspeedup\tidentical");
+
+		for (int threads : THREADS) {
+			long time = System.currentTimeMillis();
+			svm_model model = train(problem, parameter, threads);
+			time = System.currentTimeMillis() - time;
+			System.out.println(threads + "\t" + time + "\t" + ((double) baselineTime / Math.max(1, time)) + "\t" + identical(baseline, model));
+		}
+	}
+
+	private static svm_model train(svm_problem problem, svm_parameter parameter, int threads) {
+		svm_parameter copy = (svm_parameter) parameter.clone();
+		copy.nr_thread = threads;
+		String error = svm.svm_check_parameter(problem, copy);
+		if (error != null) {
+			throw new IllegalArgumentException(error);
+		}
+		return svm.svm_train(problem, copy);
+	}
+
+	// the same support vectors, coefficients and rho, compared exactly
+	private static boolean identical(svm_model first, svm_model second) {
+		if (!Arrays.equals(first.sv_indices, second.sv_indices)) return false;
+		if (!Arrays.equals(first.rho, second.rho)) return false;
+		if (first.sv_coef.length != second.sv_coef.length) return false;
+		for (int k = 0; k < first.sv_coef.length; k++) {
+			if (!Arrays.equals(first.sv_coef[k], second.sv_coef[k])) return false;
+		}
+		return true;
+	}
+
+	private static int maximumIndex(svm_problem problem) {
+		int maximum = 1;
+		for (svm_node[] x : problem.x) {
+			if (x.length > 0) maximum = Math.max(maximum, x[x.length - 1].index);
+		}
+		return maximum;
+	}
+
+	// the libsvm data format, label index:value ...
+	private static svm_problem readProblem(String path) {
+		List<Double> labels = new ArrayList<Double>();
+		List<svm_node[]> instances = new ArrayList<svm_node[]>();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(path));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				StringTokenizer tokenizer = new StringTokenizer(line, " \t\n\r\f:");
+				if (!tokenizer.hasMoreTokens()) continue;
+				labels.add(Double.valueOf(tokenizer.nextToken()));
+				svm_node[] x = new svm_node[tokenizer.countTokens() / 2];
+				for (int j = 0; j < x.length; j++) {
+					x[j] = new svm_node();
+					x[j].index = Integer.parseInt(tokenizer.nextToken());
+					x[j].value = Double.parseDouble(tokenizer.nextToken());
+				}
+				instances.add(x);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+
+		svm_problem problem = new svm_problem();
+		problem.l = labels.size();
+		problem.x = instances.toArray(new svm_node[problem.l][]);
+		problem.y = new double[problem.l];
+		for (int i = 0; i < problem.l; i++) {
+			problem.y[i] = labels.get(i);
+		}
+		return problem;
+	}
+
+}
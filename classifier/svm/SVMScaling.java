@@ -0,0 +1,289 @@
+package edu.oregonstate.classifier.svm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringTokenizer;
+
+import edu.oregonstate.classifier.svm.libsvm.svm_node;
+import edu.oregonstate.classifier.svm.libsvm.svm_problem;
+
+/**
+ * in-memory scaling of the libsvm features, fitted on the training problem and saved next to the model
+ * <p>
+ * minmax maps each feature linearly from [min, max] to [lower, upper] as svm_scale does, and is saved in the format
+ * of svm_scale -s, so svm_scale -r can still read it. standard maps each feature to (x - mean) / deviation. The
+ * features absent from an instance are zero, and the features with a single value in the training problem are
+ * dropped, as svm_scale does. The values are written with 17 digits, so the read scaling is the fitted one.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class SVMScaling {
+
+	public enum Mode { NONE, MINMAX, STANDARD }
+
+	private final Mode mode;
+
+	/** the range of minmax */
+	private final double lower;
+	private final double upper;
+
+	/** indexed by the feature index, min and max for minmax, mean and deviation for standard */
+	private final double[] first;
+	private final double[] second;
+
+	/** the kept features whose zero is not scaled to zero */
+	private int[] nonzeroAtZero;
+
+	private SVMScaling(Mode mode, double lower, double upper, double[] first, double[] second) {
+		this.mode = mode;
+		this.lower = lower;
+		this.upper = upper;
+		this.first = first;
+		this.second = second;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * fit the scaling on all instances of the problem
+	 *
+	 * @param problem
+	 * @param mode
+	 * @param lower
+	 * @param upper
+	 * @return
+	 */
+	public static SVMScaling fit(svm_problem problem, Mode mode, double lower, double upper) {
+		if (mode == Mode.NONE) {
+			return new SVMScaling(mode, lower, upper, new double[0], new double[0]);
+		}
+		if (mode == Mode.MINMAX && lower >= upper) {
+			throw new IllegalArgumentException("the lower bound should be smaller than the upper bound : " + lower + " " + upper);
+		}
+
+		int maxIndex = 0;
+		for (int i = 0; i < problem.l; i++) {
+			svm_node[] x = problem.x[i];
+			if (x.length > 0) maxIndex = Math.max(maxIndex, x[x.length - 1].index);
+		}
+
+		// the statistics of the explicit values, the absent ones are zeros
+		int[] count = new int[maxIndex + 1];
+		double[] first = new double[maxIndex + 1];
+		double[] second = new double[maxIndex + 1];
+		if (mode == Mode.MINMAX) {
+			for (int index = 0; index <= maxIndex; index++) {
+				first[index] = Double.MAX_VALUE;
+				second[index] = -Double.MAX_VALUE;
+			}
+		}
+		for (int i = 0; i < problem.l; i++) {
+			for (svm_node node : problem.x[i]) {
+				count[node.index] += 1;
+				if (mode == Mode.MINMAX) {
+					first[node.index] = Math.min(first[node.index], node.value);
+					second[node.index] = Math.max(second[node.index], node.value);
+				} else {
+					first[node.index] += node.value;
+					second[node.index] += node.value * node.value;
+				}
+			}
+		}
+
+		for (int index = 1; index <= maxIndex; index++) {
+			if (mode == Mode.MINMAX) {
+				if (count[index] < problem.l) {
+					first[index] = Math.min(first[index], 0.0);
+					second[index] = Math.max(second[index], 0.0);
+				}
+			} else {
+				double mean = first[index] / problem.l;
+				double variance = second[index] / problem.l - mean * mean;
+				first[index] = mean;
+				second[index] = variance > 0.0 ? Math.sqrt(variance) : 0.0;
+			}
+		}
+
+		return new SVMScaling(mode, lower, upper, first, second);
+	}
+
+	// whether the feature is kept, the features unseen or with a single value are dropped
+	private boolean isScaled(int index) {
+		if (index <= 0 || index >= first.length) return false;
+		if (mode == Mode.MINMAX) return first[index] < second[index];
+		return second[index] > 0.0;
+	}
+
+	private double scale(int index, double value) {
+		if (mode == Mode.MINMAX) {
+			if (value == first[index]) return lower;
+			if (value == second[index]) return upper;
+			return lower + (upper - lower) * (value - first[index]) / (second[index] - first[index]);
+		}
+		return (value - first[index]) / second[index];
+	}
+
+	/**
+	 * the scaled instance, the absent features are scaled as zeros and the zero results are left out
+	 *
+	 * @param x
+	 * @return
+	 */
+	public svm_node[] scale(svm_node[] x) {
+		if (mode == Mode.NONE) return x;
+
+		// merge the explicit features with the features whose zero is not scaled to zero
+		int[] zeros = nonzeroAtZero();
+		List<svm_node> nodes = new ArrayList<svm_node>(x.length + zeros.length);
+		int position = 0;
+		int zero = 0;
+		while (position < x.length || zero < zeros.length) {
+			int index;
+			double value;
+			if (zero == zeros.length || (position < x.length && x[position].index <= zeros[zero])) {
+				index = x[position].index;
+				value = x[position].value;
+				if (zero < zeros.length && zeros[zero] == index) zero++;
+				position++;
+			} else {
+				index = zeros[zero++];
+				value = 0.0;
+			}
+			if (!isScaled(index)) continue;
+
+			double scaled = scale(index, value);
+			if (scaled != 0.0) {
+				svm_node node = new svm_node();
+				node.index = index;
+				node.value = scaled;
+				nodes.add(node);
+			}
+		}
+		return nodes.toArray(new svm_node[nodes.size()]);
+	}
+
+	// the kept features whose zero is scaled to a non zero value, computed once
+	private int[] nonzeroAtZero() {
+		if (nonzeroAtZero == null) {
+			int size = 0;
+			int[] indices = new int[first.length];
+			for (int index = 1; index < first.length; index++) {
+				if (isScaled(index) && scale(index, 0.0) != 0.0) indices[size++] = index;
+			}
+			nonzeroAtZero = Arrays.copyOf(indices, size);
+		}
+		return nonzeroAtZero;
+	}
+
+	/**
+	 * scale the instances of the problem in place
+	 *
+	 * @param problem
+	 */
+	public void scale(svm_problem problem) {
+		for (int i = 0; i < problem.l; i++) {
+			problem.x[i] = scale(problem.x[i]);
+		}
+	}
+
+	/**
+	 * write the scaling, nothing is written for none and the scaling of a previous model is removed
+	 *
+	 * @param path
+	 */
+	public void write(String path) {
+		if (mode == Mode.NONE) {
+			new File(path).delete();
+			return;
+		}
+
+		// the decimal separator of the default locale could be a comma, which read can not parse
+		Formatter formatter = new Formatter(new StringBuilder(), Locale.ROOT);
+		if (mode == Mode.MINMAX) {
+			formatter.format("x\n");
+			formatter.format("%.17g %.17g\n", lower, upper);
+		} else {
+			formatter.format("s\n");
+		}
+		for (int index = 1; index < first.length; index++) {
+			if (isScaled(index)) formatter.format("%d %.17g %.17g\n", index, first[index], second[index]);
+		}
+
+		try {
+			BufferedWriter writer = new BufferedWriter(new FileWriter(path));
+			writer.write(formatter.toString());
+			writer.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * read the scaling written by write, none if the file does not exist
+	 *
+	 * @param path
+	 * @return
+	 */
+	public static SVMScaling read(String path) {
+		if (!new File(path).exists()) {
+			return new SVMScaling(Mode.NONE, 0.0, 0.0, new double[0], new double[0]);
+		}
+
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(path));
+			try {
+				String header = reader.readLine();
+				Mode mode;
+				double lower = 0.0;
+				double upper = 0.0;
+				if ("x".equals(header)) {
+					mode = Mode.MINMAX;
+					StringTokenizer range = new StringTokenizer(reader.readLine());
+					lower = Double.parseDouble(range.nextToken());
+					upper = Double.parseDouble(range.nextToken());
+				} else if ("s".equals(header)) {
+					mode = Mode.STANDARD;
+				} else {
+					throw new IOException(path + " is not a scaling file");
+				}
+
+				List<String> lines = new ArrayList<String>();
+				int maxIndex = 0;
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.trim().length() == 0) continue;
+					lines.add(line);
+					maxIndex = Math.max(maxIndex, Integer.parseInt(new StringTokenizer(line).nextToken()));
+				}
+
+				// the dropped features keep first == second == 0, so they are dropped again
+				double[] first = new double[maxIndex + 1];
+				double[] second = new double[maxIndex + 1];
+				for (String record : lines) {
+					StringTokenizer tokenizer = new StringTokenizer(record);
+					int index = Integer.parseInt(tokenizer.nextToken());
+					first[index] = Double.parseDouble(tokenizer.nextToken());
+					second[index] = Double.parseDouble(tokenizer.nextToken());
+				}
+				return new SVMScaling(mode, lower, upper, first, second);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -6,6 +6,7 @@ changecom(`//', )
 package edu.oregonstate.classifier.svm.libsvm;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 //
 // Kernel Cache
@@ -25,6 +26,19 @@ class Cache {
 	private final head_t[] head;
 	private head_t lru_head;
 
+	// the cache size in bytes, cache_size MB or half of the free heap if cache_size is 0,
+	// but never more than the whole l x l matrix nor more than three quarters of the free heap
+	static long size_of(int l, double cache_size)
+	{
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		long size = cache_size > 0 ? (long)(cache_size*(1<<20)) : free/2;
+		long matrix = (long)l * l * SIZE_OF_QFLOAT + (long)l * 16;
+		size = Math.min(size, matrix);
+		size = Math.min(size, Math.max(free/4*3, 0));
+		return size;
+	}
+
 	Cache(int l_, long size_)
 	{
 		l = l_;
@@ -135,6 +149,9 @@ abstract class QMatrix {
 
 abstract class Kernel extends QMatrix {
 	private svm_node[][] x;
+	// the indices and values of x in primitive arrays, the indices are sorted
+	private int[][] x_index;
+	private double[][] x_value;
 	private final double[] x_square;
 
 	// svm_parameter
@@ -143,15 +160,95 @@ abstract class Kernel extends QMatrix {
 	private final double gamma;
 	private final double coef0;
 
+	// threads computing a kernel row, a row is only split in blocks of at least MIN_BLOCK columns
+	private final int nr_thread;
+	private static final int MIN_BLOCK = 256;
+
+	// the pool shared by all kernels, grown to the largest nr_thread, its idle threads time out
+	private static ThreadPoolExecutor pool;
+
 	abstract Qfloat[] get_Q(int column, int len);
 	abstract double[] get_QD();
 
 	void swap_index(int i, int j)
 	{
 		swap(svm_node[],x[i],x[j]);
+		swap(int[],x_index[i],x_index[j]);
+		swap(double[],x_value[i],x_value[j]);
 		if(x_square != null) swap(double,x_square[i],x_square[j]);
 	}
 
+	private static synchronized ExecutorService pool(int threads)
+	{
+		if(pool == null)
+		{
+			pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				public Thread newThread(Runnable r)
+				{
+					Thread t = new Thread(r, "svm-kernel");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			pool.allowCoreThreadTimeOut(true);
+		}
+		else if(pool.getMaximumPoolSize() < threads)
+		{
+			pool.setMaximumPoolSize(threads);
+			pool.setCorePoolSize(threads);
+		}
+		return pool;
+	}
+
+	// data[j] = y[i]*y[j]*kernel_function(i,j), or kernel_function(i,j) if y is null, for j in [start,len)
+	// the blocks of the row are computed by nr_thread threads, the calling thread computes the first one
+	void kernel_row(final int i, final Qfloat[] data, int start, int len, final byte[] y)
+	{
+		int threads = Math.min(nr_thread, (len-start)/MIN_BLOCK);
+		if(threads <= 1)
+		{
+			kernel_block(i,data,start,len,y);
+			return;
+		}
+
+		int block = (len-start+threads-1)/threads;
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		ExecutorService executor = pool(threads-1);
+		for(int from=start+block;from<len;from+=block)
+		{
+			final int block_start = from;
+			final int block_end = Math.min(len,from+block);
+			futures.add(executor.submit(new Callable<Object>() {
+				public Object call()
+				{
+					kernel_block(i,data,block_start,block_end,y);
+					return null;
+				}
+			}));
+		}
+		kernel_block(i,data,start,Math.min(len,start+block),y);
+
+		try {
+			for(Future<Object> future : futures)
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private void kernel_block(int i, Qfloat[] data, int start, int end, byte[] y)
+	{
+		if(y == null)
+			for(int j=start;j<end;j++)
+				data[j] = (Qfloat)kernel_function(i,j);
+		else
+			for(int j=start;j<end;j++)
+				data[j] = (Qfloat)(y[i]*y[j]*kernel_function(i,j));
+	}
+
 	private static double powi(double base, int times)
 	{
 		double tmp = base, ret = 1.0;
@@ -169,13 +266,13 @@ abstract class Kernel extends QMatrix {
 		switch(kernel_type)
 		{
 			case svm_parameter.LINEAR:
-				return dot(x[i],x[j]);
+				return dot(x_index[i],x_value[i],x_index[j],x_value[j]);
 			case svm_parameter.POLY:
-				return powi(gamma*dot(x[i],x[j])+coef0,degree);
+				return powi(gamma*dot(x_index[i],x_value[i],x_index[j],x_value[j])+coef0,degree);
 			case svm_parameter.RBF:
-				return Math.exp(-gamma*(x_square[i]+x_square[j]-2*dot(x[i],x[j])));
+				return Math.exp(-gamma*(x_square[i]+x_square[j]-2*dot(x_index[i],x_value[i],x_index[j],x_value[j])));
 			case svm_parameter.SIGMOID:
-				return Math.tanh(gamma*dot(x[i],x[j])+coef0);
+				return Math.tanh(gamma*dot(x_index[i],x_value[i],x_index[j],x_value[j])+coef0);
 			case svm_parameter.PRECOMPUTED:
 				return x[i][(int)(x[j][0].value)].value;
 			default:
@@ -189,8 +286,21 @@ abstract class Kernel extends QMatrix {
 		this.degree = param.degree;
 		this.gamma = param.gamma;
 		this.coef0 = param.coef0;
+		this.nr_thread = Math.max(1, param.nr_thread);
 
 		x = (svm_node[][])x_.clone();
+		x_index = new int[l][];
+		x_value = new double[l][];
+		for(int i=0;i<l;i++)
+		{
+			x_index[i] = new int[x[i].length];
+			x_value[i] = new double[x[i].length];
+			for(int k=0;k<x[i].length;k++)
+			{
+				x_index[i][k] = x[i][k].index;
+				x_value[i][k] = x[i][k].value;
+			}
+		}
 
 		if(kernel_type == svm_parameter.RBF)
 		{
@@ -201,6 +311,28 @@ abstract class Kernel extends QMatrix {
 		else x_square = null;
 	}
 
+	// the same merge as dot on svm_node, on the primitive arrays
+	static double dot(int[] x_index, double[] x_value, int[] y_index, double[] y_value)
+	{
+		double sum = 0;
+		int xlen = x_index.length;
+		int ylen = y_index.length;
+		int i = 0;
+		int j = 0;
+		while(i < xlen && j < ylen)
+		{
+			int xi = x_index[i];
+			int yj = y_index[j];
+			if(xi == yj)
+				sum += x_value[i++] * y_value[j++];
+			else if(xi > yj)
+				++j;
+			else
+				++i;
+		}
+		return sum;
+	}
+
 	static double dot(svm_node[] x, svm_node[] y)
 	{
 		double sum = 0;
@@ -1155,7 +1287,7 @@ class SVC_Q extends Kernel
 	{
 		super(prob.l, prob.x, param);
 		y = (byte[])y_.clone();
-		cache = new Cache(prob.l,(long)(param.cache_size*(1<<20)));
+		cache = new Cache(prob.l,Cache.size_of(prob.l,param.cache_size));
 		QD = new double[prob.l];
 		for(int i=0;i<prob.l;i++)
 			QD[i] = kernel_function(i,i);
@@ -1164,12 +1296,9 @@ class SVC_Q extends Kernel
 	Qfloat[] get_Q(int i, int len)
 	{
 		Qfloat[][] data = new Qfloat[1][];
-		int start, j;
+		int start;
 		if((start = cache.get_data(i,data,len)) < len)
-		{
-			for(j=start;j<len;j++)
-				data[0][j] = (Qfloat)(y[i]*y[j]*kernel_function(i,j));
-		}
+			kernel_row(i,data[0],start,len,y);
 		return data[0];
 	}
 
@@ -1195,7 +1324,7 @@ class ONE_CLASS_Q extends Kernel
 	ONE_CLASS_Q(svm_problem prob, svm_parameter param)
 	{
 		super(prob.l, prob.x, param);
-		cache = new Cache(prob.l,(long)(param.cache_size*(1<<20)));
+		cache = new Cache(prob.l,Cache.size_of(prob.l,param.cache_size));
 		QD = new double[prob.l];
 		for(int i=0;i<prob.l;i++)
 			QD[i] = kernel_function(i,i);
@@ -1204,12 +1333,9 @@ class ONE_CLASS_Q extends Kernel
 	Qfloat[] get_Q(int i, int len)
 	{
 		Qfloat[][] data = new Qfloat[1][];
-		int start, j;
+		int start;
 		if((start = cache.get_data(i,data,len)) < len)
-		{
-			for(j=start;j<len;j++)
-				data[0][j] = (Qfloat)kernel_function(i,j);
-		}
+			kernel_row(i,data[0],start,len,null);
 		return data[0];
 	}
 
@@ -1240,7 +1366,7 @@ class SVR_Q extends Kernel
 	{
 		super(prob.l, prob.x, param);
 		l = prob.l;
-		cache = new Cache(l,(long)(param.cache_size*(1<<20)));
+		cache = new Cache(l,Cache.size_of(l,param.cache_size));
 		QD = new double[2*l];
 		sign = new byte[2*l];
 		index = new int[2*l];
@@ -1269,10 +1395,7 @@ class SVR_Q extends Kernel
 		Qfloat[][] data = new Qfloat[1][];
 		int j, real_i = index[i];
 		if(cache.get_data(real_i,data,l) < l)
-		{
-			for(j=0;j<l;j++)
-				data[0][j] = (Qfloat)kernel_function(real_i,j);
-		}
+			kernel_row(real_i,data[0],0,l,null);
 
 		// reorder and copy
 		Qfloat buf[] = buffer[next_buffer];
@@ -2721,8 +2844,11 @@ public class svm {
 
 		// cache_size,eps,C,nu,p,shrinking
 
-		if(param.cache_size <= 0)
-			return "cache_size <= 0";
+		if(param.cache_size < 0)
+			return "cache_size < 0";
+
+		if(param.nr_thread < 0)
+			return "nr_thread < 0";
 
 		if(param.eps <= 0)
 			return "eps <= 0";
@@ -23,7 +23,7 @@ public class svm_parameter implements Cloneable,java.io.Serializable
 	public double coef0;	// for poly/sigmoid
 
 	// these are for training only
-	public double cache_size; // in MB
+	public double cache_size; // in MB, 0 to size it from the free heap
 	public double eps;	// stopping criteria
 	public double C;	// for C_SVC, EPSILON_SVR and NU_SVR
 	public int nr_weight;		// for C_SVC
@@ -33,6 +33,7 @@ public class svm_parameter implements Cloneable,java.io.Serializable
 	public double p;	// for EPSILON_SVR
 	public int shrinking;	// use the shrinking heuristics
 	public int probability; // do probability estimates
+	public int nr_thread;	// threads computing a kernel row, 0 or 1 for one
 
 	public Object clone() 
 	{
@@ -42,12 +42,13 @@ class svm_train {
 		+"-c cost : set the parameter C of C-SVC, epsilon-SVR, and nu-SVR (default 1)\n"
 		+"-n nu : set the parameter nu of nu-SVC, one-class SVM, and nu-SVR (default 0.5)\n"
 		+"-p epsilon : set the epsilon in loss function of epsilon-SVR (default 0.1)\n"
-		+"-m cachesize : set cache memory size in MB (default 100)\n"
+		+"-m cachesize : set cache memory size in MB, 0 to size it from the free heap (default 100)\n"
 		+"-e epsilon : set tolerance of termination criterion (default 0.001)\n"
 		+"-h shrinking : whether to use the shrinking heuristics, 0 or 1 (default 1)\n"
 		+"-b probability_estimates : whether to train a SVC or SVR model for probability estimates, 0 or 1 (default 0)\n"
 		+"-wi weight : set the parameter C of class i to weight*C, for C-SVC (default 1)\n"
 		+"-v n : n-fold cross validation mode\n"
+		+"-j threads : set the number of threads computing the kernel rows (default 1)\n"
 		+"-q : quiet mode (no outputs)\n"
 		);
 		System.exit(1);
@@ -155,6 +156,7 @@ class svm_train {
 		param.p = 0.1;
 		param.shrinking = 1;
 		param.probability = 0;
+		param.nr_thread = 1;
 		param.nr_weight = 0;
 		param.weight_label = new int[0];
 		param.weight = new double[0];
@@ -204,6 +206,9 @@ class svm_train {
 				case 'b':
 					param.probability = atoi(argv[i]);
 					break;
+				case 'j':
+					param.nr_thread = atoi(argv[i]);
+					break;
 				case 'q':
 					print_func = svm_print_null;
 					i--;
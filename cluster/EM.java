@@ -2,18 +2,25 @@ package edu.oregonstate.cluster;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import edu.oregonstate.data.EecbClusterDocument;
 import java.util.Set;
-import Jama.Matrix;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.oregonstate.data.EecbClusterDocument;
 
 
 /**
  * Implementation of EM algorithm
  * 
  * The EM tutorial is shown http://www.seanborman.com/publications/EM_algorithm.pdf
+ * <p>
+ * The documents are read as sparse vectors, so each step costs the number of non-zero terms instead of the
+ * vocabulary size. The E step scores the documents in parallel, and the M step estimates the clusters in parallel;
+ * every sum is reduced in a fixed order, so the result does not depend on the number of threads.
  * 
  * Jun Xie(xiejuncs@gmail.com)
  */
@@ -23,43 +30,68 @@ public class EM {
 	private List<Cluster> minitialModel;
 	private List<EecbClusterDocument> mDocuments;  // all documents
 	private List<Double> classFrequency;
-	private Map<Integer, Map<Integer, Double>> parameters;
+	// log P(w | c, \hat{\theta}) of each cluster and each term
+	private double[][] logParameters;
 	private Set<String> mDictionary;
 	private List<Cluster> finalModel;
 	private List<Cluster> intermediateModel;
+	// log P(c | d) of each document and each cluster, computed by the last E step
+	private double[][] responsibilities;
+	private final int threads;
 	
 	public EM(List<Cluster> initialModel, List<EecbClusterDocument> documents, Set<String> dictionary) {
+		this(initialModel, documents, dictionary, Runtime.getRuntime().availableProcessors());
+	}
+
+	public EM(List<Cluster> initialModel, List<EecbClusterDocument> documents, Set<String> dictionary, int threads) {
 		minitialModel = initialModel;
 		mDocuments = documents;
 		classFrequency = new ArrayList<Double>();
 		mDictionary = dictionary;
-		parameters = new HashMap<Integer, Map<Integer,Double>>();
+		logParameters = new double[0][];
 		intermediateModel = new ArrayList<Cluster>();
 		finalModel = new ArrayList<Cluster>();
+		this.threads = Math.max(1, threads);
 	}
 	
 	public List<Cluster> getModel() {
 		return finalModel;
 	}
 	
+	/** log P(c | d) of each document computed by the last E step, indexed by [document][cluster] */
+	public double[][] getResponsibilities() {
+		return responsibilities;
+	}
+
 	// train the model
 	public void train() {
 		System.out.println("initialization....");
+		long start = System.currentTimeMillis();
 		initialization();
 		double loglikelihood = calculateLoglikelihood(minitialModel);
+		System.out.println("initialization time : " + (System.currentTimeMillis() - start) + " ms");
 		for (Cluster cluster : minitialModel) {
 			Cluster newcluster = new Cluster(cluster.mID);
 			newcluster.addDocuments(cluster.documents);
 			intermediateModel.add(newcluster);
 		}
+		int iteration = 0;
 		while (true) {
+			iteration += 1;
 			System.out.println("E step....");
+			long eStart = System.currentTimeMillis();
 			finalModel = E(intermediateModel);
+			long eTime = System.currentTimeMillis() - eStart;
+
 			System.out.println("M Step....");
+			long mStart = System.currentTimeMillis();
 			classFrequency = new ArrayList<Double>();
 			M(finalModel);
 			double updateloglikelihood = calculateLoglikelihood(finalModel);
+			long mTime = System.currentTimeMillis() - mStart;
+
 			System.out.println(loglikelihood + ".....update ...." + updateloglikelihood);
+			System.out.println("iteration " + iteration + " : E step " + eTime + " ms, M step " + mTime + " ms");
 			if (loglikelihood < updateloglikelihood) {
 				loglikelihood = updateloglikelihood;
 			} else {
@@ -77,44 +109,7 @@ public class EM {
 	}
 	
 	public void M(List<Cluster> updateModel) {
-		int n = 0;
-		int q = updateModel.size();
-		double denominator = 0.0;
-		int v = mDictionary.size();
-		for (Cluster cluster : updateModel) {
-			n += cluster.getDocuments().size();
-		}
-		
-		// calculate P(c | \hat{\theta})
-		for (int i = 0; i < q; i++) {
-			double frequency = (1.0 + updateModel.get(i).getDocuments().size()) / (q + n);
-			classFrequency.add(frequency);
-			Cluster cluster = updateModel.get(i);
-			List<EecbClusterDocument> documents = cluster.getDocuments();
-			for (EecbClusterDocument document : documents) {
-				Matrix vector = document.vector;
-				for (int k = 0; k < vector.getRowDimension(); k++) {
-					denominator += vector.get(k, 0);
-				}
-			}
-		}
-		
-		// calculate P(w | c, \hat{\theta})
-		for (int i = 0; i < q; i++) {
-			parameters.put(i, new HashMap<Integer, Double>());
-			Cluster cluster = updateModel.get(i);
-			List<EecbClusterDocument> documents = cluster.getDocuments();
-			int j = 0;
-			for (String key : mDictionary) {
-				double numerator = 0.0;
-				for (EecbClusterDocument document : documents) {
-					Matrix vector = document.vector;
-					numerator += vector.get(j, 0);
-				}
-				parameters.get(i).put(j, (1 + numerator) / (v + denominator));
-				j += 1;
-			}
-		}
+		estimate(updateModel);
 	}
 	
 	/**
@@ -126,11 +121,13 @@ public class EM {
 		for (int i = 0; i < model.size(); i++) {
 			Cluster cluster = model.get(i);
 			List<EecbClusterDocument> documents = cluster.getDocuments();
+			double logFrequency = Math.log(classFrequency.get(i));
 			for (EecbClusterDocument document: documents) {
-				loglikelihood += Math.log(classFrequency.get(i));
-				Matrix vector = document.vector;
-				for (int j = 0; j < vector.getRowDimension(); j++) {
-					if (vector.get(j, 0) > 0) loglikelihood += Math.log(vector.get(j, 0));
+				loglikelihood += logFrequency;
+				SparseVector vector = document.getSparseVector();
+				for (int p = 0; p < vector.size(); p++) {
+					double value = vector.getValue(p);
+					if (value > 0) loglikelihood += Math.log(value);
 				}
 			}
 		}
@@ -142,43 +139,74 @@ public class EM {
 	 * the NB classifier is used to assign probability-weighted category labels to all documents,
 	 * including previously unlabeled documents
 	 * <b>NOTE</b>
-	 * in order to avoid the overflow, we at first use ln to calculate the probability, and then use
-	 * e to convert back
+	 * in order to avoid the overflow, the responsibilities are normalized in log space with log-sum-exp,
+	 * and each document is assigned to the cluster with the largest responsibility
 	 * 
 	 */
 	public List<Cluster> E(List<Cluster> model) {
+		final int q = model.size();
 		List<Cluster> updateModel = new ArrayList<Cluster>();
 		for (Cluster cluster : model) {
 			Cluster newcluster = new Cluster(cluster.mID);
 			updateModel.add(newcluster);
 		}
 		
-		for (EecbClusterDocument document : mDocuments) {
-			List<Double> scores = new ArrayList<Double>();
-			Matrix vector = document.vector;
-			double denominator = 0.0;
-			for (int i = 0; i < updateModel.size(); i++) {
-				double numerator = 0.0;
-				numerator += Math.log(classFrequency.get(i));
-				for (int j = 0; j < vector.getRowDimension(); j++) {
-					double value = vector.get(j, 0);
-					if (value > 0) {
-						numerator += Math.log(parameters.get(i).get(j));
+		final double[] logFrequencies = new double[q];
+		for (int i = 0; i < q; i++) {
+			logFrequencies[i] = Math.log(classFrequency.get(i));
+		}
+
+		// score the documents in parallel, each task fills its own rows
+		final int n = mDocuments.size();
+		final double[][] scores = new double[n][];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		int chunk = Math.max(1, (n + threads - 1) / threads);
+		for (int begin = 0; begin < n; begin += chunk) {
+			final int from = begin;
+			final int to = Math.min(n, begin + chunk);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					for (int d = from; d < to; d++) {
+						SparseVector vector = mDocuments.get(d).getSparseVector();
+						double[] score = new double[q];
+						for (int i = 0; i < q; i++) {
+							double numerator = logFrequencies[i];
+							double[] logParameter = logParameters[i];
+							for (int p = 0; p < vector.size(); p++) {
+								if (vector.getValue(p) > 0) {
+									numerator += logParameter[vector.getIndex(p)];
+								}
+							}
+							score[i] = numerator;
+						}
+
+						// normalize in log space
+						double maximum = Double.NEGATIVE_INFINITY;
+						for (double value : score) {
+							maximum = Math.max(maximum, value);
+						}
+						double sum = 0.0;
+						for (double value : score) {
+							sum += Math.exp(value - maximum);
+						}
+						double logNormalizer = maximum + Math.log(sum);
+						for (int i = 0; i < q; i++) {
+							score[i] -= logNormalizer;
+						}
+						scores[d] = score;
 					}
+					return null;
 				}
-				scores.add(numerator);
-				denominator += Math.exp(numerator);
-			}
-			
-			// normalize
-			for (int i = 0; i < scores.size(); i++) {
-				scores.set(i, Math.exp(scores.get(i)) / denominator);
-			}
-			
-			int classLabel = maximum(scores);
+			});
+		}
+		run(tasks);
+		responsibilities = scores;
 			
+		// assign the documents in their original order
+		for (int d = 0; d < n; d++) {
+			int classLabel = argmax(scores[d]);
 			Cluster cluster = updateModel.get(classLabel);
-			cluster.addDocument(document);
+			cluster.addDocument(mDocuments.get(d));
 		}
 		
 		return updateModel;
@@ -192,7 +220,7 @@ public class EM {
 	public int maximum(List<Double> scores) {
 		double maximumValue = Collections.max(scores);
 		int index = 0;
-		for (int i = 0; i < scores.size() - 1; i++) {
+		for (int i = 0; i < scores.size(); i++) {
 			Double score = scores.get(i);
 			if (score == maximumValue) {
 				index = i;
@@ -202,6 +230,15 @@ public class EM {
 		
 		return index;
 	}
+
+	// the first index with the maximum value
+	private int argmax(double[] scores) {
+		int index = 0;
+		for (int i = 1; i < scores.length; i++) {
+			if (scores[i] > scores[index]) index = i;
+		}
+		return index;
+	}
 	
 	/**
 	 * the model parameters are estimated using only documents labeled in the proposed initial
@@ -211,46 +248,81 @@ public class EM {
 	 * 
 	 */
 	public void initialization() {
+		estimate(minitialModel);
+	}
+
+	/**
+	 * estimate P(c | \hat{\theta}) and P(w | c, \hat{\theta}) from the documents of each cluster
+	 *
+	 * @param model
+	 */
+	private void estimate(final List<Cluster> model) {
 		int n = 0;
-		int q = minitialModel.size();
-		double denominator = 0.0;
-		int v = mDictionary.size();
-		for (Cluster cluster : minitialModel) {
+		final int q = model.size();
+		final int v = mDictionary.size();
+		for (Cluster cluster : model) {
 			n += cluster.getDocuments().size();
 		}
 		
-		// calculate P(c | \hat{\theta})
+		// the term counts of each cluster, summed in parallel over the clusters
+		final double[][] numerators = new double[q][];
+		final double[] totals = new double[q];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
 		for (int i = 0; i < q; i++) {
-			double frequency = (1.0 + minitialModel.get(i).getDocuments().size()) / (q + n);
-			classFrequency.add(frequency);
-			Cluster cluster = minitialModel.get(i);
-			List<EecbClusterDocument> documents = cluster.getDocuments();
-			for (EecbClusterDocument document : documents) {
-				Matrix vector = document.vector;
-				for (int k = 0; k < vector.getRowDimension(); k++) {
-					denominator += vector.get(k, 0);
+			final int index = i;
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					double[] numerator = new double[v];
+					double total = 0.0;
+					for (EecbClusterDocument document : model.get(index).getDocuments()) {
+						SparseVector vector = document.getSparseVector();
+						vector.addTo(numerator, 1.0);
+						total += vector.sum();
+					}
+					numerators[index] = numerator;
+					totals[index] = total;
+					return null;
 				}
-			}
+			});
+		}
+		run(tasks);
+
+		// calculate P(c | \hat{\theta}), and the denominator over all clusters in the cluster order
+		double denominator = 0.0;
+		for (int i = 0; i < q; i++) {
+			double frequency = (1.0 + model.get(i).getDocuments().size()) / (q + n);
+			classFrequency.add(frequency);
+			denominator += totals[i];
 		}
 		
 		// calculate P(w | c, \hat{\theta})
+		double logDenominator = Math.log(v + denominator);
+		logParameters = new double[q][];
 		for (int i = 0; i < q; i++) {
-			parameters.put(i, new HashMap<Integer, Double>());
-			Cluster cluster = minitialModel.get(i);
-			List<EecbClusterDocument> documents = cluster.getDocuments();
-			int j = 0;
-			for (String key : mDictionary) {
-				double numerator = 0.0;
-				for (EecbClusterDocument document : documents) {
-					Matrix vector = document.vector;
-					numerator += vector.get(j, 0);
-				}
-				parameters.get(i).put(j, (1 + numerator) / (v + denominator));
-				j += 1;
+			double[] logParameter = numerators[i];
+			for (int j = 0; j < v; j++) {
+				logParameter[j] = Math.log(1 + logParameter[j]) - logDenominator;
 			}
+			logParameters[i] = logParameter;
 		}
-		
 	}
 
+	// run the tasks on a fixed thread pool and wait for all of them
+	private void run(List<Callable<Void>> tasks) {
+		if (tasks.isEmpty()) return;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
 	
 }
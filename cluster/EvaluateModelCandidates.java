@@ -3,10 +3,7 @@ package edu.oregonstate.cluster;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import Jama.Matrix;
 
-import edu.oregonstate.cluster.experiment.DissimilarityMeasure;
-import edu.oregonstate.cluster.experiment.EecbDissimilarityMeasure;
 import edu.oregonstate.data.EecbClusterDocument;
 
 /**
@@ -26,12 +23,10 @@ public class EvaluateModelCandidates {
 
 	private List<Cluster> originalModel;
 	public enum QUALITYMSURE {W, WB, WN, GW, GWB, GWN};
-	private DissimilarityMeasure measure;
 	private int termSize;
 	
 	public EvaluateModelCandidates (List<Cluster> model, int termSize) {
 		originalModel = model;
-		measure = new EecbDissimilarityMeasure();
 		this.termSize = termSize;
 	}
 	
@@ -135,53 +130,74 @@ public class EvaluateModelCandidates {
 	/**
 	 * C = B(n - 1) / W(k - 1)
 	 * 
+	 * the centroids are dense arrays accumulated from the sparse document vectors, so each document costs 
+	 * its number of terms instead of the vocabulary size
+	 * 
 	 * @param subModel
 	 * @return
 	 */
 	private double calculateCScore(List<Cluster> subModel) {
-		Matrix metaCentroid = new Matrix(termSize, 1);
+		double[] metaCentroid = new double[termSize];
 		int n = 0;
+		List<double[]> centroids = new ArrayList<double[]>();
 		for (Cluster cluster : subModel) {
-			List<EecbClusterDocument> documents = cluster.getDocuments();
-			for(EecbClusterDocument document : documents) {
-				metaCentroid = metaCentroid.plus(document.vector);
+			double[] centroid = centroid(cluster.getDocuments());
+			for (int i = 0; i < termSize; i++) {
+				metaCentroid[i] += centroid[i];
 			}
-			n = n + documents.size();
+			centroids.add(centroid);
+			n = n + cluster.getDocuments().size();
 		}
 		int k = subModel.size();
-		double W = calculateWScore(subModel);
-		double B = calculateBScore(subModel, metaCentroid);
+		double W = calculateWScore(subModel, centroids);
+		double B = calculateBScore(subModel, centroids, metaCentroid);
 		return (B * (n - k)) / (W * (k - 1));
 	}
 	
-	private double calculateWScore(List<Cluster> subModel) {
+	private double calculateWScore(List<Cluster> subModel, List<double[]> centroids) {
 		double W = 0.0;
-		for (Cluster cluster : subModel) {
-			Matrix centroid = new Matrix(termSize, 1);
-			List<EecbClusterDocument> documents = cluster.getDocuments();
-			for (EecbClusterDocument document : documents) {
-				centroid = centroid.plus(document.vector);
-			}
-			for (EecbClusterDocument document : documents) {
-				W += Math.pow(1 - measure.cosineSimilarity(centroid, document.vector), 2);
+		for (int c = 0; c < subModel.size(); c++) {
+			double[] centroid = centroids.get(c);
+			double centroidNorm = squaredNorm(centroid);
+			for (EecbClusterDocument document : subModel.get(c).getDocuments()) {
+				SparseVector vector = document.getSparseVector();
+				double similarity = vector.dot(centroid) / Math.sqrt(centroidNorm * vector.squaredNorm());
+				W += Math.pow(1 - similarity, 2);
 			}
 		}
 		return W;
 	}
 	
-	private double calculateBScore(List<Cluster> subModel, Matrix metaCentroid) {
+	private double calculateBScore(List<Cluster> subModel, List<double[]> centroids, double[] metaCentroid) {
 		double B = 0.0;
-		for (Cluster cluster : subModel) {
-			Matrix centroid = new Matrix(termSize, 1);
-			List<EecbClusterDocument> documents = cluster.getDocuments();
-			for (EecbClusterDocument document : documents) {
-				centroid = centroid.plus(document.vector);
+		double metaCentroidNorm = squaredNorm(metaCentroid);
+		for (int c = 0; c < subModel.size(); c++) {
+			double[] centroid = centroids.get(c);
+			double dot = 0.0;
+			for (int i = 0; i < termSize; i++) {
+				dot += centroid[i] * metaCentroid[i];
 			}
-			B += documents.size() * Math.pow(1 - measure.cosineSimilarity(centroid, metaCentroid), 2);
+			double similarity = dot / Math.sqrt(squaredNorm(centroid) * metaCentroidNorm);
+			B += subModel.get(c).getDocuments().size() * Math.pow(1 - similarity, 2);
 		}
 		
 		return B;
 	}
 	
+	private double[] centroid(List<EecbClusterDocument> documents) {
+		double[] centroid = new double[termSize];
+		for (EecbClusterDocument document : documents) {
+			document.getSparseVector().addTo(centroid, 1.0);
+		}
+		return centroid;
+	}
+	
+	private double squaredNorm(double[] vector) {
+		double sum = 0.0;
+		for (double value : vector) {
+			sum += value * value;
+		}
+		return sum;
+	}
 	
 }
@@ -4,6 +4,10 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Comparator;
+import java.util.PriorityQueue;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -11,6 +15,8 @@ import edu.oregonstate.data.EecbClusterDocument;
 import edu.oregonstate.cluster.Cluster;
 import edu.oregonstate.cluster.agglomeration.AgglomerationMethod;
 import edu.oregonstate.cluster.experiment.DissimilarityMeasure;
+import edu.oregonstate.cluster.experiment.EecbDissimilarityMeasure;
+import edu.oregonstate.general.IndexedMinHeap;
 
 /**
  * implementation of Hierarchical Agglomerative clustering method
@@ -30,6 +36,9 @@ public class HAC {
 	private List<Cluster> mergeResult; // all dendrogram clusters
 	private AgglomerationMethod method;
 	public List<String> mergeSequence;
+	// number of nearest neighbours of each document in the sparse mode, 0 for the full dissimilarity matrix
+	private int neighbourSize;
+	private SimilarityKernel kernel;
 	
 	public HAC(List<EecbClusterDocument> documents, DissimilarityMeasure dissimilarityMeasure, 
 			AgglomerationMethod agglomerationMethod) {
@@ -39,9 +48,25 @@ public class HAC {
 		mergeResult = new ArrayList<Cluster>();
 		method = agglomerationMethod;
 		mergeSequence = new ArrayList<String>();
+		neighbourSize = 0;
+		kernel = new SimilarityKernel();
 		initialize();
 	}
 	
+	/**
+	 * only keep the k most similar documents of each document, the dissimilarity of the other pairs is taken as 1,
+	 * that is, their cosine similarity is treated as 0. It needs O(nk) memory instead of O(n^2)
+	 * 
+	 * @param k 0 to use the full dissimilarity matrix
+	 */
+	public void setNeighbourSize(int k) {
+		neighbourSize = k;
+	}
+	
+	public void setKernel(SimilarityKernel kernel) {
+		this.kernel = kernel;
+	}
+	
 	public List<String> getSequence() {
 		return mergeSequence;
 	}
@@ -52,46 +77,250 @@ public class HAC {
 
 	/**
 	 * makeing the clustering
+	 * <p>
+	 * The dissimilarities are kept in a packed lower triangular matrix and updated in place with the Lance-Williams
+	 * formula of the agglomeration method after each merge. Each cluster caches its nearest neighbour among the 
+	 * clusters with a larger index, and the clusters are kept in a min-heap by that distance. The cached distance is 
+	 * a lower bound which is verified before a merge, following the generic algorithm of Mullner (2011), which takes 
+	 * O(n^2 log n) time in practice and O(n^2) memory.
 	 */
 	public void cluster() {
-		Map<String, Double> dissimilarityMatrix = computeDissimilarityMatrix();
-		String minIndex = minimum(dissimilarityMatrix);
+		int n = mDocuments.size();
+		if (n < 2) return;
+		if (neighbourSize > 0) {
+			clusterNeighbours();
+			return;
+		}
+		
+		double[] dissimilarityMatrix = computeDissimilarityMatrix();
+		Cluster[] clusters = mClusters.toArray(new Cluster[n]);
+		int[] sizes = new int[n];
+		boolean[] active = new boolean[n];
+		// next active cluster, the clusters with a larger index are visited through this linked list
+		int[] next = new int[n];
+		int[] previous = new int[n];
+		for (int i = 0; i < n; i++) {
+			sizes[i] = 1;
+			active[i] = true;
+			next[i] = i + 1;
+			previous[i] = i - 1;
+		}
+		
+		// nearest neighbour with a larger index and its dissimilarity
+		int[] neighbours = new int[n];
+		IndexedMinHeap heap = new IndexedMinHeap(n);
+		for (int i = 0; i < n - 1; i++) {
+			updateNeighbour(i, dissimilarityMatrix, next, n, neighbours, heap);
+		}
+		
 		// merge until there is only one cluster
-		boolean flag = true;
-		while(flag) {
-			String[] indexs = minIndex.split("-");
-			int to = Integer.parseInt(indexs[0]);
-			int from = Integer.parseInt(indexs[1]);
-			mergeSequence.add(mClusters.get(to).getID() + "-" + mClusters.get(from).getID());
-			Cluster.mergeClusters(mClusters.get(to), mClusters.get(from));
+		for (int step = 0; step < n - 1; step++) {
+			int from = heap.peek();
+			int to = neighbours[from];
+			// the cached dissimilarity is a lower bound, find the true nearest neighbour until it is tight
+			while (heap.getPriority(from) != dissimilarityMatrix[index(from, to)]) {
+				updateNeighbour(from, dissimilarityMatrix, next, n, neighbours, heap);
+				from = heap.peek();
+				to = neighbours[from];
+			}
+			heap.remove(from);
+			double dissimilarity = dissimilarityMatrix[index(from, to)];
+			
+			// the cluster with larger index absorbs the other one, as the removal from the cluster list did
+			recordMerge(clusters, active, to, from);
+			if (previous[from] >= 0) next[previous[from]] = next[from];
+			if (next[from] < n) previous[next[from]] = previous[from];
 			
+			// Lance-Williams update of the dissimilarities to the merged cluster
+			int fromSize = sizes[from];
+			int toSize = sizes[to];
+			for (int k = firstActive(active, next); k < n; k = next[k]) {
+				if (k == to) continue;
+				int toIndex = index(k, to);
+				dissimilarityMatrix[toIndex] = method.updateDissimilarity(dissimilarityMatrix[index(from, k)], 
+						dissimilarityMatrix[toIndex], dissimilarity, fromSize, toSize, sizes[k]);
+			}
+			sizes[to] = fromSize + toSize;
 			
-			Cluster intermediateResult = new Cluster(to);
-			intermediateResult.addChildrens(mClusters.get(to).getChildren());
-			intermediateResult.addDocuments(mClusters.get(to).getDocuments());
-			// also need to deep copy the cluster object not just an ArrayList of cluster object
-			mClusters.remove(from);
-			mergeResult.add(intermediateResult); // soft copy, need deep copy
-			dissimilarityMatrix = new HashMap<String, Double>();
-			dissimilarityMatrix = computeDissimilaritywithDiffernetMethod();
-			if (dissimilarityMatrix.size() == 0) break;
-			minIndex = minimum(dissimilarityMatrix);
+			// the clusters before the merged cluster may now be nearest to it
+			for (int k = firstActive(active, next); k < to; k = next[k]) {
+				double value = dissimilarityMatrix[index(k, to)];
+				if (neighbours[k] == from) {
+					neighbours[k] = to;
+				}
+				if (value < heap.getPriority(k)) {
+					neighbours[k] = to;
+					heap.update(k, value);
+				}
+			}
+			updateNeighbour(to, dissimilarityMatrix, next, n, neighbours, heap);
 		}
 	}
 	
-	private Map<String, Double> computeDissimilaritywithDiffernetMethod() {
-        Map<String, Double> dissimilarityMatrix = new HashMap<String, Double>();
-        /** calcluate the dissimilarity score for each pair (i,j) s.t. i != j*/
-        for (int i = 0; i < mClusters.size(); i++) {
-        	for (int j = 0; j < i; j++) {
-        		double dissimilarity = method.computeDissimilarity(mClusters.get(i), mClusters.get(j));
-        		dissimilarityMatrix.put(Integer.toString(i) + "-" + Integer.toString(j), dissimilarity);
-        	}
-        }
-        
-		return dissimilarityMatrix;
+	/**
+	 * average linkage on the k nearest neighbour graph of the documents
+	 * <p>
+	 * Each cluster keeps the dissimilarities to the clusters it is connected with, the missing pairs have 
+	 * dissimilarity 1. The candidate pairs are kept in a heap and dropped lazily when one of the clusters changed.
+	 * When no connected pair is left, the remaining clusters are merged in the order of their index.
+	 */
+	private void clusterNeighbours() {
+		int n = mDocuments.size();
+		List<SparseVector> vectors = new ArrayList<SparseVector>();
+		for (EecbClusterDocument document : mDocuments) {
+			vectors.add(document.getSparseVector());
+		}
+		SimilarityKernel.Neighbours neighbours = kernel.topNeighbours(vectors, neighbourSize);
+		
+		Cluster[] clusters = mClusters.toArray(new Cluster[n]);
+		boolean[] active = new boolean[n];
+		int[] sizes = new int[n];
+		int[] versions = new int[n];
+		List<Map<Integer, Double>> links = new ArrayList<Map<Integer, Double>>();
+		for (int i = 0; i < n; i++) {
+			active[i] = true;
+			sizes[i] = 1;
+			links.add(new HashMap<Integer, Double>());
+		}
+		for (int i = 0; i < n; i++) {
+			for (int p = 0; p < neighbours.ids[i].length; p++) {
+				int j = neighbours.ids[i][p];
+				double dissimilarity = 1 - neighbours.similarities[i][p];
+				links.get(i).put(j, dissimilarity);
+				links.get(j).put(i, dissimilarity);
+			}
+		}
+		
+		// candidate pair {dissimilarity, i, j, version of i, version of j}, i < j
+		PriorityQueue<double[]> candidates = new PriorityQueue<double[]>(Math.max(1, n * neighbourSize), new Comparator<double[]>() {
+			public int compare(double[] a, double[] b) {
+				for (int k = 0; k < 3; k++) {
+					if (a[k] != b[k]) return a[k] < b[k] ? -1 : 1;
+				}
+				return 0;
+			}
+		});
+		for (int i = 0; i < n; i++) {
+			for (Map.Entry<Integer, Double> link : links.get(i).entrySet()) {
+				int j = link.getKey();
+				if (i < j) candidates.add(new double[]{link.getValue(), i, j, 0, 0});
+			}
+		}
+		
+		int activeSize = n;
+		while (activeSize > 1) {
+			int from;
+			int to;
+			double[] candidate = candidates.poll();
+			if (candidate == null) {
+				// the rest are not connected, merge the first two clusters
+				from = 0;
+				while (!active[from]) from++;
+				to = from + 1;
+				while (!active[to]) to++;
+			} else {
+				from = (int) candidate[1];
+				to = (int) candidate[2];
+				if (!active[from] || !active[to] || versions[from] != (int) candidate[3] || versions[to] != (int) candidate[4]) continue;
+			}
+			
+			recordMerge(clusters, active, to, from);
+			activeSize -= 1;
+			
+			// Lance-Williams update over the clusters connected with either of them
+			Map<Integer, Double> fromLinks = links.get(from);
+			Map<Integer, Double> toLinks = links.get(to);
+			Double fromTo = toLinks.remove(from);
+			fromLinks.remove(to);
+			Set<Integer> connected = new HashSet<Integer>(fromLinks.keySet());
+			connected.addAll(toLinks.keySet());
+			double dissimilarity = candidate == null ? 1.0 : candidate[0];
+			Map<Integer, Double> mergedLinks = new HashMap<Integer, Double>();
+			for (Integer k : connected) {
+				Double fromK = fromLinks.get(k);
+				Double toK = toLinks.get(k);
+				double value = method.updateDissimilarity(fromK == null ? 1.0 : fromK, toK == null ? 1.0 : toK,
+						fromTo == null ? dissimilarity : fromTo, sizes[from], sizes[to], sizes[k]);
+				mergedLinks.put(k, value);
+				Map<Integer, Double> kLinks = links.get(k);
+				kLinks.remove(from);
+				kLinks.put(to, value);
+			}
+			sizes[to] += sizes[from];
+			versions[to] += 1;
+			links.set(from, new HashMap<Integer, Double>());
+			links.set(to, mergedLinks);
+			for (Map.Entry<Integer, Double> link : mergedLinks.entrySet()) {
+				int k = link.getKey();
+				int i = Math.min(k, to);
+				int j = Math.max(k, to);
+				candidates.add(new double[]{link.getValue(), i, j, versions[i], versions[j]});
+			}
+		}
 	}
 	
+	/**
+	 * merge the from cluster into the to cluster, and record the merge
+	 */
+	private void recordMerge(Cluster[] clusters, boolean[] active, int to, int from) {
+		int toPosition = positionOf(to, active);
+		mergeSequence.add(clusters[to].getID() + "-" + clusters[from].getID());
+		Cluster.mergeClusters(clusters[to], clusters[from]);
+		
+		Cluster intermediateResult = new Cluster(toPosition);
+		intermediateResult.addChildrens(clusters[to].getChildren());
+		intermediateResult.addDocuments(clusters[to].getDocuments());
+		mClusters.remove(clusters[from]);
+		mergeResult.add(intermediateResult);
+		active[from] = false;
+	}
+	
+	/**
+	 * find the nearest neighbour among the active clusters with a larger index
+	 */
+	private void updateNeighbour(int i, double[] dissimilarityMatrix, int[] next, int n, int[] neighbours, IndexedMinHeap heap) {
+		int neighbour = -1;
+		double minimum = Double.POSITIVE_INFINITY;
+		for (int j = next[i]; j < n; j = next[j]) {
+			double value = dissimilarityMatrix[index(i, j)];
+			if (neighbour < 0 || value < minimum) {
+				neighbour = j;
+				minimum = value;
+			}
+		}
+		
+		if (neighbour < 0) {
+			heap.remove(i);
+		} else {
+			neighbours[i] = neighbour;
+			heap.update(i, minimum);
+		}
+	}
+	
+	// position of the cluster in the cluster list, which only contains the active clusters
+	private int positionOf(int cluster, boolean[] active) {
+		int position = 0;
+		for (int i = 0; i < cluster; i++) {
+			if (active[i]) position += 1;
+		}
+		return position;
+	}
+	
+	private int firstActive(boolean[] active, int[] next) {
+		int i = 0;
+		while (i < active.length && !active[i]) i++;
+		return i;
+	}
+	
+	/** position of the pair (i,j) in the packed lower triangular matrix */
+	private static int index(int i, int j) {
+		if (i < j) {
+			int temp = i;
+			i = j;
+			j = temp;
+		}
+		return (int) ((long) i * (i - 1) / 2 + j);
+	}
 	
 	/*Compare HashMap to get the index with the minimum value*/
     public String minimum(Map<String, Double> scores) {
@@ -110,16 +339,30 @@ public class HAC {
     }
 	
 	
-	private Map<String, Double> computeDissimilarityMatrix() {
-        Map<String, Double> dissimilarityMatrix = new HashMap<String, Double>();
-        /** calcluate the dissimilarity score for each pair (i,j) s.t. i != j*/
-        for (int i = 0; i < mDocuments.size(); i++) {
-        	for (int j = 0; j < i; j++) {
-        		double dissimilarity = dissimilarityMeasure.computeDissimilarity(mDocuments, i, j);
-        		dissimilarityMatrix.put(Integer.toString(i) + "-" + Integer.toString(j), dissimilarity);
-        	}
-        }
-        
+	private double[] computeDissimilarityMatrix() {
+		int n = mDocuments.size();
+		// the cosine dissimilarity of the sparse vectors is computed by the blocked parallel kernel
+		if (dissimilarityMeasure instanceof EecbDissimilarityMeasure) {
+			List<SparseVector> vectors = new ArrayList<SparseVector>();
+			for (EecbClusterDocument document : mDocuments) {
+				vectors.add(document.getSparseVector());
+			}
+			return kernel.dissimilarityMatrix(vectors);
+		}
+		
+		long size = (long) n * (n - 1) / 2;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many documents for the dissimilarity matrix : " + n);
+		}
+		
+		double[] dissimilarityMatrix = new double[(int) size];
+		/** calcluate the dissimilarity score for each pair (i,j) s.t. i != j*/
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < i; j++) {
+				dissimilarityMatrix[index(i, j)] = dissimilarityMeasure.computeDissimilarity(mDocuments, i, j);
+			}
+		}
+		
 		return dissimilarityMatrix;
 	}
 	
@@ -0,0 +1,247 @@
+package edu.oregonstate.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * all-pairs cosine similarity of sparse document vectors
+ * <p>
+ * The full mode fills the packed lower triangular dissimilarity matrix used by HAC, tile by tile, so that the
+ * vectors of one column block stay in cache while the rows of the row block are compared with them. The top-k mode
+ * only keeps the k most similar documents of each document, accumulating the dot products through an inverted index
+ * over the terms, so its cost depends on the posting lengths instead of n^2. Both modes run the tiles or rows on a
+ * fixed thread pool, and the result does not depend on the number of threads.
+ *
+ * Jun Xie(xiejuncs@gmail.com)
+ */
+public class SimilarityKernel {
+
+	/** rows and columns of one tile */
+	private static final int BLOCK_SIZE = 64;
+
+	private final int threads;
+
+	public SimilarityKernel() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public SimilarityKernel(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * the k nearest neighbours of each document
+	 */
+	public static class Neighbours {
+		/** neighbour document ids of each document, in descending order of the similarity */
+		public final int[][] ids;
+		/** the cosine similarity of each neighbour */
+		public final double[][] similarities;
+
+		Neighbours(int[][] ids, double[][] similarities) {
+			this.ids = ids;
+			this.similarities = similarities;
+		}
+	}
+
+	/** position of the pair (i,j), j < i, in the packed lower triangular matrix */
+	public static int index(int i, int j) {
+		if (i < j) {
+			int temp = i;
+			i = j;
+			j = temp;
+		}
+		return (int) ((long) i * (i - 1) / 2 + j);
+	}
+
+	/**
+	 * 1 - cosine similarity of all pairs (i,j), j < i
+	 *
+	 * @param vectors
+	 * @return packed lower triangular matrix, see index(i, j)
+	 */
+	public double[] dissimilarityMatrix(List<SparseVector> vectors) {
+		final int n = vectors.size();
+		long size = (long) n * (n - 1) / 2;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many documents for the dissimilarity matrix : " + n);
+		}
+
+		final SparseVector[] documents = vectors.toArray(new SparseVector[n]);
+		final double[] inverseNorms = inverseNorms(documents);
+		final double[] matrix = new double[(int) size];
+		final int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		final int tiles = blocks * (blocks + 1) / 2;
+		final AtomicInteger nextTile = new AtomicInteger(0);
+
+		run(new Callable<Void>() {
+			public Void call() {
+				for (int tile = nextTile.getAndIncrement(); tile < tiles; tile = nextTile.getAndIncrement()) {
+					// tile t covers the row block r and the column block c <= r
+					int rowBlock = (int) ((Math.sqrt(8.0 * tile + 1) - 1) / 2);
+					while (rowBlock * (rowBlock + 1) / 2 > tile) rowBlock--;
+					while ((rowBlock + 1) * (rowBlock + 2) / 2 <= tile) rowBlock++;
+					int columnBlock = tile - rowBlock * (rowBlock + 1) / 2;
+
+					int rowEnd = Math.min(n, (rowBlock + 1) * BLOCK_SIZE);
+					int columnEnd = Math.min(n, (columnBlock + 1) * BLOCK_SIZE);
+					for (int i = rowBlock * BLOCK_SIZE; i < rowEnd; i++) {
+						int offset = index(i, 0);
+						int end = Math.min(i, columnEnd);
+						for (int j = columnBlock * BLOCK_SIZE; j < end; j++) {
+							matrix[offset + j] = 1 - documents[i].dot(documents[j]) * inverseNorms[i] * inverseNorms[j];
+						}
+					}
+				}
+				return null;
+			}
+		});
+
+		return matrix;
+	}
+
+	/**
+	 * the k most similar documents of each document, documents with zero similarity are not neighbours
+	 *
+	 * @param vectors
+	 * @param k
+	 * @return
+	 */
+	public Neighbours topNeighbours(List<SparseVector> vectors, final int k) {
+		final int n = vectors.size();
+		final SparseVector[] documents = vectors.toArray(new SparseVector[n]);
+		final double[] inverseNorms = inverseNorms(documents);
+
+		// inverted index: term id to the documents and their normalized weights
+		int dimension = 0;
+		for (SparseVector document : documents) {
+			if (document.size() > 0) dimension = Math.max(dimension, document.getIndex(document.size() - 1) + 1);
+		}
+		int[] postingSizes = new int[dimension + 1];
+		for (SparseVector document : documents) {
+			for (int p = 0; p < document.size(); p++) {
+				postingSizes[document.getIndex(p) + 1] += 1;
+			}
+		}
+		for (int t = 0; t < dimension; t++) {
+			postingSizes[t + 1] += postingSizes[t];
+		}
+		final int[] postingOffsets = postingSizes;
+		final int[] postingDocuments = new int[postingOffsets[dimension]];
+		final double[] postingValues = new double[postingOffsets[dimension]];
+		int[] fill = Arrays.copyOf(postingOffsets, dimension);
+		for (int d = 0; d < n; d++) {
+			SparseVector document = documents[d];
+			for (int p = 0; p < document.size(); p++) {
+				int position = fill[document.getIndex(p)]++;
+				postingDocuments[position] = d;
+				postingValues[position] = document.getValue(p) * inverseNorms[d];
+			}
+		}
+
+		final int[][] ids = new int[n][];
+		final double[][] similarities = new double[n][];
+		final AtomicInteger nextBlock = new AtomicInteger(0);
+		final int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+		run(new Callable<Void>() {
+			public Void call() {
+				double[] scores = new double[n];
+				int[] touched = new int[n];
+				for (int block = nextBlock.getAndIncrement(); block < blocks; block = nextBlock.getAndIncrement()) {
+					int end = Math.min(n, (block + 1) * BLOCK_SIZE);
+					for (int d = block * BLOCK_SIZE; d < end; d++) {
+						// accumulate the dot products with every document sharing a term
+						SparseVector document = documents[d];
+						int touchedSize = 0;
+						for (int p = 0; p < document.size(); p++) {
+							int term = document.getIndex(p);
+							double weight = document.getValue(p) * inverseNorms[d];
+							for (int q = postingOffsets[term]; q < postingOffsets[term + 1]; q++) {
+								int other = postingDocuments[q];
+								if (other == d) continue;
+								if (scores[other] == 0.0) touched[touchedSize++] = other;
+								scores[other] += weight * postingValues[q];
+							}
+						}
+
+						selectTop(d, scores, touched, touchedSize, k, ids, similarities);
+						for (int t = 0; t < touchedSize; t++) {
+							scores[touched[t]] = 0.0;
+						}
+					}
+				}
+				return null;
+			}
+		});
+
+		return new Neighbours(ids, similarities);
+	}
+
+	// keep the k largest scores, ties are broken by the smaller document id
+	private static void selectTop(int d, double[] scores, int[] touched, int touchedSize, int k, int[][] ids, double[][] similarities) {
+		// a candidate may be touched twice if its partial sum came back to exactly zero
+		Integer[] candidates = new Integer[touchedSize];
+		int size = 0;
+		for (int t = 0; t < touchedSize; t++) {
+			if (scores[touched[t]] > 0.0) candidates[size++] = touched[t];
+		}
+		final double[] score = scores;
+		Arrays.sort(candidates, 0, size, new java.util.Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if (score[a] != score[b]) return score[a] > score[b] ? -1 : 1;
+				return a.compareTo(b);
+			}
+		});
+
+		int length = 0;
+		int[] neighbourIds = new int[Math.min(k, size)];
+		double[] neighbourSimilarities = new double[neighbourIds.length];
+		for (int t = 0; t < size && length < neighbourIds.length; t++) {
+			if (length > 0 && candidates[t] == neighbourIds[length - 1]) continue;
+			neighbourIds[length] = candidates[t];
+			neighbourSimilarities[length] = scores[candidates[t]];
+			length++;
+		}
+		ids[d] = Arrays.copyOf(neighbourIds, length);
+		similarities[d] = Arrays.copyOf(neighbourSimilarities, length);
+	}
+
+	private static double[] inverseNorms(SparseVector[] documents) {
+		double[] inverseNorms = new double[documents.length];
+		for (int i = 0; i < documents.length; i++) {
+			double norm = Math.sqrt(documents[i].squaredNorm());
+			inverseNorms[i] = norm == 0.0 ? 0.0 : 1.0 / norm;
+		}
+		return inverseNorms;
+	}
+
+	// run the same worker on each thread of the pool and wait for all of them
+	private void run(Callable<Void> worker) {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(worker));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package edu.oregonstate.cluster;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import Jama.Matrix;
+
+/**
+ * sparse document vector, the term ids are sorted in ascending order
+ *
+ * Jun Xie(xiejuncs@gmail.com)
+ */
+public class SparseVector implements Serializable {
+
+	private static final long serialVersionUID = -3316713541838564129L;
+
+	private final int[] indices;
+	private final double[] values;
+
+	/**
+	 * @param indices term ids, sorted in ascending order without duplicates
+	 * @param values the weight of each term id
+	 */
+	public SparseVector(int[] indices, double[] values) {
+		this.indices = indices;
+		this.values = values;
+	}
+
+	/**
+	 * build a sparse vector from the term id to weight map, the zero weights are dropped
+	 *
+	 * @param weights
+	 * @return
+	 */
+	public static SparseVector fromMap(Map<Integer, Double> weights) {
+		TreeMap<Integer, Double> sorted = new TreeMap<Integer, Double>(weights);
+		int size = 0;
+		for (double value : sorted.values()) {
+			if (value != 0.0) size += 1;
+		}
+
+		int[] indices = new int[size];
+		double[] values = new double[size];
+		int position = 0;
+		for (Map.Entry<Integer, Double> entry : sorted.entrySet()) {
+			if (entry.getValue() == 0.0) continue;
+			indices[position] = entry.getKey();
+			values[position] = entry.getValue();
+			position += 1;
+		}
+		return new SparseVector(indices, values);
+	}
+
+	/**
+	 * build a sparse vector from a column vector
+	 *
+	 * @param vector
+	 * @return
+	 */
+	public static SparseVector fromMatrix(Matrix vector) {
+		int dimension = vector.getRowDimension();
+		int size = 0;
+		for (int i = 0; i < dimension; i++) {
+			if (vector.get(i, 0) != 0.0) size += 1;
+		}
+
+		int[] indices = new int[size];
+		double[] values = new double[size];
+		int position = 0;
+		for (int i = 0; i < dimension; i++) {
+			double value = vector.get(i, 0);
+			if (value == 0.0) continue;
+			indices[position] = i;
+			values[position] = value;
+			position += 1;
+		}
+		return new SparseVector(indices, values);
+	}
+
+	/** number of non-zero entries */
+	public int size() {
+		return indices.length;
+	}
+
+	public int getIndex(int position) {
+		return indices[position];
+	}
+
+	public double getValue(int position) {
+		return values[position];
+	}
+
+	/** the weight of the term id, 0 if absent */
+	public double get(int index) {
+		int position = Arrays.binarySearch(indices, index);
+		return position < 0 ? 0.0 : values[position];
+	}
+
+	/** dot product by merging the two sorted index lists */
+	public double dot(SparseVector other) {
+		int[] otherIndices = other.indices;
+		double[] otherValues = other.values;
+		double sum = 0.0;
+		int i = 0;
+		int j = 0;
+		while (i < indices.length && j < otherIndices.length) {
+			int a = indices[i];
+			int b = otherIndices[j];
+			if (a == b) {
+				sum += values[i++] * otherValues[j++];
+			} else if (a < b) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return sum;
+	}
+
+	/** dot product with a dense vector */
+	public double dot(double[] dense) {
+		double sum = 0.0;
+		for (int i = 0; i < indices.length; i++) {
+			sum += values[i] * dense[indices[i]];
+		}
+		return sum;
+	}
+
+	/** dense += scale * this */
+	public void addTo(double[] dense, double scale) {
+		for (int i = 0; i < indices.length; i++) {
+			dense[indices[i]] += scale * values[i];
+		}
+	}
+
+	/** this - other, the zero differences are dropped */
+	public SparseVector minus(SparseVector other) {
+		int[] otherIndices = other.indices;
+		double[] otherValues = other.values;
+		int[] differenceIndices = new int[indices.length + otherIndices.length];
+		double[] differenceValues = new double[differenceIndices.length];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < indices.length || j < otherIndices.length) {
+			int index;
+			double value;
+			if (j == otherIndices.length || (i < indices.length && indices[i] < otherIndices[j])) {
+				index = indices[i];
+				value = values[i++];
+			} else if (i == indices.length || otherIndices[j] < indices[i]) {
+				index = otherIndices[j];
+				value = -otherValues[j++];
+			} else {
+				index = indices[i];
+				value = values[i++] - otherValues[j++];
+			}
+			if (value != 0.0) {
+				differenceIndices[size] = index;
+				differenceValues[size] = value;
+				size += 1;
+			}
+		}
+		return new SparseVector(Arrays.copyOf(differenceIndices, size), Arrays.copyOf(differenceValues, size));
+	}
+
+	/** sum of the squared weights */
+	public double squaredNorm() {
+		double sum = 0.0;
+		for (double value : values) {
+			sum += value * value;
+		}
+		return sum;
+	}
+
+	/** sum of the weights */
+	public double sum() {
+		double sum = 0.0;
+		for (double value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	/** the L2 normalized copy, the zero vector stays zero */
+	public SparseVector normalize() {
+		double norm = Math.sqrt(squaredNorm());
+		double[] normalized = new double[values.length];
+		for (int i = 0; i < values.length; i++) {
+			normalized[i] = norm == 0.0 ? 0.0 : values[i] / norm;
+		}
+		return new SparseVector(indices, normalized);
+	}
+
+	/** cosine similarity, 0 if one of the vectors is zero */
+	public double cosine(SparseVector other) {
+		double norm = Math.sqrt(squaredNorm() * other.squaredNorm());
+		if (norm == 0.0) return 0.0;
+		return dot(other) / norm;
+	}
+
+	/** dense column vector of the given dimension */
+	public Matrix toMatrix(int dimension) {
+		Matrix vector = new Matrix(dimension, 1);
+		for (int i = 0; i < indices.length; i++) {
+			vector.set(indices[i], 0, values[i]);
+		}
+		return vector;
+	}
+
+}
@@ -1,6 +1,5 @@
 package edu.oregonstate.cluster;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
@@ -33,6 +32,8 @@ public class TFIDF {
 	private Map<String, Map<Integer, Integer>> wordCount;
 	private CounterMap<String, Integer> tfidf; // word and document index
 	private int documentCount;
+	private List<String> vocabulary; // term id to term
+	private Map<String, Integer> termIndex; // term to term id
 	
 	/**
 	 * initialize all fields 
@@ -63,6 +64,45 @@ public class TFIDF {
 		return tfidf;
 	}
 	
+	/**
+	 * build the L2 normalized sparse tf-idf vector of each document. The term id is the position of the 
+	 * term in the iteration order of the dictionary, which is also the row of the term in the dense vectors
+	 * 
+	 * @return the vector of each document, in the order of the documents
+	 */
+	public List<SparseVector> buildDocumentVectors() {
+		if (termIndex == null) {
+			buildTFIDF();
+		}
+		
+		List<Map<Integer, Double>> weights = new ArrayList<Map<Integer, Double>>();
+		for (int i = 0; i < documentCount; i++) {
+			weights.add(new HashMap<Integer, Double>());
+		}
+		for (String token : tfidf.keySet()) {
+			int id = termIndex.get(token);
+			for (Integer doc : tfidf.getCounter(token).keySet()) {
+				weights.get(doc).put(id, tfidf.getCount(token, doc));
+			}
+		}
+		
+		List<SparseVector> vectors = new ArrayList<SparseVector>();
+		for (Map<Integer, Double> weight : weights) {
+			vectors.add(SparseVector.fromMap(weight).normalize());
+		}
+		return vectors;
+	}
+	
+	/** the terms of the dictionary, indexed by term id */
+	public List<String> getVocabulary() {
+		return vocabulary;
+	}
+	
+	/** the term id, null if the term is not in the dictionary */
+	public Integer getTermIndex(String term) {
+		return termIndex.get(term);
+	}
+	
 	/**
 	 * calculate the tfidf
 	 */
@@ -84,24 +124,28 @@ public class TFIDF {
 	}
 	
 	/**
-	 * build inverted Index
+	 * build inverted Index in one pass over the documents, only the documents which contain the term are recorded
 	 */
 	private void index() {
-		Iterator<String> it = dictionary.iterator();
-		while (it.hasNext()) {
-			String token = it.next();
-			List<Integer> posting = new ArrayList<Integer>();
-			Map<Integer, Integer> count = new HashMap<Integer, Integer>();
-			for (int i = 0; i < mDocuments.size(); i++) {
-				List<String> document = mDocuments.get(i);
-				if (document.contains(token)) {
-					posting.add(i);
+		vocabulary = new ArrayList<String>(dictionary);
+		termIndex = new HashMap<String, Integer>();
+		for (String token : vocabulary) {
+			termIndex.put(token, termIndex.size());
+			invertedIndex.put(token, new ArrayList<Integer>());
+			wordCount.put(token, new HashMap<Integer, Integer>());
+		}
+		
+		for (int i = 0; i < mDocuments.size(); i++) {
+			for (String token : mDocuments.get(i)) {
+				Map<Integer, Integer> count = wordCount.get(token);
+				if (count == null) continue;
+				Integer occurance = count.get(i);
+				if (occurance == null) {
+					invertedIndex.get(token).add(i);
+					occurance = 0;
 				}
-				int occurance = Collections.frequency(document, token);
-				count.put(i, occurance);
-				wordCount.put(token, count);
+				count.put(i, occurance + 1);
 			}
-			invertedIndex.put(token, posting);
 		}
 	}
 	
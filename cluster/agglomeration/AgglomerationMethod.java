@@ -17,4 +17,18 @@ public interface AgglomerationMethod {
 	 * @return dissimilarity between cluster (i,j).
 	 */
 	public double computeDissimilarity(Cluster c1, Cluster c2);
+	
+	/**
+	 * Lance-Williams update, compute the dissimilarity between cluster k and the cluster merged 
+	 * from cluster i and cluster j from the dissimilarities before the merge
+	 * 
+	 * @param dik dissimilarity between cluster (i,k)
+	 * @param djk dissimilarity between cluster (j,k)
+	 * @param dij dissimilarity between cluster (i,j)
+	 * @param ni size of cluster i
+	 * @param nj size of cluster j
+	 * @param nk size of cluster k
+	 * @return dissimilarity between cluster (i+j,k)
+	 */
+	public double updateDissimilarity(double dik, double djk, double dij, int ni, int nj, int nk);
 }
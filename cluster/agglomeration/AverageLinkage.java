@@ -1,9 +1,6 @@
 package edu.oregonstate.cluster.agglomeration;
 
 import edu.oregonstate.cluster.Cluster;
-import edu.oregonstate.cluster.experiment.DissimilarityMeasure;
-import edu.oregonstate.cluster.experiment.EecbDissimilarityMeasure;
-import Jama.Matrix;
 import edu.oregonstate.data.EecbClusterDocument;
 /**
  * average link or group average
@@ -18,21 +15,23 @@ public class AverageLinkage implements AgglomerationMethod {
 
 	/** calculate the dissimilarity between two clusters */
 	public double computeDissimilarity(Cluster c1, Cluster c2) {
-		DissimilarityMeasure meausre = new EecbDissimilarityMeasure();
 		double dissimilarity = 0.0;
 		int n1 = c1.getDocuments().size();
 		int n2 = c2.getDocuments().size();
 		
 		for (EecbClusterDocument d1 : c1.getDocuments()) {
 			for (EecbClusterDocument d2 : c2.getDocuments()) {
-				Matrix m1 = d1.vector;
-				Matrix m2 = d2.vector;
-				dissimilarity += 1 - meausre.cosineSimilarity(m1, m2);
+				dissimilarity += 1 - d1.getSparseVector().cosine(d2.getSparseVector());
 			}
 		}
 		
 		return dissimilarity / (n1 * n2);
 	}
+	
+	/** the average over the merged cluster is the size weighted average of the two averages */
+	public double updateDissimilarity(double dik, double djk, double dij, int ni, int nj, int nk) {
+		return (ni * dik + nj * djk) / (ni + nj);
+	}
 
     public String toString() {
         return "Average";
@@ -3,6 +3,7 @@ package edu.oregonstate.cluster.experiment;
 import java.util.List;
 
 import Jama.Matrix;
+import edu.oregonstate.cluster.SparseVector;
 import edu.oregonstate.data.EecbClusterDocument;
 
 /**
@@ -11,13 +12,13 @@ import edu.oregonstate.data.EecbClusterDocument;
 public class EecbDissimilarityMeasure implements DissimilarityMeasure {
 
 	/**
-	 * how to calculate the dis similarity function
+	 * how to calculate the dis similarity function, on the sparse vectors of the documents
 	 */
 	public double computeDissimilarity(List<EecbClusterDocument> vectors, int observation1, int observation2) {
 		double similarity = 0.0;
-		Matrix obs1 = vectors.get(observation1).vector;
-		Matrix obs2 = vectors.get(observation2).vector;
-		similarity = cosineSimilarity(obs1, obs2);
+		SparseVector obs1 = vectors.get(observation1).getSparseVector();
+		SparseVector obs2 = vectors.get(observation2).getSparseVector();
+		similarity = obs1.cosine(obs2);
 		return 1 - similarity;
 	}
 	
@@ -31,7 +32,7 @@ public class EecbDissimilarityMeasure implements DissimilarityMeasure {
 	public double cosineSimilarity(Matrix obs1, Matrix obs2) {
 		double sum = 0.0;
 		for (int i = 0; i < obs1.getRowDimension(); i++) {
-			sum = obs1.get(i, 0) * obs2.get(i, 0);
+			sum += obs1.get(i, 0) * obs2.get(i, 0);
 		}
 		double norm1 = add(obs1);
 		double norm2 = add(obs2);
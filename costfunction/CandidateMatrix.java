@@ -0,0 +1,127 @@
+package edu.oregonstate.costfunction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.features.FeatureFactory;
+import edu.stanford.nlp.stats.Counter;
+
+/**
+ * the features of the candidate actions of a search step, one row per candidate
+ * <p>
+ * The features of the feature template are stored densely row by row, so a cost function can score all the
+ * candidates of the step at once, for example with one matrix-vector product. The position of a template feature is
+ * looked up in a map built once per experiment properties instead of searching the template for every candidate, the
+ * map is read without locking by the decoding threads. The counter of each row is kept for the features outside of
+ * the template, such as the hashed lexicalized features.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class CandidateMatrix {
+
+	/** the position of the template features, the template only depends on the experiment properties */
+	private static volatile TemplatePositions cachedPositions;
+
+	private final Map<String, Integer> positions;
+	private final int columns;
+
+	private double[] values;
+	private final List<Counter<String>> features;
+	private int rows;
+
+	/**
+	 * @param capacity the expected number of candidates
+	 */
+	public CandidateMatrix(int capacity) {
+		positions = positions();
+		columns = positions.size();
+		values = new double[Math.max(1, capacity) * columns];
+		features = new ArrayList<Counter<String>>(Math.max(1, capacity));
+	}
+
+	/**
+	 * the position of each feature of the template, rebuilt when the experiment properties are replaced
+	 *
+	 * @return an unmodifiable map
+	 */
+	public static Map<String, Integer> positions() {
+		Properties props = ExperimentConstructor.experimentProps;
+		TemplatePositions cached = cachedPositions;
+		if (cached == null || cached.props != props) {
+			// two threads may build the same map, either one is kept
+			cached = new TemplatePositions(props, FeatureFactory.getFeatureTemplate());
+			cachedPositions = cached;
+		}
+		return cached.positions;
+	}
+
+	/**
+	 * add the features of a candidate as a new row
+	 *
+	 * @param counter
+	 * @return the row of the candidate
+	 */
+	public int add(Counter<String> counter) {
+		if ((rows + 1) * columns > values.length) {
+			values = Arrays.copyOf(values, Math.max(values.length * 2, (rows + 1) * columns));
+		}
+
+		int offset = rows * columns;
+		for (String feature : counter.keySet()) {
+			Integer position = positions.get(feature);
+			if (position != null) {
+				values[offset + position] = counter.getCount(feature);
+			}
+		}
+		features.add(counter);
+		return rows++;
+	}
+
+	/** the number of candidates */
+	public int rows() {
+		return rows;
+	}
+
+	/** the size of the feature template */
+	public int columns() {
+		return columns;
+	}
+
+	/** the template features of all rows, row by row, only the first rows x columns elements are used */
+	public double[] values() {
+		return values;
+	}
+
+	/** the value of the template feature of the candidate */
+	public double get(int row, int column) {
+		return values[row * columns + column];
+	}
+
+	/** all features of the candidate, including the features outside of the template */
+	public Counter<String> getFeatures(int row) {
+		return features.get(row);
+	}
+
+	/** the positions of the template built under the properties */
+	private static class TemplatePositions {
+		private final Properties props;
+		private final Map<String, Integer> positions;
+
+		TemplatePositions(Properties props, List<String> template) {
+			this.props = props;
+			Map<String, Integer> map = new HashMap<String, Integer>();
+			for (int i = 0; i < template.size(); i++) {
+				map.put(template.get(i), i);
+			}
+			positions = Collections.unmodifiableMap(map);
+		}
+	}
+
+}
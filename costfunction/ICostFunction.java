@@ -14,5 +14,9 @@ public interface ICostFunction {
 
 	// calculate cost function according to features and the model
 	public double calculateCostFunction(Counter<String> features, double[] model);
+
+	// calculate the cost of every candidate of a search step at once, costs[r] is the cost of the row r, it should
+	// equal calculateCostFunction on the features of the row
+	public void calculateCostFunction(CandidateMatrix candidates, double[] model, double[] costs);
 }
 
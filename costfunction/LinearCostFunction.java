@@ -1,27 +1,56 @@
 package edu.oregonstate.costfunction;
 
-import java.util.List;
+import java.util.Map;
 
-import edu.oregonstate.features.FeatureFactory;
+import edu.oregonstate.features.FeatureHasher;
+import edu.oregonstate.general.VectorKernel;
 import edu.stanford.nlp.stats.Counter;
 
 public class LinearCostFunction implements ICostFunction {
-	
+
 	public LinearCostFunction() {
 	}
-	
-	/** 
-	 * according to feature vector and model vector, calculate the cost
+
+	/**
+	 * according to feature vector and model vector, calculate the cost, the lexicalized features are only
+	 * scored when the model also covers the hash buckets. A single candidate is scored directly on its nonzero features
 	 */
 	public double calculateCostFunction(Counter<String> features, double[] model) {
- 		double sum = 0.0;
- 		List<String> featureTemplate = FeatureFactory.getFeatureTemplate();
- 		for (int i = 0; i < featureTemplate.size(); i++) {
- 			String feature = featureTemplate.get(i);
- 			double value = features.getCount(feature);
- 			sum += value * model[i];
- 		}
- 		return sum;
- 	}
-	
+		Map<String, Integer> positions = CandidateMatrix.positions();
+		int offset = positions.size();
+		int bits = model.length > offset ? Integer.numberOfTrailingZeros(model.length - offset) : 0;
+
+		double cost = 0.0;
+		double lexicalizedCost = 0.0;
+		for (String feature : features.keySet()) {
+			Integer position = positions.get(feature);
+			if (position != null) {
+				cost += features.getCount(feature) * model[position];
+			} else if (model.length > offset && FeatureHasher.isLexicalized(feature)) {
+				lexicalizedCost += features.getCount(feature) * FeatureHasher.sign(feature) * model[FeatureHasher.index(feature, offset, bits)];
+			}
+		}
+		return cost + lexicalizedCost;
+	}
+
+	/**
+	 * the costs of all candidates as one matrix-vector product of the template features, plus the hashed
+	 * lexicalized features of each candidate
+	 */
+	public void calculateCostFunction(CandidateMatrix candidates, double[] model, double[] costs) {
+		int offset = candidates.columns();
+		VectorKernel.multiply(candidates.values(), candidates.rows(), offset, model, costs);
+
+		if (model.length > offset) {
+			int bits = Integer.numberOfTrailingZeros(model.length - offset);
+			for (int row = 0; row < candidates.rows(); row++) {
+				Counter<String> features = candidates.getFeatures(row);
+				for (String feature : features.keySet()) {
+					if (!FeatureHasher.isLexicalized(feature)) continue;
+					costs[row] += features.getCount(feature) * FeatureHasher.sign(feature) * model[FeatureHasher.index(feature, offset, bits)];
+				}
+			}
+		}
+	}
+
 }
@@ -1,6 +1,7 @@
 package edu.oregonstate.data;
 
 import Jama.Matrix;
+import edu.oregonstate.cluster.SparseVector;
 
 /**
  * Jun Xie(xiejuncs@gmail.com)
@@ -10,15 +11,30 @@ public class EecbClusterDocument {
 	public int mID;
 	public String mPrefix;
 	public Matrix vector;
+	// sparse representation of the same vector, the dense one may be null for large vocabularies
+	public SparseVector sparseVector;
 
 	public EecbClusterDocument(int id, Matrix vec) {
 		mID = id;
 		vector = vec;
 	}
 	
+	public EecbClusterDocument(int id, SparseVector vec) {
+		mID = id;
+		sparseVector = vec;
+	}
+	
 	// set the prefix, the format as 1(cluster)-1(document),
 	public void setPrefix(String prefix) {
 		mPrefix = prefix;
 	}
+	
+	// the sparse vector, converted from the dense vector on the first call
+	public SparseVector getSparseVector() {
+		if (sparseVector == null && vector != null) {
+			sparseVector = SparseVector.fromMatrix(vector);
+		}
+		return sparseVector;
+	}
 
 }
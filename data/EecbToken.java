@@ -28,6 +28,9 @@ public class EecbToken {
 	
 	private int mSentence;
 	
+	// the dictionaries add the missing strings and are not thread-safe, while the topics are read by several
+	// threads, so every access is synchronized on the dictionary
+
 	/** Dictionary for all words in the corpus */
 	public static StringDictionary WORDS;
 
@@ -88,21 +91,28 @@ public class EecbToken {
 	    if (word == null) {
 	        mWord = -1;
 	    } else {
-	        mWord = WORDS.get(removeSpaces(word), false);
+	        mWord = index(WORDS, removeSpaces(word));
 	    }
 	    if (pos == null)
 	        mPos = -1;
 	    else
-	        mPos = OTHERS.get(pos, false);
+	        mPos = index(OTHERS, pos);
 	    if (chunk == null)
 	        mChunk = -1;
 	    else
-	        mChunk = OTHERS.get(chunk, false);
+	        mChunk = index(OTHERS, chunk);
 	    
 	    mByteOffset = new Span(start, end);
 	    mSentence = sentence;
 	}
 
+	// the index of the string, added to the dictionary if it is missing
+	private static int index(StringDictionary dictionary, String s) {
+		synchronized (dictionary) {
+			return dictionary.get(s, false);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return mLiteral + ", " + mByteOffset + ", " + mSentence;
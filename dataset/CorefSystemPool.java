@@ -0,0 +1,147 @@
+package edu.oregonstate.dataset;
+
+import java.util.LinkedList;
+
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.util.EecbConstants;
+import edu.stanford.nlp.dcoref.Document;
+
+/**
+ * Process-wide pool of CorefSystem, so that the Stanford models are loaded once per JVM instead of once per topic.
+ *
+ * There are two variants: the pronoun sieve variant which does not load the parser, used to apply the pronoun sieve
+ * after search, and the full parse variant which also loads the LexicalizedParser, used to create Document object from
+ * the EECB corpus. Each variant is lazily initialized, and creates at most poolSize instances, which are reused by
+ * the following calls. Since SieveCoreferenceSystem and LexicalizedParser are not guaranteed to be thread safe,
+ * one instance is only used by one thread at a time.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class CorefSystemPool {
+
+	/** pronoun sieve only variant, without parser */
+	private static CorefSystemPool pronounSievePool;
+
+	/** full parse variant, with parser */
+	private static CorefSystemPool fullParsePool;
+
+	/** whether load the parser */
+	private final boolean enableParser;
+
+	/** maximum number of instances */
+	private final int poolSize;
+
+	/** instances which are not used by any thread, guarded by this */
+	private final LinkedList<CorefSystem> idleSystems;
+
+	/** number of instances created or being created so far, guarded by this */
+	private int createdSize;
+
+	private CorefSystemPool(boolean enableParser, int poolSize) {
+		this.enableParser = enableParser;
+		this.poolSize = poolSize;
+		idleSystems = new LinkedList<CorefSystem>();
+		createdSize = 0;
+	}
+
+	/**
+	 * the pool of coref systems which are only used for applying pronoun sieve
+	 *
+	 * @return
+	 */
+	public static synchronized CorefSystemPool pronounSievePool() {
+		if (pronounSievePool == null) {
+			pronounSievePool = new CorefSystemPool(false, getPoolSize());
+		}
+
+		return pronounSievePool;
+	}
+
+	/**
+	 * the pool of coref systems which include the parser
+	 *
+	 * @return
+	 */
+	public static synchronized CorefSystemPool fullParsePool() {
+		if (fullParsePool == null) {
+			fullParsePool = new CorefSystemPool(true, getPoolSize());
+		}
+
+		return fullParsePool;
+	}
+
+	// the maximum number of instances of each variant
+	private static int getPoolSize() {
+		int defaultSize = Runtime.getRuntime().availableProcessors();
+		if (ExperimentConstructor.experimentProps == null) return defaultSize;
+		return Integer.parseInt(ExperimentConstructor.experimentProps.getProperty(EecbConstants.COREFSYSTEM_POOL_SIZE_PROP, "" + defaultSize));
+	}
+
+	/**
+	 * apply the pronoun sieve to the document with a shared coref system
+	 *
+	 * @param document
+	 */
+	public static void applyPronounSieve(Document document) {
+		CorefSystemPool pool = pronounSievePool();
+		CorefSystem cs = pool.acquire();
+		try {
+			cs.applyPronounSieve(document);
+		} finally {
+			pool.release(cs);
+		}
+	}
+
+	/**
+	 * borrow a coref system, create a new one if all existed instances are in use and the pool is not full,
+	 * otherwise wait for one to be released
+	 *
+	 * A waiting thread also wakes up when the creation of another thread fails, and then creates the instance
+	 * itself, so the error of the creation reaches every caller instead of leaving them blocked.
+	 *
+	 * @return
+	 */
+	public CorefSystem acquire() {
+		synchronized (this) {
+			while (idleSystems.isEmpty() && createdSize >= poolSize) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+
+			if (!idleSystems.isEmpty()) return idleSystems.removeFirst();
+			createdSize += 1;
+		}
+
+		// load the models outside of the lock, so that other threads can still get the released instances
+		boolean created = false;
+		try {
+			CorefSystem cs = new CorefSystem(enableParser);
+			created = true;
+			return cs;
+		} finally {
+			if (!created) {
+				synchronized (this) {
+					createdSize -= 1;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * give back the coref system to the pool
+	 *
+	 * @param cs
+	 */
+	public synchronized void release(CorefSystem cs) {
+		if (cs == null) return;
+		idleSystems.addLast(cs);
+		notifyAll();
+	}
+
+}
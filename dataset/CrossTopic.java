@@ -89,7 +89,8 @@ public class CrossTopic implements IDataSet {
 	
 	/** treat the topic as a whole */
 	private Document getDocument(String topic, boolean goldOnly) {
-		CorefSystem cs = new CorefSystem();
+		CorefSystemPool pool = CorefSystemPool.fullParsePool();
+		CorefSystem cs = pool.acquire();
 		Document document = new Document();
 		
 		try {
@@ -107,6 +108,8 @@ public class CrossTopic implements IDataSet {
 			
 		} catch (Exception e) {
 			throw new RuntimeException(e);
+		} finally {
+			pool.release(cs);
 		}
 		
 		return document;
@@ -1,8 +1,16 @@
 package edu.oregonstate.dataset;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.featureExtractor.Wordnet;
+import edu.oregonstate.featureExtractor.WordnetCache;
 import edu.oregonstate.io.ResultOutput;
 import edu.oregonstate.util.Command;
 import edu.oregonstate.util.DocumentAlignment;
@@ -41,6 +49,9 @@ public class DatasetFactory extends ExperimentConstructor {
 	/** print the result with baseline 1 */
 	private final boolean printResult;
 	
+	/** corpus statistics file is shared by all topics */
+	private final Object corpusStatisticsLock = new Object();
+	
 	public DatasetFactory(Properties props) {
 		super(props);
 		mExperimentResultFolder = ExperimentConstructor.experimentFolder;
@@ -65,6 +76,12 @@ public class DatasetFactory extends ExperimentConstructor {
 	 */
 	public void performExperiment() {
 		generateDataSet();
+		
+		// store the WordNet relations looked up during data generation
+		String wordnetCachePath = Wordnet.getCachePath();
+		if (wordnetCachePath != null) {
+			WordnetCache.save(wordnetCachePath);
+		}
 	}
 	
 	/**
@@ -73,6 +90,14 @@ public class DatasetFactory extends ExperimentConstructor {
 	 */
 	private void generateDataSet() {
 		TopicGeneration topicGenerator = new TopicGeneration(experimentProps);
+		
+		// process all topics in this JVM
+		boolean multiTopic = Boolean.parseBoolean(experimentProps.getProperty(EecbConstants.DATAGENERATION_MULTITOPIC_PROP, "false"));
+		if (multiTopic) {
+			generateDataSet(topicGenerator.topics());
+			return;
+		}
+		
 		String topicInformation = topicGenerator.topic();
 		
 		String[] element = topicInformation.split("-");
@@ -83,14 +108,82 @@ public class DatasetFactory extends ExperimentConstructor {
 		generateDocument(topic, phase);
 	}
 	
+	/**
+	 * generate the documents of several topics in one JVM, the WordNet and thesaurus are loaded once, 
+	 * and the parsers are shared through CorefSystemPool. The number of topics parsed at the same time
+	 * is bounded by the number of processors and the memory needed by each parser.
+	 * 
+	 * @param topicInformations topic-set, for example 6-trainingtopic
+	 */
+	private void generateDataSet(List<String> topicInformations) {
+		int parallelism = calculateParallelism(topicInformations.size());
+		String throughputPath = mExperimentResultFolder + "/throughput-datageneration-" + phaseIndex;
+		ResultOutput.writeTextFile(throughputPath, "number of topics : " + topicInformations.size() + "; number of threads : " + parallelism);
+		ResultOutput.writeTextFile(throughputPath, "topic\tseconds\tgold mentions\tpredicted mentions");
+		
+		long startTime = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for (final String topicInformation : topicInformations) {
+			results.add(executor.submit(new Callable<String>() {
+				public String call() {
+					String[] element = topicInformation.split("-");
+					String topic = element[0];
+					String phase = element[1] + "-" + topic;
+					
+					long topicStartTime = System.currentTimeMillis();
+					Document document = generateDocument(topic, phase);
+					double seconds = (System.currentTimeMillis() - topicStartTime) / 1000.0;
+					return topic + "\t" + seconds + "\t" + document.allGoldMentions.size() + "\t" + document.allPredictedMentions.size();
+				}
+			}));
+		}
+		executor.shutdown();
+		
+		// report the topics in the order of the configuration
+		int failures = 0;
+		for (int index = 0; index < results.size(); index++) {
+			try {
+				ResultOutput.writeTextFile(throughputPath, results.get(index).get());
+			} catch (Exception e) {
+				failures += 1;
+				ResultOutput.writeTextFile(throughputPath, topicInformations.get(index) + "\tfailed : " + e.getCause());
+				e.printStackTrace();
+			}
+		}
+		
+		double totalSeconds = (System.currentTimeMillis() - startTime) / 1000.0;
+		ResultOutput.writeTextFile(throughputPath, "total seconds : " + totalSeconds + "; topics per minute : " + 
+				(topicInformations.size() - failures) * 60.0 / totalSeconds + "; failed topics : " + failures);
+		
+		if (failures > 0) {
+			throw new RuntimeException(failures + " topics failed during data generation, see " + throughputPath);
+		}
+	}
+	
+	/**
+	 * the number of topics processed at the same time
+	 * 
+	 * @param numberOfTopics
+	 * @return
+	 */
+	private int calculateParallelism(int numberOfTopics) {
+		long parserMemory = Long.parseLong(experimentProps.getProperty(EecbConstants.DATAGENERATION_PARSER_MEMORY_PROP, "1500")) * 1024 * 1024;
+		int processors = Runtime.getRuntime().availableProcessors();
+		int memoryBound = (int) (Runtime.getRuntime().maxMemory() / parserMemory);
+		
+		int parallelism = Math.min(processors, Math.min(memoryBound, numberOfTopics));
+		return Math.max(1, parallelism);
+	}
+	
 	/**
 	 * generate document
 	 * 
 	 * @param topic
-	 * @param goldOnly
+	 * @param phase
 	 * @return
 	 */
-	private void generateDocument(String topic, String phase) {
+	private Document generateDocument(String topic, String phase) {
 		// generate CONLL file to store the Coreference Resolution result
 		String goldCorefCluster = conllResultPath + "/goldCorefCluster-" + phase;
 		String predictedCorefCluster = conllResultPath + "/predictedCorefCluster-" + phase;
@@ -110,8 +203,7 @@ public class DatasetFactory extends ExperimentConstructor {
 		// print result
 		if (printResult) {
 			// do pronoun coreference resolution
-			CorefSystem cs = new CorefSystem();
-			cs.applyPronounSieve(document);
+			CorefSystemPool.applyPronounSieve(document);
 
 			// whether post-process the document
 			if (postProcess) {
@@ -130,10 +222,13 @@ public class DatasetFactory extends ExperimentConstructor {
 		// print the related information about the topic
 		ResultOutput.writeTextFile(experimentLogFile, "number of gold mentions : " + document.allGoldMentions.size());
 		ResultOutput.writeTextFile(experimentLogFile, "number of predicted mentions : " + document.allPredictedMentions.size());
-		ResultOutput.writeTextFile(corpusStatisticsPath, topic + " " + document.allGoldMentions.size() + " " + document.goldCorefClusters.size() + " " + document.allPredictedMentions.size() + " " +
-				document.corefClusters.size());
+		synchronized (corpusStatisticsLock) {
+			ResultOutput.writeTextFile(corpusStatisticsPath, topic + " " + document.allGoldMentions.size() + " " + document.goldCorefClusters.size() + " " + document.allPredictedMentions.size() + " " +
+					document.corefClusters.size());
+		}
 		
 		ResultOutput.writeTextFile(experimentLogFile, "\n");
+		return document;
 	}
 
 	/* whether put all documents of a topic together, true CrossTopic, false WithinCross */
@@ -1,5 +1,7 @@
 package edu.oregonstate.dataset;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import edu.oregonstate.general.StringOperation;
@@ -84,6 +86,34 @@ public class TopicGeneration {
 		return topic;
 	}
 	
+	/**
+	 * all topics of the training, testing and development set, used when one job processes several topics
+	 * 
+	 * @return a list of topics, each of which is represented as topic-set, for example 6-trainingtopic
+	 */
+	public List<String> topics() {
+		List<String> topics = new ArrayList<String>();
+		if (trainingTopics != null) {
+			for (String trainingTopic : trainingTopics) {
+				topics.add(trainingTopic + "-trainingtopic");
+			}
+		}
+		
+		if (testingTopics != null) {
+			for (String testingTopic : testingTopics) {
+				topics.add(testingTopic + "-testingtopic");
+			}
+		}
+		
+		if (developmentTopics != null) {
+			for (String developmentTopic : developmentTopics) {
+				topics.add(developmentTopic + "-developmenttopic");
+			}
+		}
+		
+		return topics;
+	}
+	
 	// return training topic
 	public String[] trainingTopics() {
 		return trainingTopics;
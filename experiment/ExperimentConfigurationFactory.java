@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import edu.oregonstate.featureExtractor.ThesaurusIndex;
 import edu.oregonstate.featureExtractor.WordSimilarity;
 import edu.oregonstate.io.ResultOutput;
 import edu.oregonstate.training.Development;
@@ -64,8 +65,13 @@ public class ExperimentConfigurationFactory {
 		System.setProperty("wordnet.database.dir", wordnetPath);
 	}
 	
-	// load data from Word Similarity Dictionary
+	// load data from Word Similarity Dictionary, by default use the memory-mapped index which is compiled on the first use
 	public Map<String, ClassicCounter<String>> loadSimilarityDictionary(String similarityPath) {
+		boolean useIndex = Boolean.parseBoolean(props.getProperty(EecbConstants.THESAURUS_INDEX_PROP, "true"));
+		if (useIndex) {
+			return ThesaurusIndex.load(similarityPath).asMap();
+		}
+		
 		WordSimilarity similarity = new WordSimilarity(similarityPath);
 		similarity.load();
 		return similarity.getDatas();
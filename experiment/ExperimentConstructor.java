@@ -90,6 +90,9 @@ public abstract class ExperimentConstructor {
 		// create folder to store weight norm
 		Command.mkdir(experimentFolder + "/weightnorm");
 		
+		// create folder to store the binary checkpoints of the classifier
+		Command.mkdir(experimentFolder + "/checkpoint");
+		
 		// create folder to store the constraints, the name of the file is just the topic name
 		Command.mkdir(experimentFolder + "/constraints");
 			
@@ -69,9 +69,15 @@ public class SRLAlignment {
 		int noOfSentence = predictedOrderedMentionsBySentence.size();
 		int mentionIDOffset = 0;
 		RuleBasedCorefMentionFinder headFinder = new RuleBasedCorefMentionFinder();
-		String sentenceAlignmentDebugInformation = document.getDocumentID() + " : " + document.getSentences().size() + "  " + noOfSentence;
+		String sentenceAlignmentDebugInformation = document.getDocumentID() + " : " + document.sentenceSize() + "  " + noOfSentence;
 		ResultOutput.writeTextFile(ExperimentConstructor.experimentLogFile, sentenceAlignmentDebugInformation);
 
+		// the interned ids of the considered roles
+		int[] roleIds = new int[ROLES.size()];
+		for (int i = 0; i < roleIds.length; i++) {
+			roleIds[i] = document.getRoleId(ROLES.get(i));
+		}
+
 		// for each sentence
 		for (int index = 0; index < noOfSentence; index++) {
 			List<Mention> mentions = predictedOrderedMentionsBySentence.get(index);
@@ -84,165 +90,135 @@ public class SRLAlignment {
 			Tree tree = mentions.get(0).contextParseTree;
 			tree.indexSpans(0);
 
-			Map<Span, Mention> detectedMentionSpan = new HashMap<Span, Mention>();
+			// mention spans, looked up by the exact argument span and queried for overlap before head finding
+			SpanIntervalTree<Mention> detectedMentionSpan = new SpanIntervalTree<Mention>();
 			
 			// one head index may correspond to several mentions
-			Map<Integer, Mention> detectedMentionHeadSpan = new HashMap<Integer, Mention>();
-			// put the mention span into a map
+			int headSize = sentenceLength;
+			for (Mention mention : mentions) {
+				headSize = Math.max(headSize, mention.headIndex + 1);
+			}
+			Mention[] detectedMentionHeadSpan = new Mention[headSize];
+			int noOfMentionHead = 0;
+			// put the mention span into the index
 			for (Mention mention : mentions) {
 				int mentionStartIndex = mention.startIndex;
 				int mentionEndIndex = mention.endIndex;
-				Span mentionSpan = new Span(mentionStartIndex, mentionEndIndex);
-				detectedMentionSpan.put(mentionSpan, mention);
+				detectedMentionSpan.add(mentionStartIndex, mentionEndIndex, mention);
 
 				int mentionHeadIndex = mention.headIndex;
 				
 				// keep the shorter mention for the same head
-				boolean contain = detectedMentionHeadSpan.containsKey(mentionHeadIndex);
-				if (contain) {
-					Mention sameHeadMention = detectedMentionHeadSpan.get(mentionHeadIndex);
+				Mention sameHeadMention = detectedMentionHeadSpan[mentionHeadIndex];
+				if (sameHeadMention != null) {
 					int mentionLength = mentionEndIndex - mentionStartIndex;
 					int sameHeadMentionLength = sameHeadMention.originalSpan.size();
 					
 					// if the mention's length is smaller than the length of the sameHeadMention, then 
 					// substitute the sameHeadMention with mention
 					if (mentionLength < sameHeadMentionLength) {
-						detectedMentionHeadSpan.put(mentionHeadIndex, mention);
+						detectedMentionHeadSpan[mentionHeadIndex] = mention;
 					}
 					
 				} else {
-					detectedMentionHeadSpan.put(mentionHeadIndex, mention);
+					detectedMentionHeadSpan[mentionHeadIndex] = mention;
+					noOfMentionHead += 1;
 				}
 		
 			}
 			
-			ResultOutput.writeTextFile(topicLogFile, "sentence " + index + " : mentionspan " + detectedMentionSpan.size() 
-													 + "     ; mentionheadspan " + detectedMentionHeadSpan.size() );
+			ResultOutput.writeTextFile(topicLogFile, "sentence " + index + " : mentionspan " + countSpans(mentions) 
+													 + "     ; mentionheadspan " + noOfMentionHead );
 
-			// SRL annotation for that sentence
-			List<String[]> sentence = document.getSentences().get(index);
-			int length = sentence.size();
-			// get the dependency relationship between each token
-			int[] parents = new int[length];
-			for (int row = 0; row < length; row++) {
-				int parent = Integer.parseInt(sentence.get(row)[WORD_HEAD]);  // parse the head index string to head index integer
-				parents[row] = parent - 1;
-			}
-			// build the syntactic dependency tree
-			Map<Integer, Set<Integer>> graph = buildGraph(parents);
+			// SRL annotation for that sentence, the yields of the dependency tree are precomputed by SRLDocument
+			int length = document.length(index);
 
 			// find predicate and its corresponding argument column, when find a predicate and its arguments,
 			// align with detected mentions
-			int predOffset = 0;
-			for (int row = 0; row < length; row++) {
-				String[] token = sentence.get(row);
-				String predicate = token[PRED];
-				if (!predicate.equals("_")) {
-					// find the predIndex and construct the Span
-					// two choices: align just using mention span and also using the mention head index
-					int predIndex = row;
-					Span predicateSpan = new Span(predIndex, predIndex + 1);
-					boolean mentionContainPred = detectedMentionSpan.containsKey(predicateSpan);
-					Mention predMention = null;
-					if (mentionContainPred) {
-						predMention = detectedMentionSpan.get(predicateSpan);
-					} else {
-						// use the mention head index
-						boolean mentionHeadContainPred = detectedMentionHeadSpan.containsKey(predIndex);
-						if (mentionHeadContainPred) {
-							// make sure that the mentions with the index is not empty
-							predMention = detectedMentionHeadSpan.get(predIndex);
-						}
+			int predicateSize = document.predicateSize(index);
+			for (int slot = 0; slot < predicateSize; slot++) {
+				// find the predIndex and construct the Span
+				// two choices: align just using mention span and also using the mention head index
+				int predIndex = document.getPredicateRow(index, slot);
+				Mention predMention = detectedMentionSpan.get(predIndex, predIndex + 1);
+				if (predMention == null && predIndex < headSize) {
+					// use the mention head index
+					predMention = detectedMentionHeadSpan[predIndex];
+				}
+
+				// if can not find detected mention for the predicate, then move forward to 
+				// next predicate
+				if (predMention == null) {
+					continue;
+				}
+
+				// align with the arguments
+				for (int argumentRow = 0; argumentRow < length; argumentRow++) {
+					int roleId = document.getArgumentRole(index, slot, argumentRow);
+					// focus on four roles : A0, A1, A2, AM-LOC
+					if (roleId == SRLDocument.NO_ROLE || !contains(roleIds, roleId)) continue;
+					
+					// for nominal event's predicate, in the Stanford paper, they just used a single 
+					// heuristic: the possessor of a nominal event's predicate is maked as its arg0
+					// if (!predMention.isVerb && !annotation.equals("A0")) continue;
+					String annotation = document.getRoleLabel(roleId);
+					if (annotation.equals("AM-LOC")) {
+						annotation = "AMLoc";
 					}
 
-					// increment the offset
-					predOffset += 1;
+					int argumentStartIndex = document.getYieldStart(index, argumentRow);
+					int argumentEndIndex = document.getYieldEnd(index, argumentRow);
 
-					// if can not find detected mention for the predicate, then move forward to 
-					// next predicate
-					if (predMention == null) {
-						continue;
+					// the SRL software take the proposition as the head, so need to increment argumentStartIndex
+					CoreLabel tempToken = sentenceWords.get(argumentStartIndex);
+					String tempWord = tempToken.get(TextAnnotation.class).toLowerCase();
+					if (locationWords.contains(tempWord)) {
+						argumentStartIndex = argumentStartIndex + 1;
 					}
 
-					// align with the arguments
-					int argumentColumn = PRED + predOffset;
-					// find the arguments
-					String[] annotations = getColumn(argumentColumn, sentence);
-					for (int argumentRow = 0; argumentRow < length; argumentRow++) {
-						String annotation = annotations[argumentRow];
-						// focus on four roles : A0, A1, A2, AM-LOC
-						if (!annotation.equals("_") && ROLES.contains(annotation)) {
-							// for nominal event's predicate, in the Stanford paper, they just used a single 
-							// heuristic: the possessor of a nominal event's predicate is maked as its arg0
-							// if (!predMention.isVerb && !annotation.equals("A0")) continue;
-							if (annotation.equals("AM-LOC")) {
-								annotation = "AMLoc";
-							}
+					Mention argumentMention = detectedMentionSpan.get(argumentStartIndex, argumentEndIndex);
+					// match the mention boundary
+					if (argumentMention != null) {
+						if ((predMention.mentionID != argumentMention.mentionID) && (!argumentMention.isVerb)) {
+							predMention.addArgument(annotation, argumentMention);
+							argumentMention.addPredicate(predMention, annotation);
+						}
+					} else {
+						// if argument start index equals its end index, then continue
+						if (argumentStartIndex == argumentEndIndex) continue;
 							
-							List<Integer> argumentYieldSpan = yield(argumentRow, graph);
+						// the syntactic head of the argument lies in the argument span, and the head of a mention lies
+						// in the mention span, so no mention can share the head if no mention overlaps the argument
+						if (!detectedMentionSpan.overlaps(argumentStartIndex, argumentEndIndex)) {
+							mentionIDOffset += 1;
+							continue;
+						}
 							
-							int argumentStartIndex = argumentYieldSpan.get(0);
-							int argumentEndIndex = argumentYieldSpan.get(argumentYieldSpan.size() - 1) + 1;
+						// through the head index of the arguments to find the corresponding mentions
+						try {
+							Mention argumentMentionForHeadFinding = new Mention(mentionIDOffset, argumentStartIndex, argumentEndIndex, 
+									dependency, new ArrayList<CoreLabel>(sentenceWords.subList(argumentStartIndex, argumentEndIndex)));
 							
-							// the SRL software take the proposition as the head, so need to increment argumentStartIndex
-							CoreLabel tempToken = sentenceWords.get(argumentStartIndex);
-							String tempWord = tempToken.get(TextAnnotation.class).toLowerCase();
-							if (locationWords.contains(tempWord)) {
-								argumentStartIndex = argumentStartIndex + 1;
-							}
+							tree.indexSpans(0);
+							Tree head = headFinder.findSyntacticHead(argumentMentionForHeadFinding, tree, sentenceWords);
 							
-							Span argumentSpan = new Span(argumentStartIndex, argumentEndIndex);
-							Mention argumentMention = null;
-							boolean mentionContainArgument = detectedMentionSpan.containsKey(argumentSpan);
-							// match the mention boundary
-							if (mentionContainArgument) {
-								argumentMention = detectedMentionSpan.get(argumentSpan);
+							int headIndex = ((CoreLabel) head.label()).get(IndexAnnotation.class)-1;
+							if (headIndex >= 0 && headIndex < headSize && detectedMentionHeadSpan[headIndex] != null) {
+								argumentMention = detectedMentionHeadSpan[headIndex];
+								// only noun phrase can be the argument of the predicate
 								if ((predMention.mentionID != argumentMention.mentionID) && (!argumentMention.isVerb)) {
 									predMention.addArgument(annotation, argumentMention);
 									argumentMention.addPredicate(predMention, annotation);
 								}
-							} else {
-								// construct an mention
-//								if (argumentStartIndex < 0) {
-//									argumentStartIndex = 0;
-//								}
-//								if (argumentEndIndex > sentenceLength) {
-//									argumentEndIndex = sentenceLength;
-//								}
-								
-								// through the head index of the arguments to find the corresponding mentions
-								try {
-									// if argument start index equals its end index, then continue
-									if (argumentStartIndex == argumentEndIndex) continue;
-									
-									Mention argumentMentionForHeadFinding = new Mention(mentionIDOffset, argumentStartIndex, argumentEndIndex, 
-											dependency, new ArrayList<CoreLabel>(sentenceWords.subList(argumentStartIndex, argumentEndIndex)));
-
-									tree.indexSpans(0);
-									Tree head = headFinder.findSyntacticHead(argumentMentionForHeadFinding, tree, sentenceWords);
-
-									int headIndex = ((CoreLabel) head.label()).get(IndexAnnotation.class)-1;
-									boolean mentionHeadContainArgument = detectedMentionHeadSpan.containsKey(headIndex);
-									if (mentionHeadContainArgument) {
-										argumentMention = detectedMentionHeadSpan.get(headIndex);
-										// only noun phrase can be the argument of the predicate
-										if ((predMention.mentionID != argumentMention.mentionID) && (!argumentMention.isVerb)) {
-											predMention.addArgument(annotation, argumentMention);
-											argumentMention.addPredicate(predMention, annotation);
-										}
-									}
-								} catch (Exception e) {
-									System.out.println(sentenceWords.toString());
-									System.out.println(predMention.toString() + " " + index + " " + argumentStartIndex + " " + argumentEndIndex + " " + sentenceLength);
-									throw new RuntimeException(e);
-								}
-
-								mentionIDOffset += 1;
 							}
-
+						} catch (Exception e) {
+							System.out.println(sentenceWords.toString());
+							System.out.println(predMention.toString() + " " + index + " " + argumentStartIndex + " " + argumentEndIndex + " " + sentenceLength);
+							throw new RuntimeException(e);
 						}
+								
+						mentionIDOffset += 1;
 					}
-
 				}
 
 			}
@@ -252,74 +228,24 @@ public class SRLAlignment {
 	}
 
 	/**
-	 * get the column annotation from the sentence
+	 * number of distinct mention spans of the sentence
 	 * 
-	 * @param columnIndex
-	 * @param sentence
+	 * @param mentions
 	 * @return
 	 */
-	private String[] getColumn(int columnIndex, List<String[]> sentence) {
-		int length = sentence.size();
-		String[] column = new String[length];
-		for (int row = 0; row < length; row++) {
-			String[] token = sentence.get(row);
-			String annotation = token[columnIndex];
-			column[row] = annotation;
+	private int countSpans(List<Mention> mentions) {
+		Set<Span> spans = new HashSet<Span>();
+		for (Mention mention : mentions) {
+			spans.add(new Span(mention.startIndex, mention.endIndex));
 		}
-		return column;
+		return spans.size();
 	}
 
-	/**
-	 * use breadth search to find all yields of the parent
-	 * 
-	 * @param row
-	 * @param graph
-	 * @return a sorted list
-	 */
-	private List<Integer> yield(int row, Map<Integer, Set<Integer>> graph) {
-		List<Integer> span = new ArrayList<Integer>();
-		span.add(row);
-		Queue<Integer> queue = new ArrayDeque<Integer>();
-		queue.offer(row);
-		// do breadth first search
-		while (!queue.isEmpty()) {
-			int parent = queue.poll();
-			Set<Integer> children = graph.get(parent);
-			if (children == null) continue;
-
-			for (Integer child : children) {
-				queue.offer(child);
-				span.add(child);
-			}
+	private boolean contains(int[] ids, int id) {
+		for (int candidate : ids) {
+			if (candidate == id) return true;
 		}
-
-		// sort the span
-		Collections.sort(span);
-
-		return span;
-	}
-
-
-	/**
-	 * build a syntactic dependency tree 
-	 *  
-	 * @param parents : key is the parent, Set<Integer> is the children of the parent
-	 * @return
-	 */
-	private Map<Integer, Set<Integer>> buildGraph(int[] parents) {
-		Map<Integer, Set<Integer>> graph = new HashMap<Integer, Set<Integer>>();
-
-		for (int index = 0; index < parents.length; index++) {
-			int parent = parents[index];
-			boolean contain = graph.containsKey(parent);
-			if (!contain) {
-				graph.put(parent, new HashSet<Integer>());
-			}
-
-			graph.get(parent).add(index);
-		}
-
-		return graph;
+		return false;
 	} 
 
 }
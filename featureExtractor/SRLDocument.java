@@ -5,33 +5,273 @@ import java.util.*;
 /**
  * SRL document, need to specify the document ID
  * A collection of annotated tokens
+ * <p>
+ * The tokens of all sentences are stored in primitive column arrays, the tokens of sentence s occupy the rows
+ * [sentenceOffsets[s], sentenceOffsets[s + 1]). The argument labels are interned as role ids, and the yield of each
+ * token in the syntactic dependency tree is computed once when the sentence is added.
  * 
  * @author Jun Xie (xie@eecs.oregonstate.edu)
  *
  */
 public class SRLDocument {
 
+	/** role id of the empty annotation "_" */
+	public static final int NO_ROLE = -1;
+
 	/** document ID */
 	private final String mDocumentID;
 	
-	/** sentences */
-	private List<List<String[]>> sentences;
+	/** number of sentences */
+	private int sentenceSize;
+
+	/** number of tokens */
+	private int tokenSize;
+
+	/** first row of each sentence, the last entry is the number of tokens */
+	private int[] sentenceOffsets;
+
+	/** word form of each row */
+	private String[] wordForms;
+
+	/** sentence-local index of the syntactic head of each row, -1 for the root */
+	private int[] parents;
+
+	/** sentence-local span [yieldStart, yieldEnd) of the dependency subtree of each row */
+	private int[] yieldStarts;
+	private int[] yieldEnds;
+
+	/** sentence-local index of the predicates, the predicates of sentence s are [predicateOffsets[s], predicateOffsets[s + 1]) */
+	private int[] predicateOffsets;
+	private int[] predicateRows;
+
+	/** role id of each row in each predicate's argument column, the column of sentence s and slot p starts at
+	 * argumentOffsets[s] + p * length(s) */
+	private int[] argumentOffsets;
+	private int[] argumentRoles;
+	private int argumentSize;
+
+	/** interned role labels */
+	private final List<String> roleLabels;
+	private final Map<String, Integer> roleIds;
 	
 	public SRLDocument(String documentID) {
 		mDocumentID = documentID;
-		sentences = new ArrayList<List<String[]>>();
+		sentenceOffsets = new int[16];
+		predicateOffsets = new int[16];
+		argumentOffsets = new int[16];
+		wordForms = new String[256];
+		parents = new int[256];
+		yieldStarts = new int[256];
+		yieldEnds = new int[256];
+		predicateRows = new int[64];
+		argumentRoles = new int[1024];
+		roleLabels = new ArrayList<String>();
+		roleIds = new HashMap<String, Integer>();
 	}
 	
 	public String getDocumentID() {
 		return mDocumentID;
 	}
 	
-	public void addSentence(List<String[]> sentence) {
-		sentences.add(sentence);
+	/**
+	 * add one sentence
+	 *
+	 * @param words word form column
+	 * @param heads head column, 1-based, 0 for the root
+	 * @param predicates whether the row is a predicate
+	 * @param arguments argument labels of each predicate, arguments[p][row], null or "_" for no label
+	 */
+	public void addSentence(String[] words, int[] heads, boolean[] predicates, String[][] arguments) {
+		int length = words.length;
+		int predicateSize = 0;
+		for (boolean predicate : predicates) {
+			if (predicate) predicateSize += 1;
+		}
+
+		ensureSentenceCapacity(sentenceSize + 2);
+		ensureTokenCapacity(tokenSize + length);
+		predicateRows = grow(predicateRows, predicateOffsets[sentenceSize] + predicateSize);
+		argumentRoles = grow(argumentRoles, argumentSize + predicateSize * length);
+
+		int offset = tokenSize;
+		for (int row = 0; row < length; row++) {
+			wordForms[offset + row] = words[row];
+			parents[offset + row] = heads[row] - 1;
+		}
+		computeYields(parents, offset, length, yieldStarts, yieldEnds);
+
+		int predicateOffset = predicateOffsets[sentenceSize];
+		for (int row = 0; row < length; row++) {
+			if (predicates[row]) {
+				predicateRows[predicateOffset++] = row;
+			}
+		}
+
+		argumentOffsets[sentenceSize] = argumentSize;
+		for (int slot = 0; slot < predicateSize; slot++) {
+			String[] column = slot < arguments.length ? arguments[slot] : null;
+			for (int row = 0; row < length; row++) {
+				String label = column == null ? null : column[row];
+				argumentRoles[argumentSize++] = intern(label);
+			}
+		}
+
+		tokenSize += length;
+		sentenceSize += 1;
+		sentenceOffsets[sentenceSize] = tokenSize;
+		predicateOffsets[sentenceSize] = predicateOffset;
+		argumentOffsets[sentenceSize] = argumentSize;
 	}
 	
-	public List<List<String[]>> getSentences() {
-		return sentences;
+	/** number of sentences */
+	public int sentenceSize() {
+		return sentenceSize;
+	}
+
+	/** number of tokens of the sentence */
+	public int length(int sentence) {
+		return sentenceOffsets[sentence + 1] - sentenceOffsets[sentence];
+	}
+
+	/** first row of the sentence in the document */
+	public int sentenceOffset(int sentence) {
+		return sentenceOffsets[sentence];
+	}
+
+	public String getWordForm(int sentence, int row) {
+		return wordForms[sentenceOffsets[sentence] + row];
+	}
+
+	/** sentence-local head of the row, -1 for the root */
+	public int getParent(int sentence, int row) {
+		return parents[sentenceOffsets[sentence] + row];
+	}
+
+	/** first token of the yield of the row */
+	public int getYieldStart(int sentence, int row) {
+		return yieldStarts[sentenceOffsets[sentence] + row];
+	}
+
+	/** the token after the last token of the yield of the row */
+	public int getYieldEnd(int sentence, int row) {
+		return yieldEnds[sentenceOffsets[sentence] + row];
+	}
+
+	/** number of predicates of the sentence */
+	public int predicateSize(int sentence) {
+		return predicateOffsets[sentence + 1] - predicateOffsets[sentence];
+	}
+
+	/** sentence-local row of the slot-th predicate of the sentence */
+	public int getPredicateRow(int sentence, int slot) {
+		return predicateRows[predicateOffsets[sentence] + slot];
+	}
+
+	/** role id of the row in the argument column of the slot-th predicate, NO_ROLE if not annotated */
+	public int getArgumentRole(int sentence, int slot, int row) {
+		return argumentRoles[argumentOffsets[sentence] + slot * length(sentence) + row];
+	}
+
+	/** role id of the label, NO_ROLE if the label never appears in the document */
+	public int getRoleId(String label) {
+		Integer id = roleIds.get(label);
+		return id == null ? NO_ROLE : id;
+	}
+
+	public String getRoleLabel(int roleId) {
+		return roleLabels.get(roleId);
+	}
+
+	/**
+	 * compute the yield span of each token of one sentence from the sentence-local head array.
+	 * The yield of a token is the token itself and all its descendants; since the yield is reported as
+	 * [first, last + 1), only the minimum and the maximum of the subtree are needed, which are propagated
+	 * from the deepest tokens to the root in O(n). Tokens whose head is negative or itself are roots.
+	 *
+	 * @param heads sentence-local heads, heads[offset + row]
+	 * @param offset
+	 * @param length
+	 * @param starts output, starts[offset + row]
+	 * @param ends output, ends[offset + row], exclusive
+	 */
+	public static void computeYields(int[] heads, int offset, int length, int[] starts, int[] ends) {
+		// depth of each token, computed by walking up to an already known ancestor
+		int[] depths = new int[length];
+		Arrays.fill(depths, -1);
+		int[] path = new int[length];
+		for (int row = 0; row < length; row++) {
+			int size = 0;
+			int node = row;
+			while (node >= 0 && node < length && depths[node] < 0 && size < length) {
+				path[size++] = node;
+				int parent = heads[offset + node];
+				node = parent == node ? -1 : parent;
+			}
+			int depth = (node >= 0 && node < length && depths[node] >= 0) ? depths[node] + 1 : 0;
+			for (int i = size - 1; i >= 0; i--) {
+				depths[path[i]] = depth++;
+			}
+		}
+
+		// counting sort the tokens by decreasing depth
+		int maxDepth = 0;
+		for (int depth : depths) {
+			maxDepth = Math.max(maxDepth, depth);
+		}
+		int[] buckets = new int[maxDepth + 2];
+		for (int depth : depths) {
+			buckets[maxDepth - depth + 1] += 1;
+		}
+		for (int i = 1; i < buckets.length; i++) {
+			buckets[i] += buckets[i - 1];
+		}
+		int[] order = new int[length];
+		for (int row = 0; row < length; row++) {
+			order[buckets[maxDepth - depths[row]]++] = row;
+		}
+
+		for (int row = 0; row < length; row++) {
+			starts[offset + row] = row;
+			ends[offset + row] = row + 1;
+		}
+		for (int row : order) {
+			int parent = heads[offset + row];
+			if (parent < 0 || parent >= length || parent == row) continue;
+			if (starts[offset + row] < starts[offset + parent]) starts[offset + parent] = starts[offset + row];
+			if (ends[offset + row] > ends[offset + parent]) ends[offset + parent] = ends[offset + row];
+		}
+	}
+
+	// the role id of the label, the empty annotation is NO_ROLE
+	private int intern(String label) {
+		if (label == null || label.equals("_")) return NO_ROLE;
+		Integer id = roleIds.get(label);
+		if (id == null) {
+			id = roleLabels.size();
+			roleLabels.add(label);
+			roleIds.put(label, id);
+		}
+		return id;
+	}
+
+	private void ensureSentenceCapacity(int capacity) {
+		sentenceOffsets = grow(sentenceOffsets, capacity);
+		predicateOffsets = grow(predicateOffsets, capacity);
+		argumentOffsets = grow(argumentOffsets, capacity);
+	}
+
+	private void ensureTokenCapacity(int capacity) {
+		if (capacity <= wordForms.length) return;
+		int newCapacity = Math.max(capacity, wordForms.length * 2);
+		wordForms = Arrays.copyOf(wordForms, newCapacity);
+		parents = Arrays.copyOf(parents, newCapacity);
+		yieldStarts = Arrays.copyOf(yieldStarts, newCapacity);
+		yieldEnds = Arrays.copyOf(yieldEnds, newCapacity);
+	}
+
+	private static int[] grow(int[] array, int capacity) {
+		if (capacity <= array.length) return array;
+		return Arrays.copyOf(array, Math.max(capacity, array.length * 2));
 	}
 	
 }
@@ -1,18 +1,28 @@
 package edu.oregonstate.featureExtractor;
 
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.*;
 
-import edu.stanford.nlp.io.IOUtils;
-
 
 /**
  * read SRL result Document
  * 
+ * The output is read line by line, and each sentence is added to the indexed SRLDocument as soon as its
+ * blank separator line is met, so the raw lines of the topic are never held in memory together.
+ * 
  * @author Jun Xie (xie@eecs.oregonstate.edu)
  *
  */
 public class SRLDocumentReader {
 
+	/** the index of each column is obtained by decrementing one from the original column number */
+	private static final int WORD_FORM = 1;
+	private static final int WORD_HEAD = 8;
+	private static final int PRED = 10;
+
 	/** document path */
 	private final String mDocumentPath;
 	
@@ -27,36 +37,87 @@ public class SRLDocumentReader {
 	 * @return
 	 */
 	public SRLDocument readDocument() {
-		// read srl result from the output of Semantic role labeling software
-		List<String> srlResults = IOUtils.linesFromFile(mDocumentPath);
-		
 		// define a SRLDocument
 		String[] elements = mDocumentPath.split("/");
 		String topic = elements[elements.length - 1].split("\\.")[0];
 		SRLDocument document = new SRLDocument(topic);
 		
 		// format the srl result as the SRLDocument
-		List<String[]> sentence = new ArrayList<String[]>();
-		for (int index = 0; index <= srlResults.size(); index++) {
-			if (index == srlResults.size()) {
-				document.addSentence(sentence);
-				break;
-			}
-			
-			String line = srlResults.get(index);
-			if ((line.equals(""))) {
-				document.addSentence(sentence);
-				sentence = new ArrayList<String[]> ();
-				continue;
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mDocumentPath), "UTF-8"));
+			try {
+				List<String[]> sentence = new ArrayList<String[]>();
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					if (line.equals("")) {
+						addSentence(document, sentence);
+						sentence.clear();
+						continue;
+					}
+					
+					sentence.add(split(line));
+				}
+				addSentence(document, sentence);
+			} finally {
+				reader.close();
 			}
-			
-			String[] token = line.split("\t");
-			sentence.add(token);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
 		}
 		
 		return document;
 	}
 	
+	/**
+	 * convert the rows of one sentence to the columns of the document
+	 * 
+	 * @param document
+	 * @param sentence
+	 */
+	private void addSentence(SRLDocument document, List<String[]> sentence) {
+		int length = sentence.size();
+		String[] words = new String[length];
+		int[] heads = new int[length];
+		boolean[] predicates = new boolean[length];
+		int predicateSize = 0;
+		for (int row = 0; row < length; row++) {
+			String[] token = sentence.get(row);
+			words[row] = token[WORD_FORM];
+			heads[row] = Integer.parseInt(token[WORD_HEAD]);
+			predicates[row] = !token[PRED].equals("_");
+			if (predicates[row]) predicateSize += 1;
+		}
+		
+		// the argument column of the slot-th predicate follows the predicate column
+		String[][] arguments = new String[predicateSize][length];
+		for (int slot = 0; slot < predicateSize; slot++) {
+			int column = PRED + slot + 1;
+			for (int row = 0; row < length; row++) {
+				String[] token = sentence.get(row);
+				arguments[slot][row] = column < token.length ? token[column] : null;
+			}
+		}
+		
+		document.addSentence(words, heads, predicates, arguments);
+	}
+	
+	// split on tab without the regular expression of String.split
+	private String[] split(String line) {
+		int size = 1;
+		for (int i = line.indexOf('\t'); i >= 0; i = line.indexOf('\t', i + 1)) {
+			size += 1;
+		}
+		
+		String[] fields = new String[size];
+		int start = 0;
+		for (int field = 0; field < size; field++) {
+			int end = line.indexOf('\t', start);
+			if (end < 0) end = line.length();
+			fields[field] = line.substring(start, end);
+			start = end + 1;
+		}
+		return fields;
+	}
+	
 	/**
 	 * the main entry of the program 
 	 * 
@@ -2,14 +2,10 @@ package edu.oregonstate.featureExtractor;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Queue;
-import java.util.Set;
 
 import edu.oregonstate.data.EecbSrlAnnotation;
 
@@ -35,9 +31,10 @@ import edu.oregonstate.data.EecbSrlAnnotation;
  */
 public class SemanticOutputInterface {
 	private Map<Integer, List<List<String>>> document;
-	private Map<Node, List<Node>> nodes;
 	private List<Integer> headsPosition;
-	private List<Node> outputNode;
+	/** yield [start, end) of each token in the dependency tree of the current sentence */
+	private int[] yieldStarts;
+	private int[] yieldEnds;
 	
 	/**
 	 * initialize the document.
@@ -59,69 +56,6 @@ public class SemanticOutputInterface {
 		return this.document;
 	}
 
-	/**
-	 * Search data structure
-	 * 
-	 * @author Jun Xie (xie@eecs.oregonstate.edu)
-	 *
-	 */
-	public class Node
-    {
-        int data;
-        Node predecessor;
-        
-        public Node(int data)
-        {
-            this.data = data;
-        }
-        
-        public String toString()
-        {
-            return "(" + data + ")";
-        }
-    }
-    
-	/**
-	 * use breadth-first search algorithm to extract the extent of the specific head 
-	 * @param s
-	 * @return
-	 */
-    public List<Integer> bfs(Node s) {    	
-    	List<Integer> children = new ArrayList<Integer>();
-        Set<Node> keys = nodes.keySet();
-        for (Node u : keys) {
-            if (u != s) {
-                u.predecessor = null;
-            }
-        }
-        s.predecessor = null;
-        Queue<Node> q = new ArrayDeque<Node>();
-        q.add(s);
-        while (!q.isEmpty()) {
-            Node u = q.remove();
-            List<Node> adj_u = nodes.get(u);
-            if (adj_u != null) {
-                for (Node v : adj_u) {
-                    v.predecessor = u;
-                    q.add(v);
-                }
-            }
-            children.add(u.data);
-        }
-        return children;
-    }
-    
-    public void addEdge(Node n1, Node n2)
-    {
-        if (nodes.containsKey(n1)) {
-            nodes.get(n1).add(n2);
-        } else {
-            ArrayList<Node> list = new ArrayList<Node>();
-            list.add(n2);
-            nodes.put(n1, list);
-        }
-    }
-	
     /**
      * According to the headPosition, find all mention span
      * 
@@ -133,10 +67,8 @@ public class SemanticOutputInterface {
 		List<EecbSrlAnnotation> span = new ArrayList<EecbSrlAnnotation>();
 		int startIndex = 0;
 		int endIndex = 0;
-		List<Integer> spans = new ArrayList<Integer>();
-		spans = bfs(outputNode.get(headPosition));
-		startIndex = Collections.min(spans);
-		endIndex = Collections.max(spans);
+		startIndex = yieldStarts[headPosition];
+		endIndex = yieldEnds[headPosition] - 1;
 		assert endIndex > startIndex;
 		for (int i = startIndex; i <= endIndex; i++) {
 			span.add(tokens.get(i));
@@ -222,17 +154,14 @@ public class SemanticOutputInterface {
 			}
 		}
 		
-		outputNode = new ArrayList<Node>();
-		nodes = new HashMap<Node, List<Node>>();
-		// initialize the arguments for the breadth-first search
-		for (int i = 0; i < headsPosition.size(); i++) {
-			outputNode.add(new Node(i));
-		}
-		for (int i = 0; i < headsPosition.size(); i++) {
-			int parent = headsPosition.get(i);
-			if (parent == i) continue;
-			addEdge(outputNode.get(parent), outputNode.get(i));
+		// compute the yield of each token, the root points to itself
+		int[] heads = new int[headsPosition.size()];
+		for (int i = 0; i < heads.length; i++) {
+			heads[i] = headsPosition.get(i);
 		}
+		yieldStarts = new int[heads.length];
+		yieldEnds = new int[heads.length];
+		SRLDocument.computeYields(heads, 0, heads.length, yieldStarts, yieldEnds);
 		
 		// find the extent for each arguments of each predicates
 		Map<EecbSrlAnnotation, Map<String, List<EecbSrlAnnotation>>> semanticRoles = new HashMap<EecbSrlAnnotation, Map<String,List<EecbSrlAnnotation>>>();
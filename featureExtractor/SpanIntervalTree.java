@@ -0,0 +1,162 @@
+package edu.oregonstate.featureExtractor;
+
+import java.util.*;
+
+/**
+ * Static interval tree over token spans [start, end)
+ * <p>
+ * The spans are sorted by (start, end) and the sorted array is treated as an implicit balanced binary search tree,
+ * where each node keeps the maximum end of its subtree. Exact span lookup is a binary search, and the overlap query
+ * prunes every subtree whose maximum end is not after the query start, both in O(log n) plus the number of reported
+ * spans. Spans are added first, the tree is built on the first query.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class SpanIntervalTree<T> {
+
+	/** spans in the order of insertion */
+	private final List<int[]> spans;
+	private final List<T> values;
+
+	/** sorted spans, and the maximum end of the implicit subtree rooted at each position */
+	private int[] starts;
+	private int[] ends;
+	private int[] maxEnds;
+	private List<T> sortedValues;
+
+	public SpanIntervalTree() {
+		spans = new ArrayList<int[]>();
+		values = new ArrayList<T>();
+	}
+
+	/**
+	 * add a span, the tree is rebuilt on the next query
+	 *
+	 * @param start
+	 * @param end exclusive
+	 * @param value
+	 */
+	public void add(int start, int end, T value) {
+		spans.add(new int[]{start, end, spans.size()});
+		values.add(value);
+		starts = null;
+	}
+
+	public int size() {
+		return spans.size();
+	}
+
+	/**
+	 * the value of the span [start, end); if several values have the same span, the last added one
+	 *
+	 * @param start
+	 * @param end
+	 * @return null if there is no such span
+	 */
+	public T get(int start, int end) {
+		build();
+		int low = 0;
+		int high = starts.length;
+		// the first position after all spans which are smaller or equal to [start, end)
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (starts[mid] < start || (starts[mid] == start && ends[mid] <= end)) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		if (low > 0 && starts[low - 1] == start && ends[low - 1] == end) {
+			return sortedValues.get(low - 1);
+		}
+		return null;
+	}
+
+	/**
+	 * whether some span overlaps [start, end)
+	 *
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public boolean overlaps(int start, int end) {
+		build();
+		return overlaps(0, starts.length, start, end);
+	}
+
+	/**
+	 * all values whose span overlaps [start, end), in the order of the span start
+	 *
+	 * @param start
+	 * @param end
+	 * @return
+	 */
+	public List<T> overlapping(int start, int end) {
+		build();
+		List<T> result = new ArrayList<T>();
+		collect(0, starts.length, start, end, result);
+		return result;
+	}
+
+	// whether the subtree of the positions [low, high) contains a span overlapping [start, end)
+	private boolean overlaps(int low, int high, int start, int end) {
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (maxEnds[mid] <= start) return false;
+			if (starts[mid] < end && ends[mid] > start) return true;
+			// the right subtree only contains spans starting after the mid span
+			if (starts[mid] < end && overlaps(mid + 1, high, start, end)) return true;
+			high = mid;
+		}
+		return false;
+	}
+
+	private void collect(int low, int high, int start, int end, List<T> result) {
+		if (low >= high) return;
+		int mid = (low + high) >>> 1;
+		if (maxEnds[mid] <= start) return;
+		collect(low, mid, start, end, result);
+		if (starts[mid] < end) {
+			if (ends[mid] > start) result.add(sortedValues.get(mid));
+			collect(mid + 1, high, start, end, result);
+		}
+	}
+
+	// sort the spans and compute the maximum end of each implicit subtree
+	private void build() {
+		if (starts != null) return;
+
+		List<int[]> sorted = new ArrayList<int[]>(spans);
+		Collections.sort(sorted, new Comparator<int[]>() {
+			public int compare(int[] a, int[] b) {
+				if (a[0] != b[0]) return a[0] < b[0] ? -1 : 1;
+				if (a[1] != b[1]) return a[1] < b[1] ? -1 : 1;
+				return a[2] < b[2] ? -1 : (a[2] == b[2] ? 0 : 1);
+			}
+		});
+
+		int size = sorted.size();
+		starts = new int[size];
+		ends = new int[size];
+		maxEnds = new int[size];
+		sortedValues = new ArrayList<T>(size);
+		for (int i = 0; i < size; i++) {
+			int[] span = sorted.get(i);
+			starts[i] = span[0];
+			ends[i] = span[1];
+			sortedValues.add(values.get(span[2]));
+		}
+		computeMaxEnd(0, size);
+	}
+
+	private int computeMaxEnd(int low, int high) {
+		if (low >= high) return Integer.MIN_VALUE;
+		int mid = (low + high) >>> 1;
+		int maxEnd = Math.max(ends[mid], Math.max(computeMaxEnd(low, mid), computeMaxEnd(mid + 1, high)));
+		maxEnds[mid] = maxEnd;
+		return maxEnd;
+	}
+
+}
@@ -0,0 +1,439 @@
+package edu.oregonstate.featureExtractor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import edu.stanford.nlp.stats.ClassicCounter;
+
+/**
+ * Compiled binary index of Dekang Lin's similarity thesaurus, which is memory-mapped and looked up lazily
+ * <p>
+ * The .lsp file is parsed once by WordSimilarity and written as a sorted string table, where each string can have a
+ * list of neighbour ids, which are the words added to its counter (the word itself and its top 10 similar words).
+ * At runtime, the index is memory-mapped and a word is found by binary search on the string table, so nothing is
+ * loaded into the heap until a word is looked up.
+ * <p>
+ * Layout : magic, version, number of strings, number of neighbour ids, string offsets (number of strings + 1),
+ * neighbour offsets (number of strings + 1, an empty range means the word has no entry), neighbour ids, UTF-8 bytes
+ * of the strings sorted by unsigned byte order.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class ThesaurusIndex {
+
+	/** magic number of the index file */
+	private static final int MAGIC = 0x4C494E54;
+
+	/** version of the index format */
+	private static final int VERSION = 1;
+
+	/** size of the header */
+	private static final int HEADER_SIZE = 16;
+
+	/** opened indices, shared by the whole JVM */
+	private static final Map<String, ThesaurusIndex> openedIndices = new HashMap<String, ThesaurusIndex>();
+
+	/** memory-mapped file */
+	private final MappedByteBuffer buffer;
+
+	/** number of strings */
+	private final int stringCount;
+
+	/** start of the string offsets */
+	private final int stringOffsetStart;
+
+	/** start of the neighbour offsets */
+	private final int neighbourOffsetStart;
+
+	/** start of the neighbour ids */
+	private final int neighbourStart;
+
+	/** start of the string bytes */
+	private final int stringStart;
+
+	/** number of words which have an entry */
+	private final int entryCount;
+
+	private ThesaurusIndex(MappedByteBuffer buffer) {
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new RuntimeException("not a thesaurus index, or the index version is not supported");
+		}
+
+		stringCount = buffer.getInt(8);
+		int neighbourCount = buffer.getInt(12);
+		stringOffsetStart = HEADER_SIZE;
+		neighbourOffsetStart = stringOffsetStart + 4 * (stringCount + 1);
+		neighbourStart = neighbourOffsetStart + 4 * (stringCount + 1);
+		stringStart = neighbourStart + 4 * neighbourCount;
+
+		int entries = 0;
+		for (int id = 0; id < stringCount; id++) {
+			if (hasEntry(id)) entries += 1;
+		}
+		entryCount = entries;
+	}
+
+	/**
+	 * compile the .lsp file into the binary index
+	 *
+	 * @param lspPath
+	 * @param indexPath
+	 */
+	public static void compile(String lspPath, String indexPath) {
+		WordSimilarity similarity = new WordSimilarity(lspPath);
+		similarity.load();
+		Map<String, ClassicCounter<String>> datas = similarity.getDatas();
+
+		// the words added to each counter, a word is repeated by its count
+		Map<String, List<String>> sequences = new HashMap<String, List<String>>();
+		List<String> words = new ArrayList<String>();
+		for (String key : datas.keySet()) {
+			List<String> sequence = new ArrayList<String>();
+			ClassicCounter<String> counter = datas.get(key);
+			for (String word : counter.keySet()) {
+				int count = (int) counter.getCount(word);
+				for (int i = 0; i < count; i++) {
+					sequence.add(word);
+				}
+				words.add(word);
+			}
+			sequences.put(key, sequence);
+			words.add(key);
+		}
+
+		// sorted string table by unsigned UTF-8 byte order
+		Map<String, byte[]> encodings = new HashMap<String, byte[]>();
+		for (String word : words) {
+			if (!encodings.containsKey(word)) encodings.put(word, encode(word));
+		}
+		final Map<String, byte[]> wordEncodings = encodings;
+		String[] strings = encodings.keySet().toArray(new String[encodings.size()]);
+		Arrays.sort(strings, new Comparator<String>() {
+			public int compare(String word1, String word2) {
+				return compareBytes(wordEncodings.get(word1), wordEncodings.get(word2));
+			}
+		});
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		for (int id = 0; id < strings.length; id++) {
+			ids.put(strings[id], id);
+		}
+
+		int neighbourCount = 0;
+		for (List<String> sequence : sequences.values()) {
+			neighbourCount += sequence.size();
+		}
+
+		// write to a temporary file first, then rename, in case several jobs compile the same index
+		File temporaryFile = new File(indexPath + "." + System.nanoTime() + ".tmp");
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(strings.length);
+				out.writeInt(neighbourCount);
+
+				int offset = 0;
+				for (String string : strings) {
+					out.writeInt(offset);
+					offset += wordEncodings.get(string).length;
+				}
+				out.writeInt(offset);
+
+				offset = 0;
+				for (String string : strings) {
+					out.writeInt(offset);
+					List<String> sequence = sequences.get(string);
+					if (sequence != null) offset += sequence.size();
+				}
+				out.writeInt(offset);
+
+				for (String string : strings) {
+					List<String> sequence = sequences.get(string);
+					if (sequence == null) continue;
+					for (String word : sequence) {
+						out.writeInt(ids.get(word));
+					}
+				}
+
+				for (String string : strings) {
+					out.write(wordEncodings.get(string));
+				}
+			} finally {
+				out.close();
+			}
+
+			if (!temporaryFile.renameTo(new File(indexPath))) {
+				temporaryFile.delete();
+			}
+		} catch (IOException e) {
+			temporaryFile.delete();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * open the index of the .lsp file, compile it first if it does not exist
+	 *
+	 * @param lspPath
+	 * @return
+	 */
+	public static synchronized ThesaurusIndex load(String lspPath) {
+		String indexPath = lspPath + ".idx";
+		ThesaurusIndex index = openedIndices.get(indexPath);
+		if (index != null) return index;
+
+		File indexFile = new File(indexPath);
+		File lspFile = new File(lspPath);
+		if (!indexFile.exists() || (lspFile.exists() && lspFile.lastModified() > indexFile.lastModified())) {
+			compile(lspPath, indexPath);
+		}
+
+		index = open(indexPath);
+		openedIndices.put(indexPath, index);
+		return index;
+	}
+
+	/**
+	 * memory-map the index
+	 *
+	 * @param indexPath
+	 * @return
+	 */
+	public static ThesaurusIndex open(String indexPath) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(indexPath, "r");
+			try {
+				FileChannel channel = file.getChannel();
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				return new ThesaurusIndex(buffer);
+			} finally {
+				// the mapping stays valid after the file is closed
+				file.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * the counter of the word, the same as the one built by WordSimilarity
+	 *
+	 * @param word
+	 * @return null if the word is not in the thesaurus
+	 */
+	public ClassicCounter<String> lookup(String word) {
+		int id = find(word);
+		if (id < 0 || !hasEntry(id)) return null;
+		return counter(id);
+	}
+
+	/**
+	 * whether the word is in the thesaurus
+	 *
+	 * @param word
+	 * @return
+	 */
+	public boolean contains(String word) {
+		int id = find(word);
+		return id >= 0 && hasEntry(id);
+	}
+
+	/**
+	 * number of words in the thesaurus
+	 *
+	 * @return
+	 */
+	public int size() {
+		return entryCount;
+	}
+
+	/**
+	 * a read-only map view of the index, which can be used where the thesaurus used to be a HashMap
+	 *
+	 * @return
+	 */
+	public Map<String, ClassicCounter<String>> asMap() {
+		return new AbstractMap<String, ClassicCounter<String>>() {
+
+			@Override
+			public ClassicCounter<String> get(Object key) {
+				if (!(key instanceof String)) return null;
+				return lookup((String) key);
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				if (!(key instanceof String)) return false;
+				return contains((String) key);
+			}
+
+			@Override
+			public int size() {
+				return entryCount;
+			}
+
+			@Override
+			public Set<Map.Entry<String, ClassicCounter<String>>> entrySet() {
+				return new AbstractSet<Map.Entry<String, ClassicCounter<String>>>() {
+
+					@Override
+					public int size() {
+						return entryCount;
+					}
+
+					@Override
+					public Iterator<Map.Entry<String, ClassicCounter<String>>> iterator() {
+						return new EntryIterator();
+					}
+				};
+			}
+		};
+	}
+
+	/** iterate the words which have an entry, in the order of the string table */
+	private class EntryIterator implements Iterator<Map.Entry<String, ClassicCounter<String>>> {
+
+		private int nextID = advance(0);
+
+		private int advance(int id) {
+			while (id < stringCount && !hasEntry(id)) {
+				id++;
+			}
+			return id;
+		}
+
+		public boolean hasNext() {
+			return nextID < stringCount;
+		}
+
+		public Map.Entry<String, ClassicCounter<String>> next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			int id = nextID;
+			nextID = advance(id + 1);
+			return new AbstractMap.SimpleImmutableEntry<String, ClassicCounter<String>>(string(id), counter(id));
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	// binary search the string table
+	private int find(String word) {
+		byte[] key = encode(word);
+		int low = 0;
+		int high = stringCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compareToString(key, middle);
+			if (comparison > 0) {
+				low = middle + 1;
+			} else if (comparison < 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+
+		return -1;
+	}
+
+	// whether the string has a neighbour list
+	private boolean hasEntry(int id) {
+		return neighbourOffset(id + 1) > neighbourOffset(id);
+	}
+
+	// build the counter from the neighbour list
+	private ClassicCounter<String> counter(int id) {
+		ClassicCounter<String> counter = new ClassicCounter<String>();
+		int end = neighbourOffset(id + 1);
+		for (int offset = neighbourOffset(id); offset < end; offset++) {
+			counter.incrementCount(string(buffer.getInt(neighbourStart + 4 * offset)));
+		}
+		return counter;
+	}
+
+	private int neighbourOffset(int id) {
+		return buffer.getInt(neighbourOffsetStart + 4 * id);
+	}
+
+	private int stringOffset(int id) {
+		return buffer.getInt(stringOffsetStart + 4 * id);
+	}
+
+	// decode the string, only absolute gets are used so that the buffer can be shared by threads
+	private String string(int id) {
+		int start = stringOffset(id);
+		byte[] bytes = new byte[stringOffset(id + 1) - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(stringStart + start + i);
+		}
+
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	// compare the key with the string in the table, by unsigned byte order
+	private int compareToString(byte[] key, int id) {
+		int start = stringStart + stringOffset(id);
+		int length = stringOffset(id + 1) - stringOffset(id);
+		int common = Math.min(key.length, length);
+		for (int i = 0; i < common; i++) {
+			int difference = (key[i] & 0xFF) - (buffer.get(start + i) & 0xFF);
+			if (difference != 0) return difference;
+		}
+		return key.length - length;
+	}
+
+	private static int compareBytes(byte[] bytes1, byte[] bytes2) {
+		int common = Math.min(bytes1.length, bytes2.length);
+		for (int i = 0; i < common; i++) {
+			int difference = (bytes1[i] & 0xFF) - (bytes2[i] & 0xFF);
+			if (difference != 0) return difference;
+		}
+		return bytes1.length - bytes2.length;
+	}
+
+	private static byte[] encode(String word) {
+		try {
+			return word.getBytes("UTF-8");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * compile the thesauri once, for example : ThesaurusIndex simN.lsp simV.lsp simA.lsp
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		for (String lspPath : args) {
+			compile(lspPath, lspPath + ".idx");
+		}
+	}
+
+}
@@ -1,9 +1,15 @@
 package edu.oregonstate.featureExtractor;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
 
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.featureExtractor.WordnetCache.Relation;
+import edu.oregonstate.util.EecbConstants;
+import edu.stanford.nlp.io.IOUtils;
+
 import edu.smu.tspell.wordnet.NounSynset;
 import edu.smu.tspell.wordnet.Synset;
 import edu.smu.tspell.wordnet.SynsetType;
@@ -15,6 +21,8 @@ import edu.smu.tspell.wordnet.WordSense;
 /**
  * find the links between synonyms, we need to calculate the percentage of newly-introduced mentions links after the merge 
  * that are wordnet synonyms
+ * 
+ * The relations are cached in WordnetCache, every method returns a new set which can be modified by the caller
  */  
 public class Wordnet {
 	
@@ -23,6 +31,27 @@ public class Wordnet {
 
 	public Wordnet() {
 		wordnet = WordNetDatabase.getFileInstance();
+		
+		// load the precomputed relation table
+		String cachePath = getCachePath();
+		if (cachePath != null) {
+			WordnetCache.load(cachePath);
+		}
+	}
+	
+	/**
+	 * the path of the precomputed relation table, null if not configured
+	 * 
+	 * @return
+	 */
+	public static String getCachePath() {
+		if (ExperimentConstructor.experimentProps == null) return null;
+		return ExperimentConstructor.experimentProps.getProperty(EecbConstants.WORDNET_CACHE_PROP);
+	}
+
+	// the POS part of the cache key, the code is stable across JVMs
+	private static String pos(SynsetType type) {
+		return Integer.toString(type.getCode());
 	}
 
 	/**
@@ -33,13 +62,19 @@ public class Wordnet {
 	 * @return
 	 */
 	public Set<String> getSynonym(String lemma, SynsetType type) {
+		Set<String> cached = WordnetCache.get(Relation.SYNONYM, pos(type), lemma);
+		if (cached != null) return new HashSet<String>(cached);
+		
 		Set<String> synonyms = new HashSet<String>();
-		Synset[] synsets = wordnet.getSynsets(lemma, type);
-		for (Synset synset : synsets) {
-			String[] wordforms = synset.getWordForms();
-			synonyms.addAll(Arrays.asList(wordforms));
+		synchronized (wordnet) {
+			Synset[] synsets = wordnet.getSynsets(lemma, type);
+			for (Synset synset : synsets) {
+				String[] wordforms = synset.getWordForms();
+				synonyms.addAll(Arrays.asList(wordforms));
+			}
 		}
 
+		WordnetCache.put(Relation.SYNONYM, pos(type), lemma, synonyms);
 		return synonyms;
 	}
 
@@ -51,15 +86,21 @@ public class Wordnet {
 	 * @return
 	 */
 	public Set<String> getDerivationallyRelatedForms(String lemma, SynsetType type) {
+		Set<String> cached = WordnetCache.get(Relation.DERIVATION, pos(type), lemma);
+		if (cached != null) return new HashSet<String>(cached);
+		
 		Set<String> derivationallyForm = new HashSet<String>();
-		Synset[] synsets = wordnet.getSynsets(lemma, type);
-		for (Synset synset : synsets) {
-			WordSense[] senses = synset.getDerivationallyRelatedForms(lemma);
-			for (WordSense sense : senses) {
-				derivationallyForm.add(sense.getWordForm());
+		synchronized (wordnet) {
+			Synset[] synsets = wordnet.getSynsets(lemma, type);
+			for (Synset synset : synsets) {
+				WordSense[] senses = synset.getDerivationallyRelatedForms(lemma);
+				for (WordSense sense : senses) {
+					derivationallyForm.add(sense.getWordForm());
+				}
 			}
 		}
 
+		WordnetCache.put(Relation.DERIVATION, pos(type), lemma, derivationallyForm);
 		return derivationallyForm;
 	}
 
@@ -71,16 +112,22 @@ public class Wordnet {
 	 * @return
 	 */
 	public Set<String> getNounHypernym(String lemma) {
+		Set<String> cached = WordnetCache.get(Relation.HYPERNYM, pos(SynsetType.NOUN), lemma);
+		if (cached != null) return new HashSet<String>(cached);
+		
 		Set<String> hypernyms = new HashSet<String>();
-		Synset[] synsets = wordnet.getSynsets(lemma, SynsetType.NOUN);
-		for (Synset synset : synsets) {
-			NounSynset nounSynset = (NounSynset) synset;
-			NounSynset[] hypernymSynset = nounSynset.getHypernyms();
-			for (NounSynset set : hypernymSynset) {
-				hypernyms.addAll(Arrays.asList(set.getWordForms()));
+		synchronized (wordnet) {
+			Synset[] synsets = wordnet.getSynsets(lemma, SynsetType.NOUN);
+			for (Synset synset : synsets) {
+				NounSynset nounSynset = (NounSynset) synset;
+				NounSynset[] hypernymSynset = nounSynset.getHypernyms();
+				for (NounSynset set : hypernymSynset) {
+					hypernyms.addAll(Arrays.asList(set.getWordForms()));
+				}
 			}
 		}
 
+		WordnetCache.put(Relation.HYPERNYM, pos(SynsetType.NOUN), lemma, hypernyms);
 		return hypernyms;
 	}
 
@@ -92,18 +139,44 @@ public class Wordnet {
 	 * @return
 	 */
 	public Set<String> getVerbHypernym(String lemma) {
+		Set<String> cached = WordnetCache.get(Relation.HYPERNYM, pos(SynsetType.VERB), lemma);
+		if (cached != null) return new HashSet<String>(cached);
+		
 		Set<String> hypernyms = new HashSet<String>();
-		Synset[] synsets = wordnet.getSynsets(lemma, SynsetType.VERB);
-		for (Synset synset : synsets) {
-			VerbSynset verbSynset = (VerbSynset) synset;
-			VerbSynset[] hypernymSynset = verbSynset.getHypernyms();
-			for (VerbSynset set : hypernymSynset) {
-				hypernyms.addAll(Arrays.asList(set.getWordForms()));
+		synchronized (wordnet) {
+			Synset[] synsets = wordnet.getSynsets(lemma, SynsetType.VERB);
+			for (Synset synset : synsets) {
+				VerbSynset verbSynset = (VerbSynset) synset;
+				VerbSynset[] hypernymSynset = verbSynset.getHypernyms();
+				for (VerbSynset set : hypernymSynset) {
+					hypernyms.addAll(Arrays.asList(set.getWordForms()));
+				}
 			}
 		}
 
+		WordnetCache.put(Relation.HYPERNYM, pos(SynsetType.VERB), lemma, hypernyms);
 		return hypernyms;
 	}	
+	
+	/**
+	 * precompute all relations of the vocabulary, and save them into the relation table
+	 * 
+	 * @param vocabulary
+	 * @param cachePath
+	 */
+	public void precompute(List<String> vocabulary, String cachePath) {
+		SynsetType[] types = new SynsetType[] {SynsetType.NOUN, SynsetType.VERB, SynsetType.ADJECTIVE, SynsetType.ADVERB};
+		for (String lemma : vocabulary) {
+			for (SynsetType type : types) {
+				getSynonym(lemma, type);
+				getDerivationallyRelatedForms(lemma, type);
+			}
+			getNounHypernym(lemma);
+			getVerbHypernym(lemma);
+		}
+		
+		WordnetCache.save(cachePath);
+	}
 
 	/**
 	 * set word net path first
@@ -115,11 +188,19 @@ public class Wordnet {
 	}
 
 	/**
-	 * WORDNET examples
+	 * WORDNET examples, or precompute the relation table : Wordnet wordnetPath vocabularyFile cachePath
 	 * 
 	 * @param args
 	 */
 	public static void main(String[] args) {
+		if (args.length == 3) {
+			Wordnet.setWordNet(args[0]);
+			Wordnet wordnet = new Wordnet();
+			wordnet.precompute(IOUtils.linesFromFile(args[1]), args[2]);
+			System.out.println("number of cached relations : " + WordnetCache.size());
+			return;
+		}
+		
 		String wordnetPath = "/home/jun/JavaFile/corpus/WordNet-3.0/dict";
 		Wordnet.setWordNet(wordnetPath);
 
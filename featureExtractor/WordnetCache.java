@@ -0,0 +1,163 @@
+package edu.oregonstate.featureExtractor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of WordNet relations keyed by (relation, POS, lemma), shared by all Wordnet objects of the JVM
+ * <p>
+ * The in-memory tier is a concurrent map, so that it can be shared by the threads of parallel data generation.
+ * The cache can be saved to and loaded from a binary table on disk, which covers the corpus vocabulary after the
+ * first data generation, or can be precomputed by Wordnet.main.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class WordnetCache {
+
+	/** the relations stored in the cache */
+	public enum Relation {
+		SYNONYM, DERIVATION, HYPERNYM
+	}
+
+	/** magic number of the table file */
+	private static final int MAGIC = 0x574E4354;
+
+	/** version of the table format */
+	private static final int VERSION = 1;
+
+	/** relation key to the related word forms */
+	private static final Map<String, Set<String>> relations = new ConcurrentHashMap<String, Set<String>>();
+
+	/** files which are already loaded */
+	private static final Set<String> loadedFiles = new HashSet<String>();
+
+	/* non-instantiable class */
+	private WordnetCache() {
+	}
+
+	// the key of the relation
+	private static String key(Relation relation, String pos, String lemma) {
+		return relation.ordinal() + "\t" + pos + "\t" + lemma;
+	}
+
+	/**
+	 * get the cached word forms
+	 *
+	 * @param relation
+	 * @param pos
+	 * @param lemma
+	 * @return null if not cached
+	 */
+	public static Set<String> get(Relation relation, String pos, String lemma) {
+		return relations.get(key(relation, pos, lemma));
+	}
+
+	/**
+	 * cache the word forms, the stored set is read only
+	 *
+	 * @param relation
+	 * @param pos
+	 * @param lemma
+	 * @param wordForms
+	 */
+	public static void put(Relation relation, String pos, String lemma, Set<String> wordForms) {
+		relations.put(key(relation, pos, lemma), Collections.unmodifiableSet(new HashSet<String>(wordForms)));
+	}
+
+	/** number of cached relations */
+	public static int size() {
+		return relations.size();
+	}
+
+	/**
+	 * load the table from disk once, nothing is loaded if the file does not exist
+	 *
+	 * @param path
+	 */
+	public static synchronized void load(String path) {
+		if (loadedFiles.contains(path)) return;
+		loadedFiles.add(path);
+
+		File file = new File(path);
+		if (!file.exists()) return;
+
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+
+				int size = in.readInt();
+				for (int index = 0; index < size; index++) {
+					String key = in.readUTF();
+					int wordFormSize = in.readInt();
+					Set<String> wordForms = new HashSet<String>();
+					for (int i = 0; i < wordFormSize; i++) {
+						wordForms.add(in.readUTF());
+					}
+
+					// the entries computed in this JVM are as good as the stored ones
+					if (!relations.containsKey(key)) {
+						relations.put(key, Collections.unmodifiableSet(wordForms));
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * save the whole cache to disk, the table is written to a temporary file and renamed
+	 *
+	 * @param path
+	 */
+	public static synchronized void save(String path) {
+		// merge with the entries saved by other jobs since this JVM loaded the table
+		loadedFiles.remove(path);
+		load(path);
+
+		File temporaryFile = new File(path + "." + System.nanoTime() + ".tmp");
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+			try {
+				// take a snapshot, other threads can still add relations
+				Map<String, Set<String>> snapshot = new HashMap<String, Set<String>>(relations);
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(snapshot.size());
+				for (Map.Entry<String, Set<String>> entry : snapshot.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeInt(entry.getValue().size());
+					for (String wordForm : entry.getValue()) {
+						out.writeUTF(wordForm);
+					}
+				}
+			} finally {
+				out.close();
+			}
+
+			if (!temporaryFile.renameTo(new File(path))) {
+				temporaryFile.delete();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			temporaryFile.delete();
+		}
+	}
+
+}
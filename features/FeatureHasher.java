@@ -0,0 +1,116 @@
+package edu.oregonstate.features;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.oregonstate.cluster.SparseVector;
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.util.EecbConstants;
+import edu.stanford.nlp.stats.Counter;
+
+/**
+ * hash the lexicalized features into a fixed number of buckets
+ * <p>
+ * The atomic features of the feature template keep their indices 0 .. d - 1, and a lexicalized feature, whose name
+ * starts with PREFIX, is mapped to d + h(name) mod 2^bits with a sign given by another bit of the hash, so that the
+ * collisions cancel out in expectation. The hash is computed from String.hashCode, so the indices are the same in
+ * every JVM and the constraint files can be read by another process.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class FeatureHasher {
+
+	/** prefix of the lexicalized feature names */
+	public static final String PREFIX = "Lex:";
+
+	/**
+	 * number of hash bits, 0 if the lexicalized features are disabled
+	 *
+	 * @return
+	 */
+	public static int getBits() {
+		Properties props = ExperimentConstructor.experimentProps;
+		if (props == null) return 0;
+		return Integer.parseInt(props.getProperty(EecbConstants.FEATURE_HASHING_BITS, "0"));
+	}
+
+	public static boolean isEnabled() {
+		return getBits() > 0;
+	}
+
+	/**
+	 * the dimension of the model, the atomic features followed by the hash buckets
+	 *
+	 * @return
+	 */
+	public static int dimension() {
+		int bits = getBits();
+		int dimension = FeatureFactory.getFeatureTemplate().size();
+		return bits > 0 ? dimension + (1 << bits) : dimension;
+	}
+
+	public static boolean isLexicalized(String feature) {
+		return feature.startsWith(PREFIX);
+	}
+
+	/**
+	 * the index of the lexicalized feature
+	 *
+	 * @param feature
+	 * @param offset the number of atomic features
+	 * @param bits
+	 * @return
+	 */
+	public static int index(String feature, int offset, int bits) {
+		return offset + (mix(feature.hashCode()) & ((1 << bits) - 1));
+	}
+
+	/** +1 or -1 */
+	public static double sign(String feature) {
+		return (mix(feature.hashCode() ^ 0x5bd1e995) & 1) == 0 ? 1.0 : -1.0;
+	}
+
+	/**
+	 * the sparse vector of the atomic and the hashed lexicalized features, the collisions are summed
+	 *
+	 * @param features
+	 * @return
+	 */
+	public static SparseVector toSparseVector(Counter<String> features) {
+		List<String> featureTemplate = FeatureFactory.getFeatureTemplate();
+		int offset = featureTemplate.size();
+		int bits = getBits();
+
+		Map<Integer, Double> weights = new HashMap<Integer, Double>();
+		for (int i = 0; i < offset; i++) {
+			double value = features.getCount(featureTemplate.get(i));
+			if (value != 0.0) weights.put(i, value);
+		}
+
+		if (bits > 0) {
+			for (String feature : features.keySet()) {
+				if (!isLexicalized(feature)) continue;
+				double value = features.getCount(feature) * sign(feature);
+				Integer index = index(feature, offset, bits);
+				Double previous = weights.get(index);
+				weights.put(index, previous == null ? value : previous + value);
+			}
+		}
+
+		return SparseVector.fromMap(weights);
+	}
+
+	// the finalizer of MurmurHash3, spreads the bits of String.hashCode
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+}
@@ -20,6 +20,9 @@ import edu.stanford.nlp.stats.Counter;
  */
 public class FeatureVectorGenerator {
 
+	/** the centroids whose most frequent elements form the lexicalized pair features */
+	private static final String[] LEXICALIZED_CENTROIDS = {"Head", "Lemma", "SrlA0", "SrlA1", "SrlA2", "SrlAMLoc"};
+
 	/**
 	 * generate centroids for each cluster after merge two clusters
 	 * 
@@ -50,6 +53,16 @@ public class FeatureVectorGenerator {
 	 * @return
 	 */
 	public static Counter<String> getFeatures(Document document, CorefCluster c1, CorefCluster c2){
+		// the features only depend on the mentions of the two clusters, so the decodes can share them
+		if (PairFeatureCache.isEnabled()) {
+			return PairFeatureCache.getFeatures(document, c1, c2);
+		}
+		
+		return computeFeatures(document, c1, c2);
+	}
+	
+	// the features of the cluster pair, see getFeatures
+	static Counter<String> computeFeatures(Document document, CorefCluster c1, CorefCluster c2) {
 		Counter<String> features = new ClassicCounter<String>();
 		
 		// which cluster appears earlier
@@ -101,9 +114,52 @@ public class FeatureVectorGenerator {
 		if (noLeft) features.remove(left);
 		if (noRight) features.remove(right);
 		
+		// lexicalized pair features, hashed when the constraints are written
+		if (FeatureHasher.isEnabled()) {
+			addLexicalizedFeatures(features, former, latter, mentionType);
+		}
+		
 		return features;
 	}
 	
+	/**
+	 * add the conjunction of the most frequent head, lemma and SRL role arguments of the two clusters, 
+	 * for example Lex:HeadPair-NOMINAL=company|firm
+	 * 
+	 * @param features
+	 * @param former
+	 * @param latter
+	 * @param mentionType
+	 */
+	private static void addLexicalizedFeatures(Counter<String> features, CorefCluster former, CorefCluster latter, String mentionType) {
+		for (String name : LEXICALIZED_CENTROIDS) {
+			String formerWord = mostFrequent(former.predictedCentroid.get(name));
+			String latterWord = mostFrequent(latter.predictedCentroid.get(name));
+			if (formerWord == null || latterWord == null) continue;
+			
+			// the pair is unordered
+			String pair = formerWord.compareTo(latterWord) <= 0 ? formerWord + "|" + latterWord : latterWord + "|" + formerWord;
+			features.incrementCount(FeatureHasher.PREFIX + name + "Pair" + mentionType + "=" + pair, 1.0);
+		}
+	}
+	
+	// the most frequent element of the centroid, ties are broken by the smaller string, null if empty
+	private static String mostFrequent(Counter<String> centroid) {
+		if (centroid == null) return null;
+		
+		String best = null;
+		double bestCount = 0.0;
+		for (String element : centroid.keySet()) {
+			double count = centroid.getCount(element);
+			if (count <= 0.0) continue;
+			if (best == null || count > bestCount || (count == bestCount && element.compareTo(best) < 0)) {
+				best = element;
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+	
 	// get Atomic Feature Name
 	public static String[] getAtomicFeatureNames() {
 		String propertyKey = EecbConstants.FEATURE_ATOMIC_NAMES;
@@ -0,0 +1,108 @@
+package edu.oregonstate.features;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.stanford.nlp.dcoref.CorefCluster;
+import edu.stanford.nlp.dcoref.Document;
+import edu.stanford.nlp.dcoref.Mention;
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+
+/**
+ * cache of the features of the cluster pairs, shared by the decodes of the same documents under different weights
+ * <p>
+ * The features of a pair only depend on the document and the mentions of the two clusters, not on the weight, so
+ * the decodes of a development topic by several models mostly score the same pairs. A pair is keyed by the document
+ * and the sorted mention ids of the two clusters. The cache is off unless enabled, it is safe to use from several
+ * threads, it stops growing at its capacity, and each lookup returns a copy so the callers can not change the cached
+ * features.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class PairFeatureCache {
+
+	private static volatile Map<String, Counter<String>> cache;
+	private static volatile int capacity;
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	private PairFeatureCache() {
+	}
+
+	/**
+	 * start caching the features of at most capacity pairs
+	 *
+	 * @param maximumPairs
+	 */
+	public static synchronized void enable(int maximumPairs) {
+		capacity = maximumPairs;
+		cache = new ConcurrentHashMap<String, Counter<String>>();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * stop caching and release the cached features
+	 */
+	public static synchronized void disable() {
+		cache = null;
+	}
+
+	public static boolean isEnabled() {
+		return cache != null;
+	}
+
+	public static long getHits() {
+		return hits.get();
+	}
+
+	public static long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * the features of the pair, computed if they are not cached
+	 *
+	 * @param document
+	 * @param c1
+	 * @param c2
+	 * @return
+	 */
+	static Counter<String> getFeatures(Document document, CorefCluster c1, CorefCluster c2) {
+		Map<String, Counter<String>> features = cache;
+		if (features == null) {
+			return FeatureVectorGenerator.computeFeatures(document, c1, c2);
+		}
+
+		String key = document.getID() + ":" + mentionIDs(c1) + "|" + mentionIDs(c2);
+		Counter<String> cached = features.get(key);
+		if (cached != null) {
+			hits.incrementAndGet();
+			return new ClassicCounter<String>(cached);
+		}
+
+		misses.incrementAndGet();
+		Counter<String> computed = FeatureVectorGenerator.computeFeatures(document, c1, c2);
+		if (features.size() < capacity) {
+			features.put(key, new ClassicCounter<String>(computed));
+		}
+		return computed;
+	}
+
+	// the sorted mention ids of the cluster
+	private static String mentionIDs(CorefCluster cluster) {
+		int[] ids = new int[cluster.getCorefMentions().size()];
+		int i = 0;
+		for (Mention mention : cluster.getCorefMentions()) {
+			ids[i++] = mention.mentionID;
+		}
+		Arrays.sort(ids);
+		return Arrays.toString(ids);
+	}
+
+}
@@ -0,0 +1,144 @@
+package edu.oregonstate.general;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * binary min-heap over the indices 0 .. capacity - 1 with double priorities
+ * <p>
+ * Each index is in the heap at most once, and its priority can be changed in O(log n), which the
+ * java.util.PriorityQueue can not do without a linear remove. Ties are broken by the smaller index,
+ * so the order of extraction is deterministic.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class IndexedMinHeap {
+
+	/** heap position to index */
+	private final int[] heap;
+
+	/** index to heap position, -1 if the index is not in the heap */
+	private final int[] positions;
+
+	/** priority of each index */
+	private final double[] priorities;
+
+	private int size;
+
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		priorities = new double[capacity];
+		Arrays.fill(positions, -1);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int index) {
+		return positions[index] >= 0;
+	}
+
+	public double getPriority(int index) {
+		return priorities[index];
+	}
+
+	/** the index with the smallest priority */
+	public int peek() {
+		if (size == 0) throw new NoSuchElementException();
+		return heap[0];
+	}
+
+	/**
+	 * add the index, or change its priority if it is already in the heap
+	 *
+	 * @param index
+	 * @param priority
+	 */
+	public void update(int index, double priority) {
+		int position = positions[index];
+		if (position < 0) {
+			priorities[index] = priority;
+			heap[size] = index;
+			positions[index] = size;
+			size += 1;
+			siftUp(size - 1);
+			return;
+		}
+
+		double oldPriority = priorities[index];
+		priorities[index] = priority;
+		if (priority < oldPriority) {
+			siftUp(position);
+		} else {
+			siftDown(position);
+		}
+	}
+
+	/**
+	 * remove the index if it is in the heap
+	 *
+	 * @param index
+	 */
+	public void remove(int index) {
+		int position = positions[index];
+		if (position < 0) return;
+
+		size -= 1;
+		positions[index] = -1;
+		if (position == size) return;
+
+		int last = heap[size];
+		heap[position] = last;
+		positions[last] = position;
+		siftUp(position);
+		siftDown(positions[last]);
+	}
+
+	// whether the element at position i should be above the element at position j
+	private boolean less(int i, int j) {
+		int a = heap[i];
+		int b = heap[j];
+		if (priorities[a] != priorities[b]) return priorities[a] < priorities[b];
+		return a < b;
+	}
+
+	private void swap(int i, int j) {
+		int a = heap[i];
+		int b = heap[j];
+		heap[i] = b;
+		heap[j] = a;
+		positions[b] = i;
+		positions[a] = j;
+	}
+
+	private void siftUp(int position) {
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (!less(position, parent)) break;
+			swap(position, parent);
+			position = parent;
+		}
+	}
+
+	private void siftDown(int position) {
+		while (true) {
+			int left = 2 * position + 1;
+			if (left >= size) break;
+			int smallest = left;
+			int right = left + 1;
+			if (right < size && less(right, left)) smallest = right;
+			if (!less(smallest, position)) break;
+			swap(position, smallest);
+			position = smallest;
+		}
+	}
+
+}
@@ -0,0 +1,316 @@
+package edu.oregonstate.general;
+
+import java.util.Arrays;
+
+/**
+ * in-place kernels on dense double arrays used by the training inner loops
+ * <p>
+ * Unlike the helpers of DoubleOperation, none of the methods allocates: the results are written into an array
+ * given by the caller, or returned as a scalar. The loops are unrolled by four, so that the JIT can keep several
+ * independent accumulators and use the SIMD registers for the element-wise kernels.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class VectorKernel {
+
+	/**
+	 * x^T y
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public static double dot(double[] x, double[] y) {
+		int length = x.length;
+		double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			sum0 += x[i] * y[i];
+			sum1 += x[i + 1] * y[i + 1];
+			sum2 += x[i + 2] * y[i + 2];
+			sum3 += x[i + 3] * y[i + 3];
+		}
+		for (; i < length; i++) {
+			sum0 += x[i] * y[i];
+		}
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	/**
+	 * w^T (a - b), without forming a - b
+	 *
+	 * @param w
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static double dotDifference(double[] w, double[] a, double[] b) {
+		int length = w.length;
+		double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			sum0 += w[i] * (a[i] - b[i]);
+			sum1 += w[i + 1] * (a[i + 1] - b[i + 1]);
+			sum2 += w[i + 2] * (a[i + 2] - b[i + 2]);
+			sum3 += w[i + 3] * (a[i + 3] - b[i + 3]);
+		}
+		for (; i < length; i++) {
+			sum0 += w[i] * (a[i] - b[i]);
+		}
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	/** x^T x */
+	public static double squaredNorm(double[] x) {
+		return dot(x, x);
+	}
+
+	/** the two norm of x */
+	public static double norm(double[] x) {
+		return Math.sqrt(dot(x, x));
+	}
+
+	/** the two norm of a - b, without forming a - b */
+	public static double distance(double[] a, double[] b) {
+		int length = a.length;
+		double sum0 = 0.0, sum1 = 0.0;
+		int i = 0;
+		for (; i + 1 < length; i += 2) {
+			double d0 = a[i] - b[i];
+			double d1 = a[i + 1] - b[i + 1];
+			sum0 += d0 * d0;
+			sum1 += d1 * d1;
+		}
+		for (; i < length; i++) {
+			double d = a[i] - b[i];
+			sum0 += d * d;
+		}
+		return Math.sqrt(sum0 + sum1);
+	}
+
+	/**
+	 * result = A x, where the rows of A are given as arrays, for example the feature vectors of a group of states
+	 *
+	 * @param rows
+	 * @param x
+	 * @param result preallocated, of the number of rows
+	 */
+	public static void multiply(double[][] rows, double[] x, double[] result) {
+		for (int i = 0; i < rows.length; i++) {
+			result[i] = dot(rows[i], x);
+		}
+	}
+
+	/**
+	 * result = A x, where A is a rows x columns matrix stored row by row, for example the features of the candidate
+	 * actions of a search step, only the first columns elements of x are used
+	 *
+	 * @param matrix
+	 * @param rows
+	 * @param columns
+	 * @param x
+	 * @param result preallocated, of at least rows elements
+	 */
+	public static void multiply(double[] matrix, int rows, int columns, double[] x, double[] result) {
+		for (int r = 0; r < rows; r++) {
+			int offset = r * columns;
+			double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+			int i = 0;
+			for (; i + 3 < columns; i += 4) {
+				sum0 += matrix[offset + i] * x[i];
+				sum1 += matrix[offset + i + 1] * x[i + 1];
+				sum2 += matrix[offset + i + 2] * x[i + 2];
+				sum3 += matrix[offset + i + 3] * x[i + 3];
+			}
+			for (; i < columns; i++) {
+				sum0 += matrix[offset + i] * x[i];
+			}
+			result[r] = (sum0 + sum1) + (sum2 + sum3);
+		}
+	}
+
+	/**
+	 * the indices of the k largest of the first size values, the ties are won by the smaller index
+	 *
+	 * @param values
+	 * @param size
+	 * @param k
+	 * @param result preallocated, of at least min(k, size) elements, filled in ascending order of the index
+	 * @return min(k, size)
+	 */
+	public static int topK(double[] values, int size, int k, int[] result) {
+		int count = Math.min(k, size);
+		if (count <= 0) return 0;
+
+		// a min heap of the selected indices, its root is the worst selected value
+		int heapSize = 0;
+		for (int i = 0; i < size; i++) {
+			if (heapSize < count) {
+				result[heapSize] = i;
+				siftUp(values, result, heapSize++);
+			} else if (values[i] > values[result[0]]) {
+				result[0] = i;
+				siftDown(values, result, 0, heapSize);
+			}
+		}
+		Arrays.sort(result, 0, count);
+		return count;
+	}
+
+	// whether the index a is worse than b, a smaller value or the same value with a larger index
+	private static boolean worse(double[] values, int a, int b) {
+		return values[a] < values[b] || (values[a] == values[b] && a > b);
+	}
+
+	private static void siftUp(double[] values, int[] heap, int position) {
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (!worse(values, heap[position], heap[parent])) return;
+			int swap = heap[position];
+			heap[position] = heap[parent];
+			heap[parent] = swap;
+			position = parent;
+		}
+	}
+
+	private static void siftDown(double[] values, int[] heap, int position, int size) {
+		while (true) {
+			int worst = position;
+			int left = 2 * position + 1;
+			int right = left + 1;
+			if (left < size && worse(values, heap[left], heap[worst])) worst = left;
+			if (right < size && worse(values, heap[right], heap[worst])) worst = right;
+			if (worst == position) return;
+			int swap = heap[position];
+			heap[position] = heap[worst];
+			heap[worst] = swap;
+			position = worst;
+		}
+	}
+
+	/**
+	 * y = y + alpha x
+	 *
+	 * @param alpha
+	 * @param x
+	 * @param y
+	 */
+	public static void axpy(double alpha, double[] x, double[] y) {
+		int length = x.length;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			y[i] += alpha * x[i];
+			y[i + 1] += alpha * x[i + 1];
+			y[i + 2] += alpha * x[i + 2];
+			y[i + 3] += alpha * x[i + 3];
+		}
+		for (; i < length; i++) {
+			y[i] += alpha * x[i];
+		}
+	}
+
+	/**
+	 * y = y + x
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public static void add(double[] x, double[] y) {
+		int length = x.length;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			y[i] += x[i];
+			y[i + 1] += x[i + 1];
+			y[i + 2] += x[i + 2];
+			y[i + 3] += x[i + 3];
+		}
+		for (; i < length; i++) {
+			y[i] += x[i];
+		}
+	}
+
+	/**
+	 * y = y + alpha (a - b), the scaled add of a constraint direction
+	 *
+	 * @param alpha
+	 * @param a
+	 * @param b
+	 * @param y
+	 */
+	public static void scaledAddDifference(double alpha, double[] a, double[] b, double[] y) {
+		int length = y.length;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			y[i] += alpha * (a[i] - b[i]);
+			y[i + 1] += alpha * (a[i + 1] - b[i + 1]);
+			y[i + 2] += alpha * (a[i + 2] - b[i + 2]);
+			y[i + 3] += alpha * (a[i + 3] - b[i + 3]);
+		}
+		for (; i < length; i++) {
+			y[i] += alpha * (a[i] - b[i]);
+		}
+	}
+
+	/**
+	 * result = a - b
+	 *
+	 * @param a
+	 * @param b
+	 * @param result
+	 */
+	public static void subtractInto(double[] a, double[] b, double[] result) {
+		int length = result.length;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			result[i] = a[i] - b[i];
+			result[i + 1] = a[i + 1] - b[i + 1];
+			result[i + 2] = a[i + 2] - b[i + 2];
+			result[i + 3] = a[i + 3] - b[i + 3];
+		}
+		for (; i < length; i++) {
+			result[i] = a[i] - b[i];
+		}
+	}
+
+	/**
+	 * x = alpha x
+	 *
+	 * @param alpha
+	 * @param x
+	 */
+	public static void scale(double alpha, double[] x) {
+		int length = x.length;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			x[i] *= alpha;
+			x[i + 1] *= alpha;
+			x[i + 2] *= alpha;
+			x[i + 3] *= alpha;
+		}
+		for (; i < length; i++) {
+			x[i] *= alpha;
+		}
+	}
+
+	/**
+	 * result = x / ||x||, the zero vector is normalized to the zero vector as DoubleOperation.normalize does
+	 *
+	 * @param x
+	 * @param result may be x itself
+	 * @return the two norm of x
+	 */
+	public static double normalizeInto(double[] x, double[] result) {
+		double norm = norm(x);
+		if (norm == 0.0) {
+			Arrays.fill(result, 0.0);
+			return norm;
+		}
+		int length = x.length;
+		for (int i = 0; i < length; i++) {
+			result[i] = x[i] / norm;
+		}
+		return norm;
+	}
+
+}
@@ -0,0 +1,264 @@
+package edu.oregonstate.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.util.Command;
+import edu.oregonstate.util.EecbConstants;
+import edu.stanford.nlp.dcoref.Constants;
+import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import edu.stanford.nlp.pipeline.ParserAnnotatorUtils;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeCoreAnnotations.TreeAnnotation;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * On-disk cache of the Stanford annotations (pos, lemma, ner and parse tree) of one topic.
+ *
+ * The cache file is named by the SHA-1 of the source files of the topic and the annotator configuration, so that
+ * an entry is only reused if neither the text nor the annotators changed. The file is a binary string table followed
+ * by the token annotations as indices into the table and the parse tree of each sentence.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class AnnotationCache {
+
+	/** magic number of the cache file */
+	private static final int MAGIC = 0xEECBCAC4;
+
+	/** version of the cache format, bump it when the format changes */
+	private static final int VERSION = 1;
+
+	/** cache file of the topic */
+	private final String cachePath;
+
+	/**
+	 * @param topicPath directory of the topic
+	 * @param files files of the topic, in the order of reading
+	 * @param props coref system properties, used to find the parser model
+	 */
+	public AnnotationCache(String topicPath, List<String> files, Properties props) {
+		String cacheFolder = ExperimentConstructor.experimentCorpusPath + "/annotationcache";
+		Command.mkdir(cacheFolder);
+		cachePath = cacheFolder + "/" + computeKey(topicPath, files, props) + ".bin";
+	}
+
+	/** whether the annotation cache is enabled */
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(ExperimentConstructor.experimentProps.getProperty(EecbConstants.DATAGENERATION_ANNOTATION_CACHE_PROP, "true"));
+	}
+
+	/**
+	 * hash the content of the source files and the annotator configuration
+	 *
+	 * @param topicPath
+	 * @param files
+	 * @param props
+	 * @return
+	 */
+	private String computeKey(String topicPath, List<String> files, Properties props) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] buffer = new byte[8192];
+			for (String file : files) {
+				digest.update(file.getBytes("UTF-8"));
+				InputStream in = new FileInputStream(topicPath + file);
+				try {
+					int read;
+					while ((read = in.read(buffer)) != -1) {
+						digest.update(buffer, 0, read);
+					}
+				} finally {
+					in.close();
+				}
+			}
+
+			StringBuilder configuration = new StringBuilder();
+			configuration.append(VERSION + "\n");
+			configuration.append(ExperimentConstructor.experimentProps.getProperty(EecbConstants.DATAGENERATION_ANNOTATORS_PROP, "") + "\n");
+			configuration.append(props.getProperty("annotators", "") + "\n");
+			configuration.append(props.getProperty(Constants.PARSER_MODEL_PROP, DefaultPaths.DEFAULT_PARSER_MODEL) + "\n");
+			configuration.append(props.getProperty(Constants.PARSER_MAXLEN_PROP, "100") + "\n");
+			digest.update(configuration.toString().getBytes("UTF-8"));
+
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest()) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * fill in the annotations of the sentences from the cache
+	 *
+	 * @param anno the annotation read by EecbReader
+	 * @return false if there is no valid cache entry, in which case the annotation is not changed
+	 */
+	public boolean restore(Annotation anno) {
+		File cacheFile = new File(cachePath);
+		if (!cacheFile.exists()) return false;
+
+		List<CoreMap> sentences = anno.get(SentencesAnnotation.class);
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+
+				String[] strings = new String[in.readInt()];
+				for (int i = 0; i < strings.length; i++) {
+					strings[i] = readString(in);
+				}
+
+				int sentenceCount = in.readInt();
+				if (sentenceCount != sentences.size()) return false;
+
+				// read everything before touching the annotation, so that a corrupted entry does not leave it half filled
+				int[][][] tokenAnnotations = new int[sentenceCount][][];
+				Tree[] trees = new Tree[sentenceCount];
+				for (int sentNum = 0; sentNum < sentenceCount; sentNum++) {
+					int tokenCount = in.readInt();
+					if (tokenCount != sentences.get(sentNum).get(TokensAnnotation.class).size()) return false;
+					tokenAnnotations[sentNum] = new int[tokenCount][3];
+					for (int index = 0; index < tokenCount; index++) {
+						for (int field = 0; field < 3; field++) {
+							tokenAnnotations[sentNum][index][field] = in.readInt();
+						}
+					}
+					trees[sentNum] = Tree.valueOf(readString(in));
+				}
+
+				for (int sentNum = 0; sentNum < sentenceCount; sentNum++) {
+					CoreMap sentence = sentences.get(sentNum);
+					List<CoreLabel> tokens = sentence.get(TokensAnnotation.class);
+					for (int index = 0; index < tokens.size(); index++) {
+						CoreLabel token = tokens.get(index);
+						int[] fields = tokenAnnotations[sentNum][index];
+						if (fields[0] >= 0) token.set(PartOfSpeechAnnotation.class, strings[fields[0]]);
+						if (fields[1] >= 0) token.set(LemmaAnnotation.class, strings[fields[1]]);
+						if (fields[2] >= 0) token.set(NamedEntityTagAnnotation.class, strings[fields[2]]);
+					}
+
+					// set the tree and build the dependency graphs as the parse annotator does
+					ParserAnnotatorUtils.fillInParseAnnotations(false, sentence, trees[sentNum]);
+				}
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * write the annotations of the annotated sentences to the cache
+	 *
+	 * @param anno
+	 */
+	public void store(Annotation anno) {
+		List<CoreMap> sentences = anno.get(SentencesAnnotation.class);
+		Map<String, Integer> stringIndex = new HashMap<String, Integer>();
+		List<String> strings = new ArrayList<String>();
+
+		// build the string table
+		int[][][] tokenAnnotations = new int[sentences.size()][][];
+		for (int sentNum = 0; sentNum < sentences.size(); sentNum++) {
+			List<CoreLabel> tokens = sentences.get(sentNum).get(TokensAnnotation.class);
+			tokenAnnotations[sentNum] = new int[tokens.size()][3];
+			for (int index = 0; index < tokens.size(); index++) {
+				CoreLabel token = tokens.get(index);
+				tokenAnnotations[sentNum][index][0] = intern(token.get(PartOfSpeechAnnotation.class), stringIndex, strings);
+				tokenAnnotations[sentNum][index][1] = intern(token.get(LemmaAnnotation.class), stringIndex, strings);
+				tokenAnnotations[sentNum][index][2] = intern(token.get(NamedEntityTagAnnotation.class), stringIndex, strings);
+			}
+		}
+
+		// write to a temporary file first, so that concurrent readers never see a partial entry
+		File temporaryFile = new File(cachePath + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(strings.size());
+				for (String string : strings) {
+					writeString(out, string);
+				}
+
+				out.writeInt(sentences.size());
+				for (int sentNum = 0; sentNum < sentences.size(); sentNum++) {
+					out.writeInt(tokenAnnotations[sentNum].length);
+					for (int[] fields : tokenAnnotations[sentNum]) {
+						for (int field : fields) {
+							out.writeInt(field);
+						}
+					}
+					Tree tree = sentences.get(sentNum).get(TreeAnnotation.class);
+					writeString(out, tree.toString());
+				}
+			} finally {
+				out.close();
+			}
+
+			if (!temporaryFile.renameTo(new File(cachePath))) {
+				temporaryFile.delete();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			temporaryFile.delete();
+		}
+	}
+
+	// the index of the string in the string table, null is stored as -1
+	private int intern(String value, Map<String, Integer> stringIndex, List<String> strings) {
+		if (value == null) return -1;
+		Integer index = stringIndex.get(value);
+		if (index == null) {
+			index = strings.size();
+			stringIndex.put(value, index);
+			strings.add(value);
+		}
+		return index;
+	}
+
+	// writeUTF is limited to 64K, which is not enough for the tree of a long sentence
+	private void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+}
@@ -39,10 +39,14 @@ public class EECBMentionExtractor extends EmentionExtractor {
 
 	private String topicPath;
 	protected ArrayList<String> files;
+	
+	/** coref system properties, used to key the annotation cache */
+	private final Properties corefProps;
 
 	public EECBMentionExtractor(String topic, LexicalizedParser p, Dictionaries dict, Properties props, Semantics semantics, boolean goldonly) throws Exception {
 		super(dict, semantics, goldonly);
 		stanfordProcessor = loadStanfordProcessor(props);
+		corefProps = props;
 		baseID = 10000000 * Integer.parseInt(topic);
 		goldBaseID = 10000000 * Integer.parseInt(topic);
 		String dataPath = ExperimentConstructor.experimentCorpusPath + "/EECB1.0/data/";
@@ -84,7 +88,7 @@ public class EECBMentionExtractor extends EmentionExtractor {
 		try {
 			// call the eecbReader
 			anno = eecbReader.read(files, topic);
-			stanfordProcessor.annotate(anno);
+			annotate(anno);
 
 			List<CoreMap> sentences = anno.get(SentencesAnnotation.class);
 			for (CoreMap sentence : sentences) {
@@ -152,6 +156,25 @@ public class EECBMentionExtractor extends EmentionExtractor {
 		return document;
 	}
 	
+	/**
+	 * annotate the topic with the Stanford pipeline, reuse the cached annotations if the 
+	 * source text and the annotators are the same as the previous run
+	 * 
+	 * @param anno
+	 */
+	private void annotate(Annotation anno) {
+		if (!AnnotationCache.isEnabled()) {
+			stanfordProcessor.annotate(anno);
+			return;
+		}
+		
+		AnnotationCache cache = new AnnotationCache(topicPath, files, corefProps);
+		if (!cache.restore(anno)) {
+			stanfordProcessor.annotate(anno);
+			cache.store(anno);
+		}
+	}
+	
 	// for a mention whose first word 
 	
 	// make a copy of gold mentions
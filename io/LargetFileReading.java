@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
+import edu.oregonstate.cluster.SparseVector;
 import edu.oregonstate.experiment.ExperimentConstructor;
 import edu.oregonstate.features.FeatureFactory;
 import edu.oregonstate.search.State;
@@ -112,7 +113,10 @@ public class LargetFileReading {
 					String[] featureStringDetail = featureString.split(":");
 					int index = Integer.parseInt(featureStringDetail[0]);
 					double value = Double.parseDouble(featureStringDetail[1]);
-					feature[index] = value;
+					// the hashed lexicalized features are only read by processSparseString
+					if (index < featureSize) {
+						feature[index] = value;
+					}
 				}
 				
 			}
@@ -126,6 +130,39 @@ public class LargetFileReading {
 		return dataset;
 	}
 	
+	/**
+	 * process the records into the data, the features are kept sparse, including the hashed lexicalized features
+	 * 
+	 * @param records
+	 * @return
+	 */
+	public List<State<CorefCluster>> processSparseString(List<String> records) {
+		List<State<CorefCluster>> dataset = new ArrayList<State<CorefCluster>>();
+		
+		for (String record : records) {
+			String[] elements = record.split("\t");
+			double lossscore = Double.parseDouble(elements[0].split(":")[1]);
+			
+			// the indices are written in ascending order
+			int[] indices = new int[elements.length - 1];
+			double[] values = new double[elements.length - 1];
+			for (int i = 1; i < elements.length; i++) {
+				String featureString = elements[i];
+				int separator = featureString.indexOf(':');
+				indices[i - 1] = Integer.parseInt(featureString.substring(0, separator));
+				values[i - 1] = Double.parseDouble(featureString.substring(separator + 1));
+			}
+			
+			State<CorefCluster> state = new State<CorefCluster>();
+			state.setF1Score(lossscore);
+			state.setSparseFeatures(new SparseVector(indices, values));
+			
+			dataset.add(state);
+		}
+		
+		return dataset;
+	}
+	
 	/**
 	 * get list of records
 	 * 
@@ -1,12 +1,244 @@
 package edu.oregonstate.io;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import edu.oregonstate.classifier.svm.SVMScaling;
+import edu.oregonstate.classifier.svm.libsvm.svm;
+import edu.oregonstate.classifier.svm.libsvm.svm_model;
+import edu.oregonstate.classifier.svm.libsvm.svm_node;
+import edu.oregonstate.classifier.svm.libsvm.svm_parameter;
+import edu.oregonstate.classifier.svm.libsvm.svm_problem;
+import edu.oregonstate.cluster.SparseVector;
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.search.State;
+import edu.oregonstate.util.EecbConstants;
+import edu.stanford.nlp.dcoref.CorefCluster;
+
 /**
- * an interface to LibSVM to load the model
+ * an interface to LibSVM, builds the libsvm problem from the constraints in memory, and trains and loads the model
+ * <p>
+ * The good states of a group are labeled 2 and the bad states 1, as ProcessDataSVM did. The constraint files are read
+ * by LargetFileReading, only in the text format, and the states kept in memory can be added directly, so no libsvm text
+ * file is written and parsed again. The feature f of a state is the libsvm index f + 1. The scaling is fitted on the
+ * problem in memory and saved to the model path suffixed by .scale.
  * 
  * @author Jun Xie (xie@eecs.oregonstate.edu)
  *
  */
 public class LibSVM {
 
+	/** the labels of the good and bad states */
+	public static final double GOOD_LABEL = 2;
+	public static final double BAD_LABEL = 1;
+
+	/** the suffix of the scaling saved with the model */
+	public static final String SCALING_SUFFIX = ".scale";
+
+	/** the instances, their labels and the group they belong to */
+	private final List<svm_node[]> instances;
+	private final List<Double> labels;
+	private final List<Integer> queries;
+
+	/** the number of groups */
+	private int numberOfQueries;
+
+	public LibSVM() {
+		instances = new ArrayList<svm_node[]>();
+		labels = new ArrayList<Double>();
+		queries = new ArrayList<Integer>();
+	}
+
+	/**
+	 * add the groups of the constraint file, the binary constraint files can not be read
+	 *
+	 * @param path
+	 * @return the number of groups added
+	 */
+	public int addConstraints(String path) {
+		Properties props = ExperimentConstructor.experimentProps;
+		if (Boolean.parseBoolean(props.getProperty(EecbConstants.IO_BINARY_PROP, "false"))) {
+			throw new RuntimeException("the constraints of " + path + " can not be read in binary, set " + EecbConstants.IO_BINARY_PROP + " to false");
+		}
+
+		LargetFileReading reader = new LargetFileReading();
+		List<List<List<String>>> dataset = reader.readData(path);
+
+		List<List<String>> goodDataset = dataset.get(0);
+		List<List<String>> badDataset = dataset.get(1);
+		for (int index = 0; index < goodDataset.size(); index++) {
+			add(reader.processSparseString(goodDataset.get(index)), reader.processSparseString(badDataset.get(index)));
+		}
+		return goodDataset.size();
+	}
+
+	/**
+	 * add a group of good and bad states
+	 *
+	 * @param goodStates
+	 * @param badStates
+	 */
+	public void add(List<State<CorefCluster>> goodStates, List<State<CorefCluster>> badStates) {
+		numberOfQueries += 1;
+		for (State<CorefCluster> state : goodStates) {
+			add(state, GOOD_LABEL);
+		}
+		for (State<CorefCluster> state : badStates) {
+			add(state, BAD_LABEL);
+		}
+	}
+
+	private void add(State<CorefCluster> state, double label) {
+		instances.add(toNodes(state));
+		labels.add(label);
+		queries.add(numberOfQueries);
+	}
+
+	/**
+	 * the libsvm instance of the state, from its sparse features if it has them
+	 *
+	 * @param state
+	 * @return
+	 */
+	public static svm_node[] toNodes(State<CorefCluster> state) {
+		SparseVector sparse = state.getSparseFeatures();
+		if (sparse != null) {
+			svm_node[] x = new svm_node[sparse.size()];
+			for (int p = 0; p < x.length; p++) {
+				x[p] = node(sparse.getIndex(p) + 1, sparse.getValue(p));
+			}
+			return x;
+		}
+
+		double[] features = state.getNumericalFeatures();
+		int size = 0;
+		for (double feature : features) {
+			if (feature != 0.0) size++;
+		}
+		svm_node[] x = new svm_node[size];
+		int p = 0;
+		for (int index = 0; index < features.length; index++) {
+			if (features[index] != 0.0) x[p++] = node(index + 1, features[index]);
+		}
+		return x;
+	}
+
+	private static svm_node node(int index, double value) {
+		svm_node node = new svm_node();
+		node.index = index;
+		node.value = value;
+		return node;
+	}
+
+	public int getNumberOfQueries() {
+		return numberOfQueries;
+	}
+
+	/** the group of each instance of the problem, starting at 1 */
+	public int[] getQueries() {
+		int[] result = new int[queries.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = queries.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * the problem of the instances added so far, the instances are shared with this object
+	 *
+	 * @return
+	 */
+	public svm_problem getProblem() {
+		svm_problem problem = new svm_problem();
+		problem.l = instances.size();
+		problem.x = instances.toArray(new svm_node[problem.l][]);
+		problem.y = new double[problem.l];
+		for (int i = 0; i < problem.l; i++) {
+			problem.y[i] = labels.get(i);
+		}
+		return problem;
+	}
+
+	/**
+	 * the scaling configured by the experiment, fitted on the problem
+	 *
+	 * @param problem
+	 * @return
+	 */
+	public static SVMScaling fitScaling(svm_problem problem) {
+		Properties props = ExperimentConstructor.experimentProps;
+		SVMScaling.Mode mode = SVMScaling.Mode.valueOf(props.getProperty(EecbConstants.CLASSIFIER_SVM_SCALING, "none").toUpperCase());
+		double lower = Double.parseDouble(props.getProperty(EecbConstants.CLASSIFIER_SVM_SCALING_LOWER, "-1"));
+		double upper = Double.parseDouble(props.getProperty(EecbConstants.CLASSIFIER_SVM_SCALING_UPPER, "1"));
+		return SVMScaling.fit(problem, mode, lower, upper);
+	}
+
+	/**
+	 * scale the instances added so far, train the model and save it and its scaling
+	 *
+	 * @param parameter
+	 * @param modelPath
+	 * @return
+	 */
+	public svm_model train(svm_parameter parameter, String modelPath) {
+		svm_problem problem = getProblem();
+		SVMScaling scaling = fitScaling(problem);
+		scaling.scale(problem);
+
+		String error = svm.svm_check_parameter(problem, parameter);
+		if (error != null) {
+			throw new IllegalArgumentException(error);
+		}
+
+		svm_model model = svm.svm_train(problem, parameter);
+		try {
+			svm.svm_save_model(modelPath, model);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		scaling.write(modelPath + SCALING_SUFFIX);
+		return model;
+	}
+
+	/**
+	 * load the model
+	 *
+	 * @param modelPath
+	 * @return
+	 */
+	public static svm_model loadModel(String modelPath) {
+		try {
+			return svm.svm_load_model(modelPath);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * load the scaling saved with the model, none if it was not scaled
+	 *
+	 * @param modelPath
+	 * @return
+	 */
+	public static SVMScaling loadScaling(String modelPath) {
+		return SVMScaling.read(modelPath + SCALING_SUFFIX);
+	}
+
+	/**
+	 * the decision value of the state, scaled as the training instances were, positive for a good state
+	 *
+	 * @param model
+	 * @param scaling
+	 * @param state
+	 * @return
+	 */
+	public static double predict(svm_model model, SVMScaling scaling, State<CorefCluster> state) {
+		double[] values = new double[model.nr_class * (model.nr_class - 1) / 2];
+		svm.svm_predict_values(model, scaling.scale(toNodes(state)), values);
+		// the decision value is positive for the first label of the training problem
+		return model.label[0] == GOOD_LABEL ? values[0] : -values[0];
+	}
 	
 }
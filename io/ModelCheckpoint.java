@@ -0,0 +1,219 @@
+package edu.oregonstate.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import edu.oregonstate.classifier.Covariance;
+import edu.oregonstate.classifier.Parameter;
+
+/**
+ * versioned binary checkpoints of the learned parameter, and binary models of the weight used for testing
+ * <p>
+ * A checkpoint holds the weight, the total weight, the covariance if AROW created one, the counters, and the model
+ * index and epoch it was taken at, so the training can continue from it. A model only holds the weight. The file is
+ * written to a temporary file which is then renamed, so a job preempted while writing leaves the previous file.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class ModelCheckpoint {
+
+	/** "EECB" */
+	private static final int MAGIC = 0x45454342;
+
+	/** the version of the format, checked when read */
+	private static final int VERSION = 1;
+
+	/** the kinds of file */
+	private static final byte CHECKPOINT = 1;
+	private static final byte MODEL = 2;
+
+	private final Parameter parameter;
+	private final int modelIndex;
+	private final int epoch;
+
+	public ModelCheckpoint(Parameter parameter, int modelIndex, int epoch) {
+		this.parameter = parameter;
+		this.modelIndex = modelIndex;
+		this.epoch = epoch;
+	}
+
+	public Parameter getParameter() {
+		return parameter;
+	}
+
+	public int getModelIndex() {
+		return modelIndex;
+	}
+
+	/** the last finished epoch */
+	public int getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * write the checkpoint
+	 *
+	 * @param path
+	 */
+	public void write(String path) {
+		DataOutputStream out = null;
+		File temporary = new File(path + ".tmp");
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+			writeHeader(out, CHECKPOINT);
+			out.writeInt(modelIndex);
+			out.writeInt(epoch);
+			out.writeInt(parameter.getNoOfViolation());
+			out.writeInt(parameter.getNumberOfInstance());
+			writeArray(out, parameter.getWeight());
+			writeArray(out, parameter.getTotalWeight());
+			out.writeBoolean(parameter.hasCovariance());
+			if (parameter.hasCovariance()) {
+				parameter.getCovariance().write(out);
+			}
+			out.close();
+			out = null;
+			rename(temporary, path);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * read a checkpoint written by write
+	 *
+	 * @param path
+	 * @return
+	 */
+	public static ModelCheckpoint read(String path) {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+			readHeader(in, CHECKPOINT, path);
+			int modelIndex = in.readInt();
+			int epoch = in.readInt();
+			int noOfViolation = in.readInt();
+			int numberOfInstance = in.readInt();
+			double[] weight = readArray(in);
+			double[] totalWeight = readArray(in);
+			Covariance covariance = null;
+			if (in.readBoolean()) {
+				covariance = Covariance.read(in);
+			}
+
+			Parameter parameter = new Parameter(weight, covariance, totalWeight, noOfViolation, numberOfInstance);
+			return new ModelCheckpoint(parameter, modelIndex, epoch);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * write the weight used for testing, including the hash buckets of the lexicalized features
+	 *
+	 * @param path
+	 * @param weight
+	 */
+	public static void writeModel(String path, double[] weight) {
+		DataOutputStream out = null;
+		File temporary = new File(path + ".tmp");
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+			writeHeader(out, MODEL);
+			writeArray(out, weight);
+			out.close();
+			out = null;
+			rename(temporary, path);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			close(out);
+		}
+	}
+
+	/**
+	 * read a weight written by writeModel
+	 *
+	 * @param path
+	 * @return
+	 */
+	public static double[] readModel(String path) {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+			readHeader(in, MODEL, path);
+			return readArray(in);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			close(in);
+		}
+	}
+
+	private static void writeHeader(DataOutputStream out, byte kind) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeByte(kind);
+	}
+
+	private static void readHeader(DataInputStream in, byte kind, String path) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException(path + " is not a binary model file");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException(path + " has the unsupported version " + version);
+		}
+		if (in.readByte() != kind) {
+			throw new IOException(path + " is not a " + (kind == CHECKPOINT ? "checkpoint" : "model"));
+		}
+	}
+
+	private static void writeArray(DataOutputStream out, double[] values) throws IOException {
+		out.writeInt(values.length);
+		for (double value : values) {
+			out.writeDouble(value);
+		}
+	}
+
+	private static double[] readArray(DataInputStream in) throws IOException {
+		double[] values = new double[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readDouble();
+		}
+		return values;
+	}
+
+	// File.renameTo does not replace an existing file on every platform
+	private static void rename(File temporary, String path) throws IOException {
+		File target = new File(path);
+		if (!temporary.renameTo(target)) {
+			target.delete();
+			if (!temporary.renameTo(target)) {
+				throw new IOException("can not rename " + temporary + " to " + path);
+			}
+		}
+	}
+
+	private static void close(Closeable stream) {
+		if (stream == null) return;
+		try {
+			stream.close();
+		} catch (IOException e) {
+			// the error of the read or write itself has been thrown
+		}
+	}
+
+}
@@ -96,6 +96,17 @@ public class ResultOutput {
 		return directories;
 	}
 
+	/** print the non-zero weights of the hash buckets, which follow the offset atomic features, as index and weight */
+	public static String printHashedModel(double[] model, int offset) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = offset; i < model.length; i++) {
+			if (model[i] != 0.0) {
+				sb.append(i + "\t" + model[i] + "\n");
+			}
+		}
+		return sb.toString().trim();
+	}
+
 	/** print the JAMA matrix */
 	public static String printModel(Matrix model, String[] featureName) {
 		StringBuilder sb = new StringBuilder();
@@ -1,6 +1,6 @@
 package edu.oregonstate.method;
 
-import edu.oregonstate.dataset.CorefSystem;
+import edu.oregonstate.dataset.CorefSystemPool;
 import edu.oregonstate.experiment.ExperimentConstructor;
 import edu.oregonstate.io.ResultOutput;
 import edu.oregonstate.search.ISearch;
@@ -90,8 +90,7 @@ public class CoreferenceResolutionDecoding extends Decoding {
 		DocumentAlignment.alignDocument(document);
 
 		// do pronoun coreference resolution
-		CorefSystem cs = new CorefSystem();
-		cs.applyPronounSieve(document);
+		CorefSystemPool.applyPronounSieve(document);
 
 		// print the cluster result
 		//ResultOutput.writeTextFile(logFile, "\ngold clusters\n");
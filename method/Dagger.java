@@ -9,14 +9,15 @@ import java.util.Properties;
 
 import edu.oregonstate.classifier.IClassifier;
 import edu.oregonstate.classifier.Parameter;
-import edu.oregonstate.dataset.CorefSystem;
+import edu.oregonstate.dataset.CorefSystemPool;
 import edu.oregonstate.dataset.TopicGeneration;
 import edu.oregonstate.experiment.ExperimentConfigurationFactory;
 import edu.oregonstate.experiment.ExperimentConstructor;
-import edu.oregonstate.features.FeatureFactory;
+import edu.oregonstate.features.FeatureHasher;
 import edu.oregonstate.general.DoubleOperation;
 import edu.oregonstate.io.ResultOutput;
 import edu.oregonstate.search.ISearch;
+import edu.oregonstate.tuning.TuningFactory;
 import edu.oregonstate.util.Command;
 import edu.oregonstate.util.DocumentAlignment;
 import edu.oregonstate.util.EecbConstants;
@@ -66,6 +67,12 @@ public class Dagger implements IMethod {
 	/* loss type */
 	private final ScoreType lossType;
 
+	/* number of training topics rolled out at the same time */
+	private final int rolloutThreads;
+
+	/* whether the classifier starts from the parameter of the previous round */
+	private final boolean warmStart;
+
 	public Dagger() {
 		mProps = ExperimentConstructor.experimentProps;
 		experimentResultFolder = ExperimentConstructor.experimentFolder;
@@ -81,13 +88,15 @@ public class Dagger implements IMethod {
 		classificationMethod = mProps.getProperty(EecbConstants.CLASSIFIER_METHOD, "StructuredPerceptron");
 		conllResultPath = experimentResultFolder + "/conll";
 		lossType = ScoreType.valueOf(mProps.getProperty(EecbConstants.LOSSFUNCTION_SCORE_PROP, "Pairwise"));
+		rolloutThreads = Integer.parseInt(mProps.getProperty(EecbConstants.METHOD_DAGGER_THREADS, "" + Runtime.getRuntime().availableProcessors()));
+		warmStart = Boolean.parseBoolean(mProps.getProperty(EecbConstants.METHOD_DAGGER_WARMSTART, "true"));
 	}
 
 	/**
 	 * Learn the final weight, which can be used for 
 	 */
 	public List<Parameter> executeMethod() {
-		int length = FeatureFactory.getFeatureTemplate().size();
+		int length = FeatureHasher.dimension();
 		List<Parameter> paras = new ArrayList<Parameter>();
 		double[] weight = new double[length];
 		Parameter para = new Parameter(weight);
@@ -95,6 +104,8 @@ public class Dagger implements IMethod {
 		// 0: the true loss function
 		// 1 - numberOfFunctions : the learned function
 		for (int j = 0; j <= numberOfFunctions; j++) {
+			long startTime = System.currentTimeMillis();
+			
 			// training
 			ResultOutput.writeTextFile(logFile, "\n\n(Dagger) Training Model : " + j + "\n\n");
 			ResultOutput.printParameter(para, logFile);
@@ -107,6 +118,20 @@ public class Dagger implements IMethod {
 
 			// add returned parameter to the final parameters
 			paras.add(para.makeCopy());
+			
+			long roundTime = System.currentTimeMillis() - startTime;
+			ResultOutput.writeTextFile(logFile, "\n\n(Dagger) Round " + j + " takes " + roundTime + " ms\n\n");
+		}
+
+		// choose the best model of the rounds on the development set
+		if (Boolean.parseBoolean(mProps.getProperty(EecbConstants.TUNING_SELECT, "false"))) {
+			List<String> names = new ArrayList<String>();
+			List<double[]> weights = new ArrayList<double[]>();
+			for (int j = 0; j < paras.size(); j++) {
+				names.add("model" + j);
+				weights.add(paras.get(j).generateWeightForTesting());
+			}
+			new TuningFactory().selectModel(names, weights);
 		}
 
 		assert paras.size() == numberOfFunctions;
@@ -126,6 +151,7 @@ public class Dagger implements IMethod {
 		ISearch search = EecbConstructor.createSearchMethod(searchMethod);
 		String phase = "training-" + j;
 		boolean postProcess = ExperimentConstructor.postProcess;
+		long startTime = System.currentTimeMillis();
 		// generate training data for classification
 		if (j == 0) {
 			Document corpus = new Document();
@@ -147,8 +173,7 @@ public class Dagger implements IMethod {
 				DocumentAlignment.alignDocument(document);
 			
 				// apply the pronoun sieve
-				CorefSystem cs = new CorefSystem();
-				cs.applyPronounSieve(document);
+				CorefSystemPool.applyPronounSieve(document);
 
 				// whether post-process the document
 				if (postProcess) {
@@ -169,16 +194,30 @@ public class Dagger implements IMethod {
 
 		} else {
 
-			// use average model to collect more data
-			
+			// use average model to collect more data, the constraints of the round are written to the new file phase
+			RolloutEngine engine = new RolloutEngine(trainingTopics, searchMethod, rolloutThreads);
+			int numberOfGroups = engine.rollout(para.generateWeightForTesting(), phase, 0.0);
+			ResultOutput.writeTextFile(logFile, "\n(Dagger) Training Model : " + j + "; new constraint groups : " + numberOfGroups + "\n");
 		}
+		long collectionTime = System.currentTimeMillis() - startTime;
 
 		// train the model using the specified classifier for several iterations, using small learning rate
+		// the data of all the rounds are aggregated, and the classifier continues from the previous round
+		startTime = System.currentTimeMillis();
 		IClassifier classifier = EecbConstructor.createClassifier(classificationMethod);
 		List<String> filePaths = getPaths();
 		ResultOutput.writeTextFile(experimentResultFolder + "/searchstep", "" + filePaths.size());
 		ResultOutput.writeTextFile(logFile, "the total number of training files : " + filePaths.size());
-		Parameter returnPara = classifier.train(filePaths, j);
+		Parameter returnPara;
+		if (j > 0 && warmStart) {
+			returnPara = classifier.train(filePaths, para, j);
+		} else {
+			returnPara = classifier.train(filePaths, j);
+		}
+		long trainingTime = System.currentTimeMillis() - startTime;
+		
+		// wall-clock time of the data collection and the classifier of the round
+		ResultOutput.writeTextFile(experimentResultFolder + "/dagger-time.csv", j + "\t" + collectionTime + "\t" + trainingTime);
 		return returnPara.makeCopy();
 	}
 
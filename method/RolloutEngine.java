@@ -0,0 +1,114 @@
+package edu.oregonstate.method;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.io.LargetFileReading;
+import edu.oregonstate.io.ResultOutput;
+import edu.oregonstate.search.ISearch;
+import edu.oregonstate.util.Command;
+import edu.oregonstate.util.EecbConstructor;
+import edu.stanford.nlp.dcoref.Document;
+
+/**
+ * roll out the learned policy on the training topics to collect the constraints of a Dagger round
+ * <p>
+ * Each topic is searched with the learned weight by its own search object on a fixed thread pool. Whenever the
+ * search does not choose the state with the best loss, the constraints of the step are written to the file of the
+ * phase in the data directory of the topic, so the data of a round is appended as a new file, next to the data of
+ * the previous rounds.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class RolloutEngine {
+
+	/* topics to roll out */
+	private final String[] mTopics;
+
+	/* search method */
+	private final String mSearchMethod;
+
+	/* number of topics searched at the same time */
+	private final int mThreads;
+
+	/* experiment result */
+	private final String experimentResultFolder;
+
+	/* serialized output */
+	private final String serializeOutput;
+
+	public RolloutEngine(String[] topics, String searchMethod, int threads) {
+		mTopics = topics;
+		mSearchMethod = searchMethod;
+		mThreads = Math.max(1, threads);
+		experimentResultFolder = ExperimentConstructor.experimentFolder;
+		serializeOutput = experimentResultFolder + "/document";
+	}
+
+	/**
+	 * search all topics with the weight and write the constraints to the phase
+	 *
+	 * @param weight the learned weight, only read by the searches
+	 * @param phase the name of the data file, for example training-1
+	 * @param stoppingRate
+	 * @return the number of new constraint groups
+	 */
+	public int rollout(final double[] weight, final String phase, final double stoppingRate) {
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (final String topic : mTopics) {
+			tasks.add(new Callable<Integer>() {
+				public Integer call() {
+					return rollout(topic, weight, phase, stoppingRate);
+				}
+			});
+		}
+
+		int numberOfGroups = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(mThreads, Math.max(1, tasks.size())));
+		try {
+			for (Future<Integer> future : executor.invokeAll(tasks)) {
+				numberOfGroups += future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return numberOfGroups;
+	}
+
+	// search one topic, the files written by the search are specific to the topic
+	private int rollout(String topic, double[] weight, String phase, double stoppingRate) {
+		String logFile = experimentResultFolder + "/" + topic + "/logfile";
+		ResultOutput.writeTextFile(logFile, "\n(Dagger) Rollout : " + phase + "; Document : " + topic + "\n");
+		Document document = ResultOutput.deserialize(topic, serializeOutput, false);
+
+		String trainingDataPath = experimentResultFolder + "/" + document.getID() + "/data";
+		Command.mkdir(trainingDataPath);
+
+		ISearch search = EecbConstructor.createSearchMethod(mSearchMethod);
+		search.testingBySearch(document, weight, phase, true, stoppingRate);
+
+		// the search only creates the file if it made a mistake
+		String path = trainingDataPath + "/" + phase;
+		int numberOfGroups = 0;
+		if (new File(path).exists()) {
+			numberOfGroups = new LargetFileReading().readData(path).get(0).size();
+		}
+		ResultOutput.writeTextFile(logFile, "the number of new constraint groups : " + numberOfGroups);
+		return numberOfGroups;
+	}
+
+}
@@ -1,7 +1,8 @@
 package edu.oregonstate.score;
 
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.List;
@@ -44,60 +45,165 @@ public class ScorerCEAF extends CorefScorer {
 
 	// calculate the simialrity	
 	public double similarity(CorefCluster responseCluster, CorefCluster referenceCluster) {
-		Set<Mention> responseMentions = responseCluster.corefMentions;
-		Set<Mention> referenceMentions = referenceCluster.corefMentions;
-		List<Integer> responseMentionIDs = new ArrayList<Integer>();
-		List<Integer> referenceMentionIDs = new ArrayList<Integer>();
-		
-		for (Mention mention : responseMentions) {
-			responseMentionIDs.add(mention.mentionID);
-		}
-		for (Mention mention : referenceMentions ) {
+		Set<Integer> referenceMentionIDs = new HashSet<Integer>();
+		for (Mention mention : referenceCluster.corefMentions) {
 			referenceMentionIDs.add(mention.mentionID);
 		}
-		int responseSize = responseMentionIDs.size();
-		int referenceSize = referenceMentionIDs.size();	
-		responseMentionIDs.retainAll(referenceMentionIDs);
-		int overlap = responseMentionIDs.size();
+		
+		int overlap = 0;
+		for (Mention mention : responseCluster.corefMentions) {
+			if (referenceMentionIDs.contains(mention.mentionID)) {
+				overlap += 1;
+			}
+		}
+		
+		return similarity(overlap, responseCluster.corefMentions.size(), referenceCluster.corefMentions.size());
+	}
+	
+	// the similarity given the overlap between the two clusters and their sizes
+	private double similarity(int overlap, int responseSize, int referenceSize) {
 		return (2 * overlap ) / (responseSize * referenceSize); 			
 	} 
 
-	// calculate the cost function
+	/**
+	 * calculate the cost function
+	 * 
+	 * Only overlapped clusters can have a non-zero similarity, so the alignment is computed on the overlap graph
+	 * between response and reference clusters. The graph is built from a mention to reference cluster index and 
+	 * split into connected components, each component is aligned by its own Hungarian run. Components with only
+	 * one response and one reference cluster are aligned directly, and clusters without any overlap contribute nothing.
+	 * 
+	 * @param reference
+	 * @param response
+	 * @return
+	 */
 	public double scoreHelper(Map<Integer, CorefCluster> reference, Map<Integer, CorefCluster> response) {
 		double cost = 0.0;
 		if (reference.size() == 0 || response.size() == 0) return 0.0;
-		int size = reference.size() >= response.size() ? reference.size() : response.size();
+		
+		List<CorefCluster> responseClusters = new ArrayList<CorefCluster>(response.values());
+		List<CorefCluster> referenceClusters = new ArrayList<CorefCluster>(reference.values());
+		int responseSize = responseClusters.size();
+		int referenceSize = referenceClusters.size();
+		
+		// mention id to the index of its reference cluster
+		Map<Integer, Integer> mentionToReference = new HashMap<Integer, Integer>();
+		for (int j = 0; j < referenceSize; j++) {
+			for (Mention mention : referenceClusters.get(j).corefMentions) {
+				mentionToReference.put(mention.mentionID, j);
+			}
+		}
+		
+		// the overlapped edges, response nodes are numbered first, and then the reference nodes
+		List<int[]> edges = new ArrayList<int[]>();
+		int[] parents = new int[responseSize + referenceSize];
+		for (int node = 0; node < parents.length; node++) {
+			parents[node] = node;
+		}
+		for (int i = 0; i < responseSize; i++) {
+			Map<Integer, Integer> overlaps = new HashMap<Integer, Integer>();
+			for (Mention mention : responseClusters.get(i).corefMentions) {
+				Integer j = mentionToReference.get(mention.mentionID);
+				if (j == null) continue;
+				Integer overlap = overlaps.get(j);
+				overlaps.put(j, overlap == null ? 1 : overlap + 1);
+			}
+			
+			for (Integer j : overlaps.keySet()) {
+				edges.add(new int[] {i, j, overlaps.get(j)});
+				union(parents, i, responseSize + j);
+			}
+		}
+		
+		// group the edges by their connected component
+		Map<Integer, List<int[]>> components = new HashMap<Integer, List<int[]>>();
+		for (int[] edge : edges) {
+			int root = find(parents, edge[0]);
+			List<int[]> componentEdges = components.get(root);
+			if (componentEdges == null) {
+				componentEdges = new ArrayList<int[]>();
+				components.put(root, componentEdges);
+			}
+			componentEdges.add(edge);
+		}
+		
+		for (List<int[]> componentEdges : components.values()) {
+			cost += alignComponent(componentEdges, responseClusters, referenceClusters);
+		}
+		
+  		return cost;
+	}
+	
+	/**
+	 * align one connected component of the overlap graph
+	 * 
+	 * @param componentEdges
+	 * @param responseClusters
+	 * @param referenceClusters
+	 * @return
+	 */
+	private double alignComponent(List<int[]> componentEdges, List<CorefCluster> responseClusters, List<CorefCluster> referenceClusters) {
+		// fast path, one response cluster only overlaps with one reference cluster
+		if (componentEdges.size() == 1) {
+			int[] edge = componentEdges.get(0);
+			return edgeSimilarity(edge, responseClusters, referenceClusters);
+		}
+		
+		// local index of the clusters in this component
+		Map<Integer, Integer> responseIndex = new HashMap<Integer, Integer>();
+		Map<Integer, Integer> referenceIndex = new HashMap<Integer, Integer>();
+		for (int[] edge : componentEdges) {
+			if (!responseIndex.containsKey(edge[0])) responseIndex.put(edge[0], responseIndex.size());
+			if (!referenceIndex.containsKey(edge[1])) referenceIndex.put(edge[1], referenceIndex.size());
+		}
+		
+		int size = Math.max(responseIndex.size(), referenceIndex.size());
 		double[][] scores = new double[size][size];
 		double max = 1.0;
 		for (double[] score : scores) {
 			Arrays.fill(score, max);
 		}
-		Set<Integer> responseSet = response.keySet();
-		Iterator<Integer> responseIt = responseSet.iterator();
-		int i = 0;
-		int j = 0;
-		while (responseIt.hasNext()) {
-			CorefCluster responseCluster = response.get(responseIt.next());
-			j = 0;
-			Set<Integer> referenceSet = reference.keySet();
-			Iterator<Integer> referenceIt = referenceSet.iterator();
-			while (referenceIt.hasNext()) {
-				CorefCluster referenceCluster = reference.get(referenceIt.next());
-				scores[j][i] = max - similarity(responseCluster, referenceCluster); // how to calculate the similarity 
-				j++;
-			} 
-			i++;
+		for (int[] edge : componentEdges) {
+			int i = responseIndex.get(edge[0]);
+			int j = referenceIndex.get(edge[1]);
+			scores[j][i] = max - edgeSimilarity(edge, responseClusters, referenceClusters);
 		}
 		
+		double cost = 0.0;
 		AssignmentProblem ap = new AssignmentProblem(scores);
 		int[][] solution = ap.solve(new HungarianAlgorithm());
-		for (i = 0; i < solution.length; i++) {
-    			if (solution[i][0] >= 0) {
-      				cost += max - scores[solution[i][0]][i]; //how to calculate this 
-    			}
-  		}		
+		for (int i = 0; i < solution.length; i++) {
+			if (solution[i][0] >= 0) {
+				cost += max - scores[solution[i][0]][i];
+			}
+		}
 		
-  		return cost;
+		return cost;
+	}
+	
+	// the similarity of one overlapped edge, {response index, reference index, overlap}
+	private double edgeSimilarity(int[] edge, List<CorefCluster> responseClusters, List<CorefCluster> referenceClusters) {
+		int responseSize = responseClusters.get(edge[0]).corefMentions.size();
+		int referenceSize = referenceClusters.get(edge[1]).corefMentions.size();
+		return similarity(edge[2], responseSize, referenceSize);
+	}
+	
+	// find the root of the node, with path halving
+	private int find(int[] parents, int node) {
+		while (parents[node] != node) {
+			parents[node] = parents[parents[node]];
+			node = parents[node];
+		}
+		return node;
+	}
+	
+	// merge the components of the two nodes
+	private void union(int[] parents, int node1, int node2) {
+		int root1 = find(parents, node1);
+		int root2 = find(parents, node2);
+		if (root1 != root2) {
+			parents[root1] = root2;
+		}
 	}
 	
 	/**
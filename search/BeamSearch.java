@@ -9,16 +9,19 @@ import java.util.HashSet;
 import java.util.Map;
 
 import edu.oregonstate.classifier.Parameter;
+import edu.oregonstate.costfunction.CandidateMatrix;
 import edu.oregonstate.costfunction.ICostFunction;
 import edu.oregonstate.experiment.ExperimentConstructor;
 import edu.oregonstate.features.FeatureFactory;
 import edu.oregonstate.features.FeatureVectorGenerator;
 import edu.oregonstate.general.DoubleOperation;
 import edu.oregonstate.general.FixedSizePriorityQueue;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.io.LargeFileWriting;
 import edu.oregonstate.io.ResultOutput;
 import edu.oregonstate.lossfunction.ILossFunction;
 import edu.oregonstate.score.ScorerCEAF;
+import edu.oregonstate.util.DocumentMentionIndex;
 import edu.oregonstate.util.EecbConstants;
 import edu.oregonstate.util.EecbConstructor;
 import edu.stanford.nlp.dcoref.Constants;
@@ -286,11 +289,12 @@ public class BeamSearch implements ISearch {
      */
     private void generateStateDocument(Document documentState, State<CorefCluster> state) {
     	documentState.corefClusters = state.getState();
+    	DocumentMentionIndex index = DocumentMentionIndex.of(documentState);
     	for (Integer id : documentState.corefClusters.keySet()) {
     		CorefCluster cluster = documentState.corefClusters.get(id);
     		for (Mention m : cluster.corefMentions) {
     			int mentionID = m.mentionID;
-    			Mention correspondingMention = documentState.allPredictedMentions.get(mentionID);
+    			Mention correspondingMention = index.getPredictedMention(mentionID);
     			int clusterid = id;
     			correspondingMention.corefClusterID = clusterid;
     		}
@@ -310,27 +314,16 @@ public class BeamSearch implements ISearch {
     		cluster.regenerateFeature();
     	}
     }
-    
-    /**
-     * 
-     * @param initial
-     * @param action
-     * @param document
-     * @param para
-     */
-    private void calculateCostScore(State<CorefCluster> initial, String action, Document document, Parameter para){
-    	calculateCostScore(initial, action, document, para.getWeight());
-    }
 	
-	/** 
-	 * calculate cost score according to the weight and feature.
-	 * The cost function model is set at the beginning of the experiment
+	/**
+	 * apply the action to the state and set its fields except the cost score, which does not depend on the weight
 	 * 
 	 * @param initial
 	 * @param action
-	 * @return
+	 * @param document
+	 * @return the features of the action
 	 */
-	private void calculateCostScore(State<CorefCluster> initial, String action, Document document, double[] weight) {
+	private Counter<String> generateCandidateState(State<CorefCluster> initial, String action, Document document) {
 		// update the document and generate new features
 		
 		String[] ids = action.split("-");
@@ -356,9 +349,6 @@ public class BeamSearch implements ISearch {
 			//features = FeatureFactory.getFeatures(document, initial, dictionaries);
 		}
 		
-		// calculate the cost function for the state
-		double costScore = costFunction.calculateCostFunction(features, weight);
-		
 		// set the fields of the state
 		String actionDescription = iCluster.toString() + " <-- " + jCluster.toString() + "\n" +
 									ResultOutput.buildCounterFeatureString(iCluster.predictedCentroid) + "\n" +
@@ -366,9 +356,9 @@ public class BeamSearch implements ISearch {
 		initial.setID(action);
 		initial.setActionDescription(actionDescription);
 		initial.setFeatures(features);
-		initial.setCostScore(costScore);
 		initial.setToClusterPredictedCentroid(iCluster.predictedCentroid);
 		initial.setFromClusterPredictedCentroid(jCluster.predictedCentroid);
+		return features;
 	}
 	
 	/**
@@ -423,6 +413,11 @@ public class BeamSearch implements ISearch {
 				Set<String> actions = generateCandidateSets(state, logfile);
 				Map<String, State<CorefCluster>> states = new HashMap<String, State<CorefCluster>>();
 				
+				// the candidates in the order of the actions, the features of the merges are scored together
+				List<State<CorefCluster>> candidates = new ArrayList<State<CorefCluster>>(actions.size());
+				List<String> candidateActions = new ArrayList<String>(actions.size());
+				CandidateMatrix candidateFeatures = new CandidateMatrix(actions.size());
+				int[] rows = new int[actions.size()];
 				for (String action : actions) {
 					// make a copy of state
 					State<CorefCluster> initial = new State<CorefCluster>();
@@ -435,17 +430,31 @@ public class BeamSearch implements ISearch {
 //						initial.setCostScore(weight[featureTemplate.size() - 1]);
 //						Counter<String> features = buildHaltFeature();
 //						initial.setFeatures(features);
+						rows[candidates.size()] = -1;
 					} else {
 						// NOT HALT ACTION
 						for (Integer key : state.getState().keySet()) {
 							initial.add(key, state.getState().get(key));
 						}
 
-						calculateCostScore(initial, action, document, para);
+						rows[candidates.size()] = candidateFeatures.add(generateCandidateState(initial, action, document));
 						stateScore = lossFunction.calculateLossFunction(document, initial);
 						initial.setScore(stateScore);
 					}
 					
+					candidates.add(initial);
+					candidateActions.add(action);
+				}
+				
+				// score all merges at once
+				double[] mergeCosts = new double[candidateFeatures.rows()];
+				costFunction.calculateCostFunction(candidateFeatures, para.getWeight(), mergeCosts);
+				for (int c = 0; c < candidates.size(); c++) {
+					State<CorefCluster> initial = candidates.get(c);
+					if (rows[c] >= 0) {
+						initial.setCostScore(mergeCosts[rows[c]]);
+					}
+					
 					// if do online training, then the state in the beam should be the highest heuristic value
 					// if not, then the state in the beam should be the highest loss score
 					if (onlineTraining) {
@@ -454,7 +463,7 @@ public class BeamSearch implements ISearch {
 						beam.add(initial, initial.getScore()[0]);
 					}
 					
-					states.put(action, initial);
+					states.put(candidateActions.get(c), initial);
 				}
 				
 				// online or offline training
@@ -560,7 +569,7 @@ public class BeamSearch implements ISearch {
 			}
 		}
 		
-		return new Parameter(weight, null, totalWeight, violatedConstraint, numberOfInstance);
+		return new Parameter(weight, (double[][]) null, totalWeight, violatedConstraint, numberOfInstance);
 	}
 	
 	// sum the weight out
@@ -670,6 +679,11 @@ public class BeamSearch implements ISearch {
 				Map<String, State<CorefCluster>> states = new HashMap<String, State<CorefCluster>>();
 				String localBestLossStateID = "";
 				double localBestLossStateScore = 0.0;
+				
+				// the candidates in the order of the actions, the features of the merges are scored together
+				List<State<CorefCluster>> candidates = new ArrayList<State<CorefCluster>>(actions.size());
+				CandidateMatrix candidateFeatures = new CandidateMatrix(actions.size());
+				int[] rows = new int[actions.size()];
 				for (String action : actions) {
 					State<CorefCluster> initial = new State<CorefCluster>();
 					if (action.equals("HALT")) {
@@ -677,12 +691,13 @@ public class BeamSearch implements ISearch {
 						initial.setCostScore(weight[featureTemplate.size() - 1]);
 						Counter<String> features = buildHaltFeature();
 						initial.setFeatures(features);
+						rows[candidates.size()] = -1;
 					} else {
 						for (Integer key : state.getState().keySet()) {
 							initial.add(key, state.getState().get(key));
 						}
 
-						calculateCostScore(initial, action, document, weight);
+						rows[candidates.size()] = candidateFeatures.add(generateCandidateState(initial, action, document));
 
 						/** the best loss score uncovered during search*/
 						double[] stateScore = lossFunction.calculateLossFunction(document, initial);
@@ -698,15 +713,31 @@ public class BeamSearch implements ISearch {
 						}
 					}
 					
-					// deal with tie
-					// if violated the constraint, not add into the beam
-					//boolean conformHardConstraint = satisfyHardConstraint(initial);
-					//if (conformHardConstraint) {
-					beam.add(initial, initial.getCostScore());
-					//}
+					candidates.add(initial);
 	            	states.put(action, initial);
 				}
 				
+				// score all merges at once
+				double[] mergeCosts = new double[candidateFeatures.rows()];
+				costFunction.calculateCostFunction(candidateFeatures, weight, mergeCosts);
+				double[] costs = new double[candidates.size()];
+				for (int c = 0; c < candidates.size(); c++) {
+					if (rows[c] >= 0) {
+						candidates.get(c).setCostScore(mergeCosts[rows[c]]);
+					}
+					costs[c] = candidates.get(c).getCostScore();
+				}
+				
+				// only the best beam width candidates can stay in the beam, they are added in the order of the actions
+				// if violated the constraint, not add into the beam
+				//boolean conformHardConstraint = satisfyHardConstraint(initial);
+				int[] selected = new int[Math.min(mBeamWidth, candidates.size())];
+				int numberOfSelected = VectorKernel.topK(costs, costs.length, mBeamWidth, selected);
+				for (int c = 0; c < numberOfSelected; c++) {
+					State<CorefCluster> initial = candidates.get(selected[c]);
+					beam.add(initial, initial.getCostScore());
+				}
+				
 				if (beam.size() == 0) {
 					break;
 				}
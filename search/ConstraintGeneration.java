@@ -6,7 +6,9 @@ import java.util.Map;
 import java.util.Properties;
 
 import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.cluster.SparseVector;
 import edu.oregonstate.features.FeatureFactory;
+import edu.oregonstate.features.FeatureHasher;
 import edu.stanford.nlp.stats.Counter;
 import edu.oregonstate.general.FixedSizePriorityQueue;
 import edu.oregonstate.io.LargeFileWriting;
@@ -173,6 +175,16 @@ public class ConstraintGeneration {
 	 * @return
 	 */
 	public String buildString(Counter<String> features) {
+		// the atomic features followed by the hashed lexicalized features
+		if (FeatureHasher.isEnabled()) {
+			SparseVector vector = FeatureHasher.toSparseVector(features);
+			StringBuilder sb = new StringBuilder();
+			for (int p = 0; p < vector.size(); p++) {
+				sb.append(vector.getIndex(p) + ":" + vector.getValue(p) + "\t");
+			}
+			return sb.toString().trim();
+		}
+		
 		List<String> featureTemplate = FeatureFactory.getFeatureTemplate();
 		StringBuilder sb = new StringBuilder();
 		
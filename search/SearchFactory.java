@@ -1,5 +1,6 @@
 package edu.oregonstate.search;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
@@ -8,7 +9,9 @@ import edu.oregonstate.classifier.Parameter;
 import edu.oregonstate.dataset.TopicGeneration;
 import edu.oregonstate.experiment.ExperimentConstructor;
 import edu.oregonstate.features.FeatureFactory;
+import edu.oregonstate.features.FeatureHasher;
 import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.io.ModelCheckpoint;
 import edu.oregonstate.io.ResultOutput;
 import edu.oregonstate.method.CoreferenceResolutionDecoding;
 import edu.oregonstate.util.Command;
@@ -129,8 +132,14 @@ public class SearchFactory extends ExperimentConstructor {
 			// output the final weight, use the average weight
 			double[] averageWeight = DoubleOperation.divide(para.getTotalWeight(), para.getNoOfViolation());
 			String outputFile = experimentFolder + "/model/model" + phaseIndex;
-			String outputString = ResultOutput.printStructredModel(averageWeight, FeatureFactory.getFeatureTemplate());
+			List<String> featureTemplate = FeatureFactory.getFeatureTemplate();
+			String outputString = ResultOutput.printStructredModel(averageWeight, featureTemplate);
 			ResultOutput.writeTextFile(outputFile, outputString);
+			if (averageWeight.length > featureTemplate.size()) {
+				ResultOutput.writeTextFile(outputFile + "-hashed", ResultOutput.printHashedModel(averageWeight, featureTemplate.size()));
+			}
+			// the binary model is read back instead of parsing the text model
+			ModelCheckpoint.writeModel(outputFile + ".bin", averageWeight);
 			
 		} else {
 			boolean outputFeature = false;
@@ -141,13 +150,33 @@ public class SearchFactory extends ExperimentConstructor {
 			}
 			
 			String path = resultPath + "/model/model" + modelIndex;
-			List<String> para = IOUtils.linesFromFile(path);
-			double[] weight = new double[para.size()];
-			for (int index = 0; index < para.size(); index++) {
-				String featureWeight = para.get(index);
-				String[] featureElements = featureWeight.split("\t");
-				double value = Double.parseDouble(featureElements[1]);
-				weight[index] = value;
+			File binaryModel = new File(path + ".bin");
+			double[] weight;
+			if (binaryModel.exists()) {
+				weight = ModelCheckpoint.readModel(binaryModel.getPath());
+				if (!FeatureHasher.isEnabled()) {
+					weight = Arrays.copyOf(weight, FeatureFactory.getFeatureTemplate().size());
+				}
+			} else {
+				List<String> para = IOUtils.linesFromFile(path);
+				weight = new double[para.size()];
+				for (int index = 0; index < para.size(); index++) {
+					String featureWeight = para.get(index);
+					String[] featureElements = featureWeight.split("\t");
+					double value = Double.parseDouble(featureElements[1]);
+					weight[index] = value;
+				}
+			
+				// the weights of the hash buckets of the lexicalized features
+				File hashedModel = new File(path + "-hashed");
+				if (FeatureHasher.isEnabled() && hashedModel.exists()) {
+					weight = Arrays.copyOf(weight, FeatureHasher.dimension());
+					for (String featureWeight : IOUtils.linesFromFile(hashedModel.getPath())) {
+						if (featureWeight.trim().isEmpty()) continue;
+						String[] featureElements = featureWeight.split("\t");
+						weight[Integer.parseInt(featureElements[0])] = Double.parseDouble(featureElements[1]);
+					}
+				}
 			}
 			
 			//
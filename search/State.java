@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
 
+import edu.oregonstate.cluster.SparseVector;
 import edu.oregonstate.features.FeatureFactory;
 import edu.stanford.nlp.stats.ClassicCounter;
 import edu.stanford.nlp.stats.Counter;
@@ -35,6 +36,9 @@ public class State<T> implements Serializable {
 	/* numerical feature used to calculate the heuristic score */
 	private double[] numericalFeatures;
 	
+	/* sparse features, including the hashed lexicalized features, used by the Sparse training methods */
+	private SparseVector sparseFeatures;
+	
 	/** metric score, respectively F1, Precision and Recall */
 	private double[] mMetricScore;
 	
@@ -83,6 +87,16 @@ public class State<T> implements Serializable {
 		return numericalFeatures;
 	}
 	
+	/* set sparse features */
+	public void setSparseFeatures(SparseVector features) {
+		sparseFeatures = features;
+	}
+	
+	/* get sparse features */
+	public SparseVector getSparseFeatures() {
+		return sparseFeatures;
+	}
+	
 	/* set metric F1 score */
 	public void setF1Score(double score) {
 		F1score = score;
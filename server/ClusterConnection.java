@@ -1,5 +1,6 @@
 package edu.oregonstate.server;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -9,6 +10,7 @@ import org.apache.log4j.Logger;
 
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 
 /**
@@ -102,6 +104,49 @@ public class ClusterConnection {
 		Thread.sleep(COMMAND_TIME_INTERVAL);
 	}
 
+	/**
+	 * execute the command on a channel of its own and block until it finishes, several threads can run commands on
+	 * the same connection at the same time
+	 * 
+	 * @param cmd
+	 * @return the exit status of the command
+	 * @throws JSchException if the channel can not be opened, the command has not been started then
+	 * @throws IOException if the output can not be read
+	 */
+	public int execCommandAndWait(String cmd) throws JSchException, IOException, InterruptedException {
+		ChannelExec channel = (ChannelExec) session.openChannel("exec");
+		try {
+			channel.setCommand(cmd);
+			channel.setInputStream(null);
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+			channel.setErrStream(err);
+			InputStream in = channel.getInputStream();
+			channel.connect();
+
+			// the blocking read returns -1 when the command closed its output
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] tmp = new byte[1024];
+			int i;
+			while ((i = in.read(tmp, 0, tmp.length)) >= 0) {
+				out.write(tmp, 0, i);
+			}
+
+			// the exit status follows the end of the output
+			while (!channel.isClosed()) {
+				Thread.sleep(10);
+			}
+			int status = channel.getExitStatus();
+			log.info("Command '" + cmd + "' exited with " + status + "\nstdout:\n" + out.toString().trim() + "\nstderr:\n" + err.toString().trim());
+			return status;
+		} finally {
+			channel.disconnect();
+		}
+	}
+
+	public boolean isConnected() {
+		return session != null && session.isConnected();
+	}
+
 	public String getRespond(InputStream is) throws IOException {
 		StringBuffer buffer = new StringBuffer();
 		byte[] tmp = new byte[1024];
@@ -122,6 +167,10 @@ public class ClusterConnection {
 		return stderr;
 	}
 
+	public int getExitStatus() {
+		return exitStatus;
+	}
+
 	public List<Integer> queryJobIds() throws Exception {
 		execCommand("qstat -u xie");
 		return JobState.parseJobIds(stdout);
@@ -0,0 +1,25 @@
+package edu.oregonstate.server;
+
+/**
+ * the place where the jobs of the pipeline run, for example the processes of the local machine or the SGE cluster
+ *
+ * A backend is only asked to start a job when all the jobs it depends on have finished, so it does not need to know
+ * the dependencies. It must not block in start, and it reports the exit status of the job to the callback when the
+ * job finishes, from any thread.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public interface JobBackend {
+
+	/** notified when a job finishes, exit status 0 means success */
+	public interface Callback {
+		public void finished(PipelineJob job, int exitStatus);
+	}
+
+	// run the job, and notify the callback when it finishes
+	public void start(PipelineJob job, Callback callback);
+
+	// release the resources of the backend after all jobs finished
+	public void shutdown();
+}
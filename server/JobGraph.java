@@ -0,0 +1,155 @@
+package edu.oregonstate.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.oregonstate.server.PipelineJob.Status;
+
+/**
+ * the dependency graph of the jobs of the pipeline
+ *
+ * The jobs are added phase by phase in the order of the procedures, and a job is started by the backend as soon as
+ * the jobs it depends on have finished, from the callback of the last of them. Nothing waits for a whole phase: the
+ * job of a topic only depends on the job of the same topic in the previous phase, for example the search with true
+ * loss function of topic 6 only needs the data of topic 6. A job which does not match a topic of the previous phase,
+ * such as learn, depends on all jobs of the previous phase and on every earlier job that no job depends on yet, so it
+ * still runs after all the jobs which ran before it in the sequential pipeline. When a job fails, the jobs depending
+ * on it are skipped.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class JobGraph implements JobBackend.Callback {
+
+	private final JobBackend mBackend;
+
+	private final List<PipelineJob> mJobs;
+
+	// the number of jobs which are not finished, failed or skipped
+	private int mUnfinished;
+
+	public JobGraph(JobBackend backend) {
+		mBackend = backend;
+		mJobs = new ArrayList<PipelineJob>();
+	}
+
+	/**
+	 * add a job, it starts as soon as its dependencies finish
+	 *
+	 * @param stage the phase and the procedure of the job
+	 * @param topic the topic of the job, null if the job processes all topics
+	 * @param jobConfigPrefix
+	 * @param outputPath
+	 * @param errorPath
+	 * @param previousIDs the jobs of the previous phase
+	 * @return the id of the job
+	 */
+	public synchronized int add(String stage, String topic, String jobConfigPrefix, String outputPath, String errorPath, List<Integer> previousIDs) {
+		List<PipelineJob> dependencies = dependencies(stage, topic, previousIDs);
+		PipelineJob job = new PipelineJob(mJobs.size(), stage, topic, jobConfigPrefix, outputPath, errorPath, dependencies);
+		mJobs.add(job);
+		mUnfinished++;
+
+		boolean failed = false;
+		for (PipelineJob dependency : dependencies) {
+			dependency.dependents.add(job);
+			if (dependency.status == Status.FAILED || dependency.status == Status.SKIPPED) {
+				failed = true;
+			} else if (dependency.status != Status.SUCCEEDED) {
+				job.remaining++;
+			}
+		}
+
+		if (failed) {
+			skip(job);
+		} else if (job.remaining == 0) {
+			start(job);
+		}
+		return job.getID();
+	}
+
+	// the same topic of the previous phase, otherwise the previous phase and the jobs nothing depends on
+	private List<PipelineJob> dependencies(String stage, String topic, List<Integer> previousIDs) {
+		List<PipelineJob> dependencies = new ArrayList<PipelineJob>();
+		if (topic != null) {
+			for (Integer id : previousIDs) {
+				PipelineJob previous = mJobs.get(id);
+				if (topic.equals(previous.getTopic())) {
+					dependencies.add(previous);
+				}
+			}
+			if (!dependencies.isEmpty()) return dependencies;
+		}
+
+		for (Integer id : previousIDs) {
+			dependencies.add(mJobs.get(id));
+		}
+		for (PipelineJob earlier : mJobs) {
+			if (earlier.dependents.isEmpty() && !earlier.getStage().equals(stage) && !previousIDs.contains(earlier.getID())) {
+				dependencies.add(earlier);
+			}
+		}
+		return dependencies;
+	}
+
+	private void start(PipelineJob job) {
+		job.status = Status.RUNNING;
+		System.out.println("start job " + job);
+		mBackend.start(job, this);
+	}
+
+	// skip the job and all jobs depending on it
+	private void skip(PipelineJob job) {
+		if (job.status == Status.SKIPPED) return;
+		job.status = Status.SKIPPED;
+		mUnfinished--;
+		System.out.println("skip job " + job);
+		for (PipelineJob dependent : job.dependents) {
+			skip(dependent);
+		}
+		notifyAll();
+	}
+
+	/**
+	 * called by the backend when a job finishes, start the dependents whose last dependency it was
+	 */
+	public synchronized void finished(PipelineJob job, int exitStatus) {
+		mUnfinished--;
+		if (exitStatus != 0) {
+			job.status = Status.FAILED;
+			System.out.println("job " + job + " failed with exit status " + exitStatus);
+			for (PipelineJob dependent : job.dependents) {
+				skip(dependent);
+			}
+		} else {
+			job.status = Status.SUCCEEDED;
+			System.out.println("finish job " + job);
+			for (PipelineJob dependent : job.dependents) {
+				if (dependent.status == Status.WAITING && --dependent.remaining == 0) {
+					start(dependent);
+				}
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * wait until every job finished or was skipped
+	 *
+	 * @return the jobs which failed or were skipped
+	 */
+	public synchronized List<PipelineJob> await() throws InterruptedException {
+		while (mUnfinished > 0) {
+			wait();
+		}
+
+		List<PipelineJob> failedJobs = new ArrayList<PipelineJob>();
+		for (PipelineJob job : mJobs) {
+			if (job.status != Status.SUCCEEDED) {
+				failedJobs.add(job);
+			}
+		}
+		return failedJobs;
+	}
+
+}
@@ -0,0 +1,62 @@
+package edu.oregonstate.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * run the jobs as processes of the local machine, at most a fixed number of them at the same time
+ *
+ * Each job executes its run file with the standard output and error appended to the files of the SGE script,
+ * so one big machine can run the whole pipeline without the cluster.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class LocalJobBackend implements JobBackend {
+
+	private final ExecutorService mExecutor;
+
+	/**
+	 * @param processes the number of jobs running at the same time
+	 */
+	public LocalJobBackend(int processes) {
+		mExecutor = Executors.newFixedThreadPool(Math.max(1, processes));
+	}
+
+	public void start(final PipelineJob job, final Callback callback) {
+		mExecutor.execute(new Runnable() {
+			public void run() {
+				callback.finished(job, execute(job));
+			}
+		});
+	}
+
+	// the exit status of the run file
+	private int execute(PipelineJob job) {
+		// the paths are passed as arguments of the shell, so they do not need to be quoted, and the output is
+		// appended like -o and -e of SGE do
+		ProcessBuilder builder = new ProcessBuilder("sh", "-c", "exec sh \"$0\" >> \"$1\" 2>> \"$2\"",
+				job.getRunFile(), job.getOutputPath(), job.getErrorPath());
+		Process process = null;
+		try {
+			process = builder.start();
+			process.getOutputStream().close();
+			return process.waitFor();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return -1;
+		} finally {
+			if (process != null) {
+				process.destroy();
+			}
+		}
+	}
+
+	public void shutdown() {
+		mExecutor.shutdownNow();
+	}
+
+}
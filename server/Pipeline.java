@@ -9,7 +9,7 @@ import edu.oregonstate.util.EecbConstants;
 import edu.stanford.nlp.util.StringUtils;
 
 /**
- * Submit the jobs consecutively
+ * Run the jobs of the experiment as a dependency graph
  * 
  * According to the pipeline of our experiment, there are several process, respectively 
  * data generation, search with true loss function and generate the features, learn weight using the algorithm,
@@ -107,64 +107,59 @@ public class Pipeline {
 	 * for each step, generate the configuration file for that step
 	 * for example, in the phase of data generation, we need to generate a job for each topic, and maintain its options 
 	 * 
-	 * and submit the jobs, the following job needs to be specified with the previous job id in order to run the job after the completion
-	 * of those previous jobs, just depend on the previous job id
+	 * and add the jobs to the job graph, which depend on the jobs of the previous step. The graph starts a job as soon 
+	 * as the jobs it depends on finish, so the steps overlap, and this method returns when all jobs finished
+	 * 
+	 * @return the jobs which failed or were skipped
 	 */
-	public void generateConfigurationFile() {
-		PipelineConfiguration pipelineConfiguration = new PipelineConfiguration(props, experimentPath, variables);
-
-		List<Integer> previousIDs = new ArrayList<Integer>();
-		for (String procedureinformation : procedures) {
-			try {
-				// get procedure and phaseIndex
-				String[] elements = procedureinformation.split("-");
-				String procedure = elements[0];
-				String phaseIndex = elements[1];
-
-				Method method = pipelineConfiguration.getClass().getMethod(procedure, previousIDs.getClass(), phaseIndex.getClass());
-				previousIDs = (List<Integer>) method.invoke(pipelineConfiguration, previousIDs, phaseIndex);
-
-				// finish those previousIDs then submit the following jobs
-				boolean halt = true;
-				while (halt) {
-					// sleep for a minute
-					if (!procedure.equals("lasso")) {
-						Thread.sleep(6000);
-					} else {
-						Thread.sleep(600000);
-					}
-					
-
-					ClusterConnection connection = new ClusterConnection();
-					connection.connect();
-
-					boolean contain = false;
-
-					List<Integer> runningJobIDs = connection.queryJobIds();
-					if (runningJobIDs.isEmpty()) break; // there are no running jobs of the specified user
-
-					// check whether there are still job running for the previous procedure
-					for (Integer jobID : previousIDs) {
-						if (runningJobIDs.contains(jobID)) {
-							contain = true;
-							break;
-						}
-					}
-
-					// if previousIDs do not contain the job ID
-					// which means that all jobs are finished
-					if (!contain) {
-						halt = false;
-					}
-
-					connection.disconnect();
+	public List<PipelineJob> generateConfigurationFile() {
+		JobBackend backend = createBackend();
+		JobGraph graph = new JobGraph(backend);
+		PipelineConfiguration pipelineConfiguration = new PipelineConfiguration(props, experimentPath, variables, graph);
+
+		try {
+			List<Integer> previousIDs = new ArrayList<Integer>();
+			for (String procedureinformation : procedures) {
+				try {
+					// get procedure and phaseIndex
+					String[] elements = procedureinformation.split("-");
+					String procedure = elements[0];
+					String phaseIndex = elements[1];
+
+					Method method = pipelineConfiguration.getClass().getMethod(procedure, ArrayList.class, phaseIndex.getClass());
+					previousIDs = (List<Integer>) method.invoke(pipelineConfiguration, previousIDs, phaseIndex);
+				} catch (Exception e) {
+					e.printStackTrace();
 				}
-
-			} catch (Exception e) {
-				e.printStackTrace();
 			}
 
+			return graph.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			backend.shutdown();
+		}
+	}
+
+	/**
+	 * the backend running the jobs, specified by pipeline.backend
+	 * 
+	 * @return
+	 */
+	private JobBackend createBackend() {
+		String backend = props.getProperty(EecbConstants.PIPELINE_BACKEND_PROP, "sge").trim();
+		if (backend.equals("local")) {
+			int processes = Integer.parseInt(props.getProperty(EecbConstants.PIPELINE_PROCESSES_PROP, 
+					Integer.toString(Runtime.getRuntime().availableProcessors())).trim());
+			return new LocalJobBackend(processes);
+		} else if (backend.equals("sge")) {
+			int jobs = Integer.parseInt(props.getProperty(EecbConstants.PIPELINE_SGE_JOBS_PROP, "64").trim());
+			int channels = Integer.parseInt(props.getProperty(EecbConstants.PIPELINE_SGE_CHANNELS_PROP, "8").trim());
+			return new SGEJobBackend(jobs, channels);
 		}
+
+		throw new RuntimeException("unknown pipeline backend " + backend);
 	}
 
 	/**
@@ -192,7 +187,11 @@ public class Pipeline {
 		String experimentPath = args[0];
 		Pipeline pipeline = new Pipeline(experimentPath);
 		Command.chmod(experimentPath);
-		pipeline.generateConfigurationFile();
+		List<PipelineJob> failedJobs = pipeline.generateConfigurationFile();
+		if (!failedJobs.isEmpty()) {
+			System.out.println("failed or skipped jobs: " + failedJobs);
+			System.exit(1);
+		}
 	}
 
 }
\ No newline at end of file
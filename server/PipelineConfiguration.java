@@ -26,8 +26,12 @@ public class PipelineConfiguration {
 	// experiment path
 	private final String mExperimentPath;
 
-	public PipelineConfiguration(Properties props, String experimentPath, String[] variables) {
+	// the graph running the jobs
+	private final JobGraph mGraph;
+
+	public PipelineConfiguration(Properties props, String experimentPath, String[] variables, JobGraph graph) {
 		mProps = props;
+		mGraph = graph;
 
 		StringBuilder sb = new StringBuilder();
 
@@ -66,8 +70,6 @@ public class PipelineConfiguration {
 	public List<Integer> datageneration(ArrayList<Integer> previousIDs, String phaseIndex) {
 		List<Integer> jobIDs = new ArrayList<Integer>();
 
-		String previousIDString = buildPreviousIDString(previousIDs);
-
 		String dataset = mProps.getProperty(EecbConstants.DATAGENERATION_DATASET_PROP, "true");
 		String goldMention = mProps.getProperty(EecbConstants.DATAGENERATION_GOLDMENTION_PROP, "true");
 		String postprocessGold = mProps.getProperty(EecbConstants.DATAGENERATION_POSTPROCESS_GOLD_PROP, "false");
@@ -84,10 +86,17 @@ public class PipelineConfiguration {
 		String procedure = "datageneration";
 		String mainClass = "edu.oregonstate.dataset.DatasetFactory";
 
+		// one job processes all topics
+		boolean multiTopic = Boolean.parseBoolean(mProps.getProperty(EecbConstants.DATAGENERATION_MULTITOPIC_PROP, "false"));
+		if (multiTopic) {
+			jobIDs.add(createMultiTopicDataConfiguration(datagenerationConstantProperties, previousIDs, procedure, mainClass, phaseIndex));
+			return jobIDs;
+		}
+
 		// generate training set properties
 		String trainingset = mProps.getProperty(EecbConstants.DATAGENERATION_TRAININGSET_PROP, "");
 		List<Integer> trainingIDs = createDataConfiguration(trainingset, EecbConstants.DATAGENERATION_TRAININGSET_PROP, 
-				datagenerationConstantProperties, previousIDString, procedure, mainClass, phaseIndex);
+				datagenerationConstantProperties, previousIDs, procedure, mainClass, phaseIndex);
 		if (trainingIDs != null) {
 			jobIDs.addAll(trainingIDs); 
 		}
@@ -95,7 +104,7 @@ public class PipelineConfiguration {
 		// generate testing set properties
 		String testingset = mProps.getProperty(EecbConstants.DATAGENERATION_TESTINGSET_PROP, "");
 		List<Integer> testingIDs = createDataConfiguration(testingset, EecbConstants.DATAGENERATION_TESTINGSET_PROP, 
-				datagenerationConstantProperties, previousIDString, procedure, mainClass, phaseIndex);
+				datagenerationConstantProperties, previousIDs, procedure, mainClass, phaseIndex);
 		if (testingIDs != null) {
 			jobIDs.addAll(testingIDs);
 		}
@@ -104,7 +113,7 @@ public class PipelineConfiguration {
 		// generate development set properties
 		String developmentset = mProps.getProperty(EecbConstants.DATAGENERATION_DEVELOPMENTSET_PROP, "");
 		List<Integer> developmentIDs = createDataConfiguration(developmentset, EecbConstants.DATAGENERATION_DEVELOPMENTSET_PROP, 
-				datagenerationConstantProperties, previousIDString, procedure, mainClass, phaseIndex);
+				datagenerationConstantProperties, previousIDs, procedure, mainClass, phaseIndex);
 		if (developmentIDs != null) {
 			jobIDs.addAll(developmentIDs); 
 		}
@@ -121,7 +130,6 @@ public class PipelineConfiguration {
 	public List<Integer> searchtrueloss(ArrayList<Integer> previousIDs, String phaseIndex) {
 		List<Integer> jobIDs = new ArrayList<Integer>();
 
-		String previousIDString = buildPreviousIDString(previousIDs);
 		String searchtype = "searchtrueloss";
 		
 		StringBuilder sb = new StringBuilder();
@@ -135,7 +143,7 @@ public class PipelineConfiguration {
 		// generate training set properties
 		String trainingset = mProps.getProperty(EecbConstants.DATAGENERATION_TRAININGSET_PROP, "");
 		List<Integer> trainingIDs = createDataConfiguration(trainingset, EecbConstants.DATAGENERATION_TRAININGSET_PROP, 
-				searchConstantProperties, previousIDString, procedure, mainClass, phaseIndex);
+				searchConstantProperties, previousIDs, procedure, mainClass, phaseIndex);
 		if (trainingIDs != null) {
 			jobIDs.addAll(trainingIDs); 
 		}
@@ -152,7 +160,6 @@ public class PipelineConfiguration {
 	public List<Integer> learn(ArrayList<Integer> previousIDs, String phaseIndex) {
 		List<Integer> jobIDs = new ArrayList<Integer>();
 
-		String previousIDString = buildPreviousIDString(previousIDs);
 		StringBuilder sb = new StringBuilder();
 		sb.append("phase = " + phaseIndex + "\n");
 		
@@ -177,18 +184,7 @@ public class PipelineConfiguration {
 
 		Command.chmod(mExperimentPath);
 
-		ClusterConnection connection = new ClusterConnection();
-		try {
-			connection.connect();
-			String jobSimpleName = previousIDString + jobConfigPrefix + "-simple.sh";
-
-			int jobID = connection.submitJob(jobSimpleName);
-			connection.disconnect();
-			jobIDs.add(jobID);
-		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(1);
-		}
+		jobIDs.add(addJob(jobConfigPrefix, procedure, "a", phaseIndex, null, previousIDs));
 		
 		return jobIDs;
 	}
@@ -202,7 +198,6 @@ public class PipelineConfiguration {
 	public List<Integer> searchlearnedweightwithoutfeature(ArrayList<Integer> previousIDs, String phaseIndex) {
 		List<Integer> jobIDs = new ArrayList<Integer>();
 
-		String previousIDString = buildPreviousIDString(previousIDs);
 		String searchtype = "searchlearnedweightwithoutfeature";
 		
 		StringBuilder sb = new StringBuilder();
@@ -216,7 +211,7 @@ public class PipelineConfiguration {
 		// generate testing set properties
 		String testing = mProps.getProperty(EecbConstants.DATAGENERATION_TESTINGSET_PROP, "");
 		List<Integer> testingIDs = createDataConfiguration(testing, EecbConstants.DATAGENERATION_TESTINGSET_PROP, 
-				searchConstantProperties, previousIDString, procedure, mainClass, phaseIndex);
+				searchConstantProperties, previousIDs, procedure, mainClass, phaseIndex);
 		if (testingIDs != null) {
 			jobIDs.addAll(testingIDs); 
 		}
@@ -234,7 +229,6 @@ public class PipelineConfiguration {
 	public List<Integer> searchlearnedweightwithfeature(ArrayList<Integer> previousIDs, String phaseIndex) {
 		List<Integer> jobIDs = new ArrayList<Integer>();
 
-		String previousIDString = buildPreviousIDString(previousIDs);
 		String searchtype = "searchlearnedweightwithfeature";
 		
 		StringBuilder sb = new StringBuilder();
@@ -248,7 +242,7 @@ public class PipelineConfiguration {
 		// generate training set properties
 		String trainingset = mProps.getProperty(EecbConstants.DATAGENERATION_TRAININGSET_PROP, "");
 		List<Integer> trainingIDs = createDataConfiguration(trainingset, EecbConstants.DATAGENERATION_TRAININGSET_PROP, 
-				searchConstantProperties, previousIDString, procedure, mainClass, phaseIndex);
+				searchConstantProperties, previousIDs, procedure, mainClass, phaseIndex);
 		if (trainingIDs != null) {
 			jobIDs.addAll(trainingIDs); 
 		}
@@ -266,7 +260,6 @@ public class PipelineConfiguration {
 	public List<Integer> lasso(ArrayList<Integer> previousIDs, String phaseIndex) {
 		List<Integer> jobIDs = new ArrayList<Integer>();
 		
-		String previousIDString = buildPreviousIDString(previousIDs);
 		String searchtype = "lasso";
 		
 		StringBuilder sb = new StringBuilder();
@@ -297,18 +290,7 @@ public class PipelineConfiguration {
 
 		Command.chmod(mExperimentPath);
 
-		ClusterConnection connection = new ClusterConnection();
-		try {
-			connection.connect();
-			String jobSimpleName = previousIDString + jobConfigPrefix + "-simple.sh";
-
-			int jobID = connection.submitJob(jobSimpleName);
-			connection.disconnect();
-			jobIDs.add(jobID);
-		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(1);
-		}
+		jobIDs.add(addJob(jobConfigPrefix, procedure, "a", phaseIndex, null, previousIDs));
 
 		return jobIDs;
 
@@ -324,8 +306,6 @@ public class PipelineConfiguration {
 	public List<Integer> resultaggregation(ArrayList<Integer> previousIDs, String phaseIndex) {
 		List<Integer> jobIDs = new ArrayList<Integer>();
 		
-		String previousIDString = buildPreviousIDString(previousIDs);
-		
 		StringBuilder sb = new StringBuilder();
 		sb.append("phase = " + phaseIndex + "\n");
 		
@@ -364,44 +344,36 @@ public class PipelineConfiguration {
 
 		Command.chmod(mExperimentPath);
 
-		ClusterConnection connection = new ClusterConnection();
-		try {
-			connection.connect();
-			String jobSimpleName = previousIDString + jobConfigPrefix + "-simple.sh";
-
-			int jobID = connection.submitJob(jobSimpleName);
-			connection.disconnect();
-			jobIDs.add(jobID);
-		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(1);
-		}
+		jobIDs.add(addJob(jobConfigPrefix, procedure, "a", phaseIndex, null, previousIDs));
 		
 		
 		return jobIDs;
 	}
 
 	/**
-	 * build previous ID string
+	 * add the job to the graph, the graph starts it when the jobs it depends on finish
 	 * 
+	 * @param jobConfigPrefix
+	 * @param step
+	 * @param fileTopic the topic in the names of the output files of the simple file
+	 * @param phaseIndex
+	 * @param topic the topic of the job, null if the job processes all topics
 	 * @param previousIDs
 	 * @return
 	 */
-	private String buildPreviousIDString(List<Integer> previousIDs) {
-		if (previousIDs.size() == 0) return "";
-
-		StringBuilder sb = new StringBuilder();
-		sb.append("-hold_jid ");
-		for (int index = 0; index < previousIDs.size(); index++) {
-			if (index == (previousIDs.size() - 1)) {
-				sb.append(previousIDs.get(index) + " ");
-			} else {
-				sb.append(previousIDs.get(index) + ",");
-			}
-		}
+	private int addJob(String jobConfigPrefix, String step, String fileTopic, String phaseIndex, String topic, List<Integer> previousIDs) {
+		return mGraph.add(phaseIndex + "-" + step, topic, jobConfigPrefix, outputPath(step, fileTopic, phaseIndex),
+				errorPath(step, fileTopic, phaseIndex), previousIDs);
+	}
 
-		return sb.toString();
+	// the standard output of the job, the phase keeps the jobs of the same step and topic in different rounds apart
+	private String outputPath(String step, String topic, String phaseIndex) {
+		return mExperimentPath + "/" + phaseIndex + "-" + step + "-" + topic + "-screencross.txt";
+	}
 
+	// the standard error of the job
+	private String errorPath(String step, String topic, String phaseIndex) {
+		return mExperimentPath + "/" + phaseIndex + "-" + step + "-" + topic + "-job_outputcross.err";
 	}
 
 	/**
@@ -412,7 +384,7 @@ public class PipelineConfiguration {
 	 * @param constantconfiguration
 	 */
 	private List<Integer> createDataConfiguration(String set, String key, 
-												  String constantconfiguration, String previousIDString,
+												  String constantconfiguration, List<Integer> previousIDs,
 												  String procedure, String mainClass, String phaseIndex) {
 		if (set.equals("")) {
 			return null;
@@ -421,43 +393,72 @@ public class PipelineConfiguration {
 		List<Integer> jobIDs = new ArrayList<Integer>();
 
 		String[] topics = StringOperation.splitString(set, ",");
-		ClusterConnection connection = new ClusterConnection();
-		try {
-			connection.connect();
-			for (String topic : topics) {
-				Thread.sleep(3000);
-				String topicConfiguration = key + " = " + topic;
-				String configuration = constantconfiguration + topicConfiguration;
-
-				String jobConfigPrefix = mExperimentPath + "/" + phaseIndex + "-" + procedure + "-" + topic;
-				String jobConfigName = jobConfigPrefix + "-config.properties";
+		for (String topic : topics) {
+			String topicConfiguration = key + " = " + topic;
+			String configuration = constantconfiguration + topicConfiguration;
 
-				// create config file
-				ResultOutput.writeTextFile(jobConfigName, configuration);
+			String jobConfigPrefix = mExperimentPath + "/" + phaseIndex + "-" + procedure + "-" + topic;
+			String jobConfigName = jobConfigPrefix + "-config.properties";
 
-				// create run file
-				generateRunFile(jobConfigPrefix, mainClass);
+			// create config file
+			ResultOutput.writeTextFile(jobConfigName, configuration);
 
-				// create simple file
-				generateSimpleFile(jobConfigPrefix, procedure, topic, phaseIndex);
+			// create run file
+			generateRunFile(jobConfigPrefix, mainClass);
 
-				Command.chmod(mExperimentPath);
+			// create simple file
+			generateSimpleFile(jobConfigPrefix, procedure, topic, phaseIndex);
 
-				String jobSimpleName = previousIDString + jobConfigPrefix + "-simple.sh";
+			Command.chmod(mExperimentPath);
 
-				int jobID = connection.submitJob(jobSimpleName);
+			jobIDs.add(addJob(jobConfigPrefix, procedure, topic, phaseIndex, topic, previousIDs));
+		}
 
-				jobIDs.add(jobID);
+		return jobIDs;
+	}
 
+	/**
+	 * create one data configuration for all topics of the training, testing and development set
+	 * 
+	 * @param constantconfiguration
+	 * @param previousIDs
+	 * @param procedure
+	 * @param mainClass
+	 * @param phaseIndex
+	 * @return
+	 */
+	private int createMultiTopicDataConfiguration(String constantconfiguration, List<Integer> previousIDs,
+			  									  String procedure, String mainClass, String phaseIndex) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(EecbConstants.DATAGENERATION_MULTITOPIC_PROP + " = true\n");
+		String parserMemory = mProps.getProperty(EecbConstants.DATAGENERATION_PARSER_MEMORY_PROP);
+		if (parserMemory != null) {
+			sb.append(EecbConstants.DATAGENERATION_PARSER_MEMORY_PROP + " = " + parserMemory + "\n");
+		}
+		
+		String[] sets = new String[]{EecbConstants.DATAGENERATION_TRAININGSET_PROP, EecbConstants.DATAGENERATION_TESTINGSET_PROP, EecbConstants.DATAGENERATION_DEVELOPMENTSET_PROP};
+		for (String set : sets) {
+			String topics = mProps.getProperty(set, "");
+			if (!topics.equals("")) {
+				sb.append(set + " = " + topics + "\n");
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(1);
-		} finally {
-			connection.disconnect();
 		}
+		
+		String jobConfigPrefix = mExperimentPath + "/" + phaseIndex + "-" + procedure;
+		String jobConfigName = jobConfigPrefix + "-config.properties";
 
-		return jobIDs;
+		// create config file
+		ResultOutput.writeTextFile(jobConfigName, constantconfiguration + sb.toString());
+
+		// create run file
+		generateRunFile(jobConfigPrefix, mainClass);
+
+		// create simple file
+		generateSimpleFile(jobConfigPrefix, procedure, "a", phaseIndex);
+
+		Command.chmod(mExperimentPath);
+
+		return addJob(jobConfigPrefix, procedure, "a", phaseIndex, null, previousIDs);
 	}
 
 	/**
@@ -504,10 +505,10 @@ public class PipelineConfiguration {
 		sb.append("#$ -cwd\n\n");
 
 		sb.append("# send all process STDOUT (fd 2) to this file\n");
-		sb.append("#$ -o " + mExperimentPath + "/" + step + "-" + topic + "-screencross.txt\n\n");
+		sb.append("#$ -o " + outputPath(step, topic, phaseIndex) + "\n\n");
 
 		sb.append("# send all process STDERR (fd 3) to this file\n");
-		sb.append("#$ -e " +  mExperimentPath + "/" + step + "-" + topic + "-job_outputcross.err\n\n");
+		sb.append("#$ -e " + errorPath(step, topic, phaseIndex) + "\n\n");
 
 		sb.append("# specify the hardware platform to run the job on.\n");
 		sb.append("# options are: amd64, em64t, i386, volumejob (use i386 if you don't care)\n");
@@ -0,0 +1,93 @@
+package edu.oregonstate.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * one job of the pipeline, for example the search with true loss function of one training topic
+ *
+ * The files of the job are generated by PipelineConfiguration under its prefix: the run file executes the job,
+ * the simple file submits the run file to SGE.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class PipelineJob {
+
+	/** the state of the job in the graph */
+	public enum Status {WAITING, RUNNING, SUCCEEDED, FAILED, SKIPPED}
+
+	private final int id;
+
+	// the procedure and its phase, for example 0-searchtrueloss
+	private final String stage;
+
+	// the topic processed by the job, null if the job processes all topics
+	private final String topic;
+
+	private final String jobConfigPrefix;
+
+	// the file of the standard output and the standard error
+	private final String outputPath;
+	private final String errorPath;
+
+	private final List<PipelineJob> dependencies;
+
+	// the bookkeeping of JobGraph, guarded by the graph
+	final List<PipelineJob> dependents;
+	int remaining;
+	Status status;
+
+	PipelineJob(int id, String stage, String topic, String jobConfigPrefix, String outputPath, String errorPath, List<PipelineJob> dependencies) {
+		this.id = id;
+		this.stage = stage;
+		this.topic = topic;
+		this.jobConfigPrefix = jobConfigPrefix;
+		this.outputPath = outputPath;
+		this.errorPath = errorPath;
+		this.dependencies = Collections.unmodifiableList(new ArrayList<PipelineJob>(dependencies));
+		dependents = new ArrayList<PipelineJob>();
+		status = Status.WAITING;
+	}
+
+	public int getID() {
+		return id;
+	}
+
+	public String getStage() {
+		return stage;
+	}
+
+	public String getTopic() {
+		return topic;
+	}
+
+	// the shell script which executes the job
+	public String getRunFile() {
+		return jobConfigPrefix + "-run.sh";
+	}
+
+	// the SGE script which submits the run file
+	public String getSimpleFile() {
+		return jobConfigPrefix + "-simple.sh";
+	}
+
+	public String getOutputPath() {
+		return outputPath;
+	}
+
+	public String getErrorPath() {
+		return errorPath;
+	}
+
+	public List<PipelineJob> getDependencies() {
+		return dependencies;
+	}
+
+	@Override
+	public String toString() {
+		return id + ":" + stage + (topic == null ? "" : "-" + topic);
+	}
+
+}
@@ -0,0 +1,146 @@
+package edu.oregonstate.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.jcraft.jsch.JSchException;
+
+/**
+ * submit the jobs to the SGE cluster
+ *
+ * Each job is submitted with qsub -sync y, which returns when the job finishes with the exit status of the job, so
+ * the completion of a job is known without querying qstat. The command runs on an exec channel of its own, and the
+ * channels share a few SSH sessions: a session carries at most channelsPerSession channels, below the MaxSessions of
+ * sshd, and the sessions are opened one at a time, so the submit host does not see a burst of connections. At most
+ * maximumJobs jobs are on the cluster at the same time, the others wait in the pool. A connection which can not be
+ * opened is retried, the job only fails when the cluster can not be reached at all.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class SGEJobBackend implements JobBackend {
+
+	// the number of attempts to open a connection or a channel, the delay doubles after each failed attempt
+	private static final int ATTEMPTS = 5;
+	private static final long RETRY_DELAY = 3000;
+
+	private final ExecutorService mExecutor;
+
+	private final int mChannelsPerSession;
+
+	// the open connections and the number of commands running on each of them, guarded by this
+	private final List<ClusterConnection> mConnections;
+	private final List<Integer> mChannels;
+
+	/**
+	 * @param maximumJobs the number of jobs submitted at the same time
+	 * @param channelsPerSession the number of jobs sharing one SSH session
+	 */
+	public SGEJobBackend(int maximumJobs, int channelsPerSession) {
+		mExecutor = Executors.newFixedThreadPool(Math.max(1, maximumJobs));
+		mChannelsPerSession = Math.max(1, channelsPerSession);
+		mConnections = new ArrayList<ClusterConnection>();
+		mChannels = new ArrayList<Integer>();
+	}
+
+	public void start(final PipelineJob job, final Callback callback) {
+		mExecutor.execute(new Runnable() {
+			public void run() {
+				callback.finished(job, submit(job));
+			}
+		});
+	}
+
+	// the exit status of the job
+	private int submit(PipelineJob job) {
+		long delay = RETRY_DELAY;
+		for (int attempt = 1; ; attempt++) {
+			ClusterConnection connection = null;
+			try {
+				connection = acquire();
+				return connection.execCommandAndWait("qsub -sync y " + job.getSimpleFile());
+			} catch (JSchException e) {
+				// the command has not been started, the connection or the channel could not be opened
+				if (attempt == ATTEMPTS) {
+					e.printStackTrace();
+					return -1;
+				}
+				System.out.println("can not submit job " + job + " (" + e.getMessage() + "), retry in " + delay + " ms");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return -1;
+			} catch (Exception e) {
+				e.printStackTrace();
+				return -1;
+			} finally {
+				if (connection != null) {
+					release(connection);
+				}
+			}
+
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return -1;
+			}
+			delay *= 2;
+		}
+	}
+
+	// a connection with a free channel, a new session is opened if all are busy
+	private synchronized ClusterConnection acquire() throws JSchException {
+		for (int i = mConnections.size() - 1; i >= 0; i--) {
+			ClusterConnection connection = mConnections.get(i);
+			if (!connection.isConnected()) {
+				if (mChannels.get(i) == 0) {
+					mConnections.remove(i);
+					mChannels.remove(i);
+				}
+				continue;
+			}
+			if (mChannels.get(i) < mChannelsPerSession) {
+				mChannels.set(i, mChannels.get(i) + 1);
+				return connection;
+			}
+		}
+
+		ClusterConnection connection = new ClusterConnection();
+		try {
+			connection.connect();
+		} catch (JSchException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new JSchException(e.toString(), e);
+		}
+		mConnections.add(connection);
+		mChannels.add(1);
+		return connection;
+	}
+
+	// the channel of the command is closed, a dropped session is closed once its last command returns
+	private synchronized void release(ClusterConnection connection) {
+		int i = mConnections.indexOf(connection);
+		if (i < 0) return;
+		int channels = mChannels.get(i) - 1;
+		if (channels == 0 && !connection.isConnected()) {
+			connection.disconnect();
+			mConnections.remove(i);
+			mChannels.remove(i);
+		} else {
+			mChannels.set(i, channels);
+		}
+	}
+
+	public synchronized void shutdown() {
+		mExecutor.shutdownNow();
+		for (ClusterConnection connection : mConnections) {
+			connection.disconnect();
+		}
+		mConnections.clear();
+		mChannels.clear();
+	}
+
+}
@@ -2,8 +2,10 @@ package edu.oregonstate.training;
 
 import java.util.List;
 
+import edu.oregonstate.classifier.Covariance;
 import edu.oregonstate.classifier.Parameter;
 import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.search.State;
 import edu.stanford.nlp.dcoref.CorefCluster;
 
@@ -23,11 +25,15 @@ public class AROWOnline extends ITraining {
 		int violation = para.getNoOfViolation();
 		int numberOfInstance = 0;
 		
-		// use to update weight
+		// use to update weight, the weight, total weight and covariance are updated in place
 		Parameter finalParameter = para.makeCopy();
 		double[] finalWeight = finalParameter.getWeight();
 		double[] finalTotalWeight = finalParameter.getTotalWeight();
-		double[][] finalVariance = finalParameter.getVariance();
+		Covariance finalCovariance = finalParameter.getMutableCovariance();
+		
+		// buffers reused by all constraints
+		double[] feature = new double[length];
+		double[] sumX = new double[length];
 		
 		for (String path : paths) {
 			List<List<List<String>>> dataset = reader.readData(path);
@@ -50,62 +56,45 @@ public class AROWOnline extends ITraining {
 				}
 				
 				// form constraint
-				for (State<CorefCluster> goodState : goodStates) {
-					for (State<CorefCluster> badState : badStates) {
-						numberOfInstance += 1;
-						
-						// if loss score equal, do not consider this kind of constraint
-						double gLossScore = goodState.getF1Score();
-						double bLossScore = badState.getF1Score();
-						if (gLossScore == bLossScore) {
-							continue;
-						}
-						
-						// get the features of good state and bad state 
-						double[] gNumericalFeatures = goodState.getNumericalFeatures();
-						double[] bNumericalFeatures = badState.getNumericalFeatures();
-						
-						double goodCostScoreForCounting = DoubleOperation.time(previousWeight, gNumericalFeatures);
-						double badCostScoreForCounting = DoubleOperation.time(previousWeight, bNumericalFeatures);
-						if (goodCostScoreForCounting <= badCostScoreForCounting) {
-							violation += 1;
-						}
-						
-						double[] feature = DoubleOperation.minus(gNumericalFeatures, bNumericalFeatures);
-						double margin = 0.0;
-						if (enableNormalizeWeight) {
-							double[] normalizedWeight = DoubleOperation.normalize(finalWeight);
-							margin = DoubleOperation.time(normalizedWeight, feature);
-						} else {
-							margin = DoubleOperation.time(finalWeight, feature);
-						}
+				ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, finalWeight);
+				numberOfInstance += selection.numberOfInstance;
+				violation += selection.violations;
+				for (int c = 0; c < selection.size(); c++) {
+					State<CorefCluster> goodState = goodStates.get(selection.good(c));
+					State<CorefCluster> badState = badStates.get(selection.bad(c));
+					
+					// get the features of good state and bad state 
+					double[] gNumericalFeatures = goodState.getNumericalFeatures();
+					double[] bNumericalFeatures = badState.getNumericalFeatures();
+					
+					VectorKernel.subtractInto(gNumericalFeatures, bNumericalFeatures, feature);
+					double score = VectorKernel.dot(finalWeight, feature);
+					double margin = score;
+					if (enableNormalizeWeight) {
+						double norm = VectorKernel.norm(finalWeight);
+						margin = norm == 0.0 ? 0.0 : score / norm;
+					}
+					
+					if (margin < 1) {
+						// sumX = Sigma x
+						double beta = 1 / ( finalCovariance.quadraticForm(feature, sumX) + mHyperParameter );
+						double alpha = selection.importance(c) * Math.max(0, beta * (1 - score));
 						
-						if (margin < 1) {
-							double beta = 1 / ( DoubleOperation.transformation(feature, finalVariance) + mHyperParameter );
-							double alpha = Math.max(0, beta * (1 - DoubleOperation.time(feature, finalWeight)));
-							double constant = alpha;
-							double[] delta = DoubleOperation.time(DoubleOperation.matrixTime(finalVariance, feature), constant) ;
-							boolean zeroVector = DoubleOperation.isZeroVector(delta);
-
-							// update the weight and variance
-							if (!zeroVector) {
-								finalWeight = DoubleOperation.add(finalWeight, delta);
-								finalTotalWeight = DoubleOperation.add(finalTotalWeight, finalWeight);
-
-								double[] sumX = DoubleOperation.matrixTime(finalVariance, feature);
-								double[][] sumXX = DoubleOperation.vectorProduct(sumX, feature);
-								double[][] betaSumXX = DoubleOperation.time(sumXX, beta);
-								double[][] betaSumXXSum = DoubleOperation.time(betaSumXX, finalVariance);
-								finalVariance = DoubleOperation.matrixMinus(finalVariance, betaSumXXSum);
-							}
+						// update the weight and variance
+						if (alpha != 0.0 && !DoubleOperation.isZeroVector(sumX)) {
+							VectorKernel.axpy(alpha, sumX, finalWeight);
+							VectorKernel.add(finalWeight, finalTotalWeight);
+							
+							// Sigma = Sigma - beta (Sigma x)(Sigma x)^T
+							finalCovariance.rankOneUpdate(sumX, beta);
 						}
-						
 					}
+					
 				}
 			}
 		}
 		
-		return new Parameter(finalWeight, finalVariance, finalTotalWeight, violation, numberOfInstance);
+		return new Parameter(finalWeight, finalCovariance, finalTotalWeight, violation, numberOfInstance);
 	}
 	
 }
@@ -2,8 +2,10 @@ package edu.oregonstate.training;
 
 import java.util.List;
 
+import edu.oregonstate.classifier.Covariance;
 import edu.oregonstate.classifier.Parameter;
 import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.search.State;
 import edu.stanford.nlp.dcoref.CorefCluster;
 
@@ -23,11 +25,17 @@ public class AROWOnlineToBatch extends ITraining {
 		int violation = para.getNoOfViolation();
 		int numberOfInstance = 0;
 		
-		// use to update weight
+		// use to update weight, the weight, total weight and covariance are updated in place
 		Parameter finalParameter = para.makeCopy();
 		double[] finalWeight = finalParameter.getWeight();
 		double[] finalTotalWeight = finalParameter.getTotalWeight();
-		double[][] finalVariance = finalParameter.getVariance();
+		Covariance finalCovariance = finalParameter.getMutableCovariance();
+		
+		// buffers reused by all batches and constraints
+		double[] fixedWeight = new double[length];
+		Covariance fixedCovariance = finalCovariance.copy();
+		double[] feature = new double[length];
+		double[] sumX = new double[length];
 		
 		for (String path : paths) {
 			List<List<List<String>>> dataset = reader.readData(path);
@@ -50,66 +58,43 @@ public class AROWOnlineToBatch extends ITraining {
 				}
 				
 				// fix the weight and variance for the current batch
-				double[] fixedWeight = new double[length];
 				System.arraycopy(finalWeight, 0, fixedWeight, 0, length);
-				double[][] fixedVariance = new double[length][length];
-				for (int row = 0; row < length; row++) {
-					System.arraycopy(finalVariance[row], 0, fixedVariance[row], 0, length);
-				}
+				finalCovariance.copyTo(fixedCovariance);
 				
 				// form constraint
-				for (State<CorefCluster> goodState : goodStates) {
-					for (State<CorefCluster> badState : badStates) {
-						numberOfInstance += 1;
-						
-						// if loss score equal, do not consider this kind of constraint
-						double gLossScore = goodState.getF1Score();
-						double bLossScore = badState.getF1Score();
-						if (gLossScore == bLossScore) {
-							continue;
-						}
-						
-						// get the features of good state and bad state 
-						double[] gNumericalFeatures = goodState.getNumericalFeatures();
-						double[] bNumericalFeatures = badState.getNumericalFeatures();
-						
-						// calculate the number of violated constraints
-						double goodCostScoreForCounting = DoubleOperation.time(previousWeight, gNumericalFeatures);
-						double badCostScoreForCounting = DoubleOperation.time(previousWeight, bNumericalFeatures);
-						if (goodCostScoreForCounting <= badCostScoreForCounting) {
-							violation += 1;
-						}
-						
-						double[] feature = DoubleOperation.minus(gNumericalFeatures, bNumericalFeatures);
-						double margin = DoubleOperation.time(fixedWeight, feature);
-						if (margin < 1) {
-							double beta = 1 / ( DoubleOperation.transformation(feature, fixedVariance) + mHyperParameter );
-							double alpha = Math.max(0, beta * (1 - DoubleOperation.time(feature, fixedWeight)));
-							double constant = alpha;
-							double[] delta = DoubleOperation.time(DoubleOperation.matrixTime(fixedVariance, feature), constant) ;
-							boolean zeroVector = DoubleOperation.isZeroVector(delta);
-
-							// update the weight and variance
-							if (!zeroVector) {
-								// update the weight
-								finalWeight = DoubleOperation.add(finalWeight, delta);
-								finalTotalWeight = DoubleOperation.add(finalTotalWeight, finalWeight);
+				ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, fixedWeight);
+				numberOfInstance += selection.numberOfInstance;
+				violation += selection.violations;
+				for (int c = 0; c < selection.size(); c++) {
+					State<CorefCluster> goodState = goodStates.get(selection.good(c));
+					State<CorefCluster> badState = badStates.get(selection.bad(c));
+					
+					// get the features of good state and bad state 
+					double[] gNumericalFeatures = goodState.getNumericalFeatures();
+					double[] bNumericalFeatures = badState.getNumericalFeatures();
+					
+					VectorKernel.subtractInto(gNumericalFeatures, bNumericalFeatures, feature);
+					double margin = VectorKernel.dot(fixedWeight, feature);
+					if (margin < 1) {
+						// sumX = Sigma x with the fixed variance
+						double beta = 1 / ( fixedCovariance.quadraticForm(feature, sumX) + mHyperParameter );
+						double alpha = selection.importance(c) * Math.max(0, beta * (1 - margin));
 
-								double[] sumX = DoubleOperation.matrixTime(fixedVariance, feature);
-								double[][] sumXX = DoubleOperation.vectorProduct(sumX, feature);
-								double[][] betaSumXX = DoubleOperation.time(sumXX, beta);
-								double[][] betaSumXXSum = DoubleOperation.time(betaSumXX, fixedVariance);
-								
-								// update the variance
-								finalVariance = DoubleOperation.matrixMinus(finalVariance, betaSumXXSum);
-							}
+						// update the weight and variance
+						if (alpha != 0.0 && !DoubleOperation.isZeroVector(sumX)) {
+							// update the weight
+							VectorKernel.axpy(alpha, sumX, finalWeight);
+							VectorKernel.add(finalWeight, finalTotalWeight);
+							
+							// update the variance, Sigma = Sigma - beta (Sigma x)(Sigma x)^T
+							finalCovariance.rankOneUpdate(sumX, beta);
 						}
-						
 					}
+					
 				}
 			}
 		}
 		
-		return new Parameter(finalWeight, finalVariance, finalTotalWeight, violation, numberOfInstance);
+		return new Parameter(finalWeight, finalCovariance, finalTotalWeight, violation, numberOfInstance);
 	}
 }
@@ -3,7 +3,7 @@ package edu.oregonstate.training;
 import java.util.List;
 
 import edu.oregonstate.classifier.Parameter;
-import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.search.State;
 import edu.stanford.nlp.dcoref.CorefCluster;
 
@@ -37,45 +37,28 @@ public class Batch extends ITraining {
 					if (reader.isAllZero(goodStates)) continue;
 				}
 				
-				// form constraint
-				for (State<CorefCluster> goodState : goodStates) {
-					for (State<CorefCluster> badState : badStates) {
-						numberOfInstance += 1;
-						
-						// if loss score equal, do not consider this kind of constraint
-						double gLossScore = goodState.getF1Score();
-						double bLossScore = badState.getF1Score();
-						if (gLossScore == bLossScore) {
-							continue;
-						}
-						
-						// get the features of good state and bad state
-						double[] gNumericalFeatures = goodState.getNumericalFeatures();
-						double[] bNumericalFeatures = badState.getNumericalFeatures();
-						
-						// calculate the action score of good state and bad state	
-						double goodCostScoreForUpdating = DoubleOperation.time(previousWeight, gNumericalFeatures);
-						double badCostScoreForUpdating = DoubleOperation.time(previousWeight, bNumericalFeatures);
-
-						// violated current constraint
-						if (goodCostScoreForUpdating <= badCostScoreForUpdating) {
-							violations += 1;
-							double[] direction = DoubleOperation.minus(gNumericalFeatures, bNumericalFeatures);
-							delta = DoubleOperation.add(delta, direction);
-							totalDelta = DoubleOperation.add(totalDelta, delta);
-						}
+				// form constraint, the selection is ranked by the previous weight, which is not changed in the epoch
+				ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, previousWeight);
+				numberOfInstance += selection.numberOfInstance;
+				violations += selection.violations;
+				for (int c = 0; c < selection.size(); c++) {
+					// violated current constraint
+					if (selection.violated(c)) {
+						double[] gNumericalFeatures = goodStates.get(selection.good(c)).getNumericalFeatures();
+						double[] bNumericalFeatures = badStates.get(selection.bad(c)).getNumericalFeatures();
+						VectorKernel.scaledAddDifference(selection.importance(c), gNumericalFeatures, bNumericalFeatures, delta);
+						VectorKernel.add(delta, totalDelta);
 					}
 				}
 			}
 		}
 		
-		double[] weightedDelta = DoubleOperation.time(delta, learningRate);
-		double[] weightedTotalDelta = DoubleOperation.time(totalDelta, learningRate);
-		
-		double[] currentWeight = DoubleOperation.add(previousWeight, weightedDelta);
-		double[] currentTotalWeight = DoubleOperation.add(previousTotalWeight, weightedTotalDelta);
+		double[] currentWeight = previousWeight.clone();
+		double[] currentTotalWeight = previousTotalWeight.clone();
+		VectorKernel.axpy(learningRate, delta, currentWeight);
+		VectorKernel.axpy(learningRate, totalDelta, currentTotalWeight);
 		
-		return new Parameter(currentWeight, para.getVariance(), currentTotalWeight, violations, numberOfInstance);
+		return para.withWeights(currentWeight, currentTotalWeight, violations, numberOfInstance);
 	}
 	
 }
@@ -0,0 +1,254 @@
+package edu.oregonstate.training;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.oregonstate.cluster.SparseVector;
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.general.VectorKernel;
+import edu.oregonstate.search.State;
+import edu.oregonstate.util.EecbConstants;
+import edu.stanford.nlp.dcoref.CorefCluster;
+
+/**
+ * select the good and bad state pairs of a group used to update the weight
+ * <p>
+ * The states of a group are scored once with a batched matrix-vector product, so the margin of every pair
+ * w^T g - w^T b costs O(1) instead of two dot products. The violations are still counted on all pairs with the
+ * previous weight, as the training methods did. The selection is one of
+ * <ul>
+ * <li>all : every pair whose loss scores differ, in the order of the double loop</li>
+ * <li>topk : the k pairs with the smallest margin under the current weight</li>
+ * <li>margin : the pairs whose margin under the current weight is below the threshold</li>
+ * <li>sample : each pair with the probability rate, reweighted by 1 / rate</li>
+ * </ul>
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class ConstraintSelector {
+
+	/** the selected pairs of a group */
+	public static class Selection {
+		/** number of pairs of the group, and of those violated by the previous weight */
+		public int numberOfInstance;
+		public int violations;
+
+		private int size;
+		private int[] good = new int[16];
+		private int[] bad = new int[16];
+		private double[] importance = new double[16];
+		private boolean[] violated = new boolean[16];
+
+		public int size() {
+			return size;
+		}
+
+		/** index of the good state of the cth selected pair */
+		public int good(int c) {
+			return good[c];
+		}
+
+		/** index of the bad state of the cth selected pair */
+		public int bad(int c) {
+			return bad[c];
+		}
+
+		/** the weight of the update of the cth selected pair */
+		public double importance(int c) {
+			return importance[c];
+		}
+
+		/** whether the cth selected pair is violated by the previous weight */
+		public boolean violated(int c) {
+			return violated[c];
+		}
+
+		private void add(int goodIndex, int badIndex, double weight, boolean violation) {
+			if (size == good.length) {
+				good = Arrays.copyOf(good, size * 2);
+				bad = Arrays.copyOf(bad, size * 2);
+				importance = Arrays.copyOf(importance, size * 2);
+				violated = Arrays.copyOf(violated, size * 2);
+			}
+			good[size] = goodIndex;
+			bad[size] = badIndex;
+			importance[size] = weight;
+			violated[size] = violation;
+			size += 1;
+		}
+	}
+
+	private enum Mode { ALL, TOPK, MARGIN, SAMPLE }
+
+	private final Mode mode;
+	private final int k;
+	private final double margin;
+	private final double rate;
+
+	/** one generator per thread, the parallel training methods share the selector */
+	private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random();
+		}
+	};
+
+	/** statistics since the last reset */
+	private final AtomicLong numberOfPairs = new AtomicLong();
+	private final AtomicLong numberOfSelected = new AtomicLong();
+
+	/**
+	 * the selector configured for the training method, the keys suffixed by its name take precedence
+	 *
+	 * @param trainingMethod
+	 */
+	public ConstraintSelector(String trainingMethod) {
+		Properties props = ExperimentConstructor.experimentProps;
+		mode = Mode.valueOf(property(props, EecbConstants.CLASSIFIER_TRAINING_CONSTRAINT_SELECTION, trainingMethod, "all").toUpperCase());
+		k = Integer.parseInt(property(props, EecbConstants.CLASSIFIER_TRAINING_CONSTRAINT_K, trainingMethod, "10"));
+		margin = Double.parseDouble(property(props, EecbConstants.CLASSIFIER_TRAINING_CONSTRAINT_MARGIN, trainingMethod, "1.0"));
+		rate = Double.parseDouble(property(props, EecbConstants.CLASSIFIER_TRAINING_CONSTRAINT_RATE, trainingMethod, "0.1"));
+		if (mode == Mode.SAMPLE && (rate <= 0.0 || rate > 1.0)) {
+			throw new IllegalArgumentException("the sampling rate should be in (0, 1] : " + rate);
+		}
+	}
+
+	private static String property(Properties props, String key, String trainingMethod, String defaultValue) {
+		return props.getProperty(key + "." + trainingMethod, props.getProperty(key, defaultValue));
+	}
+
+	/**
+	 * select the pairs of the group
+	 *
+	 * @param goodStates
+	 * @param badStates
+	 * @param previousWeight the weight of the beginning of the epoch, used to count the violations
+	 * @param weight the current weight, used to rank the pairs
+	 * @return
+	 */
+	public Selection select(List<State<CorefCluster>> goodStates, List<State<CorefCluster>> badStates, double[] previousWeight, double[] weight) {
+		int goodSize = goodStates.size();
+		int badSize = badStates.size();
+		Selection selection = new Selection();
+		selection.numberOfInstance = goodSize * badSize;
+
+		double[] goodPrevious = score(goodStates, previousWeight);
+		double[] badPrevious = score(badStates, previousWeight);
+		double[] goodCurrent = null;
+		double[] badCurrent = null;
+		if (mode == Mode.TOPK || mode == Mode.MARGIN) {
+			goodCurrent = weight == previousWeight ? goodPrevious : score(goodStates, weight);
+			badCurrent = weight == previousWeight ? badPrevious : score(badStates, weight);
+		}
+
+		// the pairs with different loss scores, in the order of the double loop
+		int[] candidates = new int[goodSize * badSize];
+		boolean[] violated = new boolean[goodSize * badSize];
+		int size = 0;
+		for (int i = 0; i < goodSize; i++) {
+			double gLossScore = goodStates.get(i).getF1Score();
+			for (int j = 0; j < badSize; j++) {
+				if (gLossScore == badStates.get(j).getF1Score()) continue;
+				if (goodPrevious[i] <= badPrevious[j]) {
+					selection.violations += 1;
+					violated[size] = true;
+				}
+				candidates[size++] = i * badSize + j;
+			}
+		}
+
+		switch (mode) {
+		case ALL:
+			for (int c = 0; c < size; c++) {
+				selection.add(candidates[c] / badSize, candidates[c] % badSize, 1.0, violated[c]);
+			}
+			break;
+		case MARGIN:
+			for (int c = 0; c < size; c++) {
+				int i = candidates[c] / badSize;
+				int j = candidates[c] % badSize;
+				if (goodCurrent[i] - badCurrent[j] < margin) selection.add(i, j, 1.0, violated[c]);
+			}
+			break;
+		case TOPK:
+			selectTop(candidates, violated, size, goodCurrent, badCurrent, badSize, selection);
+			break;
+		case SAMPLE:
+			Random generator = random.get();
+			for (int c = 0; c < size; c++) {
+				if (generator.nextDouble() < rate) selection.add(candidates[c] / badSize, candidates[c] % badSize, 1.0 / rate, violated[c]);
+			}
+			break;
+		}
+
+		numberOfPairs.addAndGet(size);
+		numberOfSelected.addAndGet(selection.size());
+		return selection;
+	}
+
+	// the k pairs with the smallest margin, ties are broken by the order of the double loop
+	private void selectTop(int[] candidates, boolean[] violated, int size, double[] goodCurrent, double[] badCurrent, int badSize, Selection selection) {
+		Integer[] order = new Integer[size];
+		final double[] margins = new double[size];
+		for (int c = 0; c < size; c++) {
+			order[c] = c;
+			margins[c] = goodCurrent[candidates[c] / badSize] - badCurrent[candidates[c] % badSize];
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if (margins[a] != margins[b]) return margins[a] < margins[b] ? -1 : 1;
+				return a.compareTo(b);
+			}
+		});
+
+		int selected = Math.min(k, size);
+		for (int c = 0; c < selected; c++) {
+			int candidate = candidates[order[c]];
+			selection.add(candidate / badSize, candidate % badSize, 1.0, violated[order[c]]);
+		}
+	}
+
+	// w^T f of each state, one batched matrix-vector product for the dense features
+	private static double[] score(List<State<CorefCluster>> states, double[] weight) {
+		double[] scores = new double[states.size()];
+		if (!states.isEmpty() && states.get(0).getSparseFeatures() != null) {
+			for (int i = 0; i < states.size(); i++) {
+				SparseVector features = states.get(i).getSparseFeatures();
+				scores[i] = features.dot(weight);
+			}
+			return scores;
+		}
+
+		double[][] rows = new double[states.size()][];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = states.get(i).getNumericalFeatures();
+		}
+		VectorKernel.multiply(rows, weight, scores);
+		return scores;
+	}
+
+	/** the number of pairs with different loss scores since the last reset */
+	public long getNumberOfPairs() {
+		return numberOfPairs.get();
+	}
+
+	/** the number of selected pairs since the last reset */
+	public long getNumberOfSelected() {
+		return numberOfSelected.get();
+	}
+
+	public void resetStatistics() {
+		numberOfPairs.set(0);
+		numberOfSelected.set(0);
+	}
+
+	public String getMode() {
+		return mode.name().toLowerCase();
+	}
+
+}
@@ -5,7 +5,7 @@ import java.io.PrintWriter;
 import java.util.HashMap;
 import java.util.Properties;
 
-import edu.oregonstate.dataset.CorefSystem;
+import edu.oregonstate.dataset.CorefSystemPool;
 import edu.oregonstate.dataset.TopicGeneration;
 import edu.oregonstate.experiment.ExperimentConstructor;
 import edu.oregonstate.general.DoubleOperation;
@@ -152,8 +152,7 @@ public class Development {
 				DocumentAlignment.alignDocument(document);
 
 				// do pronoun coreference resolution
-				CorefSystem cs = new CorefSystem();
-				cs.applyPronounSieve(document);
+				CorefSystemPool.applyPronounSieve(document);
 
 				// whether post-process the document
 				if (postProcess) {
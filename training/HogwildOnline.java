@@ -0,0 +1,163 @@
+package edu.oregonstate.training;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import edu.oregonstate.classifier.Parameter;
+import edu.oregonstate.general.VectorKernel;
+import edu.oregonstate.search.State;
+import edu.stanford.nlp.dcoref.CorefCluster;
+
+/**
+ * the Online perceptron update run by several threads on a shared weight without locks, in the Hogwild style
+ * <p>
+ * The workers take the shuffled constraint groups from a shared counter, and score and update each constraint
+ * only on the features where the good and bad states differ. Each weight element is added to with a compare and
+ * set on its bits, so an update is never lost, but a worker may score a constraint with a weight that other workers
+ * are updating.
+ * <p>
+ * The total weight of Online adds the whole weight after every update, which would serialize the workers. Instead
+ * the t-th update d also adds t * d to a second vector U, and after T updates the total weight is increased by
+ * T * w0 + (T + 1) * (w - w0) - U, where w0 is the weight at the beginning of the epoch. With one thread this is the
+ * total weight of Online.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class HogwildOnline extends ITraining {
+
+	/** violation and instance counters of one worker */
+	private static class Counter {
+		int violations;
+		int numberOfInstance;
+	}
+
+	/**
+	 * implement the parallel online update
+	 */
+	public Parameter train(List<String> paths, Parameter para, final double learningRate) {
+		final double[] previousWeight = para.getWeight();
+		int violation = para.getNoOfViolation();
+		int numberOfInstance = 0;
+
+		// the shared weight and the sum of the step weighted updates, stored as the bits of the doubles
+		final AtomicLongArray weight = new AtomicLongArray(length);
+		final AtomicLongArray stepWeightedUpdate = new AtomicLongArray(length);
+		for (int k = 0; k < length; k++) {
+			weight.set(k, Double.doubleToRawLongBits(previousWeight[k]));
+		}
+		final AtomicInteger step = new AtomicInteger(0);
+
+		for (String path : paths) {
+			List<List<List<String>>> dataset = reader.readData(path);
+			final List<List<String>> goodDataset = dataset.get(0);
+			final List<List<String>> badDataset = dataset.get(1);
+
+			final List<Integer> randomLists = createRandomIndex(goodDataset.size());
+			final AtomicInteger next = new AtomicInteger(0);
+
+			List<Callable<Counter>> workers = new ArrayList<Callable<Counter>>();
+			for (int t = 0; t < mThreads; t++) {
+				workers.add(new Callable<Counter>() {
+					public Counter call() {
+						Counter counter = new Counter();
+						int[] support = new int[length];
+						for (int i = next.getAndIncrement(); i < randomLists.size(); i = next.getAndIncrement()) {
+							int index = randomLists.get(i);
+							train(goodDataset.get(index), badDataset.get(index), previousWeight, learningRate,
+									weight, stepWeightedUpdate, step, support, counter);
+						}
+						return counter;
+					}
+				});
+			}
+
+			for (Counter counter : runInParallel(workers)) {
+				violation += counter.violations;
+				numberOfInstance += counter.numberOfInstance;
+			}
+		}
+
+		// the final weight and the total weight of all updates of the epoch
+		double[] finalWeight = new double[length];
+		double[] finalTotalWeight = para.getTotalWeight().clone();
+		int numberOfUpdates = step.get();
+		for (int k = 0; k < length; k++) {
+			finalWeight[k] = Double.longBitsToDouble(weight.get(k));
+			double change = finalWeight[k] - previousWeight[k];
+			finalTotalWeight[k] += numberOfUpdates * previousWeight[k] + (numberOfUpdates + 1) * change
+					- Double.longBitsToDouble(stepWeightedUpdate.get(k));
+		}
+
+		return para.withWeights(finalWeight, finalTotalWeight, violation, numberOfInstance);
+	}
+
+	/**
+	 * train on the constraints of one group
+	 */
+	private void train(List<String> goodRecords, List<String> badRecords, double[] previousWeight, double learningRate,
+			AtomicLongArray weight, AtomicLongArray stepWeightedUpdate, AtomicInteger step, int[] support, Counter counter) {
+		// get the data
+		List<State<CorefCluster>> goodStates = reader.processString(goodRecords);
+		List<State<CorefCluster>> badStates = reader.processString(badRecords);
+
+		if (!incorporateZeroVector) {
+			if (reader.isAllZero(goodStates)) return;
+		}
+
+		// form constraint
+		for (State<CorefCluster> goodState : goodStates) {
+			for (State<CorefCluster> badState : badStates) {
+				counter.numberOfInstance += 1;
+
+				// if loss score equal, do not consider this kind of constraint
+				if (goodState.getF1Score() == badState.getF1Score()) {
+					continue;
+				}
+
+				// get the features of good state and bad state
+				double[] gNumericalFeatures = goodState.getNumericalFeatures();
+				double[] bNumericalFeatures = badState.getNumericalFeatures();
+
+				if (VectorKernel.dot(previousWeight, gNumericalFeatures) <= VectorKernel.dot(previousWeight, bNumericalFeatures)) {
+					counter.violations += 1;
+				}
+
+				// the features where the states differ, and the score of the difference with the shared weight
+				int size = 0;
+				double score = 0.0;
+				for (int k = 0; k < length; k++) {
+					double difference = gNumericalFeatures[k] - bNumericalFeatures[k];
+					if (difference != 0.0) {
+						support[size++] = k;
+						score += Double.longBitsToDouble(weight.get(k)) * difference;
+					}
+				}
+
+				// violated current constraint
+				if (score <= 0.0) {
+					int t = step.incrementAndGet();
+					for (int p = 0; p < size; p++) {
+						int k = support[p];
+						double delta = learningRate * (gNumericalFeatures[k] - bNumericalFeatures[k]);
+						add(weight, k, delta);
+						add(stepWeightedUpdate, k, t * delta);
+					}
+				}
+			}
+		}
+	}
+
+	// lock-free array[k] += value on the bits of a double
+	private static void add(AtomicLongArray array, int k, double value) {
+		while (true) {
+			long bits = array.get(k);
+			long updated = Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + value);
+			if (array.compareAndSet(k, bits, updated)) return;
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package edu.oregonstate.training;
+
+import java.util.List;
+
+import edu.oregonstate.classifier.Parameter;
+import edu.oregonstate.cluster.SparseVector;
+import edu.oregonstate.features.FeatureHasher;
+import edu.oregonstate.search.State;
+import edu.stanford.nlp.dcoref.CorefCluster;
+
+/**
+ * online training on the sparse features, including the hashed lexicalized features
+ * <p>
+ * The constraints are read as sparse vectors, and the weight is a LazyAveragedWeight, so an update only touches
+ * the features where the good and bad states differ, and the cost of an epoch does not grow with the number of
+ * hash buckets except for one pass at its end. The subclasses decide how a constraint updates the weight.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public abstract class ISparseTraining extends ITraining {
+
+	/**
+	 * the atomic features followed by the hash buckets
+	 */
+	@Override
+	public int dimension() {
+		return FeatureHasher.dimension();
+	}
+
+	/**
+	 * implement the online update
+	 */
+	public Parameter train(List<String> paths, Parameter para, double learningRate) {
+		double[] previousWeight = para.getWeight();
+		int violation = para.getNoOfViolation();
+		int numberOfInstance = 0;
+
+		// use to update weight
+		Parameter finalParameter = para.makeCopy();
+		LazyAveragedWeight weight = new LazyAveragedWeight(finalParameter.getWeight(), finalParameter.getTotalWeight());
+		initialize(finalParameter);
+
+		for (String path : paths) {
+			List<List<List<String>>> dataset = reader.readData(path);
+			List<List<String>> goodDataset = dataset.get(0);
+			List<List<String>> badDataset = dataset.get(1);
+
+			List<Integer> randomLists = createRandomIndex(goodDataset.size());
+
+			for (int i = 0; i < randomLists.size(); i++){
+				int index = randomLists.get(i);
+
+				// get the data
+				List<State<CorefCluster>> goodStates = reader.processSparseString(goodDataset.get(index));
+				List<State<CorefCluster>> badStates = reader.processSparseString(badDataset.get(index));
+
+				if (!incorporateZeroVector) {
+					if (isAllZero(goodStates.get(0).getSparseFeatures())) continue;
+				}
+
+				// form constraint
+				ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, weight.getWeight());
+				numberOfInstance += selection.numberOfInstance;
+				violation += selection.violations;
+				for (int c = 0; c < selection.size(); c++) {
+					State<CorefCluster> goodState = goodStates.get(selection.good(c));
+					State<CorefCluster> badState = badStates.get(selection.bad(c));
+
+					// g - b, on the features where the states differ
+					SparseVector direction = goodState.getSparseFeatures().minus(badState.getSparseFeatures());
+
+					update(weight, direction, goodState.getF1Score(), badState.getF1Score(), learningRate, selection.importance(c));
+				}
+			}
+		}
+
+		weight.finish();
+		return createParameter(finalParameter, weight.getWeight(), weight.getTotalWeight(), violation, numberOfInstance);
+	}
+
+	/**
+	 * prepare the state of the epoch kept in the parameter, for example the variance
+	 *
+	 * @param finalParameter
+	 */
+	protected void initialize(Parameter finalParameter) {
+	}
+
+	/**
+	 * update the weight with the constraint g - b
+	 *
+	 * @param weight
+	 * @param direction g - b
+	 * @param gLossScore
+	 * @param bLossScore
+	 * @param learningRate
+	 * @param importance the weight of the constraint given by the selector
+	 */
+	protected abstract void update(LazyAveragedWeight weight, SparseVector direction, double gLossScore, double bLossScore, double learningRate, double importance);
+
+	/**
+	 * the parameter returned by the epoch, the dense variance is never built for the hashed dimension
+	 */
+	protected Parameter createParameter(Parameter finalParameter, double[] weight, double[] totalWeight, int violation, int numberOfInstance) {
+		return new Parameter(weight, (double[][]) null, totalWeight, violation, numberOfInstance);
+	}
+
+	// whether no feature is positive, as LargetFileReading.isAllZero
+	private boolean isAllZero(SparseVector features) {
+		for (int p = 0; p < features.size(); p++) {
+			if (features.getValue(p) > 0) return false;
+		}
+		return true;
+	}
+
+}
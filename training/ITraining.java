@@ -4,11 +4,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import edu.oregonstate.classifier.Parameter;
 import edu.oregonstate.experiment.ExperimentConstructor;
 import edu.oregonstate.features.FeatureFactory;
-import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.io.LargetFileReading;
 import edu.oregonstate.util.EecbConstants;
 
@@ -44,6 +49,12 @@ public abstract class ITraining {
 	/** enable normalize the weight */
 	protected final boolean enableNormalizeWeight;
 	
+	/** number of threads used by the parallel training methods */
+	protected final int mThreads;
+	
+	/** select the constraints of a group used to update the weight */
+	protected final ConstraintSelector selector;
+	
 	public ITraining() {
 		Properties mProps = ExperimentConstructor.experimentProps;
 		length = FeatureFactory.getFeatureTemplate().size();
@@ -54,11 +65,27 @@ public abstract class ITraining {
 		enablePAMargin = Boolean.parseBoolean(mProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_PA_MARGIN, "true"));
 		enableNormalizeWeight = Boolean.parseBoolean(mProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_NORMALIZE_WEIGHT, "true"));
 		mHyperParameter = Double.parseDouble(mProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_HYPERPARAMETER, "1.0"));
+		mThreads = Math.max(1, Integer.parseInt(mProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_THREADS, 
+				"" + Runtime.getRuntime().availableProcessors())));
+		selector = new ConstraintSelector(getClass().getSimpleName());
 	}
 	
 	/* different weight update styles, including Batch, Online and OnlineToBatch */
 	public abstract Parameter train(List<String> paths, Parameter para, double learningRate);
 	
+	/**
+	 * the dimension of the weight learned by the training method
+	 * 
+	 * @return
+	 */
+	public int dimension() {
+		return length;
+	}
+	
+	public ConstraintSelector getSelector() {
+		return selector;
+	}
+	
 	/**
 	 * create random integer list
 	 * 
@@ -75,6 +102,33 @@ public abstract class ITraining {
 		return arrays;
 	}
 	
+	/**
+	 * run the tasks on a fixed thread pool of mThreads threads
+	 * 
+	 * @param tasks
+	 * @return the results in the order of the tasks
+	 */
+	protected <T> List<T> runInParallel(List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>();
+		if (tasks.isEmpty()) return results;
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(mThreads, tasks.size()));
+		try {
+			for (Future<T> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		return results;
+	}
+	
 	/**
 	 * calculate the loss
 	 * 
@@ -87,6 +141,29 @@ public abstract class ITraining {
 	 */
 	protected double calculatePALoss(double gLossScore, double bLossScore, double[] gNumericalFeatures, 
 			 						 double[] bNumericalFeatures, double[] weight) {
+		double directionScore = 0.0;
+		double weightNorm = 1.0;
+		if (enablePADiscrepancy) {
+			// w^T (g - b), divided by the norm instead of normalizing a copy of the weight
+			directionScore = VectorKernel.dotDifference(weight, gNumericalFeatures, bNumericalFeatures);
+			if (enableNormalizeWeight) {
+				weightNorm = VectorKernel.norm(weight);
+			}
+		}
+		
+		return calculatePALoss(gLossScore, bLossScore, directionScore, weightNorm);
+	}
+	
+	/**
+	 * calculate the loss from the score of the constraint direction
+	 * 
+	 * @param gLossScore
+	 * @param bLossScore
+	 * @param directionScore w^T (g - b)
+	 * @param weightNorm the two norm of w, only used if the weight is normalized
+	 * @return
+	 */
+	protected double calculatePALoss(double gLossScore, double bLossScore, double directionScore, double weightNorm) {
 		double loss = 0.0;
 		
 		// calculate margin
@@ -100,16 +177,11 @@ public abstract class ITraining {
 		
 		// calculate the discrepancy
 		if (enablePADiscrepancy) {
-			double[] weightForCalculatingCost = null;
+			double discrepancy = -directionScore;
 			if (enableNormalizeWeight) {
-				weightForCalculatingCost = DoubleOperation.normalize(weight);
-			} else {
-				weightForCalculatingCost = weight;
+				discrepancy = weightNorm == 0.0 ? 0.0 : discrepancy / weightNorm;
 			}
-		
-			double bCostScore = DoubleOperation.time(bNumericalFeatures, weightForCalculatingCost);
-			double gCostScore = DoubleOperation.time(gNumericalFeatures, weightForCalculatingCost);
-			loss += bCostScore - gCostScore;
+			loss += discrepancy;
 		}
 		
 		return loss;
@@ -0,0 +1,109 @@
+package edu.oregonstate.training;
+
+import edu.oregonstate.cluster.SparseVector;
+
+/**
+ * weight and total weight updated in O(nnz) per update with lazy averaging
+ * <p>
+ * The online trainers add the whole weight to the total weight after every update, which costs O(d). Here each
+ * element remembers the update after which its total was last brought up to date, and the total of an element is
+ * only caught up, by the number of updates it missed times its unchanged value, when the element is changed or when
+ * the epoch is finished. The squared norm of the weight is maintained along, for the normalized margins.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class LazyAveragedWeight {
+
+	private final double[] weight;
+	private final double[] totalWeight;
+
+	/** the update after which the total of each element is up to date */
+	private final int[] stamps;
+
+	/** number of updates */
+	private int time;
+
+	private double squaredNorm;
+
+	/**
+	 * the arrays are updated in place
+	 *
+	 * @param weight
+	 * @param totalWeight
+	 */
+	public LazyAveragedWeight(double[] weight, double[] totalWeight) {
+		this.weight = weight;
+		this.totalWeight = totalWeight;
+		stamps = new int[weight.length];
+		time = 0;
+		for (double value : weight) {
+			squaredNorm += value * value;
+		}
+	}
+
+	public double get(int index) {
+		return weight[index];
+	}
+
+	public double dot(SparseVector x) {
+		return x.dot(weight);
+	}
+
+	public double norm() {
+		return Math.sqrt(Math.max(0.0, squaredNorm));
+	}
+
+	/** start a new update, the changes of the update are added with add */
+	public void beginUpdate() {
+		time += 1;
+	}
+
+	/**
+	 * weight[index] += delta in the current update
+	 *
+	 * @param index
+	 * @param delta
+	 */
+	public void add(int index, double delta) {
+		double value = weight[index];
+		totalWeight[index] += (time - 1 - stamps[index]) * value;
+		stamps[index] = time - 1;
+
+		double updated = value + delta;
+		squaredNorm += updated * updated - value * value;
+		weight[index] = updated;
+	}
+
+	/**
+	 * one update, weight += scale * x
+	 *
+	 * @param x
+	 * @param scale
+	 */
+	public void update(SparseVector x, double scale) {
+		beginUpdate();
+		for (int p = 0; p < x.size(); p++) {
+			add(x.getIndex(p), scale * x.getValue(p));
+		}
+	}
+
+	/**
+	 * catch up the total weight of all elements, O(d), called once at the end of the epoch
+	 */
+	public void finish() {
+		for (int i = 0; i < weight.length; i++) {
+			totalWeight[i] += (time - stamps[i]) * weight[i];
+			stamps[i] = time;
+		}
+	}
+
+	public double[] getWeight() {
+		return weight;
+	}
+
+	public double[] getTotalWeight() {
+		return totalWeight;
+	}
+
+}
@@ -3,7 +3,7 @@ package edu.oregonstate.training;
 import java.util.List;
 
 import edu.oregonstate.classifier.Parameter;
-import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.search.State;
 import edu.stanford.nlp.dcoref.CorefCluster;
 
@@ -39,44 +39,31 @@ public class Online extends ITraining {
 				}
 				
 				// form constraint
-				for (State<CorefCluster> goodState : goodStates) {
-					for (State<CorefCluster> badState : badStates) {
-						numberOfInstance += 1;
-						
-						// if loss score equal, do not consider this kind of constraint
-						double gLossScore = goodState.getF1Score();
-						double bLossScore = badState.getF1Score();
-						if (gLossScore == bLossScore) {
-							continue;
-						}
-						
-						// get the features of good state and bad state 
-						double[] gNumericalFeatures = goodState.getNumericalFeatures();
-						double[] bNumericalFeatures = badState.getNumericalFeatures();
-						
-						// calculate the action score of good state and bad state	
-						double goodCostScoreForUpdating = DoubleOperation.time(finalWeight, gNumericalFeatures);
-						double badCostScoreForUpdating = DoubleOperation.time(finalWeight, bNumericalFeatures);
-						
-						double goodCostScoreForCounting = DoubleOperation.time(previousWeight, gNumericalFeatures);
-						double badCostScoreForCounting = DoubleOperation.time(previousWeight, bNumericalFeatures);
-						if (goodCostScoreForCounting <= badCostScoreForCounting) {
-							violation += 1;
-						}
+				ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, finalWeight);
+				numberOfInstance += selection.numberOfInstance;
+				violation += selection.violations;
+				for (int c = 0; c < selection.size(); c++) {
+					State<CorefCluster> goodState = goodStates.get(selection.good(c));
+					State<CorefCluster> badState = badStates.get(selection.bad(c));
+					
+					// get the features of good state and bad state 
+					double[] gNumericalFeatures = goodState.getNumericalFeatures();
+					double[] bNumericalFeatures = badState.getNumericalFeatures();
+					
+					// calculate the action score of good state and bad state	
+					double goodCostScoreForUpdating = VectorKernel.dot(finalWeight, gNumericalFeatures);
+					double badCostScoreForUpdating = VectorKernel.dot(finalWeight, bNumericalFeatures);
 
-						// violated current constraint
-						if (goodCostScoreForUpdating <= badCostScoreForUpdating) {
-							double[] direction = DoubleOperation.minus(gNumericalFeatures, bNumericalFeatures);							
-							double[] term = DoubleOperation.time(direction, learningRate);
-							finalWeight = DoubleOperation.add(finalWeight, term);
-							finalTotalWeight = DoubleOperation.add(finalTotalWeight, finalWeight);
-						}
+					// violated current constraint
+					if (goodCostScoreForUpdating <= badCostScoreForUpdating) {
+						VectorKernel.scaledAddDifference(selection.importance(c) * learningRate, gNumericalFeatures, bNumericalFeatures, finalWeight);
+						VectorKernel.add(finalWeight, finalTotalWeight);
 					}
 				}
 			}
 		}
 		
-		return new Parameter(finalWeight, para.getVariance(), finalTotalWeight, violation, numberOfInstance);
+		return para.withWeights(finalWeight, finalTotalWeight, violation, numberOfInstance);
 	}
 
 }
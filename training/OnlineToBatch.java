@@ -3,7 +3,7 @@ package edu.oregonstate.training;
 import java.util.List;
 
 import edu.oregonstate.classifier.Parameter;
-import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.search.State;
 import edu.stanford.nlp.dcoref.CorefCluster;
 
@@ -21,6 +21,7 @@ public class OnlineToBatch extends ITraining {
 		Parameter finalParameter = para.makeCopy();
 		double[] finalWeight = finalParameter.getWeight();
 		double[] finalTotalWeight = finalParameter.getTotalWeight();
+		double[] fixedWeight = new double[length];
 		
 		for (String path : paths) {
 			List<List<List<String>>> dataset = reader.readData(path);
@@ -43,52 +44,37 @@ public class OnlineToBatch extends ITraining {
 				}
 				
 				// fix the weight for the current batch
-				double[] fixedWeight = new double[length];
 				System.arraycopy(finalWeight, 0, fixedWeight, 0, length);
 				
 				// form constraint
-				for (State<CorefCluster> goodState : goodStates) {
-					for (State<CorefCluster> badState : badStates) {
-						numberOfInstance += 1;
-						
-						// if loss score equal, do not consider this kind of constraint
-						double gLossScore = goodState.getF1Score();
-						double bLossScore = badState.getF1Score();
-						if (gLossScore == bLossScore) {
-							continue;
-						}
-						
-						// get the features of good state and bad state 
-						double[] gNumericalFeatures = goodState.getNumericalFeatures();
-						double[] bNumericalFeatures = badState.getNumericalFeatures();
-						
-						// calculate the action score of good state and bad state
-						double goodCostScoreForUpdating = DoubleOperation.time(fixedWeight, gNumericalFeatures);
-						double badCostScoreForUpdating = DoubleOperation.time(fixedWeight, bNumericalFeatures);
-						
-						// calculate the number of violations
-						double goodCostScoreForCounting = DoubleOperation.time(previousWeight, gNumericalFeatures);
-						double badCostScoreForCounting = DoubleOperation.time(previousWeight, bNumericalFeatures);
-						if (goodCostScoreForCounting <= badCostScoreForCounting) {
-							violation += 1;
-						}
+				ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, fixedWeight);
+				numberOfInstance += selection.numberOfInstance;
+				violation += selection.violations;
+				for (int c = 0; c < selection.size(); c++) {
+					State<CorefCluster> goodState = goodStates.get(selection.good(c));
+					State<CorefCluster> badState = badStates.get(selection.bad(c));
+					
+					// get the features of good state and bad state 
+					double[] gNumericalFeatures = goodState.getNumericalFeatures();
+					double[] bNumericalFeatures = badState.getNumericalFeatures();
+					
+					// calculate the action score of good state and bad state
+					double goodCostScoreForUpdating = VectorKernel.dot(fixedWeight, gNumericalFeatures);
+					double badCostScoreForUpdating = VectorKernel.dot(fixedWeight, bNumericalFeatures);
 
-						// violated current constraint
-						if (goodCostScoreForUpdating <= badCostScoreForUpdating) {
-							double[] direction = DoubleOperation.minus(gNumericalFeatures, bNumericalFeatures);
-							if (DoubleOperation.isAllZero(direction)) continue;
-							
-							//ResultOutput.writeTextFile(ExperimentConstructor.logFile, "learning rate : " + learningRate);
-							double[] term = DoubleOperation.time(direction, learningRate);
-							finalWeight = DoubleOperation.add(finalWeight, term);
-							finalTotalWeight = DoubleOperation.add(finalTotalWeight, finalWeight);
-						}
+					// violated current constraint
+					if (goodCostScoreForUpdating <= badCostScoreForUpdating) {
+						if (VectorKernel.distance(gNumericalFeatures, bNumericalFeatures) == 0.0) continue;
+						
+						//ResultOutput.writeTextFile(ExperimentConstructor.logFile, "learning rate : " + learningRate);
+						VectorKernel.scaledAddDifference(selection.importance(c) * learningRate, gNumericalFeatures, bNumericalFeatures, finalWeight);
+						VectorKernel.add(finalWeight, finalTotalWeight);
 					}
 				}
 			}
 		}
 		
-		return new Parameter(finalWeight, para.getVariance(), finalTotalWeight, violation, numberOfInstance);
+		return para.withWeights(finalWeight, finalTotalWeight, violation, numberOfInstance);
 	}
 	
 }
\ No newline at end of file
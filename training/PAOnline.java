@@ -3,7 +3,7 @@ package edu.oregonstate.training;
 import java.util.List;
 
 import edu.oregonstate.classifier.Parameter;
-import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.search.State;
 import edu.stanford.nlp.dcoref.CorefCluster;
 
@@ -49,47 +49,33 @@ public class PAOnline extends ITraining {
 				}
 				
 				// form constraint
-				for (State<CorefCluster> goodState : goodStates) {
-					for (State<CorefCluster> badState : badStates) {
-						numberOfInstance += 1;
+				ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, finalWeight);
+				numberOfInstance += selection.numberOfInstance;
+				violation += selection.violations;
+				for (int c = 0; c < selection.size(); c++) {
+					State<CorefCluster> goodState = goodStates.get(selection.good(c));
+					State<CorefCluster> badState = badStates.get(selection.bad(c));
+					
+					// get the features of good state and bad state 
+					double[] gNumericalFeatures = goodState.getNumericalFeatures();
+					double[] bNumericalFeatures = badState.getNumericalFeatures();
+					
+					// calculate the loss
+					double loss = calculatePALoss(goodState.getF1Score(), badState.getF1Score(), gNumericalFeatures, bNumericalFeatures, finalWeight);
+					if (loss > 0) {
+						double directionNorm = VectorKernel.distance(gNumericalFeatures, bNumericalFeatures);
+						if (directionNorm == 0.0) continue;
 						
-						// if loss score equal, do not consider this kind of constraint
-						double gLossScore = goodState.getF1Score();
-						double bLossScore = badState.getF1Score();
-						if (gLossScore == bLossScore) {
-							continue;
-						}
-						
-						// get the features of good state and bad state 
-						double[] gNumericalFeatures = goodState.getNumericalFeatures();
-						double[] bNumericalFeatures = badState.getNumericalFeatures();
-						
-						double goodCostScoreForCounting = DoubleOperation.time(previousWeight, gNumericalFeatures);
-						double badCostScoreForCounting = DoubleOperation.time(previousWeight, bNumericalFeatures);
-						if (goodCostScoreForCounting <= badCostScoreForCounting) {
-							violation += 1;
-						}
-						
-						// calculate the loss
-						double loss = calculatePALoss(gLossScore, bLossScore, gNumericalFeatures, bNumericalFeatures, finalWeight);
-						if (loss > 0) {
-							double[] direction = DoubleOperation.minus(gNumericalFeatures, bNumericalFeatures);
-							
-							if (DoubleOperation.isAllZero(direction)) continue;
-							
-							double directionNorm = DoubleOperation.calculateTwoNorm(direction);							
-							double tau = loss / directionNorm;
-							// ResultOutput.writeTextFile(ExperimentConstructor.logFile, "tau : " + tau);
-							double[] term = DoubleOperation.time(direction, tau);
-							finalWeight = DoubleOperation.add(finalWeight, term);
-							finalTotalWeight = DoubleOperation.add(finalTotalWeight, finalWeight);
-						}
+						double tau = selection.importance(c) * loss / directionNorm;
+						// ResultOutput.writeTextFile(ExperimentConstructor.logFile, "tau : " + tau);
+						VectorKernel.scaledAddDifference(tau, gNumericalFeatures, bNumericalFeatures, finalWeight);
+						VectorKernel.add(finalWeight, finalTotalWeight);
 					}
 				}
 			}
 		}
 		
-		return new Parameter(finalWeight, para.getVariance(), finalTotalWeight, violation, numberOfInstance);
+		return para.withWeights(finalWeight, finalTotalWeight, violation, numberOfInstance);
 	}
 	
 }
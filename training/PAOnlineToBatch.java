@@ -3,7 +3,7 @@ package edu.oregonstate.training;
 import java.util.List;
 
 import edu.oregonstate.classifier.Parameter;
-import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
 import edu.oregonstate.search.State;
 import edu.stanford.nlp.dcoref.CorefCluster;
 
@@ -27,6 +27,7 @@ public class PAOnlineToBatch extends ITraining {
 		Parameter finalParameter = para.makeCopy();
 		double[] finalWeight = finalParameter.getWeight();
 		double[] finalTotalWeight = finalParameter.getTotalWeight();
+		double[] fixedWeight = new double[length];
 
 		for (String path : paths) {
 			List<List<List<String>>> dataset = reader.readData(path);
@@ -47,49 +48,34 @@ public class PAOnlineToBatch extends ITraining {
 					if (reader.isAllZero(goodStates)) continue;
 				}
 
-				double[] fixedWeight = new double[length];
 				System.arraycopy(finalWeight, 0, fixedWeight, 0, length);
 
 				// form constraint
-				for (State<CorefCluster> goodState : goodStates) {
-					for (State<CorefCluster> badState : badStates) {
-						numberOfInstance += 1;
-
-						// if loss score equal, do not consider this kind of constraint
-						double gLossScore = goodState.getF1Score();
-						double bLossScore = badState.getF1Score();
-						if (gLossScore == bLossScore) {
-							continue;
-						}
-
-						// get the features of good state and bad state 
-						double[] gNumericalFeatures = goodState.getNumericalFeatures();
-						double[] bNumericalFeatures = badState.getNumericalFeatures();
-
-						double goodCostScoreForCounting = DoubleOperation.time(previousWeight, gNumericalFeatures);
-						double badCostScoreForCounting = DoubleOperation.time(previousWeight, bNumericalFeatures);
-						if (goodCostScoreForCounting <= badCostScoreForCounting) {
-							violation += 1;
-						}
-
-						// calculate the loss
-						double loss = calculatePALoss(gLossScore, bLossScore, gNumericalFeatures, bNumericalFeatures, fixedWeight);
-						if (loss > 0) {
-							double[] direction = DoubleOperation.minus(gNumericalFeatures, bNumericalFeatures);
-
-							if (DoubleOperation.isAllZero(direction)) continue;
-
-							double directionNorm = DoubleOperation.calculateTwoNorm(direction);
-							double tau = loss / directionNorm;
-							double[] term = DoubleOperation.time(direction, tau);
-							finalWeight = DoubleOperation.add(finalWeight, term);
-							finalTotalWeight = DoubleOperation.add(finalTotalWeight, finalWeight);
-						}
+				ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, fixedWeight);
+				numberOfInstance += selection.numberOfInstance;
+				violation += selection.violations;
+				for (int c = 0; c < selection.size(); c++) {
+					State<CorefCluster> goodState = goodStates.get(selection.good(c));
+					State<CorefCluster> badState = badStates.get(selection.bad(c));
+
+					// get the features of good state and bad state 
+					double[] gNumericalFeatures = goodState.getNumericalFeatures();
+					double[] bNumericalFeatures = badState.getNumericalFeatures();
+
+					// calculate the loss
+					double loss = calculatePALoss(goodState.getF1Score(), badState.getF1Score(), gNumericalFeatures, bNumericalFeatures, fixedWeight);
+					if (loss > 0) {
+						double directionNorm = VectorKernel.distance(gNumericalFeatures, bNumericalFeatures);
+						if (directionNorm == 0.0) continue;
+
+						double tau = selection.importance(c) * loss / directionNorm;
+						VectorKernel.scaledAddDifference(tau, gNumericalFeatures, bNumericalFeatures, finalWeight);
+						VectorKernel.add(finalWeight, finalTotalWeight);
 					}
 				}
 			}
 		}
 
-		return new Parameter(finalWeight, para.getVariance(), finalTotalWeight, violation, numberOfInstance);
+		return para.withWeights(finalWeight, finalTotalWeight, violation, numberOfInstance);
 	}
 }
@@ -0,0 +1,128 @@
+package edu.oregonstate.training;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import edu.oregonstate.classifier.Parameter;
+import edu.oregonstate.general.VectorKernel;
+import edu.oregonstate.search.State;
+import edu.stanford.nlp.dcoref.CorefCluster;
+
+/**
+ * the Batch training method, with the constraint groups partitioned across a thread pool
+ * <p>
+ * Batch only applies delta and totalDelta at the end of the epoch, so the groups can be processed independently.
+ * The groups of each file are cut into partitions of PARTITION_SIZE consecutive groups. Each partition accumulates
+ * its own delta, totalDelta and counters, and the partitions are combined in their order in the file. The
+ * partitions do not depend on the number of threads, so neither does the learned weight.
+ * <p>
+ * totalDelta of the serial Batch sums the running delta after each update, so when a partition with
+ * v updates is combined, v times the delta of the earlier partitions is added to its totalDelta.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class ParallelBatch extends ITraining {
+
+	/** number of constraint groups of one partition */
+	private static final int PARTITION_SIZE = 16;
+
+	/** delta, totalDelta and counters accumulated on one partition */
+	private static class PartialUpdate {
+		final double[] delta;
+		final double[] totalDelta;
+		int violations;
+		int numberOfInstance;
+		/** number of times delta was added to totalDelta */
+		int updates;
+
+		PartialUpdate(int length) {
+			delta = new double[length];
+			totalDelta = new double[length];
+		}
+	}
+
+	/**
+	 * implement the batch
+	 */
+	public Parameter train(List<String> paths, Parameter para, double learningRate) {
+		final double[] previousWeight = para.getWeight();
+		double[] previousTotalWeight = para.getTotalWeight();
+		int violations = para.getNoOfViolation();
+		int numberOfInstance = 0;
+
+		double[] delta = new double[length];
+		double[] totalDelta = new double[length];
+		for (String path : paths) {
+			List<List<List<String>>> dataset = reader.readData(path);
+			final List<List<String>> goodDataset = dataset.get(0);
+			final List<List<String>> badDataset = dataset.get(1);
+
+			List<Callable<PartialUpdate>> tasks = new ArrayList<Callable<PartialUpdate>>();
+			for (int start = 0; start < goodDataset.size(); start += PARTITION_SIZE) {
+				final int from = start;
+				final int to = Math.min(goodDataset.size(), start + PARTITION_SIZE);
+				tasks.add(new Callable<PartialUpdate>() {
+					public PartialUpdate call() {
+						return train(goodDataset, badDataset, from, to, previousWeight);
+					}
+				});
+			}
+
+			// combine the partitions in order
+			for (PartialUpdate update : runInParallel(tasks)) {
+				VectorKernel.axpy(update.updates, delta, totalDelta);
+				VectorKernel.add(update.totalDelta, totalDelta);
+				VectorKernel.add(update.delta, delta);
+				violations += update.violations;
+				numberOfInstance += update.numberOfInstance;
+			}
+		}
+
+		double[] currentWeight = previousWeight.clone();
+		double[] currentTotalWeight = previousTotalWeight.clone();
+		VectorKernel.axpy(learningRate, delta, currentWeight);
+		VectorKernel.axpy(learningRate, totalDelta, currentTotalWeight);
+
+		return para.withWeights(currentWeight, currentTotalWeight, violations, numberOfInstance);
+	}
+
+	/**
+	 * accumulate the update of the groups from (inclusive) to to (exclusive)
+	 */
+	private PartialUpdate train(List<List<String>> goodDataset, List<List<String>> badDataset, int from, int to, double[] previousWeight) {
+		PartialUpdate update = new PartialUpdate(length);
+
+		for (int index = from; index < to; index++) {
+			List<String> goodRecords = goodDataset.get(index);
+			List<String> badRecords = badDataset.get(index);
+
+			// get the data
+			List<State<CorefCluster>> goodStates = reader.processString(goodRecords);
+			List<State<CorefCluster>> badStates = reader.processString(badRecords);
+
+			if (!incorporateZeroVector) {
+				if (reader.isAllZero(goodStates)) continue;
+			}
+
+			// form constraint
+			ConstraintSelector.Selection selection = selector.select(goodStates, badStates, previousWeight, previousWeight);
+			update.numberOfInstance += selection.numberOfInstance;
+			update.violations += selection.violations;
+			for (int c = 0; c < selection.size(); c++) {
+				// violated current constraint
+				if (selection.violated(c)) {
+					double[] gNumericalFeatures = goodStates.get(selection.good(c)).getNumericalFeatures();
+					double[] bNumericalFeatures = badStates.get(selection.bad(c)).getNumericalFeatures();
+					update.updates += 1;
+					VectorKernel.scaledAddDifference(selection.importance(c), gNumericalFeatures, bNumericalFeatures, update.delta);
+					VectorKernel.add(update.delta, update.totalDelta);
+				}
+			}
+		}
+
+		return update;
+	}
+
+}
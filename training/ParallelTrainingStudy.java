@@ -0,0 +1,168 @@
+package edu.oregonstate.training;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import edu.oregonstate.classifier.Parameter;
+import edu.oregonstate.dataset.TopicGeneration;
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.features.FeatureFactory;
+import edu.oregonstate.general.DoubleOperation;
+import edu.oregonstate.general.VectorKernel;
+import edu.oregonstate.io.LargetFileReading;
+import edu.oregonstate.io.ResultOutput;
+import edu.oregonstate.search.State;
+import edu.oregonstate.util.EecbConstants;
+import edu.oregonstate.util.EecbConstructor;
+import edu.stanford.nlp.dcoref.CorefCluster;
+import edu.stanford.nlp.util.StringUtils;
+
+/**
+ * compare the convergence of HogwildOnline with the serial training method on the constraints of the training topics
+ * <p>
+ * The serial method (classifier.training.method, Online by default) and HogwildOnline with 1, 4, 16 and 32 threads
+ * are trained from the zero weight for classifier.epoch epochs, with the same learning rates and the same order of
+ * the files. After each epoch, the time of the epoch, the violations counted by the training method and the number
+ * of constraints violated by the current and the average weight are written to violation/parallel-study.csv.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class ParallelTrainingStudy extends ExperimentConstructor {
+
+	/** the thread counts of HogwildOnline */
+	private static final int[] THREADS = {1, 4, 16, 32};
+
+	/** training topics */
+	private final String[] trainingTopics;
+
+	/** serial training method */
+	private final String serialMethod;
+
+	/** number of epochs */
+	private final int mIterations;
+
+	public ParallelTrainingStudy(Properties props) {
+		super(props);
+
+		TopicGeneration topicGenerator = new TopicGeneration(props);
+		trainingTopics = topicGenerator.trainingTopics();
+		serialMethod = props.getProperty(EecbConstants.CLASSIFIER_TRAINING_METHOD, "Online");
+		mIterations = Integer.parseInt(props.getProperty(EecbConstants.CLASSIFIER_EPOCH_PROP, "50"));
+	}
+
+	/**
+	 * perform the experiment
+	 */
+	public void performExperiment() {
+		List<String> paths = getPaths();
+		String studyFile = experimentFolder + "/violation/parallel-study.csv";
+		ResultOutput.writeTextFile(studyFile, "method\tthreads\tepoch\ttime(ms)\tviolations\tcurrent weight violations\taverage weight violations");
+
+		// each run sets the threads in the shared properties, restore them afterwards
+		String originalThreads = experimentProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_THREADS);
+		try {
+			run(serialMethod, 1, paths, studyFile);
+			for (int threads : THREADS) {
+				run("HogwildOnline", threads, paths, studyFile);
+			}
+		} finally {
+			if (originalThreads == null) {
+				experimentProps.remove(EecbConstants.CLASSIFIER_TRAINING_THREADS);
+			} else {
+				experimentProps.setProperty(EecbConstants.CLASSIFIER_TRAINING_THREADS, originalThreads);
+			}
+		}
+	}
+
+	// train one method from the zero weight and record each epoch
+	private void run(String method, int threads, List<String> paths, String studyFile) {
+		experimentProps.setProperty(EecbConstants.CLASSIFIER_TRAINING_THREADS, "" + threads);
+		ITraining trainingModel = EecbConstructor.createTrainingModel(method);
+
+		double startingRate = Double.parseDouble(experimentProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_PERCEPTRON_STARTRATE, "0.1"));
+		boolean learningRateConstant = Boolean.parseBoolean(experimentProps.getProperty(EecbConstants.CLASSIFIER_TRAINING_PERCEPTRON_LEARINGRATE_CONSTANT, "false"));
+		double[] learningRates = DoubleOperation.createDescendingArray(startingRate, learningRateConstant ? startingRate : 0.0, mIterations);
+
+		Parameter para = new Parameter(new double[FeatureFactory.getFeatureTemplate().size()]);
+		for (int i = 0; i < mIterations; i++) {
+			// every method sees the files in the same order
+			List<String> epochPaths = new ArrayList<String>(paths);
+			Collections.shuffle(epochPaths, new Random(i));
+
+			int beforeViolation = para.getNoOfViolation();
+			long start = System.currentTimeMillis();
+			para = trainingModel.train(epochPaths, para, learningRates[i]);
+			long time = System.currentTimeMillis() - start;
+
+			int currentViolations = countViolations(paths, para.getWeight());
+			int averageViolations = countViolations(paths, para.generateWeightForTesting());
+			ResultOutput.writeTextFile(studyFile, method + "\t" + threads + "\t" + i + "\t" + time + "\t"
+					+ (para.getNoOfViolation() - beforeViolation) + "\t" + currentViolations + "\t" + averageViolations);
+		}
+	}
+
+	// the number of constraints violated by the weight
+	private int countViolations(List<String> paths, double[] weight) {
+		LargetFileReading reader = new LargetFileReading();
+		int violations = 0;
+		for (String path : paths) {
+			List<List<List<String>>> dataset = reader.readData(path);
+			List<List<String>> goodDataset = dataset.get(0);
+			List<List<String>> badDataset = dataset.get(1);
+			for (int index = 0; index < goodDataset.size(); index++) {
+				List<State<CorefCluster>> goodStates = reader.processString(goodDataset.get(index));
+				List<State<CorefCluster>> badStates = reader.processString(badDataset.get(index));
+				for (State<CorefCluster> goodState : goodStates) {
+					for (State<CorefCluster> badState : badStates) {
+						if (goodState.getF1Score() == badState.getF1Score()) continue;
+						if (VectorKernel.dotDifference(weight, goodState.getNumericalFeatures(), badState.getNumericalFeatures()) <= 0.0) {
+							violations += 1;
+						}
+					}
+				}
+			}
+		}
+		return violations;
+	}
+
+	/**
+	 * the constraint files of the training topics
+	 */
+	private List<String> getPaths() {
+		List<String> allfiles = new ArrayList<String>();
+		for (String topic : trainingTopics) {
+			String topicPath = experimentFolder + "/" + topic + "/data/";
+			for (String file : Arrays.asList(new File(topicPath).list())) {
+				allfiles.add(topicPath + file);
+			}
+		}
+
+		return allfiles;
+	}
+
+	public static void main(String[] args) {
+		if (args.length > 1) {
+			System.out.println("there are more parameters, you just can specify one path parameter.....");
+			System.exit(1);
+		}
+
+		if (args.length == 0) {
+			// run the experiment in the local machine for debugging
+			args = new String[1];
+			args[0] = "../corpus/config.properties";
+		}
+
+		String[] propArgs = new String[]{"-props", args[0]};
+
+		Properties props = StringUtils.argsToProperties(propArgs);
+		ExperimentConstructor study = new ParallelTrainingStudy(props);
+		study.performExperiment();
+	}
+
+}
@@ -0,0 +1,64 @@
+package edu.oregonstate.training;
+
+import edu.oregonstate.classifier.Covariance;
+import edu.oregonstate.classifier.DiagonalCovariance;
+import edu.oregonstate.classifier.Parameter;
+import edu.oregonstate.cluster.SparseVector;
+
+/**
+ * the AROWOnline update on the sparse features with a diagonal covariance
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class SparseAROWOnline extends ISparseTraining {
+
+	/** the variance of the current epoch */
+	private DiagonalCovariance variance;
+
+	@Override
+	protected void initialize(Parameter finalParameter) {
+		if (!finalParameter.hasCovariance()) {
+			variance = new DiagonalCovariance(finalParameter.getWeight().length);
+			return;
+		}
+
+		Covariance covariance = finalParameter.getMutableCovariance();
+		if (!(covariance instanceof DiagonalCovariance)) {
+			throw new IllegalStateException("SparseAROWOnline needs a diagonal covariance");
+		}
+		variance = (DiagonalCovariance) covariance;
+	}
+
+	protected void update(LazyAveragedWeight weight, SparseVector direction, double gLossScore, double bLossScore, double learningRate, double importance) {
+		double score = weight.dot(direction);
+		double margin = score;
+		if (enableNormalizeWeight) {
+			double norm = weight.norm();
+			margin = norm == 0.0 ? 0.0 : score / norm;
+		}
+
+		if (margin < 1) {
+			double quadratic = variance.quadraticForm(direction);
+			double beta = 1 / (quadratic + mHyperParameter);
+			double alpha = importance * Math.max(0, beta * (1 - score));
+
+			// update the weight and variance, Sigma x is zero iff the quadratic form is
+			if (alpha != 0.0 && quadratic != 0.0) {
+				weight.beginUpdate();
+				for (int p = 0; p < direction.size(); p++) {
+					int index = direction.getIndex(p);
+					weight.add(index, alpha * variance.get(index) * direction.getValue(p));
+				}
+
+				variance.rankOneUpdate(direction, beta);
+			}
+		}
+	}
+
+	@Override
+	protected Parameter createParameter(Parameter finalParameter, double[] weight, double[] totalWeight, int violation, int numberOfInstance) {
+		return new Parameter(weight, variance, totalWeight, violation, numberOfInstance);
+	}
+
+}
@@ -0,0 +1,20 @@
+package edu.oregonstate.training;
+
+import edu.oregonstate.cluster.SparseVector;
+
+/**
+ * the Online perceptron update on the sparse features
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class SparseOnline extends ISparseTraining {
+
+	protected void update(LazyAveragedWeight weight, SparseVector direction, double gLossScore, double bLossScore, double learningRate, double importance) {
+		// violated current constraint
+		if (weight.dot(direction) <= 0.0) {
+			weight.update(direction, importance * learningRate);
+		}
+	}
+
+}
@@ -0,0 +1,25 @@
+package edu.oregonstate.training;
+
+import edu.oregonstate.cluster.SparseVector;
+
+/**
+ * the PAOnline update on the sparse features
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class SparsePAOnline extends ISparseTraining {
+
+	protected void update(LazyAveragedWeight weight, SparseVector direction, double gLossScore, double bLossScore, double learningRate, double importance) {
+		// calculate the loss
+		double loss = calculatePALoss(gLossScore, bLossScore, weight.dot(direction), weight.norm());
+		if (loss > 0) {
+			double directionNorm = Math.sqrt(direction.squaredNorm());
+			if (directionNorm == 0.0) return;
+
+			double tau = importance * loss / directionNorm;
+			weight.update(direction, tau);
+		}
+	}
+
+}
@@ -1,13 +1,383 @@
 package edu.oregonstate.tuning;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.oregonstate.dataset.CorefSystemPool;
+import edu.oregonstate.dataset.TopicGeneration;
+import edu.oregonstate.experiment.ExperimentConstructor;
+import edu.oregonstate.features.PairFeatureCache;
+import edu.oregonstate.io.ModelCheckpoint;
+import edu.oregonstate.io.ResultOutput;
+import edu.oregonstate.search.ISearch;
+import edu.oregonstate.search.State;
+import edu.oregonstate.util.Command;
+import edu.oregonstate.util.DocumentAlignment;
+import edu.oregonstate.util.EecbConstants;
+import edu.oregonstate.util.EecbConstructor;
+import edu.stanford.nlp.dcoref.CorefCluster;
+import edu.stanford.nlp.dcoref.CorefScorer;
+import edu.stanford.nlp.dcoref.CorefScorer.ScoreType;
+import edu.stanford.nlp.dcoref.Document;
+
 /**
  * tune the parameter or choose which model generated by the Dagger framework are the best by decoding 
  * on the development set
+ * <p>
+ * Every development topic is decoded under every candidate model on a thread pool. The serialized documents are
+ * read once and each decode deserializes its own copy from memory, and the features of the cluster pairs are
+ * shared by the decodes through {@link PairFeatureCache}, as they do not depend on the weight. The models are
+ * compared by the loss score of the experiment on the whole development set, computed from the summed counts of
+ * the topics. A model is stopped as soon as it can not overtake the best finished model even if its remaining topics
+ * were resolved perfectly. The score table is written to tuning/models.csv, and the best model to model/best.bin
+ * and its name to model/best.
  * 
  * @author Jun Xie (xie@eecs.oregonstate.edu)
  *
  */
 public class TuningFactory {
 
+	/* experiment properties */
+	private final Properties mProps;
+
+	/** development topics */
+	private final String[] mDevelopmentTopics;
+
+	/** search method */
+	private final String searchMethod;
+
+	/* log file */
+	private final String logFile;
+
+	/* serialized output */
+	private final String serializeOutput;
+
+	/* experiment result folder */
+	private final String experimentResultFolder;
+
+	/* whether post-process the development set */
+	private final boolean postProcess;
+
+	/* whether the document takes the state with the best loss score */
+	private final boolean bestStateScore;
+
+	/* loss score type */
+	private final ScoreType lossScoreType;
+
+	/* number of decodes at the same time */
+	private final int mThreads;
+
+	/* whether stop the models which can not win */
+	private final boolean mPrune;
+
+	/* the number of cluster pairs whose features are cached */
+	private final int mFeatureCacheSize;
+
+	/** the best finished model */
+	private Candidate best;
+
+	public TuningFactory() {
+		mProps = ExperimentConstructor.experimentProps;
+		TopicGeneration topicGenerator = new TopicGeneration(mProps);
+		mDevelopmentTopics = topicGenerator.developmentTopics();
+		experimentResultFolder = ExperimentConstructor.experimentFolder;
+		serializeOutput = experimentResultFolder + "/document";
+		logFile = ExperimentConstructor.experimentLogFile;
+		searchMethod = mProps.getProperty(EecbConstants.SEARCH_METHOD, "BeamSearch");
+		postProcess = ExperimentConstructor.postProcess;
+		bestStateScore = Boolean.parseBoolean(mProps.getProperty(EecbConstants.SEARCH_BESTSTATE, "true"));
+		lossScoreType = ScoreType.valueOf(mProps.getProperty(EecbConstants.LOSSFUNCTION_SCORE_PROP, "Pairwise"));
+		mThreads = Integer.parseInt(mProps.getProperty(EecbConstants.TUNING_THREADS, "" + Runtime.getRuntime().availableProcessors()));
+		mPrune = Boolean.parseBoolean(mProps.getProperty(EecbConstants.TUNING_PRUNE, "true"));
+		mFeatureCacheSize = Integer.parseInt(mProps.getProperty(EecbConstants.TUNING_FEATURE_CACHE, "1000000"));
+	}
+
+	/**
+	 * select among the models of the tuning models property, by default every model/model*.bin
+	 *
+	 * @return the name of the best model
+	 */
+	public String selectModel() {
+		List<String> paths = new ArrayList<String>();
+		String models = mProps.getProperty(EecbConstants.TUNING_MODELS, "");
+		if (models.trim().length() > 0) {
+			for (String path : models.split(",")) {
+				paths.add(path.trim());
+			}
+		} else {
+			File[] files = new File(experimentResultFolder + "/model").listFiles();
+			if (files != null) {
+				for (File file : files) {
+					if (file.getName().startsWith("model") && file.getName().endsWith(".bin")) {
+						paths.add(file.getPath());
+					}
+				}
+			}
+			Collections.sort(paths);
+		}
+
+		List<String> names = new ArrayList<String>();
+		List<double[]> weights = new ArrayList<double[]>();
+		for (String path : paths) {
+			String name = new File(path).getName();
+			names.add(name.endsWith(".bin") ? name.substring(0, name.length() - 4) : name);
+			weights.add(ModelCheckpoint.readModel(path));
+		}
+
+		int index = selectModel(names, weights);
+		return index < 0 ? null : names.get(index);
+	}
+
+	/**
+	 * select the best of the weights on the development set
+	 *
+	 * @param names the names of the models, used in the table and the phase of the decodes
+	 * @param weights the weights used for testing
+	 * @return the index of the best model, -1 if there is none
+	 */
+	public int selectModel(List<String> names, List<double[]> weights) {
+		ResultOutput.writeTextFile(logFile, "\nBegin model selection of " + names.size() + " models on " + mDevelopmentTopics.length + " development topics\n");
+		if (names.isEmpty()) return -1;
+		long startTime = System.currentTimeMillis();
+
+		// the topics which weigh the most in the score are decoded first, so the bounds tighten early
+		DocumentCache documents = new DocumentCache();
+		final Map<String, Double> topicWeight = new HashMap<String, Double>();
+		double totalWeight = 0.0;
+		for (String topic : mDevelopmentTopics) {
+			Document document = documents.get(topic);
+			DocumentAlignment.alignDocument(document);
+			double recallDenominator = score(document)[3];
+			topicWeight.put(topic, recallDenominator);
+			totalWeight += recallDenominator;
+		}
+		String[] topics = mDevelopmentTopics.clone();
+		Arrays.sort(topics, new Comparator<String>() {
+			public int compare(String a, String b) {
+				return Double.compare(topicWeight.get(b), topicWeight.get(a));
+			}
+		});
+
+		best = null;
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		for (int i = 0; i < names.size(); i++) {
+			candidates.add(new Candidate(i, names.get(i), weights.get(i), topics.length, totalWeight));
+		}
+
+		// the decodes of a model are queued together, so the first models finish early and bound the others
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (final Candidate candidate : candidates) {
+			for (final String topic : topics) {
+				final double weight = topicWeight.get(topic);
+				final DocumentCache cache = documents;
+				tasks.add(new Callable<Object>() {
+					public Object call() {
+						decode(candidate, topic, weight, cache);
+						return null;
+					}
+				});
+			}
+		}
+
+		Command.mkdir(experimentResultFolder + "/tuning");
+		PairFeatureCache.enable(mFeatureCacheSize);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(mThreads, tasks.size())));
+		try {
+			for (Future<Object> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			ResultOutput.writeTextFile(logFile, "pair feature cache : " + PairFeatureCache.getHits() + " hits, " + PairFeatureCache.getMisses() + " misses");
+			PairFeatureCache.disable();
+		}
+
+		// name, decoded topics, finished or stopped, F1, precision, recall and the bound when stopped
+		String table = experimentResultFolder + "/tuning/models.csv";
+		for (Candidate candidate : candidates) {
+			double[] prf = candidate.score();
+			ResultOutput.writeTextFile(table, candidate.name + "\t" + candidate.decoded + "\t" + (candidate.isFinished() ? "finished" : "stopped") + "\t" +
+					prf[2] + "\t" + prf[0] + "\t" + prf[1] + "\t" + candidate.bound());
+		}
+
+		long selectionTime = System.currentTimeMillis() - startTime;
+		if (best == null) return -1;
+		ResultOutput.writeTextFile(logFile, "the best model : " + best.name + " with " + lossScoreType + " F1 " + best.score()[2] + ", model selection takes " + selectionTime + " ms");
+		ModelCheckpoint.writeModel(experimentResultFolder + "/model/best.bin", best.weight);
+		ResultOutput.writeTextFile(experimentResultFolder + "/model/best", best.name);
+		return best.index;
+	}
+
+	// decode the topic under the model unless the model has been stopped
+	private void decode(Candidate candidate, String topic, double topicWeight, DocumentCache documents) {
+		if (candidate.stopped) return;
+
+		String phaseID = "selection-" + candidate.name;
+		Document document = documents.get(topic);
+		Command.mkdir(experimentResultFolder + "/" + topic);
+
+		ISearch search = EecbConstructor.createSearchMethod(searchMethod);
+		State<CorefCluster> bestLossState = search.testingBySearch(document, candidate.weight, phaseID, false, 0.0);
+		if (bestStateScore) {
+			document.corefClusters = bestLossState.getState();
+		}
+		DocumentAlignment.alignDocument(document);
+		CorefSystemPool.applyPronounSieve(document);
+		if (postProcess) {
+			DocumentAlignment.postProcessDocument(document);
+		}
+
+		double[] counts = score(document);
+		synchronized (this) {
+			candidate.add(counts, topicWeight);
+			if (candidate.isFinished()) {
+				if (best == null || candidate.score()[2] > best.score()[2] || (candidate.score()[2] == best.score()[2] && candidate.index < best.index)) {
+					best = candidate;
+				}
+			} else if (mPrune && best != null && candidate.bound() < best.score()[2]) {
+				candidate.stopped = true;
+				ResultOutput.writeTextFile(logFile, "stop model " + candidate.name + " after " + candidate.decoded + " topics, its bound " + candidate.bound() +
+						" is below " + best.score()[2] + " of " + best.name);
+			}
+		}
+	}
+
+	// precision numerator and denominator, recall numerator and denominator of the document
+	private double[] score(Document document) {
+		CorefScorer scorer = EecbConstructor.createCorefScorer(lossScoreType);
+		scorer.calculateScore(document);
+		return new double[] { scorer.precisionNumSum, scorer.precisionDenSum, scorer.recallNumSum, scorer.recallDenSum };
+	}
+
+	/** a model and its summed counts on the decoded topics */
+	private static class Candidate {
+		final int index;
+		final String name;
+		final double[] weight;
+
+		/** summed counts, see score */
+		final double[] counts = new double[4];
+
+		/** the number of topics, and the recall denominator of the topics not decoded yet, only used by the bound */
+		final int numberOfTopics;
+		double remaining;
+		int decoded;
+		volatile boolean stopped;
+
+		Candidate(int index, String name, double[] weight, int numberOfTopics, double totalWeight) {
+			this.index = index;
+			this.name = name;
+			this.weight = weight;
+			this.numberOfTopics = numberOfTopics;
+			remaining = totalWeight;
+		}
+
+		void add(double[] topicCounts, double topicWeight) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += topicCounts[i];
+			}
+			remaining -= topicWeight;
+			decoded += 1;
+		}
+
+		// a topic without recall denominator still changes the precision, so every topic has to be decoded
+		boolean isFinished() {
+			return !stopped && decoded == numberOfTopics;
+		}
+
+		/** precision, recall and F1 on the decoded topics, in percent */
+		double[] score() {
+			double precision = counts[1] == 0.0 ? 0.0 : counts[0] / counts[1];
+			double recall = counts[3] == 0.0 ? 0.0 : counts[2] / counts[3];
+			return new double[] { precision * 100, recall * 100, f1(precision, recall) * 100 };
+		}
+
+		/**
+		 * the largest F1 the model can reach, the remaining topics adding their whole recall denominator to the
+		 * recall numerator and the precision being at most one
+		 */
+		double bound() {
+			if (decoded == numberOfTopics) return score()[2];
+			double denominator = counts[3] + Math.max(0.0, remaining);
+			double recall = denominator == 0.0 ? 0.0 : (counts[2] + Math.max(0.0, remaining)) / denominator;
+			return f1(1.0, recall) * 100;
+		}
+
+		private static double f1(double precision, double recall) {
+			return precision + recall == 0.0 ? 0.0 : 2 * precision * recall / (precision + recall);
+		}
+	}
+
+	/** the serialized documents of the topics in memory, each get returns a new copy */
+	private class DocumentCache {
+		private final Map<String, byte[]> documents = new HashMap<String, byte[]>();
+
+		synchronized byte[] bytes(String topic) {
+			byte[] serialized = documents.get(topic);
+			if (serialized == null) {
+				serialized = read(serializeOutput + "/" + topic + ".ser");
+				documents.put(topic, serialized);
+			}
+			return serialized;
+		}
+
+		Document get(String topic) {
+			try {
+				ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes(topic)));
+				try {
+					return (Document) in.readObject();
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			} catch (ClassNotFoundException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		private byte[] read(String path) {
+			File file = new File(path);
+			byte[] serialized = new byte[(int) file.length()];
+			try {
+				InputStream in = new FileInputStream(file);
+				try {
+					int offset = 0;
+					while (offset < serialized.length) {
+						int read = in.read(serialized, offset, serialized.length - offset);
+						if (read < 0) throw new IOException("unexpected end of " + path);
+						offset += read;
+					}
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return serialized;
+		}
+	}
 	
-}
\ No newline at end of file
+}
@@ -93,12 +93,13 @@ public class Command {
 	 */
 	public static void generateStateDocument(Document stateDocument, State<CorefCluster> state) {
 		stateDocument.corefClusters = state.getState();
+		DocumentMentionIndex index = DocumentMentionIndex.of(stateDocument);
 
 		for (Integer id : stateDocument.corefClusters.keySet()) {
 			CorefCluster cluster = stateDocument.corefClusters.get(id);
 			for (Mention m : cluster.corefMentions) {
 				int mentionID = m.mentionID;
-				Mention correspondingMention = stateDocument.allPredictedMentions.get(mentionID);
+				Mention correspondingMention = index.getPredictedMention(mentionID);
 				int clusterid = id;
 				correspondingMention.corefClusterID = clusterid;
 			}
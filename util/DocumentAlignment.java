@@ -1,6 +1,5 @@
 package edu.oregonstate.util;
 
-import java.util.List;
 import java.util.Map;
 
 import edu.oregonstate.experiment.ExperimentConstructor;
@@ -22,28 +21,19 @@ public class DocumentAlignment {
 	}
 	
 	private static void updateOrderedPredictedMentions(Document document) {
-		List<List<Mention>> predictedOrderedMentionsBySentence = document.getOrderedMentions();
+		DocumentMentionIndex index = DocumentMentionIndex.of(document);
 		Map<Integer, CorefCluster> corefClusters = document.corefClusters;
 		for (Integer clusterID : corefClusters.keySet()) {
 			CorefCluster cluster = corefClusters.get(clusterID);
 			for (Mention m : cluster.getCorefMentions()) {
-				int sentenceID = m.sentNum;
-				List<Mention> mentions = predictedOrderedMentionsBySentence.get(sentenceID);
-				int mStartIndex = m.startIndex;
-				int mEndIndex = m.endIndex;
-				for (Mention mention : mentions) {
-					int mentionStartIndex = mention.startIndex;
-					int mentionEndIndex = mention.endIndex;
-					if (mentionStartIndex == mStartIndex && mentionEndIndex == mEndIndex) {
-						mention.mentionID = m.mentionID;
-						break;
-					}
+				Mention mention = index.findPredictedMention(m.sentNum, m.startIndex, m.endIndex);
+				if (mention != null) {
+					mention.mentionID = m.mentionID;
 				}
 				
-				
 				int mentionID = m.mentionID;
-                Mention correspondingMention = document.allPredictedMentions.get(mentionID);
-                correspondingMention.corefClusterID = clusterID;
+				Mention correspondingMention = index.getPredictedMention(mentionID);
+				correspondingMention.corefClusterID = clusterID;
 			}
 		}
 	}
@@ -54,27 +44,19 @@ public class DocumentAlignment {
 	 * @param document
 	 */
 	private static void updateOrderedGoldMentions(Document document) {
-		List<List<Mention>> goldOrderedMentionsBySentence = document.goldOrderedMentionsBySentence;
+		DocumentMentionIndex index = DocumentMentionIndex.of(document);
 		Map<Integer, CorefCluster> goldClusters = document.goldCorefClusters;
 		for (Integer clusterID : goldClusters.keySet()) {
 			CorefCluster cluster = goldClusters.get(clusterID);
 			for (Mention m : cluster.getCorefMentions()) {
-				int sentenceID = m.sentNum;
-				List<Mention> mentions = goldOrderedMentionsBySentence.get(sentenceID);
-				int mStartIndex = m.startIndex;
-				int mEndIndex = m.endIndex;
-				for (Mention mention : mentions) {
-					int mentionStartIndex = mention.startIndex;
-					int mentionEndIndex = mention.endIndex;
-					if (mentionStartIndex == mStartIndex && mentionEndIndex == mEndIndex) {
-						mention.mentionID = m.mentionID;
-						break;
-					}
+				Mention mention = index.findGoldMention(m.sentNum, m.startIndex, m.endIndex);
+				if (mention != null) {
+					mention.mentionID = m.mentionID;
 				}
 				
 				int mentionID = m.mentionID;
-                Mention correspondingMention = document.allGoldMentions.get(mentionID);
-                correspondingMention.goldCorefClusterID = clusterID;
+				Mention correspondingMention = index.getGoldMention(mentionID);
+				correspondingMention.goldCorefClusterID = clusterID;
 			}
 		}
 	}
@@ -0,0 +1,199 @@
+package edu.oregonstate.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import edu.stanford.nlp.dcoref.Document;
+import edu.stanford.nlp.dcoref.Mention;
+
+/**
+ * Per-document index of the mentions, used to align the clusters of a state with the document
+ * <p>
+ * The ordered mentions are indexed by (sentNum, startIndex, endIndex), and allPredictedMentions and allGoldMentions
+ * are copied into dense arrays indexed by mentionID minus the smallest mentionID, as the IDs are offset by the topic.
+ * The span keys do not change when the alignment rewrites the
+ * mention IDs of the ordered mentions, so the index is built once per document and only rebuilt when the mention
+ * collections of the document are replaced or resized.
+ *
+ * @author Jun Xie (xie@eecs.oregonstate.edu)
+ *
+ */
+public class DocumentMentionIndex {
+
+	/** index of each document, the entries are dropped together with the documents */
+	private static final Map<Document, DocumentMentionIndex> indices = new WeakHashMap<Document, DocumentMentionIndex>();
+
+	/** the collections the index was built from */
+	private final List<List<Mention>> predictedOrderedMentions;
+	private final List<List<Mention>> goldOrderedMentions;
+	private final Map<Integer, Mention> allPredictedMentions;
+	private final Map<Integer, Mention> allGoldMentions;
+	private final int predictedMentionSize;
+	private final int goldMentionSize;
+	private final int predictedOrderedSize;
+	private final int goldOrderedSize;
+
+	/** span key to the first ordered mention with that span */
+	private final Map<Long, Mention> predictedSpans;
+	private final Map<Long, Mention> goldSpans;
+
+	/** mentionID to mention */
+	private final MentionArray predictedMentions;
+	private final MentionArray goldMentions;
+
+	private DocumentMentionIndex(Document document) {
+		predictedOrderedMentions = document.getOrderedMentions();
+		goldOrderedMentions = document.goldOrderedMentionsBySentence;
+		allPredictedMentions = document.allPredictedMentions;
+		allGoldMentions = document.allGoldMentions;
+		predictedMentionSize = sizeOf(allPredictedMentions);
+		goldMentionSize = sizeOf(allGoldMentions);
+		predictedOrderedSize = countMentions(predictedOrderedMentions);
+		goldOrderedSize = countMentions(goldOrderedMentions);
+
+		predictedSpans = indexSpans(predictedOrderedMentions, predictedOrderedSize);
+		goldSpans = indexSpans(goldOrderedMentions, goldOrderedSize);
+		predictedMentions = indexIDs(allPredictedMentions);
+		goldMentions = indexIDs(allGoldMentions);
+	}
+
+	/**
+	 * the index of the document, built on the first call and rebuilt if the mentions of the document changed
+	 *
+	 * @param document
+	 * @return
+	 */
+	public static DocumentMentionIndex of(Document document) {
+		synchronized (indices) {
+			DocumentMentionIndex index = indices.get(document);
+			if (index == null || !index.isValid(document)) {
+				index = new DocumentMentionIndex(document);
+				indices.put(document, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * the predicted ordered mention with the span
+	 *
+	 * @param sentNum
+	 * @param startIndex
+	 * @param endIndex
+	 * @return null if not found
+	 */
+	public Mention findPredictedMention(int sentNum, int startIndex, int endIndex) {
+		return predictedSpans.get(key(sentNum, startIndex, endIndex));
+	}
+
+	/**
+	 * the gold ordered mention with the span
+	 *
+	 * @param sentNum
+	 * @param startIndex
+	 * @param endIndex
+	 * @return null if not found
+	 */
+	public Mention findGoldMention(int sentNum, int startIndex, int endIndex) {
+		return goldSpans.get(key(sentNum, startIndex, endIndex));
+	}
+
+	/** the mention of allPredictedMentions with the mention ID */
+	public Mention getPredictedMention(int mentionID) {
+		return predictedMentions.lookup(allPredictedMentions, mentionID);
+	}
+
+	/** the mention of allGoldMentions with the mention ID */
+	public Mention getGoldMention(int mentionID) {
+		return goldMentions.lookup(allGoldMentions, mentionID);
+	}
+
+	// the index is valid as long as the document keeps the same mention collections of the same size
+	private boolean isValid(Document document) {
+		return predictedOrderedMentions == document.getOrderedMentions()
+				&& goldOrderedMentions == document.goldOrderedMentionsBySentence
+				&& allPredictedMentions == document.allPredictedMentions
+				&& allGoldMentions == document.allGoldMentions
+				&& predictedMentionSize == sizeOf(document.allPredictedMentions)
+				&& goldMentionSize == sizeOf(document.allGoldMentions)
+				&& predictedOrderedSize == countMentions(document.getOrderedMentions())
+				&& goldOrderedSize == countMentions(document.goldOrderedMentionsBySentence);
+	}
+
+	// pack the span into one long, sentNum and the token indices are far below 2^21
+	private static long key(int sentNum, int startIndex, int endIndex) {
+		return ((long) sentNum << 42) | ((long) (startIndex & 0x1FFFFF) << 21) | (endIndex & 0x1FFFFF);
+	}
+
+	private static Map<Long, Mention> indexSpans(List<List<Mention>> orderedMentions, int size) {
+		Map<Long, Mention> spans = new HashMap<Long, Mention>(Math.max(16, size * 2));
+		if (orderedMentions == null) return spans;
+
+		for (int sentNum = 0; sentNum < orderedMentions.size(); sentNum++) {
+			for (Mention mention : orderedMentions.get(sentNum)) {
+				Long key = key(sentNum, mention.startIndex, mention.endIndex);
+				// keep the first mention of the sentence with the span, as the linear scan did
+				if (!spans.containsKey(key)) {
+					spans.put(key, mention);
+				}
+			}
+		}
+		return spans;
+	}
+
+	private static MentionArray indexIDs(Map<Integer, Mention> mentions) {
+		if (mentions == null || mentions.isEmpty()) return new MentionArray(0, new Mention[0]);
+
+		long minID = Long.MAX_VALUE;
+		long maxID = Long.MIN_VALUE;
+		for (Integer mentionID : mentions.keySet()) {
+			minID = Math.min(minID, mentionID);
+			maxID = Math.max(maxID, mentionID);
+		}
+		// a sparse ID range would waste memory, keep using the map then
+		long span = maxID - minID + 1;
+		if (span > 4L * mentions.size() + 1024) return new MentionArray(0, new Mention[0]);
+
+		Mention[] dense = new Mention[(int) span];
+		for (Map.Entry<Integer, Mention> entry : mentions.entrySet()) {
+			dense[(int) (entry.getKey() - minID)] = entry.getValue();
+		}
+		return new MentionArray((int) minID, dense);
+	}
+
+	private static int sizeOf(Map<Integer, Mention> mentions) {
+		return mentions == null ? 0 : mentions.size();
+	}
+
+	private static int countMentions(List<List<Mention>> orderedMentions) {
+		if (orderedMentions == null) return 0;
+		int size = 0;
+		for (List<Mention> mentions : orderedMentions) {
+			size += mentions.size();
+		}
+		return size;
+	}
+
+	/** the mentions indexed by mentionID - minID */
+	private static class MentionArray {
+		private final int minID;
+		private final Mention[] mentions;
+
+		MentionArray(int minID, Mention[] mentions) {
+			this.minID = minID;
+			this.mentions = mentions;
+		}
+
+		// mention IDs outside of the dense array fall back to the map
+		Mention lookup(Map<Integer, Mention> map, int mentionID) {
+			long position = (long) mentionID - minID;
+			if (position >= 0 && position < mentions.length && mentions[(int) position] != null) {
+				return mentions[(int) position];
+			}
+			return map == null ? null : map.get(mentionID);
+		}
+	}
+
+}
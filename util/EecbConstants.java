@@ -62,11 +62,31 @@ public class EecbConstants {
 	// WORDNET path
 	public static final String WORDNET_PROP = "wordnet";		// MUST
 	
+	// use the compiled memory-mapped index of Dekang Lin's thesaurus instead of loading the .lsp files
+	public static final String THESAURUS_INDEX_PROP = "thesaurus.index";
+	
+	// the precomputed WordNet relation table, which is loaded at the beginning and saved after data generation
+	public static final String WORDNET_CACHE_PROP = "wordnet.cache";
+	
 	// whether use all sieves or all sieves except Pronoun sieve
 	public static final String SIEVE_PROP = "sieve";
 	
 	// current phase
 	public static final String PHASE_PROP = "phase";
+	
+	// where the jobs of the pipeline run: local (processes of this machine) or sge (qsub on the cluster)
+	public static final String PIPELINE_BACKEND_PROP = "pipeline.backend";
+	
+	// number of jobs of the local pipeline backend running at the same time, default the number of processors
+	public static final String PIPELINE_PROCESSES_PROP = "pipeline.processes";
+	
+	// number of jobs of the sge pipeline backend on the cluster at the same time, and the number of them sharing
+	// one SSH session, which has to stay below the MaxSessions of the submit host
+	public static final String PIPELINE_SGE_JOBS_PROP = "pipeline.sge.jobs";
+	public static final String PIPELINE_SGE_CHANNELS_PROP = "pipeline.sge.channels";
+	
+	// maximum number of shared coref systems (and parsers) of each kind in one JVM
+	public static final String COREFSYSTEM_POOL_SIZE_PROP = "corefsystem.pool.size";
 
 	//
 	// datageneration settings
@@ -87,6 +107,12 @@ public class EecbConstants {
 	public static final String DATAGENERATION_DEVELOPMENTSET_PROP = "datageneration.developmentset";
 	// stanford preprocessing
 	public static final String DATAGENERATION_STANFORD_PREPROCESSING = "datageneration.stanford.preprocessing";
+	// reuse the cached Stanford annotations if the source text and annotators are unchanged
+	public static final String DATAGENERATION_ANNOTATION_CACHE_PROP = "datageneration.annotation.cache";
+	// process all topics of the training, testing and development set in one job
+	public static final String DATAGENERATION_MULTITOPIC_PROP = "datageneration.multitopic";
+	// estimated memory (MB) used by one parser, bound the number of topics parsed at the same time
+	public static final String DATAGENERATION_PARSER_MEMORY_PROP = "datageneration.parser.memory";
 	
 	//
 	// search settings
@@ -117,11 +143,20 @@ public class EecbConstants {
 	//
 	// classifier setting
 	//
+	// StructuredPerceptron, or RankSVM trained by dual coordinate descent
 	public static final String CLASSIFIER_METHOD = "classifier";
 	public static final String CLASSIFIER_EPOCH_PROP = "classifier.epoch";
 	public static final String CLASSIFIER_ITERATION_RESULT = "classifier.iteration.result";
 	public static final String CLASSIFIER_ITEARTION_GAP = "classifier.iteration.gap";
-	// use which training method to train the algorithm, Online, OnlineToBatch, Batch
+	// whether a binary checkpoint is written after each epoch to the checkpoint folder of the experiment
+	public static final String CLASSIFIER_CHECKPOINT = "classifier.checkpoint";
+	// the checkpoint to resume the training from, a path or latest for the last checkpoint of the model
+	public static final String CLASSIFIER_CHECKPOINT_RESUME = "classifier.checkpoint.resume";
+	// the number of the latest checkpoints kept for each model, 0 (the default) keeps every checkpoint, so the training
+	// can resume from any epoch
+	public static final String CLASSIFIER_CHECKPOINT_KEEP = "classifier.checkpoint.keep";
+	// use which training method to train the algorithm, Online, OnlineToBatch, Batch, ParallelBatch, HogwildOnline,
+	// SparseOnline, SparsePAOnline, SparseAROWOnline (needed for feature.hashing.bits > 0)
 	public static final String CLASSIFIER_TRAINING_METHOD = "classifier.training.method";
 	public static final String CLASSIFIER_TRAINING_NORMALIZE_WEIGHT = "classifier.training.normalize.weight";
 	public static final String CLASSIFIER_TRAINING_INCORPORATE_ZERO_CASE = "classifier.training.incorporate.zero.case";
@@ -134,6 +169,28 @@ public class EecbConstants {
 	public static final String CLASSIFIER_TRAINING_PA_MARGIN = "classifier.training.pa.margin";
 	// experiment hyperparameter
 	public static final String CLASSIFIER_TRAINING_HYPERPARAMETER = "classifier.training.hyperparameter";
+	// AROW covariance representation, full, diagonal or lowrank, and the rank of the lowrank representation
+	public static final String CLASSIFIER_TRAINING_AROW_COVARIANCE = "classifier.training.arow.covariance";
+	public static final String CLASSIFIER_TRAINING_AROW_RANK = "classifier.training.arow.rank";
+	// number of threads used by the parallel training methods, default the number of processors
+	public static final String CLASSIFIER_TRAINING_THREADS = "classifier.training.threads";
+	// constraint selection: all, topk, margin or sample; each key can be overridden for one training method 
+	// by appending its name, for example classifier.training.constraint.selection.PAOnline
+	public static final String CLASSIFIER_TRAINING_CONSTRAINT_SELECTION = "classifier.training.constraint.selection";
+	// number of the most violated constraints of a group kept by topk
+	public static final String CLASSIFIER_TRAINING_CONSTRAINT_K = "classifier.training.constraint.k";
+	// constraints whose margin is at least this value are dropped by margin
+	public static final String CLASSIFIER_TRAINING_CONSTRAINT_MARGIN = "classifier.training.constraint.margin";
+	// probability of keeping a constraint for sample, the kept constraints are reweighted by its inverse
+	public static final String CLASSIFIER_TRAINING_CONSTRAINT_RATE = "classifier.training.constraint.rate";
+	// RankSVM: the cost C, the tolerance of the projected gradient and the maximum number of passes
+	public static final String CLASSIFIER_RANKSVM_C = "classifier.ranksvm.c";
+	public static final String CLASSIFIER_RANKSVM_EPSILON = "classifier.ranksvm.epsilon";
+	public static final String CLASSIFIER_RANKSVM_ITERATIONS = "classifier.ranksvm.iterations";
+	// libsvm: the scaling of the features, none, minmax or standard, and the range of minmax
+	public static final String CLASSIFIER_SVM_SCALING = "classifier.svm.scaling";
+	public static final String CLASSIFIER_SVM_SCALING_LOWER = "classifier.svm.scaling.lower";
+	public static final String CLASSIFIER_SVM_SCALING_UPPER = "classifier.svm.scaling.upper";
 	
 	
 	//
@@ -156,6 +213,9 @@ public class EecbConstants {
 	public static final String FEATURE_STATE = "feature.state";
 	// Atomic features
 	public static final String FEATURE_ATOMIC_NAMES = "feature.atomic.names";
+	// hash the lexicalized pair features into 2^bits buckets after the atomic features, 0 disables them; 
+	// the hashed features are only learned by the Sparse training methods
+	public static final String FEATURE_HASHING_BITS = "feature.hashing.bits";
 
 	
 	
@@ -164,6 +224,19 @@ public class EecbConstants {
 	public static final String METHOD_PROP = "dcoref.method";
 	public static final String METHOD_EPOCH_PROP = "dcoref.method.epoch";
 	public static final String METHOD_FUNCTION_NUMBER_PROP = "dcoref.method.function.number";
+	// number of training topics rolled out at the same time by Dagger, default the number of processors
+	public static final String METHOD_DAGGER_THREADS = "dcoref.method.dagger.threads";
+	// whether the classifier of a Dagger round starts from the parameter of the previous round
+	public static final String METHOD_DAGGER_WARMSTART = "dcoref.method.dagger.warmstart";
+	// model selection on the development set: the number of decodes at the same time, the candidate models
+	// (comma separated, default every model/model*.bin), whether to stop the models which can not win, and the
+	// number of cluster pairs whose features are cached
+	public static final String TUNING_THREADS = "dcoref.tuning.threads";
+	public static final String TUNING_MODELS = "dcoref.tuning.models";
+	public static final String TUNING_PRUNE = "dcoref.tuning.prune";
+	public static final String TUNING_FEATURE_CACHE = "dcoref.tuning.feature.cache";
+	// whether Dagger selects the best of its models on the development set after the last round
+	public static final String TUNING_SELECT = "dcoref.tuning.select";
 
 	// use binary to write and read
 	public static final String IO_BINARY_PROP = "dcoref.io.binary";